@@ -504,7 +504,8 @@ CREATE TABLE lines (
     int_user_needs integer,
     url character varying(255),
     color character varying(6),
-    text_color character varying(6)
+    text_color character varying(6),
+    content_fingerprint character varying(255)
 );
 
 
@@ -1048,7 +1049,7 @@ ALTER TABLE :SCH.vehicle_journey_at_stops OWNER TO chouette;
 
 CREATE SEQUENCE vehicle_journey_at_stops_id_seq
     START WITH 1
-    INCREMENT BY 1
+    INCREMENT BY 1000
     NO MINVALUE
     NO MAXVALUE
     CACHE 1;
@@ -18,6 +18,7 @@ public interface Constant {
 
 	public static final String OPTIMIZED = "optimized";
 	public static final String COPY_IN_PROGRESS = "copy_in_progress";
+	public static final String CONTINUE_ON_LINE_ERRORS = "continue_on_line_errors";
 	public static final String FILE_URL = "file_url";
 	public static final String FILE_NAME = "file_name";
 	public static final String SCHEMA = "schema";
@@ -32,6 +33,7 @@ public interface Constant {
 	public static final String REPORT = "report";
 	public static final String SAVE_MAIN_VALIDATION_REPORT = "save_main_validation_report";
 	public static final String VALIDATION_REPORT = "validation_report";
+	public static final String DEFERRED_REPORTS = "deferred_reports";
 	public static final String REPORT_FILE = "action_report.json";
 	public static final String VALIDATION_FILE = "validation_report.json";
 	public static final String CANCEL_ASKED = "cancel_asked";
@@ -61,6 +63,7 @@ public interface Constant {
 	public static final String NULL = "\\N";
 	
 	public static final String BUFFER = "buffer";
+	public static final String CONTENT_FINGERPRINT = "content_fingerprint";
 
 	public static final String REFERENTIAL_LAST_UPDATE_TIMESTAMP = "REFERENTIAL_LAST_UPDATE_TIMESTAMP";
 	
@@ -6,13 +6,24 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -20,8 +31,15 @@ import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.zip.ScatterZipOutputStream;
+import org.apache.commons.compress.archivers.zip.StreamCompressor;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntryRequest;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.DeferredFileOutputStream;
 import org.zeroturnaround.zip.ZipUtil;
 
 public class FileUtil {
@@ -114,6 +132,127 @@ public class FileUtil {
 
 	}
 
+	/**
+	 * deflated entries up to this size are kept in memory, larger ones are spilled to a temporary file
+	 */
+	private static final int IN_MEMORY_ENTRY_SIZE = 1 << 20;
+
+	/**
+	 * write a zip of the files of a directory to a stream, entries being deflated in parallel by at most threads
+	 * threads
+	 * <br/>
+	 * Entries are written in order as soon as they are deflated, at most twice as many entries as threads being
+	 * deflated ahead. Entry names are relative to the directory. The stream is finished but not closed.
+	 */
+	public static void compress(Path directory, OutputStream output, int threads) throws IOException {
+		List<Path> files;
+		try (Stream<Path> stream = Files.walk(directory)) {
+			files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+		}
+
+		int poolSize = Math.max(1, threads);
+		ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+		Deque<Future<ScatterZipOutputStream>> deflated = new ArrayDeque<>();
+		try {
+			ZipArchiveOutputStream zos = new ZipArchiveOutputStream(output);
+			Iterator<Path> iterator = files.iterator();
+			while (iterator.hasNext() || !deflated.isEmpty()) {
+				while (iterator.hasNext() && deflated.size() < 2 * poolSize) {
+					Path file = iterator.next();
+					deflated.add(executor.submit(() -> deflate(directory, file)));
+				}
+				try (ScatterZipOutputStream entry = deflated.poll().get()) {
+					entry.writeTo(zos);
+				}
+			}
+			zos.finish();
+			zos.flush();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while compressing " + directory, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+			throw new IOException("failed to compress " + directory + " : " + e.getCause(), e.getCause());
+		} finally {
+			executor.shutdownNow();
+			// release the entries deflated but not written
+			for (Future<ScatterZipOutputStream> future : deflated) {
+				future.cancel(true);
+				if (future.isDone() && !future.isCancelled()) {
+					try {
+						future.get().close();
+					} catch (Exception e) {
+						// already failed
+					}
+				}
+			}
+		}
+	}
+
+	private static ScatterZipOutputStream deflate(Path directory, Path file) throws IOException {
+		ZipArchiveEntry entry = new ZipArchiveEntry(directory.relativize(file).toString().replace(File.separatorChar, '/'));
+		entry.setMethod(ZipEntry.DEFLATED);
+		entry.setTime(Files.getLastModifiedTime(file).toMillis());
+
+		ScatterGatherBackingStore store = new DeferredBackingStore(IN_MEMORY_ENTRY_SIZE);
+		ScatterZipOutputStream scatter = new ScatterZipOutputStream(store, StreamCompressor.create(store));
+		try {
+			scatter.addArchiveEntry(ZipArchiveEntryRequest.createZipArchiveEntryRequest(entry, () -> openInputStream(file)));
+		} catch (IOException | RuntimeException e) {
+			scatter.close();
+			throw e;
+		}
+		return scatter;
+	}
+
+	/**
+	 * backing store of a deflated entry, kept in memory up to a threshold
+	 */
+	private static class DeferredBackingStore implements ScatterGatherBackingStore {
+
+		private final DeferredFileOutputStream stream;
+
+		DeferredBackingStore(int threshold) {
+			stream = new DeferredFileOutputStream(threshold, "zip-entry", ".tmp", null);
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			return stream.toInputStream();
+		}
+
+		@Override
+		public void writeOut(byte[] data, int offset, int length) throws IOException {
+			stream.write(data, offset, length);
+		}
+
+		@Override
+		public void closeForWriting() throws IOException {
+			stream.close();
+		}
+
+		@Override
+		public void close() throws IOException {
+			stream.close();
+			if (!stream.isInMemory()) {
+				Files.deleteIfExists(stream.getFile().toPath());
+			}
+		}
+	}
+
+	private static InputStream openInputStream(Path file) {
+		try {
+			return Files.newInputStream(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	private static void getAllFiles(File dir, List<File> fileList) {
 
 		File[] files = dir.listFiles();
@@ -7,6 +7,8 @@ public interface PropertyNames {
 	public static final String JOB_SHCEDULE_INTERVAL_MS = ".jobs.schedule.interval.ms";
     public static final String MAX_STARTED_TRANSFER_JOBS = ".started.transfer.jobs.max";
     public static final String MAX_COPY_BY_JOB = ".copy.by.import.max";
+    /** Maximum size (MB) of the COPY batches of an import waiting to be written. */
+    public static final String MAX_COPY_MB_BY_JOB = ".copy.by.import.max.mb";
 
     public static final String RESCHEDULE_INTERRUPTED_JOBS = ".reschedule.interrupted.jobs";
 
@@ -0,0 +1,38 @@
+package mobi.chouette.common;
+
+import lombok.extern.log4j.Log4j;
+
+@Log4j
+public class PropertyUtil {
+
+	/**
+	 * integer system property, at least 1
+	 *
+	 * @return the default value when the property is not set or is not a number
+	 */
+	public static int getIntProperty(String property, int defaultValue) {
+		return getIntProperty(property, defaultValue, 1);
+	}
+
+	/**
+	 * integer system property, raised to the lower bound when below
+	 *
+	 * @return the default value when the property is not set or is not a number
+	 */
+	public static int getIntProperty(String property, int defaultValue, int minValue) {
+		String value = System.getProperty(property);
+		if (value != null) {
+			try {
+				int result = Integer.parseInt(value.trim());
+				if (result < minValue) {
+					log.warn("Value of property named " + property + " raised to " + minValue + " : " + value);
+					return minValue;
+				}
+				return result;
+			} catch (NumberFormatException e) {
+				log.warn("Illegal value for property named " + property + " : " + value);
+			}
+		}
+		return defaultValue;
+	}
+}
@@ -4,12 +4,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 
 import javax.naming.InitialContext;
@@ -34,6 +31,10 @@ public class ParallelExecutionCommand implements Command {
 	private List<Pair<Command, Function<Context, Context>>> commands = new ArrayList<>();
 
 	private static final int DEFAULT_TIMEOUT_SECONDS = 3600;
+
+	/**
+	 * timeout per command, measured from command start
+	 */
 	@Getter
 	@Setter
 	private int timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
@@ -54,40 +55,30 @@ public class ParallelExecutionCommand implements Command {
 		boolean result = SUCCESS;
 		Monitor monitor = MonitorFactory.start(COMMAND);
 
-		final AtomicInteger counter = new AtomicInteger(0);
-		ThreadFactory threadFactory = r -> {
-			Thread t = new Thread(r);
-			t.setName("parallel-execution-command-thread-" + (counter.incrementAndGet()));
-			t.setPriority(Thread.MIN_PRIORITY);
-			return t;
-		};
-		int processors = Math.min(commands.size(), Runtime.getRuntime().availableProcessors());
-		ExecutorService executor = Executors.newFixedThreadPool(processors, threadFactory);
+		SharedTaskExecutor executor = new SharedTaskExecutor(COMMAND, context,
+				Math.min(commands.size(), SharedTaskExecutor.getDefaultMaxConcurrency()));
+		executor.setTaskTimeoutSeconds(timeoutSeconds);
 
 		try {
-			List<Future<Boolean>> commandExecutionResults = new ArrayList<>();
+			List<Pair<Command, Future<Boolean>>> commandExecutionResults = new ArrayList<>();
 
 			for (Pair<Command, Function<Context, Context>> commandWithContext : commands) {
 				Command command = commandWithContext.getLeft();
 				Function<Context, Context> contextInitializer = commandWithContext.getRight();
 				Context commandContext = contextInitializer.apply(context);
-				commandExecutionResults.add(executor.submit(new CommandTask(command, commandContext)));
+				commandExecutionResults.add(Pair.of(command, executor.submit(command.getClass().getSimpleName(),
+						new CommandTask(command, commandContext))));
 			}
 
-			executor.shutdown();
-
-			boolean completed = executor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS);
-
-			if (completed) {
-				for (Future<Boolean> commandResult : commandExecutionResults) {
-					if (commandResult.get() == ERROR) {
+			for (Pair<Command, Future<Boolean>> commandResult : commandExecutionResults) {
+				try {
+					if (executor.get(commandResult.getRight()) == ERROR) {
 						result = ERROR;
 					}
+				} catch (TimeoutException | CancellationException e) {
+					log.warn(COMMAND + " " + commandResult.getLeft().getClass().getSimpleName() + " : " + e.getMessage());
+					result = ERROR;
 				}
-			} else {
-				log.warn(COMMAND + " failed to complete within " + timeoutSeconds + " seconds");
-				executor.shutdownNow();
-				result = ERROR;
 			}
 		} catch (Exception e) {
 			log.error("Parallel command execution failed ", e);
@@ -0,0 +1,406 @@
+package mobi.chouette.common.parallel;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j;
+import mobi.chouette.common.Constant;
+import mobi.chouette.common.Context;
+import mobi.chouette.common.JobData;
+import mobi.chouette.common.PropertyUtil;
+
+import com.jamonapi.MonitorFactory;
+
+/**
+ * Execute tasks of a job on a fixed size thread pool shared by all jobs of the node.
+ * <br/>
+ * This is a plain {@link ThreadPoolExecutor} : tasks of all jobs wait in a single FIFO queue, there is no work
+ * stealing between threads. Fairness between jobs only comes from the permits below.
+ * <br/>
+ * The number of tasks of a job running or queued at the same time is capped for the whole job (JOB_DATA in the
+ * context), and for each executor by its maxConcurrency. A permit is held until its task completes, even when the
+ * task was cancelled and ignores the interruption. Each executor enforces a timeout per task (measured from task
+ * start) and cancels its tasks when the job is cancelled (CANCEL_ASKED in the job context). Queue wait and execution
+ * time of each task are recorded as Jamon monitors named &lt;name&gt;.&lt;label&gt;.wait and
+ * &lt;name&gt;.&lt;label&gt;.run.
+ * <br/>
+ * Tasks may submit tasks : a pool thread never waits for a permit or for a task not started yet, it executes the
+ * task itself, so that nested tasks cannot starve the pool.
+ * <br/>
+ * Shared pool size is set by the iev.parallel.execution.threads system property (default : available processors),
+ * cap per job by iev.parallel.execution.job.threads.max (default : half the shared pool size). A job asking for more
+ * threads than the cap gets the cap (see {@link #capJobConcurrency(String, int)}).
+ */
+@Log4j
+public class SharedTaskExecutor implements Constant {
+
+	public static final String POOL_THREADS_PROPERTY = "iev.parallel.execution.threads";
+
+	public static final String JOB_MAX_THREADS_PROPERTY = "iev.parallel.execution.job.threads.max";
+
+	private static final long POLL_INTERVAL_MILLIS = 500;
+
+	private static ThreadPoolExecutor pool;
+
+	/**
+	 * permits of the running jobs per job id
+	 */
+	private static final Map<Long, JobPermits> jobPermits = new HashMap<>();
+
+	private final String name;
+
+	private final Context context;
+
+	private final Semaphore permits;
+
+	private final Long jobId;
+
+	private final JobPermits job;
+
+	private final AtomicBoolean shutdown = new AtomicBoolean(false);
+
+	/**
+	 * submitted tasks by future
+	 */
+	private final Map<Future<?>, Task<?>> tasks = new IdentityHashMap<>();
+
+	@Getter
+	private final int maxConcurrency;
+
+	/**
+	 * timeout per task in seconds, 0 for none
+	 */
+	@Getter
+	@Setter
+	private long taskTimeoutSeconds = 0;
+
+	public SharedTaskExecutor(String name, Context context) {
+		this(name, context, getDefaultMaxConcurrency());
+	}
+
+	public SharedTaskExecutor(String name, Context context, int maxConcurrency) {
+		this.name = name;
+		this.context = context;
+		this.maxConcurrency = Math.max(1, maxConcurrency);
+		this.permits = new Semaphore(this.maxConcurrency);
+		JobData jobData = context == null ? null : (JobData) context.get(JOB_DATA);
+		this.jobId = jobData == null ? null : jobData.getId();
+		// tasks out of a job are only capped by the executor
+		this.job = jobId == null ? null : JobPermits.use(jobId);
+	}
+
+	public static synchronized ThreadPoolExecutor getPool() {
+		if (pool == null) {
+			int threads = PropertyUtil.getIntProperty(POOL_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+			final AtomicInteger counter = new AtomicInteger(0);
+			// the queue is bounded by the permits of the running jobs
+			pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+				Thread t = new PoolThread(r);
+				t.setName("shared-task-executor-thread-" + (counter.incrementAndGet()));
+				t.setDaemon(true);
+				t.setPriority(Thread.MIN_PRIORITY);
+				return t;
+			});
+			pool.allowCoreThreadTimeOut(true);
+			log.info("shared task executor created with " + threads + " threads");
+		}
+		return pool;
+	}
+
+	public static int getDefaultMaxConcurrency() {
+		return PropertyUtil.getIntProperty(JOB_MAX_THREADS_PROPERTY, Math.max(1, getPool().getMaximumPoolSize() / 2));
+	}
+
+	/**
+	 * number of threads a job may use, at most the cap per job
+	 *
+	 * @param what
+	 *            what the threads are requested for, logged when the cap applies
+	 * @param requested
+	 *            number of threads requested by the job (parameter or property)
+	 */
+	public static int capJobConcurrency(String what, int requested) {
+		int cap = getDefaultMaxConcurrency();
+		if (requested > cap) {
+			log.warn(what + " : " + requested + " threads requested, limited to " + cap + " threads per job (pool of "
+					+ getPool().getMaximumPoolSize() + " threads, see " + POOL_THREADS_PROPERTY + " and "
+					+ JOB_MAX_THREADS_PROPERTY + ")");
+			return cap;
+		}
+		return requested;
+	}
+
+	/**
+	 * submit a task, waiting while maxConcurrency tasks of this executor or the cap of tasks of the job are running
+	 * <br/>
+	 * When submitted from a task and no permit is available, the task is executed by the caller.
+	 *
+	 * @param label
+	 *            task label used for metrics
+	 * @param callable
+	 *            task
+	 * @return task future
+	 * @throws CancellationException
+	 *             if the job has been cancelled
+	 */
+	public <T> Future<T> submit(String label, Callable<T> callable) throws InterruptedException {
+		boolean nested = Thread.currentThread() instanceof PoolThread;
+		boolean inline = false;
+		if (nested) {
+			inline = !permits.tryAcquire();
+			if (!inline && job != null && !job.semaphore.tryAcquire()) {
+				permits.release();
+				inline = true;
+			}
+		} else {
+			while (!permits.tryAcquire(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+				checkTasks();
+			}
+			while (job != null && !job.semaphore.tryAcquire(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+				checkTasks();
+			}
+		}
+		Task<T> task = new Task<>(label, callable, !inline);
+		if (isCancelled()) {
+			task.release();
+			throw new CancellationException(name + " cancelled");
+		}
+		synchronized (tasks) {
+			tasks.put(task, task);
+		}
+		if (inline) {
+			task.run();
+		} else {
+			getPool().execute(task);
+		}
+		return task;
+	}
+
+	/**
+	 * wait for a task submitted by this executor
+	 *
+	 * @throws TimeoutException
+	 *             if the task did not complete within taskTimeoutSeconds
+	 * @throws CancellationException
+	 *             if the job has been cancelled
+	 * @throws Exception
+	 *             thrown by the task
+	 */
+	public <T> T get(Future<T> future) throws Exception {
+		Task<?> task;
+		synchronized (tasks) {
+			task = tasks.get(future);
+		}
+		if (task != null && Thread.currentThread() instanceof PoolThread) {
+			// execute the task here when not started yet, instead of waiting for a pool thread
+			task.run();
+		}
+		while (true) {
+			try {
+				return future.get(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				checkTasks();
+			} catch (CancellationException e) {
+				if (task != null && task.timedOut)
+					throw new TimeoutException(name + " task " + task.label + " failed to complete within "
+							+ taskTimeoutSeconds + " seconds");
+				throw e;
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof Exception)
+					throw (Exception) e.getCause();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * cancel all tasks not yet completed
+	 */
+	public void shutdown() {
+		synchronized (tasks) {
+			for (Task<?> task : tasks.values()) {
+				task.cancel(true);
+			}
+			tasks.clear();
+		}
+		if (job != null && shutdown.compareAndSet(false, true)) {
+			job.release(jobId, false);
+		}
+	}
+
+	public boolean isCancelled() {
+		return context != null && context.containsKey(CANCEL_ASKED);
+	}
+
+	private void checkTasks() {
+		boolean cancelled = isCancelled();
+		long now = System.currentTimeMillis();
+		synchronized (tasks) {
+			for (Task<?> task : tasks.values()) {
+				if (task.isDone())
+					continue;
+				if (cancelled) {
+					log.info(name + " task " + task.label + " cancelled");
+					task.cancel(true);
+				} else if (taskTimeoutSeconds > 0 && task.startTime > 0
+						&& now - task.startTime > TimeUnit.SECONDS.toMillis(taskTimeoutSeconds)) {
+					log.warn(name + " task " + task.label + " failed to complete within " + taskTimeoutSeconds + " seconds");
+					task.timedOut = true;
+					task.cancel(true);
+				}
+			}
+		}
+	}
+
+	/**
+	 * number of tasks of a job to run concurrently, from the property suffixed by the referential of the job if set,
+	 * else from the property
+	 *
+	 * @return defaultValue if none of the properties is set
+	 */
+	public static int getJobConcurrency(Context context, String property, int defaultValue) {
+		JobData jobData = context == null ? null : (JobData) context.get(JOB_DATA);
+		if (jobData != null && jobData.getReferential() != null) {
+			String referentialProperty = property + "." + jobData.getReferential();
+			if (System.getProperty(referentialProperty) != null) {
+				return PropertyUtil.getIntProperty(referentialProperty, defaultValue);
+			}
+		}
+		return PropertyUtil.getIntProperty(property, defaultValue);
+	}
+
+	private static class PoolThread extends Thread {
+
+		PoolThread(Runnable runnable) {
+			super(runnable);
+		}
+	}
+
+	/**
+	 * permits shared by the executors of a job, kept while an executor or a task of the job uses them
+	 */
+	private static class JobPermits {
+
+		private final Semaphore semaphore = new Semaphore(Math.max(1, getDefaultMaxConcurrency()));
+
+		private int users = 0;
+
+		static JobPermits use(Long jobId) {
+			synchronized (jobPermits) {
+				JobPermits result = jobPermits.computeIfAbsent(jobId, k -> new JobPermits());
+				result.users++;
+				return result;
+			}
+		}
+
+		void release(Long jobId, boolean permit) {
+			synchronized (jobPermits) {
+				if (permit) {
+					semaphore.release();
+				}
+				if (--users == 0) {
+					jobPermits.remove(jobId);
+				}
+			}
+		}
+	}
+
+	private class Task<T> extends FutureTask<T> {
+
+		private final String label;
+
+		private final boolean holdsPermits;
+
+		private final AtomicBoolean started = new AtomicBoolean(false);
+
+		private final AtomicBoolean released = new AtomicBoolean(false);
+
+		private final long submitTime = System.currentTimeMillis();
+
+		private volatile long startTime = 0;
+
+		private volatile boolean timedOut = false;
+
+		Task(String label, Callable<T> callable, boolean holdsPermits) {
+			this(label, callable, holdsPermits, Thread.currentThread().getContextClassLoader());
+		}
+
+		private Task(String label, Callable<T> callable, boolean holdsPermits, ClassLoader classLoader) {
+			super(() -> {
+				Thread thread = Thread.currentThread();
+				ClassLoader previous = thread.getContextClassLoader();
+				try {
+					thread.setContextClassLoader(classLoader);
+					return callable.call();
+				} finally {
+					thread.setContextClassLoader(previous);
+				}
+			});
+			this.label = label;
+			this.holdsPermits = holdsPermits;
+			if (holdsPermits && job != null) {
+				JobPermits.use(jobId);
+			}
+		}
+
+		/**
+		 * executed once, by a pool thread or by a thread waiting for the task
+		 */
+		@Override
+		public void run() {
+			if (!started.compareAndSet(false, true)) {
+				return;
+			}
+			startTime = System.currentTimeMillis();
+			MonitorFactory.add(name + "." + label + ".wait", "ms", startTime - submitTime);
+			try {
+				if (SharedTaskExecutor.this.isCancelled()) {
+					setException(new CancellationException(name + " cancelled"));
+				} else {
+					super.run();
+				}
+			} finally {
+				if (isCancelled() && !(Thread.currentThread() instanceof PoolThread)) {
+					// clear the interrupt of the cancellation, the task was executed by its caller
+					Thread.interrupted();
+				}
+				MonitorFactory.add(name + "." + label + ".run", "ms", System.currentTimeMillis() - startTime);
+				release();
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean result = super.cancel(mayInterruptIfRunning);
+			// a task removed from the queue will not run, its permits are released now
+			if (getPool().remove(this) && started.compareAndSet(false, true)) {
+				release();
+			}
+			return result;
+		}
+
+		private void release() {
+			if (holdsPermits && released.compareAndSet(false, true)) {
+				permits.release();
+				if (job != null) {
+					job.release(jobId, true);
+				}
+			}
+		}
+	}
+}
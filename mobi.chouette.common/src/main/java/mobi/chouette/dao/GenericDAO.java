@@ -31,6 +31,14 @@ public interface GenericDAO<T> {
 
 	List<T> findAll(Collection<Long> ids);
 
+	/**
+	 * Find entities by ids, from the persistence context or the second level cache when present there.
+	 * Ids without entity are ignored.
+	 * @param ids
+	 * @return
+	 */
+	List<T> findAllCached(Collection<Long> ids);
+
 	List<T> find(String hql, List<Object> values);
 
 	void create(T entity);
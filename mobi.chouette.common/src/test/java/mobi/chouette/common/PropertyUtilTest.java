@@ -0,0 +1,27 @@
+package mobi.chouette.common;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PropertyUtilTest {
+
+	private static final String PROPERTY = "iev.test.property.util";
+
+	@Test
+	public void testIntPropertyIsAtLeastOne() throws Exception {
+		try {
+			Assert.assertEquals(PropertyUtil.getIntProperty(PROPERTY, 5), 5, "default when not set");
+			System.setProperty(PROPERTY, " 8 ");
+			Assert.assertEquals(PropertyUtil.getIntProperty(PROPERTY, 5), 8);
+			System.setProperty(PROPERTY, "0");
+			Assert.assertEquals(PropertyUtil.getIntProperty(PROPERTY, 5), 1, "raised to the lower bound");
+			System.setProperty(PROPERTY, "-3");
+			Assert.assertEquals(PropertyUtil.getIntProperty(PROPERTY, 5), 1, "raised to the lower bound");
+			Assert.assertEquals(PropertyUtil.getIntProperty(PROPERTY, 5, 0), 0, "raised to the given lower bound");
+			System.setProperty(PROPERTY, "many");
+			Assert.assertEquals(PropertyUtil.getIntProperty(PROPERTY, 5), 5, "default when not a number");
+		} finally {
+			System.clearProperty(PROPERTY);
+		}
+	}
+}
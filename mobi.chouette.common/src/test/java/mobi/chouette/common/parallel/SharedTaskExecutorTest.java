@@ -0,0 +1,243 @@
+package mobi.chouette.common.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mobi.chouette.common.Constant;
+import mobi.chouette.common.Context;
+import mobi.chouette.common.JobData;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SharedTaskExecutorTest {
+
+	@Test
+	public void testConcurrencyIsCapped() throws Exception {
+		SharedTaskExecutor executor = new SharedTaskExecutor("test", new Context(), 2);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		List<Future<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			final int value = i;
+			futures.add(executor.submit("task", () -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				Thread.sleep(20);
+				running.decrementAndGet();
+				return value;
+			}));
+		}
+		for (int i = 0; i < 10; i++) {
+			Assert.assertEquals(executor.get(futures.get(i)), Integer.valueOf(i));
+		}
+		Assert.assertTrue(maxRunning.get() <= 2);
+	}
+
+	@Test
+	public void testJobConcurrencyIsCapped() throws Exception {
+		System.setProperty(SharedTaskExecutor.JOB_MAX_THREADS_PROPERTY, "2");
+		try {
+			Assert.assertEquals(SharedTaskExecutor.capJobConcurrency("test", 1), 1);
+			Assert.assertEquals(SharedTaskExecutor.capJobConcurrency("test", 2), 2);
+			Assert.assertEquals(SharedTaskExecutor.capJobConcurrency("test", 8), 2, "lowered to the cap per job");
+		} finally {
+			System.clearProperty(SharedTaskExecutor.JOB_MAX_THREADS_PROPERTY);
+		}
+	}
+
+	@Test(expectedExceptions = TimeoutException.class)
+	public void testTaskTimeout() throws Exception {
+		SharedTaskExecutor executor = new SharedTaskExecutor("test", new Context(), 1);
+		executor.setTaskTimeoutSeconds(1);
+		Future<Boolean> future = executor.submit("task", () -> {
+			Thread.sleep(10000);
+			return true;
+		});
+		executor.get(future);
+	}
+
+	@Test(expectedExceptions = CancellationException.class)
+	public void testJobCancellation() throws Exception {
+		Context context = new Context();
+		SharedTaskExecutor executor = new SharedTaskExecutor("test", context, 1);
+		Future<Boolean> future = executor.submit("task", () -> {
+			Thread.sleep(10000);
+			return true;
+		});
+		context.put(Constant.CANCEL_ASKED, Boolean.TRUE);
+		executor.get(future);
+	}
+
+	@Test
+	public void testConcurrencyIsCappedPerJob() throws Exception {
+		System.setProperty(SharedTaskExecutor.JOB_MAX_THREADS_PROPERTY, "1");
+		try {
+			Context context = new Context();
+			context.put(Constant.JOB_DATA, new TestJobData(1L));
+			SharedTaskExecutor first = new SharedTaskExecutor("first", context, 4);
+			SharedTaskExecutor second = new SharedTaskExecutor("second", context, 4);
+			AtomicInteger running = new AtomicInteger();
+			AtomicInteger maxRunning = new AtomicInteger();
+			List<Future<Boolean>> futures = new ArrayList<>();
+			for (int i = 0; i < 6; i++) {
+				futures.add((i % 2 == 0 ? first : second).submit("task", () -> {
+					maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+					Thread.sleep(20);
+					running.decrementAndGet();
+					return true;
+				}));
+			}
+			for (int i = 0; i < 6; i++) {
+				Assert.assertTrue((i % 2 == 0 ? first : second).get(futures.get(i)));
+			}
+			first.shutdown();
+			second.shutdown();
+			Assert.assertEquals(maxRunning.get(), 1);
+		} finally {
+			System.clearProperty(SharedTaskExecutor.JOB_MAX_THREADS_PROPERTY);
+		}
+	}
+
+	@Test(timeOut = 30000)
+	public void testNestedTasksComplete() throws Exception {
+		Context context = new Context();
+		context.put(Constant.JOB_DATA, new TestJobData(2L));
+		SharedTaskExecutor outer = new SharedTaskExecutor("outer", context, 8);
+		List<Future<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			futures.add(outer.submit("outer", () -> {
+				SharedTaskExecutor inner = new SharedTaskExecutor("inner", context, 2);
+				List<Future<Integer>> innerFutures = new ArrayList<>();
+				for (int j = 0; j < 5; j++) {
+					innerFutures.add(inner.submit("inner", () -> 1));
+				}
+				int sum = 0;
+				for (Future<Integer> future : innerFutures) {
+					sum += inner.get(future);
+				}
+				inner.shutdown();
+				return sum;
+			}));
+		}
+		for (Future<Integer> future : futures) {
+			Assert.assertEquals(outer.get(future), Integer.valueOf(5));
+		}
+		outer.shutdown();
+	}
+
+	@Test
+	public void testCancelledTaskHoldsPermitUntilCompleted() throws Exception {
+		SharedTaskExecutor executor = new SharedTaskExecutor("test", new Context(), 1);
+		CountDownLatch latch = new CountDownLatch(1);
+		AtomicBoolean completed = new AtomicBoolean(false);
+		Future<Boolean> future = executor.submit("task", () -> {
+			// ignores interruption
+			while (true) {
+				try {
+					latch.await();
+					completed.set(true);
+					return true;
+				} catch (InterruptedException e) {
+					// continue
+				}
+			}
+		});
+		Thread.sleep(50);
+		future.cancel(true);
+		new Thread(() -> {
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				// ignore
+			}
+			latch.countDown();
+		}).start();
+
+		Future<Boolean> next = executor.submit("next", () -> completed.get());
+		Assert.assertTrue(executor.get(next), "next task should only start once the cancelled one completed");
+		executor.shutdown();
+	}
+
+	@Test
+	public void testJobConcurrencyOfReferential() {
+		String property = "iev.test.line.processing.threads";
+		Context context = new Context();
+		context.put(Constant.JOB_DATA, new TestJobData(2L, "tst"));
+		try {
+			Assert.assertEquals(SharedTaskExecutor.getJobConcurrency(context, property, 1), 1);
+			System.setProperty(property, "4");
+			Assert.assertEquals(SharedTaskExecutor.getJobConcurrency(context, property, 1), 4);
+			System.setProperty(property + ".tst", "8");
+			Assert.assertEquals(SharedTaskExecutor.getJobConcurrency(context, property, 1), 8);
+			Assert.assertEquals(SharedTaskExecutor.getJobConcurrency(new Context(), property, 1), 4);
+		} finally {
+			System.clearProperty(property);
+			System.clearProperty(property + ".tst");
+		}
+	}
+
+	private static class TestJobData implements JobData {
+
+		private final Long id;
+
+		private final String referential;
+
+		TestJobData(Long id) {
+			this(id, null);
+		}
+
+		TestJobData(Long id, String referential) {
+			this.id = id;
+			this.referential = referential;
+		}
+
+		@Override
+		public Long getId() {
+			return id;
+		}
+
+		@Override
+		public String getInputFilename() {
+			return null;
+		}
+
+		@Override
+		public void setInputFilename(String filename) {
+		}
+
+		@Override
+		public String getOutputFilename() {
+			return null;
+		}
+
+		@Override
+		public void setOutputFilename(String filename) {
+		}
+
+		@Override
+		public String getReferential() {
+			return referential;
+		}
+
+		@Override
+		public String getAction() {
+			return null;
+		}
+
+		@Override
+		public String getType() {
+			return null;
+		}
+
+		@Override
+		public String getPathName() {
+			return null;
+		}
+	}
+}
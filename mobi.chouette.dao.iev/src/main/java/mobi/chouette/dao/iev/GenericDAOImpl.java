@@ -1,7 +1,10 @@
 package mobi.chouette.dao.iev;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 import javax.persistence.Cache;
 import javax.persistence.EntityManager;
@@ -67,6 +70,17 @@ public abstract class GenericDAOImpl<T> implements GenericDAO<T> {
 		return result;
 	}
 	
+	@Override
+	public List<T> findAllCached(final Collection<Long> ids) {
+		if (ids == null || ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Session session = em.unwrap(Session.class);
+		List<T> result = new ArrayList<>(session.byMultipleIds(type).enableSessionCheck(true).multiLoad(new ArrayList<>(ids)));
+		result.removeIf(Objects::isNull);
+		return result;
+	}
+
 	@Override
 	public List<T> findAll() {
 		List<T> result = null;
@@ -0,0 +1,59 @@
+package mobi.chouette.dao.iev;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+
+import lombok.extern.log4j.Log4j;
+import mobi.chouette.model.iev.ReferentialStatistics;
+
+@Stateless
+@Log4j
+public class ReferentialStatisticsDAO extends GenericDAOImpl<ReferentialStatistics> {
+
+	public ReferentialStatisticsDAO() {
+		super(ReferentialStatistics.class);
+	}
+
+	@PersistenceContext(unitName = "iev")
+	public void setEntityManager(EntityManager em) {
+		this.em = em;
+	}
+
+	public List<ReferentialStatistics> findByReferentials(Collection<String> referentials) {
+		if (referentials.isEmpty()) {
+			return Collections.emptyList();
+		}
+		TypedQuery<ReferentialStatistics> query = em.createQuery(
+				"SELECT s FROM ReferentialStatistics s WHERE s.referential IN :referentials", ReferentialStatistics.class);
+		query.setParameter("referentials", referentials);
+		return query.getResultList();
+	}
+
+	/**
+	 * replace the statistics of a referential
+	 */
+	public void save(String referential, String content) {
+		ReferentialStatistics statistics = em.find(ReferentialStatistics.class, referential);
+		if (statistics == null) {
+			statistics = new ReferentialStatistics();
+			statistics.setReferential(referential);
+			em.persist(statistics);
+		}
+		statistics.setUpdated(LocalDateTime.now());
+		statistics.setContent(content);
+	}
+
+	public void deleteByReferential(String referential) {
+		ReferentialStatistics statistics = em.find(ReferentialStatistics.class, referential);
+		if (statistics != null) {
+			em.remove(statistics);
+		}
+	}
+}
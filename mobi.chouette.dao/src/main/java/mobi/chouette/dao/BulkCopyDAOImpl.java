@@ -0,0 +1,161 @@
+package mobi.chouette.dao;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import lombok.extern.log4j.Log4j;
+import mobi.chouette.persistence.hibernate.ContextHolder;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.jboss.jca.adapters.jdbc.WrappedConnection;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+@Stateless
+@Log4j
+public class BulkCopyDAOImpl implements BulkCopyDAO {
+
+	private static final String SQL_NEXTVAL = "SELECT nextval(?) FROM generate_series(1, ?)";
+
+	// sequence resolved on the search path of the referential
+	private static final String SQL_INCREMENT = "SELECT seqincrement FROM pg_sequence WHERE seqrelid = ?::regclass";
+
+	/**
+	 * sequences whose increment was checked, by referential
+	 */
+	private static final Set<String> checkedSequences = ConcurrentHashMap.newKeySet();
+
+	@PersistenceContext(unitName = "referential")
+	private EntityManager em;
+
+	public void setEntityManager(EntityManager em) {
+		this.em = em;
+	}
+
+	@Override
+	public long[] allocateIds(final Class<?> entityClass, final int count) {
+		final long[] result = new long[count];
+		if (count == 0) {
+			return result;
+		}
+		SequenceStyleGenerator generator = getGenerator(entityClass);
+		final String sequence = generator.getDatabaseStructure().getName();
+		final long increment = generator.getOptimizer().getIncrementSize();
+		Session session = em.unwrap(Session.class);
+		session.doWork(connection -> {
+			checkIncrement(connection, sequence, increment);
+			// each nextval reserves increment ids, ending with the returned value as with the hibernate pooled
+			// optimizer
+			int index = 0;
+			while (index < count) {
+				// the first block of the sequence may be shorter, loop until enough ids are reserved
+				long blocks = (count - index + increment - 1) / increment;
+				try (PreparedStatement statement = connection.prepareStatement(SQL_NEXTVAL)) {
+					statement.setString(1, sequence);
+					statement.setInt(2, (int) blocks);
+					try (ResultSet rs = statement.executeQuery()) {
+						while (rs.next() && index < count) {
+							long last = rs.getLong(1);
+							for (long id = Math.max(1, last - increment + 1); id <= last && index < count; id++) {
+								result[index++] = id;
+							}
+						}
+					}
+				}
+			}
+		});
+		return result;
+	}
+
+	private SequenceStyleGenerator getGenerator(Class<?> entityClass) {
+		IdentifierGenerator generator = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+				.getMetamodel().entityPersister(entityClass).getIdentifierGenerator();
+		if (!(generator instanceof SequenceStyleGenerator)) {
+			throw new IllegalArgumentException(entityClass.getSimpleName() + " ids are not generated by a sequence");
+		}
+		return (SequenceStyleGenerator) generator;
+	}
+
+	/**
+	 * blocks of the generator overlap when the sequence increment is lower than its allocation size, as in schemas
+	 * created with INCREMENT BY 1 and not upgraded yet (see ReferentialDAO.upgradeSchemas) ; checked once per
+	 * sequence of a referential
+	 */
+	private static void checkIncrement(Connection connection, String sequence, long increment) throws SQLException {
+		String key = ContextHolder.getContext() + "." + sequence;
+		if (checkedSequences.contains(key)) {
+			return;
+		}
+		long current;
+		try (PreparedStatement statement = connection.prepareStatement(SQL_INCREMENT)) {
+			statement.setString(1, sequence);
+			try (ResultSet rs = statement.executeQuery()) {
+				if (!rs.next()) {
+					throw new SQLException("unknown sequence " + sequence);
+				}
+				current = rs.getLong(1);
+			}
+		}
+		if (current < increment) {
+			throw new IllegalStateException("sequence " + sequence + " of " + ContextHolder.getContext()
+					+ " increments by " + current + ", below the allocation size " + increment
+					+ " of its generator : referential schemas must be upgraded");
+		}
+		checkedSequences.add(key);
+	}
+
+	@Override
+	public long copy(final BinaryCopyBuffer buffer) {
+		if (buffer.getRowCount() == 0) {
+			return 0;
+		}
+		final String sql = "COPY " + buffer.getTable() + "(" + String.join(", ", buffer.getColumns())
+				+ ") FROM STDIN WITH (FORMAT binary)";
+		Session session = em.unwrap(Session.class);
+		return session.doReturningWork(connection -> {
+			try {
+				CopyManager manager = getPGConnection(connection).getCopyAPI();
+				long count = manager.copyIn(sql, buffer.toInputStream());
+				log.info("copy " + count + " rows in " + buffer.getTable() + " (" + buffer.size() + " bytes)");
+				return count;
+			} catch (IOException e) {
+				throw new SQLException("copy in " + buffer.getTable() + " failed", e);
+			}
+		});
+	}
+
+	@Override
+	public boolean copyNewEntities(Collection<?> roots) {
+		SessionImplementor session = em.unwrap(SessionImplementor.class);
+		EntityCopyWriter writer = new EntityCopyWriter(session);
+		if (!writer.collect(roots)) {
+			return false;
+		}
+		writer.allocateIds(this::allocateIds);
+		writer.prepare();
+		session.doWork(connection -> writer.write(getPGConnection(connection).getCopyAPI()));
+		return true;
+	}
+
+	private static PGConnection getPGConnection(Connection connection) throws SQLException {
+		if (connection instanceof WrappedConnection) {
+			return (PGConnection) ((WrappedConnection) connection).getUnderlyingConnection();
+		}
+		return connection.unwrap(PGConnection.class);
+	}
+
+}
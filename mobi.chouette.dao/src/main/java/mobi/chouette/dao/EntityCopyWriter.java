@@ -0,0 +1,600 @@
+package mobi.chouette.dao;
+
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.extern.log4j.Log4j;
+
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.CascadingActions;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.collection.QueryableCollection;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.persister.entity.Joinable;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.CollectionType;
+import org.hibernate.type.CompositeType;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * rows of the new entities reachable from some roots by the persist cascade, as persist then flush would insert
+ * them, written with text COPY : ids of the entity generators, interceptor onSave, property columns, index of
+ * inverse lists, key of unidirectional one-to-many and rows of join and element collection tables
+ * <p>
+ * written entities stay out of the persistence context, later references to them are resolved by id. A graph
+ * hibernate would write otherwise is not written at all (see {@link #collect(Collection)}) and is left to persist.
+ */
+@Log4j
+class EntityCopyWriter {
+
+	/**
+	 * characters sent to the server at once
+	 */
+	private static final int WRITE_SIZE = 1 << 16;
+
+	private static final String NULL = "\\N";
+
+	private static final DateTimeFormatter OFFSET_FORMATTER = DateTimeFormatter.ofPattern("xxx");
+
+	@FunctionalInterface
+	interface IdAllocator {
+		long[] allocateIds(Class<?> entityClass, int count);
+	}
+
+	@FunctionalInterface
+	private interface EntityVisitor {
+		void visit(Object entity, boolean cascade);
+	}
+
+	/**
+	 * row of a table, columns in insertion order
+	 */
+	private static class Row {
+		private final String table;
+		private final Map<String, Object> values = new LinkedHashMap<>();
+
+		private Row(String table) {
+			this.table = table;
+		}
+	}
+
+	private final SessionImplementor session;
+
+	private final SessionFactoryImplementor factory;
+
+	/**
+	 * new entities in discovery order, with their persister
+	 */
+	private final Map<Object, EntityPersister> entities = new IdentityHashMap<>();
+
+	private final List<Object> order = new ArrayList<>();
+
+	/**
+	 * new entities referenced without persist cascade, written only when also reached by a cascade
+	 */
+	private final Set<Object> referenced = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	private final Map<Object, Row> rows = new IdentityHashMap<>();
+
+	private final List<Row> collectionRows = new ArrayList<>();
+
+	private List<String> tables;
+
+	// time values are sent as the driver does, in the default time zone
+	private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+
+	EntityCopyWriter(SessionImplementor session) {
+		this.session = session;
+		this.factory = session.getFactory();
+	}
+
+	/**
+	 * collect the new entities reachable from the roots
+	 *
+	 * @return false when the graph must be left to persist : an entity of the persistence context cascades to a
+	 *         new entity (it would be inserted again at flush), a new entity is only referenced without cascade, an
+	 *         existing entity would be updated by a collection of a new one, or foreign keys between tables form a
+	 *         cycle
+	 */
+	boolean collect(Collection<?> roots) {
+		Deque<Object> queue = new ArrayDeque<>();
+		EntityVisitor collector = (entity, cascade) -> {
+			if (!isNew(entity)) {
+				return;
+			}
+			if (!cascade) {
+				referenced.add(entity);
+			} else if (!entities.containsKey(entity)) {
+				entities.put(entity, getPersister(entity));
+				order.add(entity);
+				queue.add(entity);
+			}
+		};
+		for (Object root : roots) {
+			collector.visit(root, true);
+		}
+		while (!queue.isEmpty()) {
+			Object entity = queue.poll();
+			EntityPersister persister = entities.get(entity);
+			visitProperties(persister, entity, collector);
+		}
+		if (order.isEmpty()) {
+			tables = Collections.emptyList();
+			return true;
+		}
+		for (Object entity : referenced) {
+			if (!entities.containsKey(entity)) {
+				log.info("new " + entity.getClass().getSimpleName() + " referenced without cascade, not copied");
+				return false;
+			}
+		}
+		if (isCascadedFromPersistenceContext()) {
+			return false;
+		}
+		for (Object entity : order) {
+			if (!checkCollections(entities.get(entity), entity)) {
+				return false;
+			}
+		}
+		tables = sortTables();
+		return tables != null;
+	}
+
+	/**
+	 * set the ids of the new entities, as their generator would
+	 */
+	void allocateIds(IdAllocator allocator) {
+		Map<EntityPersister, List<Object>> byPersister = new LinkedHashMap<>();
+		for (Object entity : order) {
+			byPersister.computeIfAbsent(entities.get(entity), k -> new ArrayList<>()).add(entity);
+		}
+		for (Map.Entry<EntityPersister, List<Object>> entry : byPersister.entrySet()) {
+			EntityPersister persister = entry.getKey();
+			long[] ids = allocator.allocateIds(persister.getMappedClass(), entry.getValue().size());
+			int index = 0;
+			for (Object entity : entry.getValue()) {
+				persister.setIdentifier(entity, ids[index++], session);
+			}
+		}
+	}
+
+	/**
+	 * notify the interceptor as on save and build the rows of the entities and of their collections, once all ids
+	 * are set
+	 */
+	void prepare() {
+		for (Object entity : order) {
+			EntityPersister persister = entities.get(entity);
+			Serializable id = persister.getIdentifier(entity, session);
+			Object[] state = persister.getPropertyValues(entity);
+			if (session.getInterceptor().onSave(entity, id, state, persister.getPropertyNames(),
+					persister.getPropertyTypes())) {
+				persister.setPropertyValues(entity, state);
+			}
+			rows.put(entity, entityRow(persister, entity, id, state));
+		}
+		for (Object entity : order) {
+			collectionRows(entities.get(entity), entity);
+		}
+	}
+
+	/**
+	 * copy the rows, parent tables first, collection tables last
+	 *
+	 * @return number of rows inserted
+	 */
+	long write(CopyManager manager) throws SQLException {
+		Map<String, Map<List<String>, List<Row>>> byTable = new LinkedHashMap<>();
+		for (String table : tables) {
+			byTable.put(table, new LinkedHashMap<>());
+		}
+		for (Object entity : order) {
+			add(byTable, rows.get(entity));
+		}
+		for (Row row : collectionRows) {
+			add(byTable, row);
+		}
+		long count = 0;
+		for (Map.Entry<String, Map<List<String>, List<Row>>> table : byTable.entrySet()) {
+			for (Map.Entry<List<String>, List<Row>> group : table.getValue().entrySet()) {
+				count += copy(manager, table.getKey(), group.getKey(), group.getValue());
+			}
+		}
+		return count;
+	}
+
+	private static void add(Map<String, Map<List<String>, List<Row>>> byTable, Row row) {
+		// rows of a table may not all have the columns written by a collection of their owner
+		byTable.computeIfAbsent(row.table, k -> new LinkedHashMap<>())
+				.computeIfAbsent(new ArrayList<>(row.values.keySet()), k -> new ArrayList<>()).add(row);
+	}
+
+	private long copy(CopyManager manager, String table, List<String> columns, List<Row> rows) throws SQLException {
+		CopyIn copy = manager.copyIn("COPY " + table + "(" + String.join(", ", columns) + ") FROM STDIN");
+		try {
+			StringBuilder text = new StringBuilder(WRITE_SIZE + 1024);
+			for (Row row : rows) {
+				int index = 0;
+				for (String column : columns) {
+					if (index++ > 0) {
+						text.append('\t');
+					}
+					text.append(encode(row.values.get(column)));
+				}
+				text.append('\n');
+				if (text.length() >= WRITE_SIZE) {
+					send(copy, text);
+				}
+			}
+			send(copy, text);
+			long count = copy.endCopy();
+			log.info("copy " + count + " rows in " + table);
+			return count;
+		} finally {
+			if (copy.isActive()) {
+				copy.cancelCopy();
+			}
+		}
+	}
+
+	private static void send(CopyIn copy, StringBuilder text) throws SQLException {
+		byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+		copy.writeToCopy(bytes, 0, bytes.length);
+		text.setLength(0);
+	}
+
+	/**
+	 * COPY text format of a value bound by a hibernate type
+	 */
+	private String encode(Object value) {
+		if (value == null) {
+			return NULL;
+		}
+		String text;
+		if (value instanceof Boolean) {
+			text = ((Boolean) value) ? "t" : "f";
+		} else if (value instanceof Timestamp) {
+			LocalDateTime dateTime = ((Timestamp) value).toLocalDateTime();
+			text = dateTime + OFFSET_FORMATTER.format(ZoneId.systemDefault().getRules().getOffset(dateTime));
+		} else if (value instanceof Time) {
+			text = timeFormat.format((Time) value);
+		} else if (value instanceof BigDecimal) {
+			text = ((BigDecimal) value).toPlainString();
+		} else if (value instanceof byte[]) {
+			StringBuilder hex = new StringBuilder("\\x");
+			for (byte b : (byte[]) value) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			text = hex.toString();
+		} else {
+			// numbers, strings, dates, PGobject (geometries)
+			text = value.toString();
+		}
+		StringBuilder escaped = null;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			String replacement = c == '\\' ? "\\\\" : c == '\t' ? "\\t" : c == '\n' ? "\\n" : c == '\r' ? "\\r" : null;
+			if (replacement != null && escaped == null) {
+				escaped = new StringBuilder(text.length() + 16).append(text, 0, i);
+			}
+			if (escaped != null) {
+				if (replacement != null) {
+					escaped.append(replacement);
+				} else {
+					escaped.append(c);
+				}
+			}
+		}
+		return escaped == null ? text : escaped.toString();
+	}
+
+	private boolean isNew(Object entity) {
+		return !(entity instanceof HibernateProxy) && !session.getPersistenceContext().isEntryFor(entity)
+				&& getPersister(entity).getIdentifier(entity, session) == null;
+	}
+
+	private EntityPersister getPersister(Object entity) {
+		return factory.getMetamodel().entityPersister(entity.getClass());
+	}
+
+	private void visitProperties(EntityPersister persister, Object entity, EntityVisitor visitor) {
+		Object[] values = persister.getPropertyValues(entity);
+		Type[] types = persister.getPropertyTypes();
+		for (int i = 0; i < types.length; i++) {
+			visit(types[i], values[i], persister.getPropertyCascadeStyles()[i].doCascade(CascadingActions.PERSIST),
+					visitor);
+		}
+	}
+
+	private void visit(Type type, Object value, boolean cascade, EntityVisitor visitor) {
+		if (value == null) {
+			return;
+		}
+		if (type.isEntityType()) {
+			visitor.visit(value, cascade);
+		} else if (type.isCollectionType()) {
+			Type elementType = ((CollectionType) type).getElementType(factory);
+			for (Object element : elements(value)) {
+				visit(elementType, element, cascade, visitor);
+			}
+		} else if (type.isComponentType()) {
+			CompositeType component = (CompositeType) type;
+			Object[] values = component.getPropertyValues(value, session);
+			Type[] subtypes = component.getSubtypes();
+			for (int i = 0; i < subtypes.length; i++) {
+				visit(subtypes[i], values[i], component.getCascadeStyle(i).doCascade(CascadingActions.PERSIST),
+						visitor);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Collection<Object> elements(Object collection) {
+		if (collection instanceof PersistentCollection && !((PersistentCollection) collection).wasInitialized()) {
+			// only elements queued to a lazy collection can be new
+			List<Object> queued = new ArrayList<>();
+			((PersistentCollection) collection).queuedAdditionIterator().forEachRemaining(queued::add);
+			return queued;
+		}
+		if (collection instanceof Map) {
+			return ((Map<Object, Object>) collection).values();
+		}
+		return (Collection<Object>) collection;
+	}
+
+	/**
+	 * flush would persist the new entities a managed entity cascades to
+	 */
+	private boolean isCascadedFromPersistenceContext() {
+		boolean[] cascaded = new boolean[1];
+		EntityVisitor detector = (entity, cascade) -> {
+			if (cascade && entities.containsKey(entity)) {
+				cascaded[0] = true;
+			}
+		};
+		for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContext().reentrantSafeEntityEntries()) {
+			Status status = entry.getValue().getStatus();
+			if (status == Status.MANAGED || status == Status.SAVING || status == Status.READ_ONLY) {
+				visitProperties(entry.getValue().getPersister(), entry.getKey(), detector);
+				if (cascaded[0]) {
+					log.info(entry.getKey().getClass().getSimpleName() + " of the persistence context cascades to new entities, not copied");
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * elements of inverse lists and unidirectional one-to-many of new entities must be new too, hibernate would
+	 * update the existing ones
+	 */
+	private boolean checkCollections(EntityPersister persister, Object entity) {
+		Object[] values = persister.getPropertyValues(entity);
+		Type[] types = persister.getPropertyTypes();
+		for (int i = 0; i < types.length; i++) {
+			if (!types[i].isCollectionType() || values[i] == null) {
+				continue;
+			}
+			CollectionType type = (CollectionType) types[i];
+			if (type.getLHSPropertyName() != null) {
+				log.info("collection " + type.getRole() + " keyed by a property, not copied");
+				return false;
+			}
+			CollectionPersister collection = factory.getMetamodel().collectionPersister(type.getRole());
+			if (collection.isOneToMany() && (!collection.isInverse() || collection.hasIndex())) {
+				for (Object element : elements(values[i])) {
+					if (element != null && !entities.containsKey(element)) {
+						log.info("existing element of " + type.getRole() + " would be updated, not copied");
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	private Row entityRow(EntityPersister persister, Object entity, Serializable id, Object[] state) {
+		AbstractEntityPersister entityPersister = (AbstractEntityPersister) persister;
+		Row row = new Row(entityPersister.getTableName());
+		bind(row, entityPersister.getIdentifierColumnNames(), persister.getIdentifierType(), id);
+		Type[] types = persister.getPropertyTypes();
+		boolean[] insertable = persister.getPropertyInsertability();
+		for (int i = 0; i < types.length; i++) {
+			if (insertable[i] && !types[i].isCollectionType()) {
+				bind(row, entityPersister.getPropertyColumnNames(i), types[i], state[i]);
+			}
+		}
+		return row;
+	}
+
+	private void collectionRows(EntityPersister persister, Object owner) {
+		Serializable id = persister.getIdentifier(owner, session);
+		Object[] values = persister.getPropertyValues(owner);
+		Type[] types = persister.getPropertyTypes();
+		for (int i = 0; i < types.length; i++) {
+			if (!types[i].isCollectionType() || values[i] == null) {
+				continue;
+			}
+			CollectionPersister collection = factory.getMetamodel()
+					.collectionPersister(((CollectionType) types[i]).getRole());
+			QueryableCollection queryable = (QueryableCollection) collection;
+			if (collection.isInverse() && !(collection.isOneToMany() && collection.hasIndex())) {
+				// written by the other side
+				continue;
+			}
+			// lists are mapped with a 0 based order column
+			int index = 0;
+			for (Object element : elements(values[i])) {
+				if (element == null) {
+					index++;
+					continue;
+				}
+				if (collection.isOneToMany()) {
+					// key and index of the element row, the element may map its key itself
+					Row row = rows.get(element);
+					if (!collection.isInverse()) {
+						Row key = new Row(row.table);
+						bind(key, queryable.getKeyColumnNames(), collection.getKeyType(), id);
+						key.values.forEach(row.values::putIfAbsent);
+					}
+					if (collection.hasIndex()) {
+						bind(row, queryable.getIndexColumnNames(), collection.getIndexType(), index);
+					}
+				} else {
+					Row row = new Row(((Joinable) collection).getTableName());
+					bind(row, queryable.getKeyColumnNames(), collection.getKeyType(), id);
+					if (collection.hasIndex()) {
+						bind(row, queryable.getIndexColumnNames(), collection.getIndexType(), index);
+					}
+					bind(row, queryable.getElementColumnNames(), collection.getElementType(), element);
+					collectionRows.add(row);
+				}
+				index++;
+			}
+		}
+	}
+
+	/**
+	 * values of the columns as bound by the type
+	 */
+	private void bind(Row row, String[] columns, Type type, Object value) {
+		if (columns.length == 0) {
+			return;
+		}
+		Object[] values = new Object[columns.length];
+		boolean[] settable = new boolean[columns.length];
+		Arrays.fill(settable, true);
+		try {
+			type.nullSafeSet(capture(values), value, 1, settable, session);
+		} catch (SQLException e) {
+			throw new IllegalStateException("cannot bind " + row.table + Arrays.toString(columns), e);
+		}
+		for (int i = 0; i < columns.length; i++) {
+			row.values.put(columns[i], values[i]);
+		}
+	}
+
+	/**
+	 * statement keeping the values set by a type binder
+	 */
+	private static PreparedStatement capture(Object[] values) {
+		return (PreparedStatement) Proxy.newProxyInstance(EntityCopyWriter.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+					if (method.getName().startsWith("set") && args != null && args.length >= 2
+							&& args[0] instanceof Integer) {
+						values[(Integer) args[0] - 1] = "setNull".equals(method.getName()) ? null : args[1];
+						return null;
+					}
+					if (method.getDeclaringClass() == Object.class) {
+						return method.invoke(values, args);
+					}
+					throw new UnsupportedOperationException("PreparedStatement." + method.getName());
+				});
+	}
+
+	/**
+	 * tables of the rows, a table after the tables its foreign keys refer to, then collection tables
+	 *
+	 * @return null on a cycle between tables
+	 */
+	private List<String> sortTables() {
+		Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+		for (EntityPersister persister : new LinkedHashSet<>(entities.values())) {
+			dependencies.computeIfAbsent(((Joinable) persister).getTableName(), k -> new LinkedHashSet<>());
+		}
+		for (EntityPersister persister : new LinkedHashSet<>(entities.values())) {
+			String table = ((Joinable) persister).getTableName();
+			Type[] types = persister.getPropertyTypes();
+			boolean[] insertable = persister.getPropertyInsertability();
+			for (int i = 0; i < types.length; i++) {
+				if (insertable[i]) {
+					addDependencies(dependencies, table, types[i]);
+				}
+				if (types[i].isCollectionType()) {
+					CollectionPersister collection = factory.getMetamodel()
+							.collectionPersister(((CollectionType) types[i]).getRole());
+					if (collection.isOneToMany() && !collection.isInverse()) {
+						// the element rows get the key of the owner
+						String elementTable = ((Joinable) collection).getTableName();
+						if (dependencies.containsKey(elementTable) && !elementTable.equals(table)) {
+							dependencies.get(elementTable).add(table);
+						}
+					}
+				}
+			}
+		}
+		List<String> sorted = new ArrayList<>();
+		Map<String, Set<String>> remaining = new HashMap<>(dependencies);
+		while (!remaining.isEmpty()) {
+			String next = null;
+			for (String table : dependencies.keySet()) {
+				if (remaining.containsKey(table) && !containsAny(remaining, remaining.get(table))) {
+					next = table;
+					break;
+				}
+			}
+			if (next == null) {
+				log.info("cycle between tables " + remaining.keySet() + ", not copied");
+				return null;
+			}
+			sorted.add(next);
+			remaining.remove(next);
+		}
+		return sorted;
+	}
+
+	private static boolean containsAny(Map<String, Set<String>> remaining, Set<String> tables) {
+		for (String table : tables) {
+			if (remaining.containsKey(table)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void addDependencies(Map<String, Set<String>> dependencies, String table, Type type) {
+		if (type.isEntityType() && type.getColumnSpan(factory) > 0) {
+			String target = ((EntityType) type).getAssociatedJoinable(factory).getTableName();
+			if (dependencies.containsKey(target) && !target.equals(table)) {
+				dependencies.get(table).add(target);
+			}
+		} else if (type.isComponentType()) {
+			for (Type subtype : ((CompositeType) type).getSubtypes()) {
+				addDependencies(dependencies, table, subtype);
+			}
+		}
+	}
+
+}
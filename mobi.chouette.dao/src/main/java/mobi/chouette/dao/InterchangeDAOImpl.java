@@ -9,6 +9,13 @@ import mobi.chouette.model.Interchange;
 @Stateless
 public class InterchangeDAOImpl extends GenericDAOImpl<Interchange> implements InterchangeDAO{
 
+	// codespace of the interchange, as in NeptuneIdentifiedObject.objectIdPrefix()
+	private static final String SQL_DELETE_WITH_MISSING_FEEDER = "DELETE FROM interchanges i USING"
+			+ " (SELECT id, CASE WHEN array_length(string_to_array(objectid, ':'), 1) > 2"
+			+ " THEN trim(split_part(objectid, ':', 1)) ELSE '' END AS prefix FROM interchanges) p"
+			+ " WHERE p.id = i.id AND left(i.from_vehicle_journey, length(p.prefix)) = p.prefix"
+			+ " AND NOT EXISTS (SELECT 1 FROM vehicle_journeys vj WHERE vj.objectid = i.from_vehicle_journey)";
+
 	public InterchangeDAOImpl() {
 		super(Interchange.class);
 	}
@@ -18,4 +25,9 @@ public class InterchangeDAOImpl extends GenericDAOImpl<Interchange> implements I
 		this.em = em;
 	}
 
+	@Override
+	public int deleteWithMissingFeederVehicleJourney() {
+		return em.createNativeQuery(SQL_DELETE_WITH_MISSING_FEEDER).executeUpdate();
+	}
+
 }
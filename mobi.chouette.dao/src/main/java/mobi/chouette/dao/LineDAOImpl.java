@@ -1,10 +1,19 @@
 package mobi.chouette.dao;
 
+import java.util.List;
+
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
+import mobi.chouette.model.JourneyPattern;
 import mobi.chouette.model.Line;
+import mobi.chouette.model.Route;
+import mobi.chouette.model.StopPoint;
+import mobi.chouette.model.Timetable;
+import mobi.chouette.model.VehicleJourney;
+
+import org.hibernate.jpa.QueryHints;
 
 @Stateless (name="LineDAO")
 public class LineDAOImpl extends GenericDAOImpl<Line> implements LineDAO {
@@ -17,5 +26,56 @@ public class LineDAOImpl extends GenericDAOImpl<Line> implements LineDAO {
 	public void setEntityManager(EntityManager em) {
 		this.em = em;
 	}
-	
+
+	@Override
+	public String findContentFingerprint(String objectId) {
+		List<String> result = em
+				.createQuery("SELECT l.contentFingerprint FROM Line l WHERE l.objectId = :objectId", String.class)
+				.setParameter("objectId", objectId).getResultList();
+		return result.isEmpty() ? null : result.get(0);
+	}
+
+	@Override
+	public void updateContentFingerprint(String objectId, String fingerprint) {
+		em.createQuery("UPDATE Line l SET l.contentFingerprint = :fingerprint WHERE l.objectId = :objectId")
+				.setParameter("fingerprint", fingerprint).setParameter("objectId", objectId).executeUpdate();
+	}
+
+	@Override
+	public Line findForExport(Long lineId) {
+		List<Line> lines = fetch("select distinct l from Line l left join fetch l.network left join fetch l.company"
+				+ " left join fetch l.routes where l.id = :lineId", Line.class, lineId);
+		if (lines.isEmpty()) {
+			return null;
+		}
+
+		// each query initializes one collection for all its owners of the line
+		fetch("select distinct r from Route r left join fetch r.stopPoints where r.line.id = :lineId", Route.class, lineId);
+		fetch("select distinct r from Route r left join fetch r.journeyPatterns where r.line.id = :lineId", Route.class, lineId);
+		fetch("select distinct sp from StopPoint sp left join fetch sp.scheduledStopPoint where sp.route.line.id = :lineId",
+				StopPoint.class, lineId);
+		fetch("select distinct jp from JourneyPattern jp left join fetch jp.stopPoints where jp.route.line.id = :lineId",
+				JourneyPattern.class, lineId);
+		fetch("select distinct jp from JourneyPattern jp left join fetch jp.routeSections where jp.route.line.id = :lineId",
+				JourneyPattern.class, lineId);
+		fetch("select distinct jp from JourneyPattern jp left join fetch jp.vehicleJourneys where jp.route.line.id = :lineId",
+				JourneyPattern.class, lineId);
+		fetch("select distinct vj from VehicleJourney vj left join fetch vj.vehicleJourneyAtStops where vj.route.line.id = :lineId",
+				VehicleJourney.class, lineId);
+
+		// periods and calendar days are eager : load them before the timetables are reached from vehicle journeys,
+		// otherwise they are loaded by one select per timetable batch
+		String lineTimetables = " where t.id in (select tt.id from VehicleJourney vj join vj.timetables tt where vj.route.line.id = :lineId)";
+		fetch("select distinct t from Timetable t left join fetch t.periods" + lineTimetables, Timetable.class, lineId);
+		fetch("select distinct t from Timetable t left join fetch t.calendarDays" + lineTimetables, Timetable.class, lineId);
+		fetch("select distinct vj from VehicleJourney vj left join fetch vj.timetables where vj.route.line.id = :lineId",
+				VehicleJourney.class, lineId);
+		return lines.get(0);
+	}
+
+	private <T> List<T> fetch(String jpql, Class<T> type, Long lineId) {
+		return em.createQuery(jpql, type).setParameter("lineId", lineId)
+				.setHint(QueryHints.HINT_PASS_DISTINCT_THROUGH, false).getResultList();
+	}
+
 }
@@ -3,13 +3,23 @@ package mobi.chouette.dao;
 import lombok.extern.log4j.Log4j;
 import mobi.chouette.model.dto.ReferentialInfo;
 
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.EntityPersister;
+
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.ParameterMode;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
 import javax.persistence.Query;
 import javax.persistence.StoredProcedureQuery;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Stateless(name = "ReferentialDAO")
 @Log4j
@@ -28,9 +38,29 @@ public class ReferentialDAOImpl implements ReferentialDAO {
 
     private static final String SQL_DELETE_USERS = "DELETE FROM public.users WHERE email=:email";
 
+    // lines tables of referential and template schemas created before the content fingerprint
+    private static final String SQL_ADD_LINE_CONTENT_FINGERPRINT = "DO $$ DECLARE s text; BEGIN "
+            + "FOR s IN SELECT t.table_schema FROM information_schema.tables t WHERE t.table_name = 'lines' "
+            + "AND NOT EXISTS (SELECT 1 FROM information_schema.columns c WHERE c.table_schema = t.table_schema "
+            + "AND c.table_name = 'lines' AND c.column_name = 'content_fingerprint') LOOP "
+            + "EXECUTE format('ALTER TABLE %I.lines ADD COLUMN IF NOT EXISTS content_fingerprint character varying', s); "
+            + "END LOOP; END $$";
+
+    // sequences of referential schemas, and of the public schema they are cloned from, created with an increment lower
+    // than the allocation size of their generator (%s : values of sequence name and allocation size)
+    private static final String SQL_RAISE_SEQUENCE_INCREMENTS = "DO $$ DECLARE r record; BEGIN "
+            + "FOR r IN SELECT s.schemaname, s.sequencename, a.increment FROM pg_sequences s "
+            + "JOIN (VALUES %s) AS a(sequencename, increment) ON a.sequencename = s.sequencename "
+            + "WHERE s.increment_by < a.increment LOOP "
+            + "EXECUTE format('ALTER SEQUENCE %%I.%%I INCREMENT BY %%s', r.schemaname, r.sequencename, r.increment); "
+            + "END LOOP; END $$";
+
     @PersistenceContext(unitName = "public")
     private EntityManager em;
 
+    @PersistenceUnit(unitName = "referential")
+    private EntityManagerFactory referentialEntityManagerFactory;
+
     @Override
     public boolean hasReferential(String referentialName) {
         Query query = em.createNativeQuery(SQL_SELECT_REFERENTIAL);
@@ -44,6 +74,38 @@ public class ReferentialDAOImpl implements ReferentialDAO {
         return query.getResultList();
     }
 
+    @Override
+    public void upgradeSchemas() {
+        em.createNativeQuery(SQL_ADD_LINE_CONTENT_FINGERPRINT).executeUpdate();
+        raiseSequenceIncrements();
+    }
+
+    /**
+     * ids handed out by the pooled generators of the referential entities overlap when their sequence increments by
+     * less than the allocation size, as in schemas created with INCREMENT BY 1
+     */
+    private void raiseSequenceIncrements() {
+        Map<String, Long> increments = new TreeMap<>();
+        SessionFactoryImplementor sessionFactory = referentialEntityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+            IdentifierGenerator generator = persister.getIdentifierGenerator();
+            if (generator instanceof SequenceStyleGenerator) {
+                SequenceStyleGenerator sequenceGenerator = (SequenceStyleGenerator) generator;
+                String sequence = sequenceGenerator.getDatabaseStructure().getName();
+                // schema of the referential is set on the connection
+                sequence = sequence.substring(sequence.lastIndexOf('.') + 1);
+                increments.merge(sequence, (long) sequenceGenerator.getOptimizer().getIncrementSize(), Math::max);
+            }
+        }
+        if (increments.isEmpty()) {
+            return;
+        }
+        List<String> values = new ArrayList<>();
+        increments.forEach((sequence, increment) -> values.add("('" + sequence.replace("'", "''") + "', " + increment + ")"));
+        em.createNativeQuery(String.format(SQL_RAISE_SEQUENCE_INCREMENTS, String.join(", ", values))).executeUpdate();
+        log.info("sequence increments checked for " + increments.size() + " sequences");
+    }
+
     @Override
     public void createReferential(ReferentialInfo referentialInfo) {
 
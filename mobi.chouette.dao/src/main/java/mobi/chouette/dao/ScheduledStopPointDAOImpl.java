@@ -1,6 +1,11 @@
 package mobi.chouette.dao;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.ejb.Stateless;
@@ -8,11 +13,20 @@ import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 
 import mobi.chouette.model.ScheduledStopPoint;
+
+import com.google.common.collect.Iterables;
+import org.hibernate.query.NativeQuery;
+
 @Stateless
 public class ScheduledStopPointDAOImpl extends GenericDAOImpl<ScheduledStopPoint> implements ScheduledStopPointDAO {
 
+	private static final String REPLACEMENT_TABLE = "stop_area_replacements";
+
+	private static final int REPLACEMENT_INSERT_BATCH_SIZE = 500;
+
 	public ScheduledStopPointDAOImpl() {
 		super(ScheduledStopPoint.class);
 	}
@@ -27,6 +41,18 @@ public class ScheduledStopPointDAOImpl extends GenericDAOImpl<ScheduledStopPoint
 		return em.createQuery("select ssp from ScheduledStopPoint ssp where ssp.containedInStopAreaObjectId=:stopAreaObjectId", ScheduledStopPoint.class).setParameter("stopAreaObjectId", stopAreaObjectId).getResultList();
 	}
 
+	@Override
+	public Map<String, List<ScheduledStopPoint>> getScheduledStopPointsContainedInStopAreas(Collection<String> stopAreaObjectIds) {
+		Map<String, List<ScheduledStopPoint>> result = new HashMap<>();
+		for (List<String> ids : Iterables.partition(stopAreaObjectIds, 32000)) {
+			List<ScheduledStopPoint> scheduledStopPoints = em.createQuery("select ssp from ScheduledStopPoint ssp where ssp.containedInStopAreaObjectId in (:stopAreaObjectIds)", ScheduledStopPoint.class).setParameter("stopAreaObjectIds", ids).getResultList();
+			for (ScheduledStopPoint scheduledStopPoint : scheduledStopPoints) {
+				result.computeIfAbsent(scheduledStopPoint.getContainedInStopAreaRef().getObjectId(), k -> new ArrayList<>()).add(scheduledStopPoint);
+			}
+		}
+		return result;
+	}
+
 	@Override
 	public int replaceContainedInStopAreaReferences(Set<String> oldStopAreaIds, String newStopAreaId) {
 		if (oldStopAreaIds != null && oldStopAreaIds.size() > 0) {
@@ -36,6 +62,51 @@ public class ScheduledStopPointDAOImpl extends GenericDAOImpl<ScheduledStopPoint
 		return 0;
 	}
 
+	@Override
+	public int replaceContainedInStopAreaReferences(Map<String, Set<String>> replacementMap) {
+		Map<String, String> replacements = new LinkedHashMap<>();
+		if (replacementMap != null) {
+			replacementMap.forEach((newStopAreaId, oldStopAreaIds) -> {
+				if (oldStopAreaIds != null) {
+					oldStopAreaIds.stream().filter(oldStopAreaId -> !oldStopAreaId.equals(newStopAreaId))
+							.forEach(oldStopAreaId -> replacements.putIfAbsent(oldStopAreaId, newStopAreaId));
+				}
+			});
+		}
+		if (replacements.isEmpty()) {
+			return 0;
+		}
+
+		// temporary table lives in the session of the transaction, whatever the referential schema
+		nativeQuery("DROP TABLE IF EXISTS pg_temp." + REPLACEMENT_TABLE, REPLACEMENT_TABLE).executeUpdate();
+		nativeQuery("CREATE TEMPORARY TABLE " + REPLACEMENT_TABLE + " (old_objectid varchar(255) PRIMARY KEY, new_objectid varchar(255) NOT NULL) ON COMMIT DROP", REPLACEMENT_TABLE).executeUpdate();
+		for (List<Map.Entry<String, String>> batch : Iterables.partition(replacements.entrySet(), REPLACEMENT_INSERT_BATCH_SIZE)) {
+			StringBuilder sql = new StringBuilder("INSERT INTO " + REPLACEMENT_TABLE + " (old_objectid, new_objectid) VALUES ");
+			for (int i = 0; i < batch.size(); i++) {
+				sql.append(i == 0 ? "" : ", ").append("(?").append(2 * i + 1).append(", ?").append(2 * i + 2).append(")");
+			}
+			Query insert = nativeQuery(sql.toString(), REPLACEMENT_TABLE);
+			for (int i = 0; i < batch.size(); i++) {
+				insert.setParameter(2 * i + 1, batch.get(i).getKey());
+				insert.setParameter(2 * i + 2, batch.get(i).getValue());
+			}
+			insert.executeUpdate();
+		}
+		nativeQuery("ANALYZE " + REPLACEMENT_TABLE, REPLACEMENT_TABLE).executeUpdate();
+
+		return nativeQuery("UPDATE scheduled_stop_points ssp SET stop_area_objectid_key = r.new_objectid FROM " + REPLACEMENT_TABLE
+				+ " r WHERE ssp.stop_area_objectid_key = r.old_objectid", "scheduled_stop_points").executeUpdate();
+	}
+
+	/**
+	 * native query invalidating only the second level cache regions of the given table
+	 */
+	private Query nativeQuery(String sql, String querySpace) {
+		Query query = em.createNativeQuery(sql);
+		query.unwrap(NativeQuery.class).addSynchronizedQuerySpace(querySpace);
+		return query;
+	}
+
 	/**
 	 * Get in separate transactions in order to be able to iterate over all referentials
 	 */
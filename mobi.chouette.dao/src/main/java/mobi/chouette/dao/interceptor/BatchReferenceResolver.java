@@ -0,0 +1,177 @@
+package mobi.chouette.dao.interceptor;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import lombok.extern.log4j.Log4j;
+import mobi.chouette.common.PropertyUtil;
+import mobi.chouette.persistence.hibernate.ContextHolder;
+
+/**
+ * Resolve cross-schema references by batches instead of one lookup per reference.
+ * <br/>
+ * Object ids are registered as entities holding a reference are loaded. The first reference resolved in a
+ * transaction resolves up to iev.stop.area.reference.batch.size (default 500) pending object ids with a single
+ * loader call, and resolved values are kept as the identity map of the transaction : later references to the same
+ * object id get the same value without any query. Missing object ids are not kept, so that a value persisted later in
+ * the transaction is found, and persisting an entity must {@link #invalidate(String)} the values it changes. Pending
+ * and resolved object ids are scoped to the current JTA transaction and referential of the thread. Outside a
+ * transaction each reference is resolved on its own.
+ */
+@Log4j
+class BatchReferenceResolver<T> {
+
+	public static final String BATCH_SIZE_PROPERTY = "iev.stop.area.reference.batch.size";
+
+	private static final int DEFAULT_BATCH_SIZE = 500;
+
+	private static final String TRANSACTION_SYNCHRONIZATION_REGISTRY = "java:comp/TransactionSynchronizationRegistry";
+
+	private static TransactionSynchronizationRegistry registry;
+
+	private static boolean registryLookedUp;
+
+	private final ThreadLocal<State<T>> states = new ThreadLocal<>();
+
+	private final Function<Collection<String>, Map<String, T>> loader;
+
+	private final int batchSize;
+
+	/**
+	 * @param loader values of a set of object ids, missing object ids being absent from the returned map
+	 */
+	BatchReferenceResolver(Function<Collection<String>, Map<String, T>> loader) {
+		this(loader, PropertyUtil.getIntProperty(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE));
+	}
+
+	BatchReferenceResolver(Function<Collection<String>, Map<String, T>> loader, int batchSize) {
+		this.loader = loader;
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * declare an object id that is likely to be resolved in the current transaction
+	 */
+	void register(String objectId) {
+		State<T> state = getState();
+		if (objectId != null && state != null && !state.resolved.containsKey(objectId)) {
+			state.pending.add(objectId);
+		}
+	}
+
+	/**
+	 * @return value of the object id, null if it does not exist
+	 */
+	T resolve(String objectId) {
+		if (objectId == null) {
+			return null;
+		}
+		State<T> state = getState();
+		if (state == null) {
+			return loader.apply(Arrays.asList(objectId)).get(objectId);
+		}
+		if (state.resolved.containsKey(objectId)) {
+			return state.resolved.get(objectId);
+		}
+
+		Set<String> objectIds = new LinkedHashSet<>();
+		objectIds.add(objectId);
+		state.pending.remove(objectId);
+		for (Iterator<String> it = state.pending.iterator(); it.hasNext() && objectIds.size() < batchSize; ) {
+			objectIds.add(it.next());
+			it.remove();
+		}
+		if (log.isTraceEnabled()) {
+			log.trace("Resolving " + objectIds.size() + " references in batch, " + state.pending.size() + " still pending");
+		}
+
+		Map<String, T> values = loader.apply(objectIds);
+		for (String id : objectIds) {
+			T value = values.get(id);
+			if (value != null) {
+				state.resolved.put(id, value);
+			}
+		}
+		return values.get(objectId);
+	}
+
+	/**
+	 * forget the value of an object id changed in the current transaction, it is resolved again with the next batch
+	 */
+	void invalidate(String objectId) {
+		State<T> state = getState();
+		if (objectId != null && state != null && state.resolved.remove(objectId) != null) {
+			state.pending.add(objectId);
+		}
+	}
+
+	/**
+	 * forget pending and resolved object ids of the thread
+	 */
+	void clear() {
+		states.remove();
+	}
+
+	private State<T> getState() {
+		Object transactionKey = getTransactionKey();
+		if (transactionKey == null) {
+			states.remove();
+			return null;
+		}
+		List<Object> scope = Arrays.asList(transactionKey, ContextHolder.getContext());
+		State<T> state = states.get();
+		if (state == null || !state.scope.equals(scope)) {
+			state = new State<>(scope);
+			states.set(state);
+		}
+		return state;
+	}
+
+	private static Object getTransactionKey() {
+		TransactionSynchronizationRegistry transactionSynchronizationRegistry = getRegistry();
+		if (transactionSynchronizationRegistry == null) {
+			return null;
+		}
+		try {
+			return transactionSynchronizationRegistry.getTransactionKey();
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static synchronized TransactionSynchronizationRegistry getRegistry() {
+		if (!registryLookedUp) {
+			try {
+				registry = (TransactionSynchronizationRegistry) new InitialContext().lookup(TRANSACTION_SYNCHRONIZATION_REGISTRY);
+			} catch (NamingException | RuntimeException e) {
+				log.warn("No transaction synchronization registry, references will be resolved one by one : " + e.getMessage());
+			}
+			registryLookedUp = true;
+		}
+		return registry;
+	}
+
+	private static class State<T> {
+
+		private final List<Object> scope;
+
+		private final Set<String> pending = new LinkedHashSet<>();
+
+		private final Map<String, T> resolved = new HashMap<>();
+
+		State(List<Object> scope) {
+			this.scope = scope;
+		}
+	}
+}
@@ -1,6 +1,10 @@
 package mobi.chouette.dao.interceptor;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.enterprise.inject.spi.CDI;
 
@@ -11,10 +15,13 @@ import mobi.chouette.model.ScheduledStopPoint;
 import mobi.chouette.model.StopArea;
 
 import org.hibernate.EmptyInterceptor;
+import org.hibernate.Transaction;
 import org.hibernate.type.Type;
 
 /**
  * StopPoint and RouteSections reside in separate schemas from StopArea. This Interceptor enriches these entities with relations between them upon load.
+ * <br/>
+ * Stop areas referred to by the scheduled stop points loaded in a transaction are fetched together on first access (see {@link BatchReferenceResolver}).
  */
 @Log4j
 public class RelationsToStopAreaInterceptor extends EmptyInterceptor {
@@ -23,6 +30,15 @@ public class RelationsToStopAreaInterceptor extends EmptyInterceptor {
 
 	private static final String STOP_POINT_CONTAINED_IN_STOP_AREA_ID_PROPERTY = "containedInStopAreaObjectId";
 
+	private static final BatchReferenceResolver<StopArea> stopAreaResolver = new BatchReferenceResolver<>(RelationsToStopAreaInterceptor::findStopAreas);
+
+	/**
+	 * forget the stop area resolved in the current transaction for this object id, as it has just been persisted
+	 */
+	static void onStopAreaPersisted(String stopAreaObjectId) {
+		stopAreaResolver.invalidate(stopAreaObjectId);
+	}
+
 	@Override
 	public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
 		init();
@@ -42,7 +58,33 @@ public class RelationsToStopAreaInterceptor extends EmptyInterceptor {
 
 		if (!(scheduledStopPoint.getContainedInStopAreaRef() instanceof LazyLoadingStopAreaReference)) {
 			scheduledStopPoint.setContainedInStopAreaRef(new LazyLoadingStopAreaReference(containedInStopAreaId));
+			stopAreaResolver.register(containedInStopAreaId);
+		}
+	}
+
+	@Override
+	public void afterTransactionCompletion(Transaction tx) {
+		stopAreaResolver.clear();
+		super.afterTransactionCompletion(tx);
+	}
+
+	private static Map<String, StopArea> findStopAreas(Collection<String> stopAreaObjectIds) {
+		StopAreaDAO stopAreaDAO = CDI.current().select(StopAreaDAO.class).get();
+		Map<String, StopArea> stopAreas = new HashMap<>();
+		List<StopArea> found = stopAreaDAO.findByObjectIdNoFlush(stopAreaObjectIds);
+		if (found != null) {
+			found.forEach(stopArea -> stopAreas.put(stopArea.getObjectId(), stopArea));
 		}
+		// stop areas persisted but not flushed yet are only found by natural id
+		for (String stopAreaObjectId : stopAreaObjectIds) {
+			if (!stopAreas.containsKey(stopAreaObjectId)) {
+				StopArea stopArea = stopAreaDAO.findByObjectId(stopAreaObjectId);
+				if (stopArea != null) {
+					stopAreas.put(stopAreaObjectId, stopArea);
+				}
+			}
+		}
+		return stopAreas;
 	}
 
 	@Override
@@ -54,6 +96,10 @@ public class RelationsToStopAreaInterceptor extends EmptyInterceptor {
 	@Override
 	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState, String[] propertyNames, Type[] types) {
 		onCreateOrUpdate(entity);
+		if (entity instanceof ScheduledStopPoint && previousState != null) {
+			// the stop area the scheduled stop point was contained in loses it
+			StopAreaRelationInterceptor.onScheduledStopPointsChanged(getProperty(STOP_POINT_CONTAINED_IN_STOP_AREA_ID_PROPERTY, propertyNames, previousState));
+		}
 		return super.onFlushDirty(entity, id, currentState, previousState, propertyNames, types);
 	}
 
@@ -71,7 +117,7 @@ public class RelationsToStopAreaInterceptor extends EmptyInterceptor {
 					stopAreaDAO.create(stopArea);
 				}
 			}
-
+			StopAreaRelationInterceptor.onScheduledStopPointsChanged(scheduledStopPoint.getContainedInStopAreaRef().getObjectId());
 		}
 	}
 
@@ -125,7 +171,7 @@ public class RelationsToStopAreaInterceptor extends EmptyInterceptor {
 		private synchronized void setTarget() {
 			if (!loaded) {
 				if (stopAreaObjectId != null) {
-					target = stopAreaDAO.findByObjectId(stopAreaObjectId);
+					target = stopAreaResolver.resolve(stopAreaObjectId);
 				}
 				loaded = true;
 			}
@@ -5,7 +5,9 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import javax.enterprise.inject.spi.CDI;
 
@@ -17,24 +19,31 @@ import mobi.chouette.model.StopArea;
 import mobi.chouette.persistence.hibernate.ContextHolder;
 
 import org.hibernate.EmptyInterceptor;
+import org.hibernate.Transaction;
 import org.hibernate.type.Type;
 
 /**
  * StopPoint and StopArea reside in separate schemas. This Interceptor enriches these entities with relations between them upon load.
+ * <br/>
+ * Scheduled stop points contained in the stop areas loaded in a transaction are fetched together on first access (see {@link BatchReferenceResolver}).
  */
 @Log4j
 public class StopAreaRelationInterceptor extends EmptyInterceptor {
 
+    private static final String STOP_AREA_OBJECT_ID_PROPERTY = "objectId";
 
-    private ScheduledStopPointDAO scheduledStopPointDAO;
+    private static final BatchReferenceResolver<List<ScheduledStopPoint>> containedScheduledStopPointsResolver = new BatchReferenceResolver<>(StopAreaRelationInterceptor::findContainedScheduledStopPoints);
 
-    private static final String STOP_AREA_OBJECT_ID_PROPERTY = "objectId";
+    /**
+     * forget the scheduled stop points resolved in the current transaction for this stop area, as one of them has just been persisted
+     */
+    static void onScheduledStopPointsChanged(String stopAreaObjectId) {
+        containedScheduledStopPointsResolver.invalidate(stopAreaObjectId);
+    }
 
 
     @Override
     public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
-        init();
-
         if (entity instanceof StopArea) {
 
             StopArea stopArea = (StopArea) entity;
@@ -47,11 +56,32 @@ public class StopAreaRelationInterceptor extends EmptyInterceptor {
             List<ScheduledStopPoint> containedScheduledStopPointsProxy = (List<ScheduledStopPoint>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{List.class}, new LazyLoadContainedScheduledStopPointsInvocationHandler(stopAreaObjectId));
 
             stopArea.setContainedScheduledStopPoints(containedScheduledStopPointsProxy);
+            if (ContextHolder.getContext() != null) {
+                containedScheduledStopPointsResolver.register(stopAreaObjectId);
+            }
         }
 
         return super.onLoad(entity, id, state, propertyNames, types);
     }
 
+    @Override
+    public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        if (entity instanceof StopArea) {
+            RelationsToStopAreaInterceptor.onStopAreaPersisted(((StopArea) entity).getObjectId());
+        }
+        return super.onSave(entity, id, state, propertyNames, types);
+    }
+
+    @Override
+    public void afterTransactionCompletion(Transaction tx) {
+        containedScheduledStopPointsResolver.clear();
+        super.afterTransactionCompletion(tx);
+    }
+
+    private static Map<String, List<ScheduledStopPoint>> findContainedScheduledStopPoints(Collection<String> stopAreaObjectIds) {
+        return CDI.current().select(ScheduledStopPointDAO.class).get().getScheduledStopPointsContainedInStopAreas(stopAreaObjectIds);
+    }
+
 
     private <T> T getProperty(String propertyName, String[] propertyNames, Object[] state) {
 
@@ -67,12 +97,6 @@ public class StopAreaRelationInterceptor extends EmptyInterceptor {
     }
 
 
-    private void init() {
-        if (scheduledStopPointDAO == null) {
-            scheduledStopPointDAO = CDI.current().select(ScheduledStopPointDAO.class).get();
-        }
-    }
-
     private class LazyLoadContainedScheduledStopPointsInvocationHandler implements InvocationHandler {
 
         private String stopAreaObjectId;
@@ -101,7 +125,9 @@ public class StopAreaRelationInterceptor extends EmptyInterceptor {
                     if (log.isTraceEnabled()) {
                         log.trace("Lazy loading scheduled stop points for stop area: " + stopAreaObjectId);
                     }
-                    target = scheduledStopPointDAO.getScheduledStopPointsContainedInStopArea(stopAreaObjectId);
+                    List<ScheduledStopPoint> containedScheduledStopPoints = containedScheduledStopPointsResolver.resolve(stopAreaObjectId);
+                    // each stop area gets its own list, as it may be modified
+                    target = containedScheduledStopPoints == null ? new ArrayList<>() : new ArrayList<>(containedScheduledStopPoints);
                 } else {
                     if (log.isTraceEnabled()) {
                         log.trace("Initialize empty scheduled stop point list for stop area outside context: " + stopAreaObjectId);
@@ -0,0 +1,214 @@
+package mobi.chouette.dao;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.ejb.EJB;
+import javax.ejb.EJBException;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.UserTransaction;
+
+import mobi.chouette.model.CalendarDay;
+import mobi.chouette.model.JourneyPattern;
+import mobi.chouette.model.Line;
+import mobi.chouette.model.Period;
+import mobi.chouette.model.Route;
+import mobi.chouette.model.ScheduledStopPoint;
+import mobi.chouette.model.StopPoint;
+import mobi.chouette.model.Timetable;
+import mobi.chouette.model.VehicleJourney;
+import mobi.chouette.model.VehicleJourneyAtStop;
+import mobi.chouette.persistence.hibernate.ContextHolder;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.testng.Arquillian;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.resolver.api.maven.Maven;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BulkCopyDAOTest extends Arquillian
+{
+	@EJB
+	BulkCopyDAO bulkCopyDao;
+
+	@EJB
+	ReferentialDAO referentialDAO;
+
+	@PersistenceContext(unitName = "referential")
+	EntityManager em;
+
+	@Inject
+	UserTransaction utx;
+
+	@Deployment
+	public static WebArchive createDeployment() {
+
+		File[] files = Maven.resolver().loadPomFromFile("pom.xml")
+				.resolve("mobi.chouette:mobi.chouette.dao").withTransitivity().asFile();
+
+		return ShrinkWrap.create(WebArchive.class, "test.war").addAsWebInfResource("postgres-ds.xml")
+				.addAsLibraries(files).addAsResource(EmptyAsset.INSTANCE, "beans.xml");
+	}
+
+	@Test
+	public void checkAllocatedIdsDoNotCollideWithGenerator() throws Exception
+	{
+		ContextHolder.setContext("chouette_gui"); // set tenant schema
+		utx.begin();
+		try
+		{
+			em.joinTransaction();
+			// schemas created from chouette.sql had no pooled increment, they are upgraded at startup
+			em.createNativeQuery("ALTER SEQUENCE vehicle_journey_at_stops_id_seq INCREMENT BY 1").executeUpdate();
+			referentialDAO.upgradeSchemas();
+
+			IdentifierGenerator generator = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+					.getMetamodel().entityPersister(VehicleJourneyAtStop.class).getIdentifierGenerator();
+			SharedSessionContractImplementor session = (SharedSessionContractImplementor) em.unwrap(Session.class);
+
+			Set<Long> ids = new HashSet<>();
+			int count = 0;
+			for (int round = 0; round < 3; round++)
+			{
+				for (long id : bulkCopyDao.allocateIds(VehicleJourneyAtStop.class, 700))
+				{
+					ids.add(id);
+					count++;
+				}
+				for (int i = 0; i < 1500; i++)
+				{
+					ids.add((Long) generator.generate(session, null));
+					count++;
+				}
+			}
+			Assert.assertEquals(ids.size(), count, "ids of both allocators must be distinct");
+
+			Number increment = (Number) em.createNativeQuery(
+					"SELECT seqincrement FROM pg_sequence WHERE seqrelid = 'vehicle_journey_at_stops_id_seq'::regclass")
+					.getSingleResult();
+			Assert.assertEquals(increment.longValue(), 1000L, "sequence increment raised to the allocation size");
+		}
+		finally
+		{
+			utx.rollback();
+		}
+	}
+
+	@Test
+	public void checkAllocationFailsOnSequenceNotUpgraded() throws Exception
+	{
+		ContextHolder.setContext("chouette_gui"); // set tenant schema
+		utx.begin();
+		try
+		{
+			em.joinTransaction();
+			em.createNativeQuery("ALTER SEQUENCE vehicle_journeys_id_seq INCREMENT BY 1").executeUpdate();
+			try
+			{
+				bulkCopyDao.allocateIds(VehicleJourney.class, 10);
+				Assert.fail("allocation must fail while the sequence increment is below the allocation size");
+			}
+			catch (EJBException e)
+			{
+				Assert.assertTrue(e.getCause() instanceof IllegalStateException, String.valueOf(e.getCause()));
+			}
+		}
+		finally
+		{
+			utx.rollback();
+		}
+	}
+
+	@Test
+	public void checkNewLineIsCopied() throws Exception
+	{
+		ContextHolder.setContext("chouette_gui"); // set tenant schema
+		utx.begin();
+		try
+		{
+			em.joinTransaction();
+			referentialDAO.upgradeSchemas();
+
+			String prefix = "Test:" + UUID.randomUUID() + ":";
+			Line line = new Line();
+			line.setObjectId(prefix + "Line");
+			Route route = new Route();
+			route.setObjectId(prefix + "Route");
+			route.setLine(line);
+			JourneyPattern journeyPattern = new JourneyPattern();
+			journeyPattern.setObjectId(prefix + "JourneyPattern");
+			journeyPattern.setRoute(route);
+			Timetable timetable = new Timetable();
+			timetable.setObjectId(prefix + "Timetable");
+			timetable.addCalendarDay(new CalendarDay(LocalDate.of(2026, 1, 1), true));
+			timetable.addPeriod(new Period(LocalDate.of(2026, 1, 1), LocalDate.of(2026, 12, 31)));
+			VehicleJourney vehicleJourney = new VehicleJourney();
+			vehicleJourney.setObjectId(prefix + "VehicleJourney");
+			vehicleJourney.setRoute(route);
+			vehicleJourney.setJourneyPattern(journeyPattern);
+			vehicleJourney.getTimetables().add(timetable);
+			for (int i = 0; i < 3; i++)
+			{
+				ScheduledStopPoint scheduledStopPoint = new ScheduledStopPoint();
+				scheduledStopPoint.setObjectId(prefix + "ScheduledStopPoint" + i);
+				StopPoint stopPoint = new StopPoint();
+				stopPoint.setObjectId(prefix + "StopPoint" + i);
+				stopPoint.setPosition(i);
+				stopPoint.setScheduledStopPoint(scheduledStopPoint);
+				stopPoint.setRoute(route);
+				journeyPattern.addStopPoint(stopPoint);
+				VehicleJourneyAtStop vehicleJourneyAtStop = new VehicleJourneyAtStop();
+				vehicleJourneyAtStop.setObjectId(prefix + "VehicleJourneyAtStop" + i);
+				vehicleJourneyAtStop.setStopPoint(stopPoint);
+				vehicleJourneyAtStop.setArrivalTime(LocalTime.of(8, i));
+				vehicleJourneyAtStop.setDepartureTime(LocalTime.of(8, i));
+				vehicleJourneyAtStop.setVehicleJourney(vehicleJourney);
+			}
+
+			Assert.assertTrue(bulkCopyDao.copyNewEntities(Collections.singletonList(line)), "new line must be copied");
+			Assert.assertNotNull(vehicleJourney.getId(), "ids are set on copied entities");
+			Assert.assertFalse(em.contains(line), "copied entities are not in the persistence context");
+
+			em.clear();
+			Line copied = em.createQuery("SELECT l FROM Line l WHERE l.objectId = :objectId", Line.class)
+					.setParameter("objectId", line.getObjectId()).getSingleResult();
+			Assert.assertEquals(copied.getId(), line.getId());
+			Route copiedRoute = copied.getRoutes().get(0);
+			Assert.assertEquals(copiedRoute.getStopPoints().size(), 3);
+			for (int i = 0; i < 3; i++)
+			{
+				Assert.assertEquals(copiedRoute.getStopPoints().get(i).getObjectId(), prefix + "StopPoint" + i,
+						"stop points in route order");
+				Assert.assertEquals(copiedRoute.getStopPoints().get(i).getScheduledStopPoint().getObjectId(),
+						prefix + "ScheduledStopPoint" + i);
+			}
+			JourneyPattern copiedJourneyPattern = copiedRoute.getJourneyPatterns().get(0);
+			Assert.assertEquals(copiedJourneyPattern.getStopPoints().size(), 3);
+			VehicleJourney copiedVehicleJourney = copiedJourneyPattern.getVehicleJourneys().get(0);
+			Assert.assertEquals(copiedVehicleJourney.getVehicleJourneyAtStops().size(), 3);
+			Timetable copiedTimetable = copiedVehicleJourney.getTimetables().get(0);
+			Assert.assertEquals(copiedTimetable.getCalendarDays().size(), 1);
+			Assert.assertEquals(copiedTimetable.getPeriods().size(), 1);
+			Assert.assertEquals(copiedTimetable.getPeriods().get(0).getEndDate(), LocalDate.of(2026, 12, 31));
+		}
+		finally
+		{
+			utx.rollback();
+		}
+	}
+
+}
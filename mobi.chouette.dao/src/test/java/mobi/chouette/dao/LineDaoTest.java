@@ -3,10 +3,23 @@ package mobi.chouette.dao;
 import java.io.File;
 
 import javax.ejb.EJB;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.UserTransaction;
 
+import mobi.chouette.model.JourneyPattern;
 import mobi.chouette.model.Line;
+import mobi.chouette.model.Route;
+import mobi.chouette.model.StopPoint;
+import mobi.chouette.model.Timetable;
+import mobi.chouette.model.VehicleJourney;
+import mobi.chouette.model.VehicleJourneyAtStop;
 import mobi.chouette.persistence.hibernate.ContextHolder;
 
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.testng.Arquillian;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
@@ -22,6 +35,12 @@ public class LineDaoTest extends Arquillian
 	@EJB 
 	LineDAO lineDao;
 
+	@PersistenceContext(unitName = "referential")
+	EntityManager em;
+
+	@Inject
+	UserTransaction utx;
+
 
 	@Deployment
 	public static WebArchive createDeployment() {
@@ -56,6 +75,110 @@ public class LineDaoTest extends Arquillian
 		}
 	}
 	
+	// after checkSequence, which expects the first line ids
+	@Test(dependsOnMethods = "checkSequence")
+	public void checkFindForExport() throws Exception
+	{
+		ContextHolder.setContext("chouette_gui"); // set tenant schema
+		Line l = createLine();
+		Route route = new Route();
+		route.setObjectId("test:Route:export");
+		route.setLine(l);
+		lineDao.create(l);
+
+		utx.begin();
+		try
+		{
+			lineDao.clear();
+			Line exported = lineDao.findForExport(l.getId());
+			Assert.assertNotNull(exported, "line should be found");
+			Assert.assertTrue(Hibernate.isInitialized(exported.getRoutes()), "routes should be fetched");
+			Assert.assertEquals(exported.getRoutes().size(), 1);
+			Assert.assertTrue(Hibernate.isInitialized(exported.getRoutes().get(0).getJourneyPatterns()), "journey patterns should be fetched");
+			Assert.assertTrue(Hibernate.isInitialized(exported.getRoutes().get(0).getStopPoints()), "stop points should be fetched");
+			Assert.assertNull(lineDao.findForExport(-1L), "unknown line");
+		}
+		finally
+		{
+			utx.rollback();
+		}
+	}
+
+	@Test(dependsOnMethods = "checkSequence")
+	public void checkFindForExportStatementCount() throws Exception
+	{
+		ContextHolder.setContext("chouette_gui"); // set tenant schema
+		Line small = createLineForExport(1, 2, 1);
+		Line large = createLineForExport(3, 5, 4);
+		lineDao.create(small);
+		lineDao.create(large);
+
+		Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		boolean enabled = statistics.isStatisticsEnabled();
+		statistics.setStatisticsEnabled(true);
+		utx.begin();
+		try
+		{
+			long smallCount = countExportStatements(statistics, small);
+			long largeCount = countExportStatements(statistics, large);
+			Assert.assertEquals(largeCount, smallCount, "statements to load a line should not depend on its size");
+		}
+		finally
+		{
+			utx.rollback();
+			statistics.setStatisticsEnabled(enabled);
+		}
+	}
+
+	private long countExportStatements(Statistics statistics, Line line)
+	{
+		lineDao.clear();
+		statistics.clear();
+		Assert.assertNotNull(lineDao.findForExport(line.getId()), "line should be found");
+		return statistics.getPrepareStatementCount();
+	}
+
+	private Line createLineForExport(int routeCount, int stopCount, int journeyCount)
+	{
+		Line l = createLine();
+		String prefix = l.getObjectId();
+		Timetable timetable = new Timetable();
+		timetable.setObjectId(prefix + ":Timetable");
+		for (int r = 0; r < routeCount; r++)
+		{
+			Route route = new Route();
+			route.setObjectId(prefix + ":Route:" + r);
+			route.setLine(l);
+			JourneyPattern journeyPattern = new JourneyPattern();
+			journeyPattern.setObjectId(prefix + ":JourneyPattern:" + r);
+			journeyPattern.setRoute(route);
+			for (int s = 0; s < stopCount; s++)
+			{
+				StopPoint stopPoint = new StopPoint();
+				stopPoint.setObjectId(prefix + ":StopPoint:" + r + "_" + s);
+				stopPoint.setPosition(s);
+				stopPoint.setRoute(route);
+				journeyPattern.getStopPoints().add(stopPoint);
+			}
+			for (int j = 0; j < journeyCount; j++)
+			{
+				VehicleJourney vehicleJourney = new VehicleJourney();
+				vehicleJourney.setObjectId(prefix + ":ServiceJourney:" + r + "_" + j);
+				vehicleJourney.setRoute(route);
+				vehicleJourney.setJourneyPattern(journeyPattern);
+				vehicleJourney.getTimetables().add(timetable);
+				for (int s = 0; s < stopCount; s++)
+				{
+					VehicleJourneyAtStop vehicleJourneyAtStop = new VehicleJourneyAtStop();
+					vehicleJourneyAtStop.setObjectId(prefix + ":VehicleJourneyAtStop:" + r + "_" + j + "_" + s);
+					vehicleJourneyAtStop.setStopPoint(route.getStopPoints().get(s));
+					vehicleJourneyAtStop.setVehicleJourney(vehicleJourney);
+				}
+			}
+		}
+		return l;
+	}
+
 	private int id = 1;
 	private Line createLine()
 	{
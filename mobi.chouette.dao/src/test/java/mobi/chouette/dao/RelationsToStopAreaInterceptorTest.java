@@ -4,6 +4,7 @@ import mobi.chouette.model.SimpleObjectReference;
 import mobi.chouette.model.StopArea;
 import mobi.chouette.model.ScheduledStopPoint;
 import mobi.chouette.model.type.ChouetteAreaEnum;
+import mobi.chouette.model.type.StopAreaImportModeEnum;
 import mobi.chouette.persistence.hibernate.ContextHolder;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.testng.Arquillian;
@@ -15,7 +16,11 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import javax.ejb.EJB;
+import javax.inject.Inject;
+import javax.transaction.UserTransaction;
 import java.io.File;
+import java.util.Arrays;
+import java.util.List;
 
 public class RelationsToStopAreaInterceptorTest extends Arquillian {
 
@@ -25,6 +30,9 @@ public class RelationsToStopAreaInterceptorTest extends Arquillian {
     @EJB
     StopAreaDAO stopAreaDAO;
 
+    @Inject
+    UserTransaction utx;
+
     @Deployment
     public static WebArchive createDeployment() {
 
@@ -67,4 +75,92 @@ public class RelationsToStopAreaInterceptorTest extends Arquillian {
         Assert.assertEquals(dbStopArea.getContainedScheduledStopPoints().get(0).getObjectId(), scheduledStopPoint.getObjectId());
     }
 
+    @Test
+    public void stopAreasAreResolvedTogetherWithinTransaction() throws Exception {
+        ContextHolder.setContext("chouette_gui"); // set tenant schema
+        utx.begin();
+        for (int i = 1; i <= 3; i++) {
+            StopArea stopArea = new StopArea();
+            stopArea.setAreaType(ChouetteAreaEnum.BoardingPosition);
+            stopArea.setObjectId("StopArea:Batch" + i);
+            ScheduledStopPoint scheduledStopPoint = new ScheduledStopPoint();
+            scheduledStopPoint.setObjectId("ScheduledStopPoint:Batch" + i);
+            scheduledStopPoint.setContainedInStopAreaRef(new SimpleObjectReference(stopArea));
+            scheduledStopPointDAO.create(scheduledStopPoint);
+        }
+        // scheduled stop points without stop area
+        for (int i = 4; i <= 5; i++) {
+            ScheduledStopPoint scheduledStopPoint = new ScheduledStopPoint();
+            scheduledStopPoint.setObjectId("ScheduledStopPoint:Batch" + i);
+            scheduledStopPoint.setContainedInStopAreaRef(new SimpleObjectReference(null));
+            scheduledStopPointDAO.create(scheduledStopPoint);
+        }
+        utx.commit();
+
+        utx.begin();
+        try {
+            scheduledStopPointDAO.clear();
+            stopAreaDAO.clear();
+            List<ScheduledStopPoint> scheduledStopPoints = scheduledStopPointDAO.findByObjectId(Arrays.asList("ScheduledStopPoint:Batch1",
+                    "ScheduledStopPoint:Batch2", "ScheduledStopPoint:Batch3", "ScheduledStopPoint:Batch4", "ScheduledStopPoint:Batch5"));
+            Assert.assertEquals(scheduledStopPoints.size(), 5);
+            for (ScheduledStopPoint scheduledStopPoint : scheduledStopPoints) {
+                StopArea stopArea = scheduledStopPoint.getContainedInStopAreaRef().getObject();
+                if (scheduledStopPoint.getObjectId().endsWith("4") || scheduledStopPoint.getObjectId().endsWith("5")) {
+                    Assert.assertNull(stopArea);
+                } else {
+                    Assert.assertEquals(stopArea.getObjectId(), scheduledStopPoint.getObjectId().replace("ScheduledStopPoint", "StopArea"));
+                    Assert.assertSame(stopArea, stopAreaDAO.findByObjectId(stopArea.getObjectId()));
+                    Assert.assertEquals(stopArea.getContainedScheduledStopPoints().size(), 1);
+                    Assert.assertSame(stopArea.getContainedScheduledStopPoints().get(0), scheduledStopPoint);
+                }
+            }
+        } finally {
+            utx.rollback();
+        }
+    }
+
+    @Test
+    public void stopAreasAndScheduledStopPointsPersistedWithinTransactionAreResolved() throws Exception {
+        ContextHolder.setContext("chouette_gui"); // set tenant schema
+        StopArea missingStopArea = new StopArea();
+        missingStopArea.setAreaType(ChouetteAreaEnum.BoardingPosition);
+        missingStopArea.setObjectId("StopArea:Late");
+        missingStopArea.setImportMode(StopAreaImportModeEnum.READ_ONLY);
+        utx.begin();
+        ScheduledStopPoint first = new ScheduledStopPoint();
+        first.setObjectId("ScheduledStopPoint:Late1");
+        first.setContainedInStopAreaRef(new SimpleObjectReference(missingStopArea));
+        scheduledStopPointDAO.create(first);
+        utx.commit();
+
+        utx.begin();
+        try {
+            scheduledStopPointDAO.clear();
+            stopAreaDAO.clear();
+            Assert.assertNull(scheduledStopPointDAO.findByObjectId("ScheduledStopPoint:Late1").getContainedInStopAreaRef().getObject(), "stop area not persisted yet");
+
+            StopArea stopArea = new StopArea();
+            stopArea.setAreaType(ChouetteAreaEnum.BoardingPosition);
+            stopArea.setObjectId("StopArea:Late");
+            stopAreaDAO.create(stopArea);
+            scheduledStopPointDAO.clear();
+            Assert.assertNotNull(scheduledStopPointDAO.findByObjectId("ScheduledStopPoint:Late1").getContainedInStopAreaRef().getObject(), "missing stop area must not be kept");
+
+            stopAreaDAO.flush();
+            stopAreaDAO.clear();
+            Assert.assertEquals(stopAreaDAO.findByObjectId("StopArea:Late").getContainedScheduledStopPoints().size(), 1);
+
+            ScheduledStopPoint second = new ScheduledStopPoint();
+            second.setObjectId("ScheduledStopPoint:Late2");
+            second.setContainedInStopAreaRef(new SimpleObjectReference(stopAreaDAO.findByObjectId("StopArea:Late")));
+            scheduledStopPointDAO.create(second);
+            stopAreaDAO.clear();
+            Assert.assertEquals(stopAreaDAO.findByObjectId("StopArea:Late").getContainedScheduledStopPoints().size(), 2,
+                    "scheduled stop point persisted in the transaction must be contained");
+        } finally {
+            utx.rollback();
+        }
+    }
+
 }
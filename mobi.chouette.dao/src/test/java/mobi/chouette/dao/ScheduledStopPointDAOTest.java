@@ -2,8 +2,11 @@ package mobi.chouette.dao;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.ejb.EJB;
 
@@ -88,6 +91,40 @@ public class ScheduledStopPointDAOTest extends Arquillian {
         scheduledStopPointDAO.replaceContainedInStopAreaReferences(null, "shouldNotFail");
     }
 
+    @Test
+    public void testReplaceStopAreaReferencesFromReplacementMap() {
+        ContextHolder.setContext("chouette_gui"); // set tenant schema
+        scheduledStopPointDAO.truncate();
+
+        StopArea stopAreaOld1 = new StopArea();
+        stopAreaOld1.setImportMode(StopAreaImportModeEnum.READ_ONLY);
+        stopAreaOld1.setObjectId("sa-old-1");
+        StopArea stopAreaOld2 = new StopArea();
+        stopAreaOld2.setImportMode(StopAreaImportModeEnum.READ_ONLY);
+        stopAreaOld2.setObjectId("sa-old-2");
+        StopArea stopAreaKept = new StopArea();
+        stopAreaKept.setImportMode(StopAreaImportModeEnum.READ_ONLY);
+        stopAreaKept.setObjectId("sa-kept");
+
+        ScheduledStopPoint sp1 = createScheduledStopPoint("sp1", stopAreaOld1);
+        ScheduledStopPoint sp2 = createScheduledStopPoint("sp2", stopAreaOld2);
+        ScheduledStopPoint sp3 = createScheduledStopPoint("sp3", stopAreaKept);
+
+        Map<String, Set<String>> replacementMap = new HashMap<>();
+        replacementMap.put("sa-new-1", Sets.newHashSet("sa-old-1", "sa-unknown"));
+        replacementMap.put("sa-new-2", Sets.newHashSet("sa-old-2"));
+        replacementMap.put("sa-kept", Sets.newHashSet("sa-kept"));
+
+        Assert.assertEquals(scheduledStopPointDAO.replaceContainedInStopAreaReferences(replacementMap), 2);
+        Assert.assertTrue(scheduledStopPointDAO.getScheduledStopPointsContainedInStopArea("sa-old-1").isEmpty());
+        Assert.assertTrue(scheduledStopPointDAO.getScheduledStopPointsContainedInStopArea("sa-old-2").isEmpty());
+        Assert.assertEquals(scheduledStopPointDAO.getScheduledStopPointsContainedInStopArea("sa-new-1"), Arrays.asList(sp1));
+        Assert.assertEquals(scheduledStopPointDAO.getScheduledStopPointsContainedInStopArea("sa-new-2"), Arrays.asList(sp2));
+        Assert.assertEquals(scheduledStopPointDAO.getScheduledStopPointsContainedInStopArea("sa-kept"), Arrays.asList(sp3));
+
+        Assert.assertEquals(scheduledStopPointDAO.replaceContainedInStopAreaReferences(new HashMap<>()), 0);
+    }
+
     @Test
     public void testGetAllStopAreaObjectIds() {
         ContextHolder.setContext("chouette_gui"); // set tenant schema
@@ -57,7 +57,7 @@ public class DaoGtfsLineProducerCommand implements Command, Constant
 		try {
 
 			Long lineId = (Long) context.get(LINE_ID);
-			Line line = lineDAO.find(lineId);
+			Line line = lineDAO.findForExport(lineId);
 			InitialContext initialContext = (InitialContext) context.get(INITIAL_CONTEXT);
 			
 			Command export = CommandFactory.create(initialContext, GtfsLineProducerCommand.class.getName());
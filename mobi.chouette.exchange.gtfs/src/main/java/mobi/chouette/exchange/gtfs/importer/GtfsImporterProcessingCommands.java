@@ -15,6 +15,7 @@ import mobi.chouette.common.chain.Chain;
 import mobi.chouette.common.chain.ChainCommand;
 import mobi.chouette.common.chain.Command;
 import mobi.chouette.common.chain.CommandFactory;
+import mobi.chouette.exchange.ParallelLineProcessingCommands;
 import mobi.chouette.exchange.ProcessingCommands;
 import mobi.chouette.exchange.ProcessingCommandsFactory;
 import mobi.chouette.exchange.gtfs.model.GtfsRoute;
@@ -24,6 +25,7 @@ import mobi.chouette.exchange.importer.CleanRepositoryCommand;
 import mobi.chouette.exchange.importer.CopyCommand;
 import mobi.chouette.exchange.importer.GenerateRouteSectionsCommand;
 import mobi.chouette.exchange.importer.LineRegisterCommand;
+import mobi.chouette.exchange.importer.ParallelLineProcessingCommand.LineStages;
 import mobi.chouette.exchange.importer.StopAreaRegisterCommand;
 import mobi.chouette.exchange.importer.UncompressCommand;
 import mobi.chouette.exchange.validation.ImportedLineValidatorCommand;
@@ -33,7 +35,7 @@ import org.apache.commons.collections.CollectionUtils;
 
 @Data
 @Log4j
-public class GtfsImporterProcessingCommands implements ProcessingCommands, Constant {
+public class GtfsImporterProcessingCommands implements ParallelLineProcessingCommands, Constant {
 
 	public static class DefaultFactory extends ProcessingCommandsFactory {
 
@@ -119,6 +121,55 @@ public class GtfsImporterProcessingCommands implements ProcessingCommands, Const
 		return commands;
 	}
 
+	@Override
+	public List<LineStages> getParallelLineProcessingCommands(Context context, boolean withDao) {
+		InitialContext initialContext = (InitialContext) context.get(INITIAL_CONTEXT);
+		GtfsImportParameters parameters = (GtfsImportParameters) context.get(CONFIGURATION);
+		boolean level3validation = context.get(VALIDATION) != null;
+		List<LineStages> stages = new ArrayList<>();
+		GtfsImporter importer = (GtfsImporter) context.get(PARSER);
+		Index<GtfsRoute> index = importer.getRouteById();
+		try {
+			stages.add(new LineStages(null, CommandFactory.create(initialContext, GtfsStopParserCommand.class.getName()), null));
+
+			// rows of a route are read ahead through copies of the indexes, the referential is populated in the
+			// register stage
+			for (GtfsRoute gtfsRoute : index) {
+
+				GtfsRouteReaderCommand reader = (GtfsRouteReaderCommand) CommandFactory.create(initialContext,
+						GtfsRouteReaderCommand.class.getName());
+				reader.setGtfsRouteId(gtfsRoute.getRouteId());
+
+				Chain chain = (Chain) CommandFactory.create(initialContext, ChainCommand.class.getName());
+
+				GtfsRouteParserCommand parser = (GtfsRouteParserCommand) CommandFactory.create(initialContext,
+						GtfsRouteParserCommand.class.getName());
+				parser.setGtfsRouteId(gtfsRoute.getRouteId());
+				chain.add(parser);
+				if (withDao && !parameters.isNoSave()) {
+
+					// register
+					Command register = CommandFactory.create(initialContext, LineRegisterCommand.class.getName());
+					chain.add(register);
+
+					Command copy = CommandFactory.create(initialContext, CopyCommand.class.getName());
+					chain.add(copy);
+				}
+				Command validate = null;
+				if (level3validation) {
+					// add validation
+					validate = CommandFactory.create(initialContext, ImportedLineValidatorCommand.class.getName());
+				}
+				stages.add(new LineStages(reader, chain, validate));
+			}
+		} catch (Exception e) {
+			log.error(e, e);
+			throw new RuntimeException("unable to call factories");
+		}
+
+		return stages;
+	}
+
 	@Override
 	public List<? extends Command> getStopAreaProcessingCommands(Context context, boolean withDao) {
 		InitialContext initialContext = (InitialContext) context.get(INITIAL_CONTEXT);
@@ -14,6 +14,8 @@ import mobi.chouette.common.chain.Command;
 import mobi.chouette.common.chain.CommandFactory;
 import mobi.chouette.common.monitor.JamonUtils;
 import mobi.chouette.exchange.gtfs.Constant;
+import mobi.chouette.exchange.gtfs.model.importer.GtfsImporter;
+import mobi.chouette.exchange.gtfs.model.importer.GtfsRouteImporter;
 import mobi.chouette.exchange.gtfs.parser.GtfsAgencyParser;
 import mobi.chouette.exchange.gtfs.parser.GtfsCalendarParser;
 import mobi.chouette.exchange.gtfs.parser.GtfsRouteParser;
@@ -116,10 +118,26 @@ public class GtfsRouteParserCommand implements Command, Constant {
 						referential.getSharedTimetables().size());
 			}
 
-			// Line
-			GtfsRouteParser gtfsRouteParser = (GtfsRouteParser) ParserFactory.create(GtfsRouteParser.class.getName());
-			gtfsRouteParser.setGtfsRouteId(gtfsRouteId);
-			gtfsRouteParser.parse(context);
+			// Line, from the rows read ahead by the GtfsRouteReaderCommand if any
+			GtfsImporter importer = (GtfsImporter) context.get(PARSER);
+			GtfsRouteImporter routeImporter = (GtfsRouteImporter) context.remove(GTFS_ROUTE_IMPORTER);
+			if (routeImporter != null && !routeImporter.getRouteId().equals(gtfsRouteId)) {
+				routeImporter.dispose();
+				routeImporter = null;
+			}
+			try {
+				if (routeImporter != null) {
+					context.put(PARSER, routeImporter);
+				}
+				GtfsRouteParser gtfsRouteParser = (GtfsRouteParser) ParserFactory.create(GtfsRouteParser.class.getName());
+				gtfsRouteParser.setGtfsRouteId(gtfsRouteId);
+				gtfsRouteParser.parse(context);
+			} finally {
+				if (routeImporter != null) {
+					context.put(PARSER, importer);
+					routeImporter.dispose();
+				}
+			}
 
 			addStats(context, referential);
 			result = SUCCESS;
@@ -0,0 +1,69 @@
+package mobi.chouette.exchange.gtfs.importer;
+
+import java.io.IOException;
+
+import javax.naming.InitialContext;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j;
+import mobi.chouette.common.Context;
+import mobi.chouette.common.chain.Command;
+import mobi.chouette.common.chain.CommandFactory;
+import mobi.chouette.common.monitor.JamonUtils;
+import mobi.chouette.exchange.gtfs.Constant;
+import mobi.chouette.exchange.gtfs.model.importer.GtfsImporter;
+import mobi.chouette.exchange.gtfs.model.importer.GtfsRouteImporter;
+
+import com.jamonapi.Monitor;
+import com.jamonapi.MonitorFactory;
+
+/**
+ * read the rows of a route, without the referential : may be executed ahead of the {@link GtfsRouteParserCommand}
+ * of the route, on another thread
+ */
+@Log4j
+public class GtfsRouteReaderCommand implements Command, Constant {
+
+	public static final String COMMAND = "GtfsRouteReaderCommand";
+
+	@Getter
+	@Setter
+	private String gtfsRouteId;
+
+	@Override
+	public boolean execute(Context context) throws Exception {
+		boolean result = ERROR;
+
+		Monitor monitor = MonitorFactory.start(COMMAND);
+
+		try {
+			GtfsImporter importer = (GtfsImporter) context.get(PARSER);
+			GtfsImportParameters configuration = (GtfsImportParameters) context.get(CONFIGURATION);
+
+			GtfsRouteImporter routeImporter = new GtfsRouteImporter(importer, gtfsRouteId);
+			routeImporter.load(configuration.isParseInterchanges());
+			context.put(GTFS_ROUTE_IMPORTER, routeImporter);
+			result = SUCCESS;
+		} catch (Exception e) {
+			log.error("error : ", e);
+			throw e;
+		}
+
+		JamonUtils.logMagenta(log, monitor);
+		return result;
+	}
+
+	public static class DefaultCommandFactory extends CommandFactory {
+
+		@Override
+		protected Command create(InitialContext context) throws IOException {
+			Command result = new GtfsRouteReaderCommand();
+			return result;
+		}
+	}
+
+	static {
+		CommandFactory.factories.put(GtfsRouteReaderCommand.class.getName(), new DefaultCommandFactory());
+	}
+}
@@ -2,12 +2,15 @@ package mobi.chouette.exchange.gtfs.model.exporter;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 import mobi.chouette.exchange.gtfs.model.importer.Context;
+import mobi.chouette.exchange.gtfs.model.importer.GtfsException;
 import mobi.chouette.exchange.report.ActionReporter;
 import mobi.chouette.exchange.report.IO_TYPE;
 
@@ -15,17 +18,24 @@ public abstract class ExporterImpl<T> implements Exporter<T> {
 
 	public static final char DELIMITER = ',';
 
+	private static final int BUFFER_SIZE = 64 * 1024;
+
 	private BufferedWriter _writer;
 
 	protected Context _context;
 
 	private int _total;
 
+	private final RowWriter _row = new RowWriter();
+
 	public ExporterImpl(String name) throws IOException {
 		_context = new Context();
 		_context.put(Context.PATH, name);
 		Path path = Paths.get(name);
-		_writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+		_writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE),
+				BUFFER_SIZE);
 		writeHeader();
 		_total = 1;
 	}
@@ -37,6 +47,38 @@ public abstract class ExporterImpl<T> implements Exporter<T> {
 		_context.put(Context.ID, _total++);
 	}
 
+	/**
+	 * start a new row, to be written by {@link #writeRow()}
+	 */
+	RowWriter row() {
+		return _row.reset();
+	}
+
+	void writeRow() throws IOException {
+		_row.writeTo(_writer);
+		_total++;
+	}
+
+	/**
+	 * context for a field conversion error on the current row
+	 */
+	Context errorContext() {
+		_context.put(Context.ID, _total - 1);
+		return _context;
+	}
+
+	@SuppressWarnings("rawtypes")
+	<V> V required(Enum field, V value) {
+		if (value == null) {
+			Context context = errorContext();
+			context.put(Context.FIELD, field.name());
+			context.put(Context.ERROR, GtfsException.ERROR.MISSING_FIELD);
+			context.put(Context.CODE, "TODO");
+			throw new GtfsException(context);
+		}
+		return value;
+	}
+
 	@Override
 	public void dispose(mobi.chouette.common.Context context) throws IOException {
 		_writer.close();
@@ -0,0 +1,203 @@
+package mobi.chouette.exchange.gtfs.model.exporter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import mobi.chouette.exchange.gtfs.model.GtfsTime;
+
+/**
+ * reusable csv row, fields are appended without intermediate strings
+ * <br/>
+ * Output is the one of {@link Tokenizer#untokenize} for the same values.
+ */
+class RowWriter {
+
+	private static final char[] EOL = { Tokenizer.CR, Tokenizer.LF };
+
+	private char[] buffer = new char[256];
+
+	private int length;
+
+	private boolean firstField;
+
+	RowWriter reset() {
+		length = 0;
+		firstField = true;
+		return this;
+	}
+
+	/**
+	 * null is written as an empty field
+	 */
+	RowWriter append(String value) {
+		delimiter();
+		if (value == null) {
+			return this;
+		}
+		final int size = value.length();
+		if (needsQuotes(value, size)) {
+			ensureCapacity(2 * size + 2);
+			buffer[length++] = Tokenizer.DQUOTE;
+			for (int i = 0; i < size; i++) {
+				char c = value.charAt(i);
+				if (c == Tokenizer.DQUOTE) {
+					buffer[length++] = Tokenizer.DQUOTE;
+				}
+				buffer[length++] = c;
+			}
+			buffer[length++] = Tokenizer.DQUOTE;
+		} else {
+			ensureCapacity(size);
+			value.getChars(0, size, buffer, length);
+			length += size;
+		}
+		return this;
+	}
+
+	RowWriter append(int value) {
+		delimiter();
+		appendDigits(value);
+		return this;
+	}
+
+	/**
+	 * null is written as an empty field
+	 */
+	RowWriter append(Integer value) {
+		delimiter();
+		if (value != null) {
+			appendDigits(value);
+		}
+		return this;
+	}
+
+	/**
+	 * written as {@link Float#toString}
+	 */
+	RowWriter append(float value) {
+		delimiter();
+		appendString(Float.toString(value));
+		return this;
+	}
+
+	/**
+	 * null is written as an empty field, otherwise as {@link Float#toString}
+	 */
+	RowWriter append(Float value) {
+		delimiter();
+		if (value != null) {
+			appendString(Float.toString(value));
+		}
+		return this;
+	}
+
+	/**
+	 * ordinal of the value, null is written as an empty field
+	 */
+	@SuppressWarnings("rawtypes")
+	RowWriter appendOrdinal(Enum value) {
+		delimiter();
+		if (value != null) {
+			appendDigits(value.ordinal());
+		}
+		return this;
+	}
+
+	/**
+	 * write a time as HH:MM:SS, hours going beyond 24 for the following days
+	 *
+	 * @return false, with nothing written, if the time is not valid
+	 */
+	boolean appendTime(GtfsTime value) {
+		if (value != null && value.getTime() != null && (value.getDay() == null || value.getDay() < 0)) {
+			return false;
+		}
+		delimiter();
+		if (value == null || value.getTime() == null) {
+			return true;
+		}
+		int hour = value.getTime().getHour() + value.getDay() * 24;
+		appendTwoDigits(hour);
+		ensureCapacity(6);
+		buffer[length++] = ':';
+		appendTwoDigits(value.getTime().getMinute());
+		buffer[length++] = ':';
+		appendTwoDigits(value.getTime().getSecond());
+		return true;
+	}
+
+	void writeTo(Writer writer) throws IOException {
+		writer.write(buffer, 0, length);
+		writer.write(EOL);
+	}
+
+	@Override
+	public String toString() {
+		return new String(buffer, 0, length);
+	}
+
+	private static boolean needsQuotes(String value, int size) {
+		for (int i = 0; i < size; i++) {
+			char c = value.charAt(i);
+			if (c == Tokenizer.DQUOTE || c == Tokenizer.DELIMITER) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void delimiter() {
+		if (firstField) {
+			firstField = false;
+		} else {
+			ensureCapacity(1);
+			buffer[length++] = Tokenizer.DELIMITER;
+		}
+	}
+
+	private void appendTwoDigits(int value) {
+		if (value < 10) {
+			ensureCapacity(2);
+			buffer[length++] = '0';
+			buffer[length++] = (char) ('0' + value);
+		} else {
+			appendDigits(value);
+		}
+	}
+
+	private void appendDigits(int value) {
+		if (value < 0) {
+			if (value == Integer.MIN_VALUE) {
+				appendString(Integer.toString(value));
+				return;
+			}
+			ensureCapacity(1);
+			buffer[length++] = '-';
+			value = -value;
+		}
+		int digits = 1;
+		for (int v = value; v >= 10; v /= 10) {
+			digits++;
+		}
+		ensureCapacity(digits);
+		for (int i = length + digits - 1; i >= length; i--) {
+			buffer[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		length += digits;
+	}
+
+	private void appendString(String value) {
+		ensureCapacity(value.length());
+		value.getChars(0, value.length(), buffer, length);
+		length += value.length();
+	}
+
+	private void ensureCapacity(int additional) {
+		if (length + additional > buffer.length) {
+			char[] larger = new char[Math.max(buffer.length * 2, length + additional)];
+			System.arraycopy(buffer, 0, larger, 0, length);
+			buffer = larger;
+		}
+	}
+}
@@ -28,7 +28,13 @@ public class ShapeExporter extends ExporterImpl<GtfsShape> implements
 
 	@Override
 	public void export(GtfsShape bean) throws IOException {
-		write(CONVERTER.to(_context, bean));
+		RowWriter row = row();
+		row.append(required(FIELDS.shape_id, bean.getShapeId()));
+		row.append(required(FIELDS.shape_pt_lat, bean.getShapePtLat()).floatValue());
+		row.append(required(FIELDS.shape_pt_lon, bean.getShapePtLon()).floatValue());
+		row.append(required(FIELDS.shape_pt_sequence, bean.getShapePtSequence()));
+		row.append(bean.getShapeDistTraveled());
+		writeRow();
 	}
 
 	public static Converter<String, GtfsShape> CONVERTER = new Converter<String, GtfsShape>() {
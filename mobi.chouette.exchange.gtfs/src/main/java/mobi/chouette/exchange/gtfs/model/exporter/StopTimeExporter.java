@@ -7,6 +7,7 @@ import java.util.List;
 import mobi.chouette.exchange.gtfs.model.GtfsStopTime;
 import mobi.chouette.exchange.gtfs.model.GtfsStopTime.DropOffType;
 import mobi.chouette.exchange.gtfs.model.GtfsStopTime.PickupType;
+import mobi.chouette.exchange.gtfs.model.GtfsTime;
 import mobi.chouette.exchange.gtfs.model.importer.Context;
 import mobi.chouette.exchange.gtfs.model.importer.GtfsConverter;
 
@@ -29,7 +30,24 @@ public class StopTimeExporter extends ExporterImpl<GtfsStopTime> implements Gtfs
 
 	@Override
 	public void export(GtfsStopTime bean) throws IOException {
-		write(CONVERTER.to(_context, bean));
+		RowWriter row = row();
+		row.append(required(FIELDS.trip_id, bean.getTripId()));
+		row.append(required(FIELDS.stop_id, bean.getStopId()));
+		row.append(required(FIELDS.stop_sequence, bean.getStopSequence()));
+		appendTime(row, FIELDS.arrival_time, required(FIELDS.arrival_time, bean.getArrivalTime()));
+		appendTime(row, FIELDS.departure_time, required(FIELDS.departure_time, bean.getDepartureTime()));
+		row.appendOrdinal(bean.getPickupType());
+		row.appendOrdinal(bean.getDropOffType());
+		row.append(bean.getShapeDistTraveled());
+		row.append(bean.getStopHeadsign());
+		writeRow();
+	}
+
+	private void appendTime(RowWriter row, FIELDS field, GtfsTime time) {
+		if (!row.appendTime(time)) {
+			// reports the invalid time
+			GTFSTIME_CONVERTER.to(errorContext(), field, time, true);
+		}
 	}
 
 	public static Converter<String, GtfsStopTime> CONVERTER = new Converter<String, GtfsStopTime>() {
@@ -6,7 +6,6 @@ import java.util.Set;
 
 import lombok.Getter;
 import lombok.Setter;
-import lombok.ToString;
 
 public abstract class AbstractIndex<T> implements Index<T> {
 
@@ -18,10 +17,6 @@ public abstract class AbstractIndex<T> implements Index<T> {
 
 	protected abstract void index() throws IOException;
 
-	// protected abstract ByteBuffer getBuffer(String id, Context context);
-	//
-	// protected abstract ByteBuffer getBuffer(Token id, Context context);
-
 	protected abstract T build(GtfsIterator reader, Context context);
 	
 	protected Set<GtfsException> _errors = new HashSet<>();
@@ -35,13 +30,6 @@ public abstract class AbstractIndex<T> implements Index<T> {
 	@Setter
 	protected boolean withValidation = false;
 
-	@ToString
-    static
-    class Token {
-		int offset = -1;
-		int lenght = 0;
-	}
-	
 	@Override
 	public void dispose() {
 		_errors.clear();
@@ -81,6 +81,12 @@ public class AgencyById extends IndexImpl<GtfsAgency> implements GtfsConverter {
 		}
 	}
 	
+	@Override
+	protected void createBean() {
+		bean = new GtfsAgency();
+		array = new String[FIELDS.values().length];
+	}
+
 	@Override
 	protected GtfsAgency build(GtfsIterator reader, Context context) {
 		int i = 0;
@@ -87,6 +87,12 @@ public class CalendarByService extends IndexImpl<GtfsCalendar> implements GtfsCo
 		}
 	}
 
+	@Override
+	protected void createBean() {
+		bean = new GtfsCalendar();
+		array = new String[FIELDS.values().length];
+	}
+
 	@Override
 	protected GtfsCalendar build(GtfsIterator reader, Context context) {
 		int i = 0;
@@ -74,6 +74,12 @@ public class CalendarDateByService extends IndexImpl<GtfsCalendarDate>
 		}
 	}
 
+	@Override
+	protected void createBean() {
+		bean = new GtfsCalendarDate();
+		array = new String[FIELDS.values().length];
+	}
+
 	@Override
 	protected GtfsCalendarDate build(GtfsIterator reader, Context context) {
 		int i = 0;
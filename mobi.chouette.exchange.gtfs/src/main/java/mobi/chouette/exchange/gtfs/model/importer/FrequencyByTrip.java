@@ -71,6 +71,12 @@ public class FrequencyByTrip extends IndexImpl<GtfsFrequency> implements
 		}
 	}
 
+	@Override
+	protected void createBean() {
+		bean = new GtfsFrequency();
+		array = new String[FIELDS.values().length];
+	}
+
 	@Override
 	protected GtfsFrequency build(GtfsIterator reader, Context context) {
 		int i = 0;
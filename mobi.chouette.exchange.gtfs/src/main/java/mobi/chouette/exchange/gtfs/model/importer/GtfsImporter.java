@@ -26,11 +26,27 @@ public class GtfsImporter {
 
 	private String _path;
 	private Map<String, Index<GtfsObject>> _map = new HashMap<String, Index<GtfsObject>>();
+	private GtfsImporter _source;
 
 	public GtfsImporter(String path) {
 		_path = path;
 	}
 
+	public String getPath() {
+		return _path;
+	}
+
+	/**
+	 * importer reading the same files through copies of the indexes of this importer, to be used by another thread
+	 * <br/>
+	 * indexes not built yet are built by this importer
+	 */
+	public GtfsImporter copy() {
+		GtfsImporter result = new GtfsImporter(_path);
+		result._source = this;
+		return result;
+	}
+
 	@SuppressWarnings("rawtypes")
 	public void dispose() {
 		for (Index importer : _map.values()) {
@@ -41,10 +57,13 @@ public class GtfsImporter {
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	public Index getImporter(String name, String path, Class clazz) {
+	public synchronized Index getImporter(String name, String path, Class clazz) {
 		Index importer = _map.get(name);
 
-		if (importer == null) {
+		if (importer == null && _source != null) {
+			importer = _source.getImporter(name, path, clazz).copy();
+			_map.put(name, importer);
+		} else if (importer == null) {
 			try {
 				importer = IndexFactory.build(
 						Paths.get(_path, path).toString(), clazz.getName());
@@ -16,6 +16,11 @@ public interface GtfsIterator {
 
 	public abstract String getValue(int index);
 
+	/**
+	 * same as getValue(index), but may return the same String instance for repeated values
+	 */
+	public abstract String getInternedValue(int index);
+
 	public abstract int getFieldCount();
 
 	public abstract String getCode();
@@ -92,6 +92,11 @@ public class GtfsIterator2 implements Iterator<Boolean>, GtfsIterator, Constant
 		return result;
 	}
 
+	@Override
+	public String getInternedValue(int index) {
+		return getValue(index);
+	}
+
 	public String getCode() {
 		return _code;
 	}
@@ -1,43 +1,61 @@
 package mobi.chouette.exchange.gtfs.model.importer;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
-
-import lombok.ToString;
 
+/**
+ * GTFS-CSV tokenizer working directly on a (mapped) byte buffer
+ * <br/>
+ * Rows are scanned 8 bytes at a time for delimiters, quotes and line ends; fields are only kept as (offset, length)
+ * slices of the buffer and decoded (UTF-8) on demand. Values of repeated fields (ids) may be read through
+ * {@link #getInternedValue(int)} which returns the same String instance for identical values.
+ */
 public class GtfsIteratorImpl implements Iterator<Boolean>, GtfsIterator, Constant {
-	
+
 	public static final char LF = '\n';
 	public static final char CR = '\r';
 	public static final char DELIMITER = ',';
 	public static final char DQUOTE = '"';
 	public static final char NULL = 0;
 
+	private static final long ONES = 0x0101010101010101L;
+	private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+	private static final long LF_PATTERN = ONES * LF;
+	private static final long CR_PATTERN = ONES * CR;
+	private static final long DELIMITER_PATTERN = ONES * DELIMITER;
+	private static final long DQUOTE_PATTERN = ONES * DQUOTE;
+
+	private static final int INTERNED_CACHE_SIZE = 4096;
+
 	private ByteBuffer _buffer;
+	private boolean _bigEndian;
 	private int _index;
-	private boolean _escape;
 	private int _mark;
 	private int _position;
 	private String _code = "";
-	private ByteBuffer _builder = ByteBuffer.allocate(1024);
-	private List<Field> _fields = new ArrayList<Field>();
+	private byte[] _builder = new byte[1024];
+	private int _fieldCount;
+	private int[] _offsets;
+	private int[] _lengths;
+	private byte[][] _internedBytes = new byte[INTERNED_CACHE_SIZE][];
+	private String[] _internedValues = new String[INTERNED_CACHE_SIZE];
 
 	public GtfsIteratorImpl(ByteBuffer buffer, int count) {
 		super();
 		setByteBuffer(buffer);
-		for (int i = 0; i < count; i++) {
-			_fields.add(new Field());
-		}
+		_fieldCount = count;
+		_offsets = new int[Math.max(count, 16)];
+		_lengths = new int[_offsets.length];
 	}
 
 	@Override
 	public void setByteBuffer(ByteBuffer buffer) {
 		_buffer = buffer;
+		_bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
 		_index = 0;
-		_escape = false;
 		_mark = 0;
 		_position = 0;
 	}
@@ -46,10 +64,11 @@ public class GtfsIteratorImpl implements Iterator<Boolean>, GtfsIterator, Consta
 	public void dispose() {
 		_buffer.clear();
 		_buffer = null;
-		_builder.clear();
 		_builder = null;
-		_fields.clear();
-		_fields = null;
+		_offsets = null;
+		_lengths = null;
+		_internedBytes = null;
+		_internedValues = null;
 	}
 
 	@Override
@@ -59,94 +78,119 @@ public class GtfsIteratorImpl implements Iterator<Boolean>, GtfsIterator, Consta
 
 	@Override
 	public Boolean next() {
-		try {
-			_code = "";
-			_escape = false;
-			_buffer.position(_mark);
-			while (_buffer.hasRemaining()) {
-
-				if (_index >= _fields.size()) {
-					_fields.add(new Field());
+		_code = "";
+		boolean escape = false;
+		int limit = _buffer.limit();
+		int p = _mark;
+		while (p < limit) {
+			p = nextSpecialByte(p, limit);
+			if (p >= limit) {
+				break;
+			}
+			byte value = _buffer.get(p++);
+			switch (value) {
+			case CR:
+			case LF:
+				if (escape) {
+					_code = NL_IN_TOKEN;
+					_buffer.position(p);
+					return false; // new line inside a token
 				}
-
-				char value = (char) _buffer.get();
-				switch (value) {
-				case CR:
-				case LF:
-					if (_escape) {
-						_code = NL_IN_TOKEN;
-						return false; // new line inside a token
-					}
-					_fields.get(_index).offset = _mark;
-					_fields.get(_index).length = _buffer.position() - 1 - _mark;
-					if (value == CR) {
-						_mark = _buffer.position() + 1;
-					} else {
-						_mark = _buffer.position();
-					}
-					_index = 0;
-					_position = _mark;
-					return true;
-				case DELIMITER:
-					if (!_escape) {
-						_fields.get(_index).offset = _mark;
-						_fields.get(_index).length = (_buffer.position() - 1 - _mark);
-						_mark = _buffer.position();
-						_index++;
+				setField(_mark, p - 1 - _mark);
+				if (value == CR) {
+					_mark = p + 1;
+				} else {
+					_mark = p;
+				}
+				_index = 0;
+				_position = _mark;
+				_buffer.position(p);
+				return true;
+			case DELIMITER:
+				if (!escape) {
+					setField(_mark, p - 1 - _mark);
+					_mark = p;
+					_index++;
+				}
+				break;
+			case DQUOTE:
+				if (!escape) { // start DQUOTE token
+					int previous = (p <= 1) ? DELIMITER : _buffer.get(p - 2);
+					if (previous == DELIMITER || previous == CR || previous == LF) {
+						escape = true;
+					} else { // a problem : only part of this token is encolosed between DQUOTE
+						_code = DQUOTE_WITH_NO_ESCAPE;
+						_buffer.position(p);
+						return false; // a DQUOTE that dosen't start a token
 					}
-					break;
-				case DQUOTE:
-					if (!_escape) { // start DQUOTE token
-						int previous = previousByte();
-						if (previous == DELIMITER || previous == CR || previous == LF) { 
-							_escape = true;
-						} else { // a problem : only part of this token is encolosed between DQUOTE
-							_code = DQUOTE_WITH_NO_ESCAPE;
-							return false; // a DQUOTE that dosen't start a token
-						}
-					} else {
-						int next = nextByte();
-						if (next == DELIMITER || next == CR || next == LF) { // end DQOUTE token
-							 _escape = false;
-						} else if (next == NULL) { // EOF 
-							_code = EOF_WITHOUT_NL;
-							return false;
-						} else if (next == DQUOTE) { // double quote in a token
-							_buffer.get();
-						} else { // a problem : only part of this token is encolosed between DQUOTE
-							_code = TEXT_AFTER_ESCAPE_DQUOTE;
-							return false; // a DQUOTE that dosen't end a token
-						}
+				} else {
+					int next = (p < limit) ? _buffer.get(p) : NULL;
+					if (next == DELIMITER || next == CR || next == LF) { // end DQOUTE token
+						escape = false;
+					} else if (next == NULL) { // EOF
+						_code = EOF_WITHOUT_NL;
+						_buffer.position(p);
+						return false;
+					} else if (next == DQUOTE) { // double quote in a token
+						p++;
+					} else { // a problem : only part of this token is encolosed between DQUOTE
+						_code = TEXT_AFTER_ESCAPE_DQUOTE;
+						_buffer.position(p);
+						return false; // a DQUOTE that dosen't end a token
 					}
-					break;
-				default:
-					break;
 				}
+				break;
+			default:
+				break;
 			}
-		} catch (Exception ignored) {
-
 		}
 		// MISSING LN/LF AT THE END OF THE END OF THE FILE
+		_buffer.position(limit);
 		return false;
 	}
 
-	private byte nextByte() {
-		int position = _buffer.position();
-		if (!_buffer.hasRemaining())
-			return NULL;
-		byte result = _buffer.get();
-		_buffer.position(position);
-		return result;
+	/**
+	 * position of the next delimiter, quote or line end at or after p, limit if none
+	 * <br/>
+	 * UTF-8 multi-byte sequences only contain bytes above 0x7F, so they never match.
+	 */
+	private int nextSpecialByte(int p, int limit) {
+		while (p + 8 <= limit) {
+			long word = _buffer.getLong(p);
+			long found = zeroBytes(word ^ DELIMITER_PATTERN) | zeroBytes(word ^ DQUOTE_PATTERN)
+					| zeroBytes(word ^ LF_PATTERN) | zeroBytes(word ^ CR_PATTERN);
+			if (found != 0) {
+				return p + ((_bigEndian ? Long.numberOfLeadingZeros(found) : Long.numberOfTrailingZeros(found)) >>> 3);
+			}
+			p += 8;
+		}
+		while (p < limit) {
+			byte value = _buffer.get(p);
+			if (value == DELIMITER || value == DQUOTE || value == LF || value == CR) {
+				return p;
+			}
+			p++;
+		}
+		return limit;
 	}
-	
-	private byte previousByte(){
-		int position = _buffer.position();
-		if (position <= 1)
-			return DELIMITER;
-		_buffer.position(position-2);
-		byte result = _buffer.get();
-		_buffer.position(position);
-		return result;
+
+	/**
+	 * high bit set for each zero byte of word, and only for those
+	 */
+	private static long zeroBytes(long word) {
+		return ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+	}
+
+	private void setField(int offset, int length) {
+		if (_index >= _offsets.length) {
+			_offsets = Arrays.copyOf(_offsets, _offsets.length * 2);
+			_lengths = Arrays.copyOf(_lengths, _offsets.length);
+		}
+		_offsets[_index] = offset;
+		_lengths[_index] = length;
+		if (_index >= _fieldCount) {
+			_fieldCount = _index + 1;
+		}
 	}
 
 	@Override
@@ -156,28 +200,61 @@ public class GtfsIteratorImpl implements Iterator<Boolean>, GtfsIterator, Consta
 
 	@Override
 	public String getValue() {
-		Field last = _fields.get(_fields.size() - 1);
-		int offset = _fields.get(0).offset;
-		int length = last.offset + last.length - offset;
-		return getText(offset, length);
+		int last = _fieldCount - 1;
+		int offset = _offsets[0];
+		int length = _offsets[last] + _lengths[last] - offset;
+		// raw text of the line
+		byte[] bytes = new byte[length];
+		_buffer.get(offset, bytes, 0, length);
+		return new String(bytes, StandardCharsets.UTF_8);
 	}
 
 	@Override
 	public String getValue(int index) {
-		int length = _fields.get(index).length;
-		int offset = _fields.get(index).offset;
-		return getText(offset, length);
+		return getText(_offsets[index], _lengths[index]);
+	}
+
+	@Override
+	public String getInternedValue(int index) {
+		int length = unescape(_offsets[index], _lengths[index]);
+		int hash = 1;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + _builder[i];
+		}
+		int slot = (hash ^ (hash >>> 16)) & (INTERNED_CACHE_SIZE - 1);
+		byte[] bytes = _internedBytes[slot];
+		if (bytes != null && Arrays.equals(bytes, 0, bytes.length, _builder, 0, length)) {
+			return _internedValues[slot];
+		}
+		String result = new String(_builder, 0, length, StandardCharsets.UTF_8);
+		_internedBytes[slot] = Arrays.copyOf(_builder, length);
+		_internedValues[slot] = result;
+		return result;
+	}
+
+	/**
+	 * offset of the ith field of the current line in the buffer, enclosing DQUOTEs included
+	 */
+	public int getOffset(int index) {
+		return _offsets[index];
+	}
+
+	/**
+	 * length in bytes of the ith field of the current line, enclosing DQUOTEs included
+	 */
+	public int getLength(int index) {
+		return _lengths[index];
 	}
 
 	@Override
 	public int getFieldCount() {
-		return _fields.size();
+		return _fieldCount;
 	}
 
 	public String getCode() {
 		return _code;
 	}
-	
+
 	@Override
  	public int getPosition() {
 		return _position;
@@ -215,40 +292,36 @@ public class GtfsIteratorImpl implements Iterator<Boolean>, GtfsIterator, Consta
 	}
 
 	private String getText(int offset, int length) {
-		String result;
-		_buffer.position(offset);
-		//boolean escape = false;
-		_builder.clear();
-		boolean quotedString = false;
-		for (int i = 0; i < length; i++) {
-			byte c = _buffer.get();
-			if (i == 0 && c == DQUOTE) {
-				quotedString = true;
-				continue;
-			}
-			if (i== length-1 && quotedString &&  c == DQUOTE) {
-				break;
-			}
-			if ( c == DQUOTE ) { // As it was validated with next() method the next character must be a DQUOTE
-			    _buffer.get();
-			    i++;
-			}
-			if (i >= _builder.limit()) {
-				ByteBuffer newBuilder = ByteBuffer.allocate(_builder.limit() * 2);
-				newBuilder.put(_builder.array());
-				_builder = newBuilder;
-			}
-			_builder.put(c);
-		}
-		result = new String(_builder.array(), 0, _builder.position(), StandardCharsets.UTF_8);
-		return result;
+		int size = unescape(offset, length);
+		return new String(_builder, 0, size, StandardCharsets.UTF_8);
 	}
 
-	@ToString
-	static
-	class Field {
-		int offset;
-		int length;
+	/**
+	 * copy the bytes of a field in the builder, without enclosing DQUOTEs and with doubled DQUOTEs unescaped
+	 *
+	 * @return number of bytes copied
+	 */
+	private int unescape(int offset, int length) {
+		if (length > _builder.length) {
+			_builder = new byte[Math.max(length, _builder.length * 2)];
+		}
+		if (length == 0 || _buffer.get(offset) != DQUOTE) {
+			// As it was validated with next() method, a field not starting with a DQUOTE contains none
+			_buffer.get(offset, _builder, 0, length);
+			return length;
+		}
+		int size = 0;
+		for (int i = 1; i < length; i++) {
+			byte c = _buffer.get(offset + i);
+			if (c == DQUOTE) {
+				if (i == length - 1) {
+					break;
+				}
+				i++; // As it was validated with next() method the next character must be a DQUOTE
+			}
+			_builder[size++] = c;
+		}
+		return size;
 	}
 
 }
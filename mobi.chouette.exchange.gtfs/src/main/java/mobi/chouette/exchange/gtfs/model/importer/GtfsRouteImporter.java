@@ -0,0 +1,102 @@
+package mobi.chouette.exchange.gtfs.model.importer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import mobi.chouette.exchange.gtfs.model.GtfsFrequency;
+import mobi.chouette.exchange.gtfs.model.GtfsRoute;
+import mobi.chouette.exchange.gtfs.model.GtfsShape;
+import mobi.chouette.exchange.gtfs.model.GtfsStopTime;
+import mobi.chouette.exchange.gtfs.model.GtfsTransfer;
+import mobi.chouette.exchange.gtfs.model.GtfsTrip;
+
+/**
+ * importer of a single route : the route, its trips and their stop times, shapes, frequencies and transfers are read
+ * ahead and kept in memory, other rows are read by the importer of the whole feed
+ */
+public class GtfsRouteImporter extends GtfsImporter {
+
+	private GtfsImporter _parent;
+	private String _routeId;
+	@SuppressWarnings("rawtypes")
+	private Map<String, Index> _indexes = new HashMap<>();
+
+	public GtfsRouteImporter(GtfsImporter parent, String routeId) {
+		super(parent.getPath());
+		_parent = parent;
+		_routeId = routeId;
+	}
+
+	public String getRouteId() {
+		return _routeId;
+	}
+
+	/**
+	 * read the rows of the route through copies of the indexes of the importer of the whole feed, may be called by
+	 * another thread than the one using this importer
+	 */
+	public void load(boolean withTransfers) {
+		GtfsImporter importer = _parent.copy();
+		try {
+			MemoryIndex<GtfsRoute> routes = add(INDEX.ROUTE_BY_ID, _parent.getRouteById());
+			routes.load(importer.getRouteById(), _routeId);
+
+			MemoryIndex<GtfsTrip> trips = add(INDEX.TRIP_BY_ROUTE, _parent.getTripByRoute());
+			trips.load(importer.getTripByRoute(), _routeId);
+
+			MemoryIndex<GtfsStopTime> stopTimes = add(INDEX.STOP_TIME_BY_TRIP, _parent.getStopTimeByTrip());
+			MemoryIndex<GtfsShape> shapes = hasShapeImporter() ? add(INDEX.SHAPE_BY_ID, _parent.getShapeById()) : null;
+			MemoryIndex<GtfsFrequency> frequencies = hasFrequencyImporter() ? add(INDEX.FREQUENCY_BY_TRIP,
+					_parent.getFrequencyByTrip()) : null;
+			boolean transfers = withTransfers && hasTransferImporter();
+			MemoryIndex<GtfsTransfer> transfersFrom = transfers ? add(INDEX.TRANSFER_BY_FROM_TRIP,
+					_parent.getTransferByFromTrip()) : null;
+			MemoryIndex<GtfsTransfer> transfersTo = transfers ? add(INDEX.TRANSFER_BY_TO_TRIP,
+					_parent.getTransferByToTrip()) : null;
+
+			for (GtfsTrip trip : trips.values(_routeId)) {
+				String tripId = trip.getTripId();
+				stopTimes.load(importer.getStopTimeByTrip(), tripId);
+				String shapeId = trip.getShapeId();
+				if (shapes != null && shapeId != null && !shapeId.isEmpty()) {
+					shapes.load(importer.getShapeById(), shapeId);
+				}
+				if (frequencies != null) {
+					frequencies.load(importer.getFrequencyByTrip(), tripId);
+				}
+				if (transfers) {
+					transfersFrom.load(importer.getTransferByFromTrip(), tripId);
+					transfersTo.load(importer.getTransferByToTrip(), tripId);
+				}
+			}
+		} finally {
+			importer.dispose();
+		}
+	}
+
+	private <T> MemoryIndex<T> add(INDEX name, Index<T> source) {
+		MemoryIndex<T> result = new MemoryIndex<>(source);
+		_indexes.put(name.name(), result);
+		return result;
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public Index getImporter(String name, String path, Class clazz) {
+		Index importer = _indexes.get(name);
+		if (importer == null) {
+			importer = _parent.getImporter(name, path, clazz);
+		}
+		return importer;
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void dispose() {
+		// indexes of the whole feed are disposed with its importer
+		for (Index importer : _indexes.values()) {
+			importer.dispose();
+		}
+		_indexes.clear();
+	}
+}
@@ -27,4 +27,9 @@ public interface Index<T> extends Iterable<T> {
 	String getPath();
 
 	Integer getIndex(String name);
+
+	/**
+	 * index reading the same rows, to be used by another thread
+	 */
+	Index<T> copy();
 }
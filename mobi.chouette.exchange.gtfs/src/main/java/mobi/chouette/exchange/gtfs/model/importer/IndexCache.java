@@ -0,0 +1,208 @@
+package mobi.chouette.exchange.gtfs.model.importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.log4j.Log4j;
+
+/**
+ * On disk cache of GTFS file indexes ({@link KeyDirectory}), shared by all jobs
+ * <br/>
+ * Entries are addressed by the SHA-256 of the indexed file content and the index parameters, so that an unchanged
+ * file submitted again is not indexed again. Entries are published by atomic rename and evicted, least recently used
+ * first, when the cache exceeds its maximum size; an entry evicted while in use stays readable by the job using it.
+ * <br/>
+ * The cache is enabled by the iev.gtfs.index.cache.directory system property, its maximum size is set by
+ * iev.gtfs.index.cache.max.size.mb (default : 2048).
+ */
+@Log4j
+public class IndexCache {
+
+	public static final String DIRECTORY_PROPERTY = "iev.gtfs.index.cache.directory";
+
+	public static final String MAX_SIZE_PROPERTY = "iev.gtfs.index.cache.max.size.mb";
+
+	private static final long DEFAULT_MAX_SIZE_MB = 2048;
+
+	private static final String SUFFIX = ".index";
+
+	private static final String LOCK = ".lock";
+
+	private static final long TEMPORARY_FILE_MAX_AGE = 3600 * 1000L;
+
+	private static final int MAX_DIGESTS = 1000;
+
+	private static IndexCache instance;
+
+	// content digests of already hashed files, by path, size and modification date
+	private final Map<String, String> _digests = new ConcurrentHashMap<>();
+
+	private final Path _directory;
+
+	private final long _maxSize;
+
+	private IndexCache(Path directory, long maxSize) {
+		_directory = directory;
+		_maxSize = maxSize;
+	}
+
+	/**
+	 * @return cache, null if the cache is not enabled
+	 */
+	public static synchronized IndexCache getInstance() {
+		String path = System.getProperty(DIRECTORY_PROPERTY);
+		if (path == null || path.trim().isEmpty()) {
+			return null;
+		}
+		Path directory = Paths.get(path.trim());
+		if (instance == null || !instance._directory.equals(directory)) {
+			long maxSize = DEFAULT_MAX_SIZE_MB;
+			String value = System.getProperty(MAX_SIZE_PROPERTY);
+			if (value != null) {
+				try {
+					maxSize = Long.parseLong(value.trim());
+				} catch (NumberFormatException e) {
+					log.warn("invalid value for " + MAX_SIZE_PROPERTY + " : " + value);
+				}
+			}
+			try {
+				Files.createDirectories(directory);
+			} catch (IOException e) {
+				log.warn("cannot create GTFS index cache directory " + directory + ", cache disabled", e);
+				return null;
+			}
+			instance = new IndexCache(directory, maxSize * 1024 * 1024);
+		}
+		return instance;
+	}
+
+	/**
+	 * cache key of the index of a file
+	 *
+	 * @param path
+	 *            indexed file
+	 * @param content
+	 *            indexed content of the file
+	 * @param parameters
+	 *            index parameters (key field, unicity ...)
+	 */
+	public String getKey(String path, ByteBuffer content, String parameters) {
+		File file = new File(path);
+		String id = file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+		String digest = _digests.get(id);
+		if (digest == null) {
+			digest = digest(content);
+			if (_digests.size() >= MAX_DIGESTS) {
+				_digests.clear();
+			}
+			_digests.put(id, digest);
+		}
+		return digest + "." + parameters.replaceAll("[^A-Za-z0-9_]", "_");
+	}
+
+	/**
+	 * @return cached index, null if not cached
+	 */
+	public KeyDirectory get(String key) {
+		Path path = _directory.resolve(key + SUFFIX);
+		if (!Files.exists(path)) {
+			return null;
+		}
+		try {
+			KeyDirectory result = KeyDirectory.load(path);
+			// least recently used entries are evicted first
+			path.toFile().setLastModified(System.currentTimeMillis());
+			return result;
+		} catch (IOException e) {
+			// evicted meanwhile or invalid, will be replaced
+			log.warn("cannot read cached GTFS index " + path + " : " + e.getMessage());
+			return null;
+		}
+	}
+
+	public void put(String key, KeyDirectory directory) {
+		Path path = _directory.resolve(key + SUFFIX);
+		Path temporary = _directory.resolve(key + "." + UUID.randomUUID() + ".tmp");
+		try {
+			directory.save(temporary);
+			Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			log.warn("cannot save GTFS index " + path + " : " + e.getMessage());
+			temporary.toFile().delete();
+			return;
+		}
+		evict();
+	}
+
+	/**
+	 * remove least recently used entries until the cache fits its maximum size
+	 */
+	private synchronized void evict() {
+		try (RandomAccessFile file = new RandomAccessFile(_directory.resolve(LOCK).toFile(), "rw");
+				FileChannel channel = file.getChannel();
+				FileLock lock = channel.lock()) {
+			File[] files = _directory.toFile().listFiles();
+			if (files == null) {
+				return;
+			}
+			long now = System.currentTimeMillis();
+			long size = 0;
+			for (File f : files) {
+				if (f.getName().endsWith(".tmp") && now - f.lastModified() > TEMPORARY_FILE_MAX_AGE) {
+					// left by a failed job
+					f.delete();
+				} else if (f.getName().endsWith(SUFFIX)) {
+					size += f.length();
+				}
+			}
+			if (size <= _maxSize) {
+				return;
+			}
+			File[] entries = Arrays.stream(files).filter(f -> f.getName().endsWith(SUFFIX) && f.exists())
+					.sorted(Comparator.comparingLong(File::lastModified)).toArray(File[]::new);
+			for (File entry : entries) {
+				if (size <= _maxSize) {
+					break;
+				}
+				long length = entry.length();
+				if (entry.delete()) {
+					size -= length;
+					log.info("GTFS index " + entry.getName() + " evicted from cache");
+				}
+			}
+		} catch (IOException e) {
+			log.warn("GTFS index cache eviction failed : " + e.getMessage());
+		}
+	}
+
+	private static String digest(ByteBuffer content) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			ByteBuffer buffer = content.duplicate();
+			buffer.clear();
+			digest.update(buffer);
+			StringBuilder result = new StringBuilder();
+			for (byte b : digest.digest()) {
+				result.append(String.format("%02x", b));
+			}
+			return result.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
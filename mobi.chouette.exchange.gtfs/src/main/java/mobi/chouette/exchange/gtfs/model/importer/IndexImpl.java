@@ -1,20 +1,19 @@
 package mobi.chouette.exchange.gtfs.model.importer;
 
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import lombok.extern.log4j.Log4j;
@@ -26,7 +25,7 @@ import mobi.chouette.exchange.gtfs.model.GtfsObject;
 //import com.jamonapi.MonitorFactory;
 
 @Log4j
-public abstract class IndexImpl<T> extends AbstractIndex<T> {
+public abstract class IndexImpl<T> extends AbstractIndex<T> implements Cloneable {
 
 	public static final byte[] UTF_8 = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
 
@@ -34,17 +33,15 @@ public abstract class IndexImpl<T> extends AbstractIndex<T> {
 	protected String _key;
 	protected String _value;
 	protected Map<String, Integer> _fields;
-	protected Map<String, Token> _tokens = new LinkedHashMap<String, Token>();
 
 	private GtfsIterator _reader;
 	private FileChannel _channel1;
 	private MappedByteBuffer _buffer;
-	private File _temp;
-	private FileChannel _channel2;
-	private IntBuffer _index;
+	private KeyDirectory _directory;
 	private int _total;
 	private boolean _unique;
 	private boolean _ignoreRowsWithMissingKey;
+	private boolean _copy;
 
 	public IndexImpl(String path, String key) throws IOException {
 		this(path, key, "", true);
@@ -118,6 +115,34 @@ public abstract class IndexImpl<T> extends AbstractIndex<T> {
 	
 	protected abstract void checkRequiredFields(Map<String, Integer> fields);
 
+	/**
+	 * allocate the bean and the field values filled by {@link #build(GtfsIterator, Context)}
+	 */
+	protected abstract void createBean();
+
+	/**
+	 * index sharing the mapped file and the key directory of this index, with its own reader
+	 * <br/>
+	 * beans read through a copy are not reused and may be kept
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Index<T> copy() {
+		IndexImpl<T> result;
+		try {
+			result = (IndexImpl<T>) clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+		result._copy = true;
+		result._reader = new GtfsIteratorImpl(_buffer.duplicate(), 0);
+		result._errors = new HashSet<>();
+		result.errors = new GtfsExceptionsHashSet<>();
+		result.okTests = new GtfsErrorsHashSet<>();
+		result.createBean();
+		return result;
+	}
+
 	protected void testExtraSpace(String fieldName, String value, GtfsObject bean) {
 		if (value != null && !value.equals(value.trim()) && withValidation) {
 			bean.getErrors().add(new GtfsException(_path, bean.getId(), getIndex(fieldName), fieldName, GtfsException.ERROR.EXTRA_SPACE_IN_FIELD, null, value));
@@ -127,26 +152,25 @@ public abstract class IndexImpl<T> extends AbstractIndex<T> {
 	@Override
 	public void dispose() {
 		super.dispose();
+		if (_copy) {
+			// mapped file, directory and fields belong to the copied index
+			_reader.dispose();
+			_reader = null;
+			return;
+		}
 		try {
 			_reader.dispose();
 			_channel1.close();
-			_channel2.close();
-			_temp.delete();
-
 		} catch (IOException ignored) {
 		}
+		_directory.dispose();
 		_buffer.clear();
 		_fields.clear();
-		_tokens.clear();
-		_index.clear();
 		_reader = null;
 		_channel1 = null;
-		_channel2 = null;
-		_temp = null;
+		_directory = null;
 		_buffer = null;
 		_fields = null;
-		_tokens = null;
-		_index = null;
 		
 	}
 
@@ -154,7 +178,7 @@ public abstract class IndexImpl<T> extends AbstractIndex<T> {
 	public Iterator<T> iterator() {
 		return new Iterator<T>() {
 
-			private Iterator<Token> tokens = _tokens.values().iterator();
+			private int record = 0;
 			private IndexIterator iterator = null;
 			private Context context = createContext();
 
@@ -163,7 +187,7 @@ public abstract class IndexImpl<T> extends AbstractIndex<T> {
 				boolean result = false;
 				if (iterator != null && iterator.hasNext()) {
 					result = true;
-				} else if (tokens.hasNext()) {
+				} else if (record < _directory.size()) {
 					result = true;
 				}
 				return result;
@@ -178,9 +202,8 @@ public abstract class IndexImpl<T> extends AbstractIndex<T> {
 				T result = null;
 				if (iterator != null && iterator.hasNext()) {
 					result = iterator.next();
-				} else if (tokens.hasNext()) {
-					Token token = tokens.next();
-					ByteBuffer buffer = getBuffer(token, context);
+				} else if (record < _directory.size()) {
+					ByteBuffer buffer = getBuffer(record++, context);
 					iterator = new IndexIterator(buffer, context);
 					result = iterator.next();
 				}
@@ -203,7 +226,29 @@ public abstract class IndexImpl<T> extends AbstractIndex<T> {
 
 	@Override
 	public Iterable<String> keys() {
-		return _tokens.keySet();
+		return new Iterable<String>() {
+
+			@Override
+			public Iterator<String> iterator() {
+				return new Iterator<String>() {
+
+					private int record = 0;
+
+					@Override
+					public boolean hasNext() {
+						return record < _directory.size();
+					}
+
+					@Override
+					public String next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						return _directory.getKey(record++);
+					}
+				};
+			}
+		};
 	}
 
 	@Override
@@ -222,7 +267,7 @@ public abstract class IndexImpl<T> extends AbstractIndex<T> {
 
 	@Override
 	public boolean containsKey(String key) {
-		return _tokens.containsKey(key);
+		return _directory.find(key) >= 0;
 	}
 
 	@Override
@@ -241,130 +286,104 @@ public abstract class IndexImpl<T> extends AbstractIndex<T> {
 		return _total - 1;
 	}
 
+	/**
+	 * index rows by key in a single pass, positions and line numbers being kept off heap in a {@link KeyDirectory}
+	 * <br/>
+	 * the index of an unchanged file is reused from the {@link IndexCache} when enabled
+	 */
 	@Override
 	protected void index() throws IOException {
+		IndexCache cache = IndexCache.getInstance();
+		String cacheKey = null;
+		if (cache != null) {
+			cacheKey = cache.getKey(_path, _buffer, _key + "_" + _value + "_" + _unique + "_" + _ignoreRowsWithMissingKey);
+			_directory = cache.get(cacheKey);
+			if (_directory != null) {
+				_total = _directory.getRowCount();
+				return;
+			}
+		}
+
 		//Monitor monitor = MonitorFactory.start("INDEX IMPL");
 		boolean hasDefaultId = false;
-		
-		while (_reader.hasNext()) {
-			_total++;
-			
-			if (hasDefaultId)
-				throw new GtfsException(_path, _total, getIndex(_key), _key, GtfsException.ERROR.DUPLICATE_DEFAULT_KEY_FIELD, null, "");
-			
-			if (_reader.next()) {
-				String key = getField(_key);
-								
-				if (key == null || key.trim().isEmpty()) { // key cannot be null! "" or GtfsAgency.DEFAULT_ID
-					if(_ignoreRowsWithMissingKey) {
-						continue;
-					} else {
-						throw new GtfsException(_path, _total, getIndex(_key), _key, GtfsException.ERROR.MISSING_FIELD, null, null);
-					}
-				}
-				
-				if (GtfsAgency.DEFAULT_ID.equals(key)) {
-					if (_tokens.isEmpty()) {
-						hasDefaultId = true;
+		String name = Paths.get(_path).getFileName().toString();
+		_directory = new KeyDirectory(name);
+		try {
+			String previousKey = null;
+			int previousRecord = -1;
+			while (_reader.hasNext()) {
+				_total++;
+
+				if (hasDefaultId)
+					throw new GtfsException(_path, _total, getIndex(_key), _key, GtfsException.ERROR.DUPLICATE_DEFAULT_KEY_FIELD, null, "");
+
+				int position = _reader.getPosition();
+				if (_reader.next()) {
+					String key = getField(_key);
+
+					if (key == null || key.trim().isEmpty()) { // key cannot be null! "" or GtfsAgency.DEFAULT_ID
+						if(_ignoreRowsWithMissingKey) {
+							continue;
+						} else {
+							throw new GtfsException(_path, _total, getIndex(_key), _key, GtfsException.ERROR.MISSING_FIELD, null, null);
+						}
 					}
-					else {
-						throw new GtfsException(_path, _total, getIndex(_key), _key, GtfsException.ERROR.DUPLICATE_DEFAULT_KEY_FIELD, null, "");
+
+					if (GtfsAgency.DEFAULT_ID.equals(key)) {
+						if (_directory.size() == 0) {
+							hasDefaultId = true;
+						}
+						else {
+							throw new GtfsException(_path, _total, getIndex(_key), _key, GtfsException.ERROR.DUPLICATE_DEFAULT_KEY_FIELD, null, "");
+						}
 					}
-				}
-				
-				Token token = _tokens.get(key);
-				if (token == null) {
-					token = new Token();
-					token.offset = 0;
-					token.lenght = 1;
-					_tokens.put(key, token);
-				} else {
-					if (_unique) {
+
+					// rows of a same key are often consecutive (stop_times by trip)
+					int record = key.equals(previousKey) ? previousRecord : _directory.find(key);
+					if (record >= 0 && _unique) {
 						if (GtfsAgency.DEFAULT_ID.equals(key)) {
 							throw new GtfsException(_path, _total, getIndex(_key), _key, GtfsException.ERROR.DUPLICATE_DEFAULT_KEY_FIELD, null, "");
 						} else {
 							throw new GtfsException(_path, _total, getIndex(_key), _key, GtfsException.ERROR.DUPLICATE_FIELD, null, key);
 						}
 					}
-					token.lenght++;
+					previousRecord = _directory.add(key, record, position, _total);
+					previousKey = key;
+				} else {
+					throw new GtfsException(_path, _total, _key, GtfsException.ERROR.INVALID_FILE_FORMAT, null, null);
 				}
-			} else {
-				throw new GtfsException(_path, _total, _key, GtfsException.ERROR.INVALID_FILE_FORMAT, null, null);
 			}
+			_directory.setRowCount(_total);
+		} catch (RuntimeException | IOException e) {
+			_directory.dispose();
+			throw e;
 		}
-
-		String name = Paths.get(_path).getFileName().toString();
-		_temp = File.createTempFile(name + ".", ".index");
-		_temp.deleteOnExit();
-		RandomAccessFile file = new RandomAccessFile(_temp, "rw");
-		_channel2 = file.getChannel();
-		_index = _channel2.map(FileChannel.MapMode.READ_WRITE, 0, _total * 8).asIntBuffer();
-		for (int i = 0; i < _total; i++) {
-			_index.put(-1);
-			_index.put(-1);
-		}
-
-		Token previous = null;
-		for (String key : _tokens.keySet()) {
-			Token token = _tokens.get(key);
-			if (previous != null) {
-				token.offset = previous.offset + previous.lenght * 2;
-			}
-			previous = token;
+		if (cache != null) {
+			cache.put(cacheKey, _directory);
 		}
 
-		_reader.setPosition(0);
-		_reader.next();
-		int position = _reader.getPosition();
-		int line = 1;
-		while (_reader.hasNext()) {
-			if (_reader.next()) {
-				String key = getField(_key);				
-				if ((key == null || key.trim().isEmpty()) && _ignoreRowsWithMissingKey) { // key cannot be null! "" or GtfsAgency.DEFAULT_ID
-					continue;
-				}
-
-				Token token = _tokens.get(key);
-				for (int i = 0; i < token.lenght; i++) {
-					int n = token.offset + i * 2;
-					if (_index.get(n) == -1) {
-						_index.put(n, position);
-						_index.put(n + 1, ++line);
-						break;
-					}
-				}
-				position = _reader.getPosition();
-			}
-		}
-		
-		//log.info(Color.YELLOW + "[DSU] index " + _path + " " + _tokens.size() + " objects " + monitor.stop() + Color.NORMAL);
-		//log.debug("[DSU] index " + _path + " " + _tokens.size() + " objects " + monitor.stop());
-		file.close();
+		//log.info(Color.YELLOW + "[DSU] index " + _path + " " + _directory.size() + " objects " + monitor.stop() + Color.NORMAL);
+		//log.debug("[DSU] index " + _path + " " + _directory.size() + " objects " + monitor.stop());
 	}
 
 	// @Override
 	protected ByteBuffer getBuffer(String key, Context context) {
-		Token token = _tokens.get(key);
-		if (token != null) {
-			return getBuffer(token, context);
+		int record = _directory.find(key);
+		if (record >= 0) {
+			return getBuffer(record, context);
 		} else {
 			return ByteBuffer.allocate(0);
 		}
 	}
 
 	// @Override
-	protected ByteBuffer getBuffer(Token token, Context context) {
-		int offset = token.offset;
-		int lenght = token.lenght;
+	protected ByteBuffer getBuffer(int record, Context context) {
+		int lenght = _directory.getCount(record);
 		List<Integer> lines = new ArrayList<Integer>(lenght);
 		List<ByteBuffer> list = new ArrayList<ByteBuffer>(lenght);
-		for (int i = 0; i < lenght; i++) {
-			int n = offset + i * 2;
-			int position = _index.get(n);
-			// TODO [DSU] line
-			int line = _index.get(n + 1);
-			lines.add(line);
-			_reader.setPosition(position);
+		for (int entry = _directory.getFirstEntry(record); entry >= 0; entry = _directory.getNextEntry(entry)) {
+			lines.add(_directory.getLine(entry));
+			_reader.setPosition(_directory.getPosition(entry));
 			ByteBuffer value = _reader.getBuffer();
 			list.add(value);
 		}
@@ -404,13 +423,20 @@ public abstract class IndexImpl<T> extends AbstractIndex<T> {
 		if (index == null) {
 			return value;
 		}
-		String result = reader.getValue(index);
+		String result = isRepeatedField(key) ? reader.getInternedValue(index) : reader.getValue(index);
 		if (result == null || result.isEmpty()) {
 			return value;
 		}
 		return result;
 	}
 
+	/**
+	 * ids are repeated on many rows (route_id, service_id, stop_id in stop_times...), share their String instances
+	 */
+	private static boolean isRepeatedField(String key) {
+		return key.endsWith("_id") || key.equals("parent_station");
+	}
+
 	private ByteBuffer concat(List<ByteBuffer> buffers) {
 		int length = 0;
 		for (ByteBuffer buffer : buffers) {
@@ -505,6 +531,9 @@ public abstract class IndexImpl<T> extends AbstractIndex<T> {
 			if (iterator.hasNext()) {
 				iterator.next();
 				updateContext();
+				if (_copy) {
+					createBean();
+				}
 				// TODO [DSU] line
 				result = build(iterator, context);
 				index++;
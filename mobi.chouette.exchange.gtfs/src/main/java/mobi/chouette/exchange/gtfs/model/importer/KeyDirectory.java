@@ -0,0 +1,410 @@
+package mobi.chouette.exchange.gtfs.model.importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Off heap index of the rows of a GTFS file by key, stored in a memory mapped temporary file
+ * <br/>
+ * Keys are registered in an open addressing hash table; each key record holds the UTF-8 bytes of the key and a linked
+ * list of its rows (position in the file and line number), in file order. Key records are numbered in order of first
+ * appearance, from 0 to size() - 1.
+ * <br/>
+ * Nothing but the chunk list is kept on heap, whatever the number of rows and keys.
+ * <br/>
+ * A directory may be saved to a file and loaded back (read only) by another job, see {@link IndexCache}.
+ */
+public class KeyDirectory {
+
+	private static final int CHUNK_BITS = 16;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS; // ints per chunk
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	// key record : hash, key bytes offset, key bytes length, first entry, last entry, count
+	private static final int RECORD_SIZE = 6;
+	private static final int HASH = 0;
+	private static final int KEY_OFFSET = 1;
+	private static final int KEY_LENGTH = 2;
+	private static final int FIRST = 3;
+	private static final int LAST = 4;
+	private static final int COUNT = 5;
+
+	// row entry : position, line, next entry of the same key
+	private static final int ENTRY_SIZE = 3;
+	private static final int POSITION = 0;
+	private static final int LINE = 1;
+	private static final int NEXT = 2;
+
+	// saved file header : magic, version, row count, size, capacity, entry count, key length, unused
+	private static final int HEADER_SIZE = 8;
+	private static final int MAGIC = 0x47544653;
+	private static final int VERSION = 1;
+
+	private File _file;
+	private RandomAccessFile _raf;
+	private FileChannel _channel;
+	private long _length;
+
+	private IntArray _table;
+	private int _capacity;
+	private IntArray _records;
+	private int _size;
+	private IntArray _entries;
+	private int _entryCount;
+	private IntArray _keys;
+	private int _keyLength;
+	private boolean _temporary;
+
+	/**
+	 * number of rows of the indexed file, header included
+	 */
+	@Getter
+	@Setter
+	private int rowCount;
+
+	public KeyDirectory(String name) throws IOException {
+		_file = File.createTempFile(name + ".", ".index");
+		_file.deleteOnExit();
+		_temporary = true;
+		_raf = new RandomAccessFile(_file, "rw");
+		_channel = _raf.getChannel();
+		_capacity = 1024;
+		_table = new IntArray();
+		_table.ensureCapacity(_capacity);
+		_records = new IntArray();
+		_entries = new IntArray();
+		_keys = new IntArray();
+	}
+
+	/**
+	 * add a row to the rows of key
+	 *
+	 * @param record
+	 *            key record if already known, -1 otherwise
+	 * @return key record
+	 */
+	public int add(String key, int record, int position, int line) throws IOException {
+		if (record < 0) {
+			record = find(key);
+		}
+		if (record < 0) {
+			record = addKey(key);
+		}
+		int base = record * RECORD_SIZE;
+		int entry = _entryCount++;
+		_entries.ensureCapacity((long) _entryCount * ENTRY_SIZE);
+		long entryBase = (long) entry * ENTRY_SIZE;
+		_entries.set(entryBase + POSITION, position);
+		_entries.set(entryBase + LINE, line);
+		_entries.set(entryBase + NEXT, -1);
+		if (_records.get(base + COUNT) == 0) {
+			_records.set(base + FIRST, entry);
+		} else {
+			_entries.set((long) _records.get(base + LAST) * ENTRY_SIZE + NEXT, entry);
+		}
+		_records.set(base + LAST, entry);
+		_records.set(base + COUNT, _records.get(base + COUNT) + 1);
+		return record;
+	}
+
+	/**
+	 * @return key record, -1 if key is unknown
+	 */
+	public int find(String key) {
+		int hash = key.hashCode();
+		int mask = _capacity - 1;
+		for (int slot = mix(hash) & mask;; slot = (slot + 1) & mask) {
+			int value = _table.get(slot);
+			if (value == 0) {
+				return -1;
+			}
+			int record = value - 1;
+			if (_records.get(record * RECORD_SIZE + HASH) == hash && matches(record, key)) {
+				return record;
+			}
+		}
+	}
+
+	public int size() {
+		return _size;
+	}
+
+	public int getCount(int record) {
+		return _records.get(record * RECORD_SIZE + COUNT);
+	}
+
+	public int getFirstEntry(int record) {
+		return _records.get(record * RECORD_SIZE + FIRST);
+	}
+
+	public int getNextEntry(int entry) {
+		return _entries.get((long) entry * ENTRY_SIZE + NEXT);
+	}
+
+	public int getPosition(int entry) {
+		return _entries.get((long) entry * ENTRY_SIZE + POSITION);
+	}
+
+	public int getLine(int entry) {
+		return _entries.get((long) entry * ENTRY_SIZE + LINE);
+	}
+
+	public String getKey(int record) {
+		int base = record * RECORD_SIZE;
+		int offset = _records.get(base + KEY_OFFSET);
+		int length = _records.get(base + KEY_LENGTH);
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = getKeyByte(offset, i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private KeyDirectory(File file) throws IOException {
+		_file = file;
+		_temporary = false;
+		_raf = new RandomAccessFile(_file, "r");
+		try {
+			_channel = _raf.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE * 4).order(ByteOrder.nativeOrder());
+			while (header.hasRemaining() && _channel.read(header) >= 0)
+				;
+			header.flip();
+			if (header.remaining() < HEADER_SIZE * 4 || header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException("invalid index file " + file);
+			}
+			rowCount = header.getInt();
+			_size = header.getInt();
+			_capacity = header.getInt();
+			_entryCount = header.getInt();
+			_keyLength = header.getInt();
+			long offset = HEADER_SIZE * 4L;
+			long length = offset + 4L * (_capacity + (long) _size * RECORD_SIZE + (long) _entryCount * ENTRY_SIZE + _keyLength);
+			if (_channel.size() != length) {
+				throw new IOException("truncated index file " + file);
+			}
+			_table = new IntArray();
+			offset = _table.map(offset, _capacity);
+			_records = new IntArray();
+			offset = _records.map(offset, (long) _size * RECORD_SIZE);
+			_entries = new IntArray();
+			offset = _entries.map(offset, (long) _entryCount * ENTRY_SIZE);
+			_keys = new IntArray();
+			_keys.map(offset, _keyLength);
+		} catch (IOException | RuntimeException e) {
+			_raf.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * load a directory saved with {@link #save(Path)}, the loaded directory is read only
+	 */
+	public static KeyDirectory load(Path source) throws IOException {
+		return new KeyDirectory(source.toFile());
+	}
+
+	/**
+	 * save this directory in a compact form
+	 */
+	public void save(Path target) throws IOException {
+		try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE * 4).order(ByteOrder.nativeOrder());
+			header.putInt(MAGIC).putInt(VERSION).putInt(rowCount).putInt(_size).putInt(_capacity)
+					.putInt(_entryCount).putInt(_keyLength).putInt(0);
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			_table.writeTo(channel, _capacity);
+			_records.writeTo(channel, (long) _size * RECORD_SIZE);
+			_entries.writeTo(channel, (long) _entryCount * ENTRY_SIZE);
+			_keys.writeTo(channel, _keyLength);
+			channel.force(true);
+		}
+	}
+
+	public void dispose() {
+		try {
+			_channel.close();
+			_raf.close();
+		} catch (IOException ignored) {
+		}
+		if (_temporary) {
+			_file.delete();
+		}
+		_table = null;
+		_records = null;
+		_entries = null;
+		_keys = null;
+		_channel = null;
+		_raf = null;
+		_file = null;
+	}
+
+	private int addKey(String key) throws IOException {
+		if ((_size + 1) * 2 > _capacity) {
+			rehash();
+		}
+		int record = _size++;
+		int base = record * RECORD_SIZE;
+		byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		int offset = _keyLength;
+		_keyLength += (bytes.length + 3) / 4;
+		_keys.ensureCapacity(_keyLength);
+		for (int i = 0; i < bytes.length; i += 4) {
+			int value = 0;
+			for (int j = 0; j < 4 && i + j < bytes.length; j++) {
+				value |= (bytes[i + j] & 0xFF) << (8 * j);
+			}
+			_keys.set(offset + i / 4, value);
+		}
+		_records.ensureCapacity((long) _size * RECORD_SIZE);
+		_records.set(base + HASH, key.hashCode());
+		_records.set(base + KEY_OFFSET, offset);
+		_records.set(base + KEY_LENGTH, bytes.length);
+		_records.set(base + FIRST, -1);
+		_records.set(base + LAST, -1);
+		_records.set(base + COUNT, 0);
+		insert(_table, _capacity, record);
+		return record;
+	}
+
+	private void rehash() throws IOException {
+		int capacity = _capacity * 2;
+		// previous table is left unused in the file
+		IntArray table = new IntArray();
+		table.ensureCapacity(capacity);
+		for (int record = 0; record < _size; record++) {
+			insert(table, capacity, record);
+		}
+		_table = table;
+		_capacity = capacity;
+	}
+
+	private void insert(IntArray table, int capacity, int record) {
+		int mask = capacity - 1;
+		int slot = mix(_records.get(record * RECORD_SIZE + HASH)) & mask;
+		while (table.get(slot) != 0) {
+			slot = (slot + 1) & mask;
+		}
+		table.set(slot, record + 1);
+	}
+
+	private boolean matches(int record, String key) {
+		int base = record * RECORD_SIZE;
+		int offset = _records.get(base + KEY_OFFSET);
+		int length = _records.get(base + KEY_LENGTH);
+		if (length == key.length()) {
+			// ascii only keys : compare chars to bytes
+			boolean ascii = true;
+			for (int i = 0; i < length; i++) {
+				char c = key.charAt(i);
+				if (c >= 0x80) {
+					ascii = false;
+					break;
+				}
+				if (getKeyByte(offset, i) != c) {
+					return false;
+				}
+			}
+			if (ascii) {
+				return true;
+			}
+		}
+		byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (getKeyByte(offset, i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private byte getKeyByte(int offset, int i) {
+		return (byte) (_keys.get(offset + i / 4) >>> (8 * (i % 4)));
+	}
+
+	private static int mix(int hash) {
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * growable array of ints, allocated by chunks at the end of the index file
+	 */
+	private class IntArray {
+
+		private List<ByteBuffer> _buffers = new ArrayList<>();
+
+		private List<IntBuffer> _chunks = new ArrayList<>();
+
+		void ensureCapacity(long size) throws IOException {
+			while ((long) _chunks.size() * CHUNK_SIZE < size) {
+				ByteBuffer buffer = _channel.map(FileChannel.MapMode.READ_WRITE, _length, CHUNK_SIZE * 4L);
+				_length += CHUNK_SIZE * 4L;
+				add(buffer);
+			}
+		}
+
+		/**
+		 * map size ints of a saved file, read only
+		 *
+		 * @return offset following the mapped ints
+		 */
+		long map(long offset, long size) throws IOException {
+			for (long i = 0; i < size; i += CHUNK_SIZE) {
+				long length = Math.min(CHUNK_SIZE, size - i) * 4L;
+				add(_channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+				offset += length;
+			}
+			return offset;
+		}
+
+		void writeTo(FileChannel channel, long size) throws IOException {
+			long remaining = size * 4L;
+			for (ByteBuffer chunk : _buffers) {
+				if (remaining <= 0) {
+					break;
+				}
+				ByteBuffer buffer = chunk.duplicate();
+				buffer.clear();
+				buffer.limit((int) Math.min(remaining, buffer.capacity()));
+				remaining -= buffer.limit();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+		}
+
+		private void add(ByteBuffer buffer) {
+			_buffers.add(buffer);
+			_chunks.add(buffer.order(ByteOrder.nativeOrder()).asIntBuffer());
+		}
+
+		int get(long index) {
+			return _chunks.get((int) (index >>> CHUNK_BITS)).get((int) (index & CHUNK_MASK));
+		}
+
+		void set(long index, int value) {
+			_chunks.get((int) (index >>> CHUNK_BITS)).put((int) (index & CHUNK_MASK), value);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package mobi.chouette.exchange.gtfs.model.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * beans read from an index for some keys only, kept in memory
+ * <br/>
+ * read only : path, field indexes, errors and validation are those of the source index
+ */
+public class MemoryIndex<T> implements Index<T> {
+
+	private Index<T> _source;
+	private Map<String, List<T>> _values = new LinkedHashMap<>();
+
+	public MemoryIndex(Index<T> source) {
+		_source = source;
+	}
+
+	/**
+	 * read and keep the beans of a key
+	 */
+	public void load(Index<T> index, String key) {
+		if (!_values.containsKey(key)) {
+			List<T> beans = new ArrayList<>();
+			for (T bean : index.values(key)) {
+				beans.add(bean);
+			}
+			_values.put(key, beans);
+		}
+	}
+
+	@Override
+	public void dispose() {
+		_values.clear();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		List<T> result = new ArrayList<>();
+		for (List<T> beans : _values.values()) {
+			result.addAll(beans);
+		}
+		return result.iterator();
+	}
+
+	@Override
+	public Iterable<String> keys() {
+		return _values.keySet();
+	}
+
+	@Override
+	public Iterable<T> values(String key) {
+		List<T> beans = _values.get(key);
+		return beans == null ? Collections.<T> emptyList() : beans;
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		List<T> beans = _values.get(key);
+		return beans != null && !beans.isEmpty();
+	}
+
+	@Override
+	public T getValue(String key) {
+		List<T> beans = _values.get(key);
+		return beans == null || beans.isEmpty() ? null : beans.get(0);
+	}
+
+	@Override
+	public boolean validate(T bean, GtfsImporter dao) {
+		return _source.validate(bean, dao);
+	}
+
+	@Override
+	public int getLength() {
+		int result = 0;
+		for (List<T> beans : _values.values()) {
+			result += beans.size();
+		}
+		return result;
+	}
+
+	@Override
+	public Set<GtfsException> getErrors() {
+		return _source.getErrors();
+	}
+
+	@Override
+	public Set<GtfsException.ERROR> getOkTests() {
+		return _source.getOkTests();
+	}
+
+	@Override
+	public void setWithValidation(boolean withValidation) {
+		// beans are already built
+	}
+
+	@Override
+	public String getPath() {
+		return _source.getPath();
+	}
+
+	@Override
+	public Integer getIndex(String name) {
+		return _source.getIndex(name);
+	}
+
+	@Override
+	public Index<T> copy() {
+		return this;
+	}
+}
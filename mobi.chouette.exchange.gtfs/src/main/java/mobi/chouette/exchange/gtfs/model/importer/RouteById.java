@@ -90,6 +90,12 @@ public class RouteById extends IndexImpl<GtfsRoute> implements GtfsConverter {
 		}
 	}
 
+	@Override
+	protected void createBean() {
+		bean = new GtfsRoute();
+		array = new String[FIELDS.values().length];
+	}
+
 	@Override
 	protected GtfsRoute build(GtfsIterator reader, Context context) {
 		int i = 0;
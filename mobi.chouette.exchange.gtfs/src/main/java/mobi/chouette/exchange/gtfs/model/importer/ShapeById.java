@@ -69,6 +69,12 @@ public class ShapeById extends IndexImpl<GtfsShape> implements GtfsConverter {
 		}
 	}
 
+	@Override
+	protected void createBean() {
+		bean = new GtfsShape();
+		array = new String[FIELDS.values().length];
+	}
+
 	@Override
 	protected GtfsShape build(GtfsIterator reader, Context context) {
 		int i = 0;
@@ -75,6 +75,12 @@ public class StopById extends IndexImpl<GtfsStop> implements GtfsConverter {
 		}
 	}
 
+	@Override
+	protected void createBean() {
+		bean = new GtfsStop();
+		array = new String[FIELDS.values().length];
+	}
+
 	protected GtfsStop build(GtfsIterator reader, Context context) {
 		int i = 0;
 		for (FIELDS field : FIELDS.values()) {
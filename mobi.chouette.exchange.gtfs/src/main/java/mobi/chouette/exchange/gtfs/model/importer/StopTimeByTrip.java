@@ -75,6 +75,12 @@ public class StopTimeByTrip extends IndexImpl<GtfsStopTime> implements GtfsConve
 
 	}
 
+	@Override
+	protected void createBean() {
+		_bean = new GtfsStopTime();
+		_array = new String[FIELDS.values().length];
+	}
+
 	@Override
 	protected GtfsStopTime build(GtfsIterator reader, Context context) {
 
@@ -72,6 +72,12 @@ public class TransferIndex extends IndexImpl<GtfsTransfer> implements
 		}
 	}
 
+	@Override
+	protected void createBean() {
+		bean = new GtfsTransfer();
+		array = new String[FIELDS.values().length];
+	}
+
 	@Override
 	protected GtfsTransfer build(GtfsIterator reader, Context context) {
 		int i = 0;
@@ -73,6 +73,12 @@ public abstract class TripIndex extends IndexImpl<GtfsTrip> implements GtfsConve
 		}
 	}
 
+	@Override
+	protected void createBean() {
+		bean = new GtfsTrip();
+		array = new String[FIELDS.values().length];
+	}
+
 	@Override
 	protected GtfsTrip build(GtfsIterator reader, Context context) {
 		int i = 0;
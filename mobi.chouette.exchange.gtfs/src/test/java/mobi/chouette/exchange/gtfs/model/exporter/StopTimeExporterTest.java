@@ -0,0 +1,115 @@
+package mobi.chouette.exchange.gtfs.model.exporter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import mobi.chouette.common.Constant;
+import mobi.chouette.exchange.gtfs.model.GtfsShape;
+import mobi.chouette.exchange.gtfs.model.GtfsStopTime;
+import mobi.chouette.exchange.gtfs.model.GtfsStopTime.DropOffType;
+import mobi.chouette.exchange.gtfs.model.GtfsStopTime.PickupType;
+import mobi.chouette.exchange.gtfs.model.GtfsTime;
+import mobi.chouette.exchange.gtfs.model.importer.Context;
+import mobi.chouette.exchange.gtfs.model.importer.GtfsException;
+import mobi.chouette.exchange.report.ActionReport;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class StopTimeExporterTest {
+
+	@Test(groups = { "exporter" }, description = "rows are written as by the converter")
+	public void verifyStopTimeRows() throws Exception {
+		List<GtfsStopTime> stopTimes = new ArrayList<>();
+		stopTimes.add(createStopTime("trip1", "stop1", 1, new GtfsTime(LocalTime.of(7, 5, 0), 0), null, null, null));
+		stopTimes.add(createStopTime("trip, \"quoted\"", "stop2", 2, new GtfsTime(LocalTime.of(23, 59, 9), 1),
+				PickupType.NoAvailable, DropOffType.AgencyCall, "Kerniol-Cliscouët"));
+		stopTimes.add(createStopTime("trip1", "stop3", 123456, new GtfsTime(LocalTime.of(0, 0, 0), 2), PickupType.Scheduled,
+				DropOffType.DriverCall, "a,b"));
+		stopTimes.get(1).setShapeDistTraveled(1234.5f);
+
+		Path path = Files.createTempFile("stop_times", ".txt");
+		try {
+			StopTimeExporter exporter = new StopTimeExporter(path.toString());
+			List<String> expected = new ArrayList<>();
+			expected.add(String.join(",", "trip_id", "stop_id", "stop_sequence", "arrival_time", "departure_time",
+					"pickup_type", "drop_off_type", "shape_dist_traveled", "stop_headsign"));
+			for (GtfsStopTime stopTime : stopTimes) {
+				exporter.export(stopTime);
+				expected.add(StopTimeExporter.CONVERTER.to(new Context(), stopTime));
+			}
+			exporter.dispose(createReportContext());
+
+			Assert.assertEquals(Files.readAllLines(path, StandardCharsets.UTF_8), expected);
+			Assert.assertTrue(expected.get(2).startsWith("\"trip, \"\"quoted\"\"\",stop2,2,47:59:09,47:59:09,1,2,1234.5,"));
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
+	@Test(groups = { "exporter" }, description = "missing required field is reported")
+	public void verifyMissingField() throws Exception {
+		Path path = Files.createTempFile("stop_times", ".txt");
+		try {
+			StopTimeExporter exporter = new StopTimeExporter(path.toString());
+			exporter.export(createStopTime("trip1", "stop1", 1, new GtfsTime(LocalTime.of(7, 5, 0), 0), null, null, null));
+			try {
+				exporter.export(createStopTime("trip1", null, 2, new GtfsTime(LocalTime.of(7, 5, 0), 0), null, null, null));
+				Assert.fail("missing stop_id should be reported");
+			} catch (GtfsException e) {
+				Assert.assertEquals(e.getField(), "stop_id");
+				Assert.assertEquals(e.getError(), GtfsException.ERROR.MISSING_FIELD);
+			}
+			exporter.dispose(createReportContext());
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
+	@Test(groups = { "exporter" }, description = "shape rows are written as by the converter")
+	public void verifyShapeRows() throws Exception {
+		GtfsShape shape = new GtfsShape();
+		shape.setShapeId("shape1");
+		shape.setShapePtLat(new BigDecimal("59.9127300"));
+		shape.setShapePtLon(new BigDecimal("10.7460900"));
+		shape.setShapePtSequence(3);
+		shape.setShapeDistTraveled(12.5f);
+
+		Path path = Files.createTempFile("shapes", ".txt");
+		try {
+			ShapeExporter exporter = new ShapeExporter(path.toString());
+			exporter.export(shape);
+			exporter.dispose(createReportContext());
+
+			List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+			Assert.assertEquals(lines.get(1), ShapeExporter.CONVERTER.to(new Context(), shape));
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
+	private mobi.chouette.common.Context createReportContext() {
+		mobi.chouette.common.Context context = new mobi.chouette.common.Context();
+		context.put(Constant.REPORT, new ActionReport());
+		return context;
+	}
+
+	private GtfsStopTime createStopTime(String tripId, String stopId, int sequence, GtfsTime time, PickupType pickupType,
+			DropOffType dropOffType, String headsign) {
+		GtfsStopTime stopTime = new GtfsStopTime();
+		stopTime.setTripId(tripId);
+		stopTime.setStopId(stopId);
+		stopTime.setStopSequence(sequence);
+		stopTime.setArrivalTime(time);
+		stopTime.setDepartureTime(time);
+		stopTime.setPickupType(pickupType);
+		stopTime.setDropOffType(dropOffType);
+		stopTime.setStopHeadsign(headsign);
+		return stopTime;
+	}
+}
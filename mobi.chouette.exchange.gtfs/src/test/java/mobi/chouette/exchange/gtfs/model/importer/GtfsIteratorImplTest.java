@@ -1,8 +1,10 @@
 package mobi.chouette.exchange.gtfs.model.importer;
 
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -162,4 +164,24 @@ public class GtfsIteratorImplTest {
 			file.close();
 		}
 	}
+
+	@Test(groups = { "GtfsIteratorImpl" }, description = "test repeated values and multi-byte characters")
+	public void verifyInternedValues() throws Exception {
+		String text = "trip_id,stop_id,stop_name\nt1,s1,Kerniol-Cliscouët\r\nt1,s2,\"Gare, \"\"Rocade\"\" é\"\nt1,s1,Kerniol-Cliscouët\n";
+		ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+		GtfsIteratorImpl reader = new GtfsIteratorImpl(buffer, 0);
+
+		Assert.assertTrue(reader.next(), "check header");
+		Assert.assertTrue(reader.next(), "check line 1");
+		String trip = reader.getInternedValue(0);
+		Assert.assertEquals(reader.getValue(2), "Kerniol-Cliscouët");
+		Assert.assertTrue(reader.next(), "check line 2");
+		Assert.assertSame(reader.getInternedValue(0), trip);
+		Assert.assertEquals(reader.getInternedValue(1), "s2");
+		Assert.assertEquals(reader.getValue(2), "Gare, \"Rocade\" é");
+		Assert.assertTrue(reader.next(), "check line 3");
+		Assert.assertEquals(reader.getInternedValue(1), "s1");
+		Assert.assertEquals(reader.getValue(2), "Kerniol-Cliscouët");
+		Assert.assertFalse(reader.hasNext());
+	}
 }
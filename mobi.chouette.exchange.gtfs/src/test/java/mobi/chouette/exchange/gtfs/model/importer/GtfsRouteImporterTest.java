@@ -0,0 +1,116 @@
+package mobi.chouette.exchange.gtfs.model.importer;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mobi.chouette.exchange.gtfs.model.GtfsStopTime;
+import mobi.chouette.exchange.gtfs.model.GtfsTrip;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class GtfsRouteImporterTest {
+
+	private static final int ROUTES = 8;
+
+	private Path directory;
+
+	private GtfsImporter importer;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("gtfs-route-importer");
+		StringBuilder routes = new StringBuilder("route_id,route_short_name,route_long_name,route_type\n");
+		StringBuilder trips = new StringBuilder("route_id,service_id,trip_id\n");
+		StringBuilder stopTimes = new StringBuilder("trip_id,arrival_time,departure_time,stop_id,stop_sequence\n");
+		for (int i = 0; i < ROUTES; i++) {
+			routes.append("r" + i + "," + i + ",route " + i + ",3\n");
+			for (int j = 0; j < 2; j++) {
+				String tripId = "t" + i + "_" + j;
+				trips.append("r" + i + ",s1," + tripId + "\n");
+				for (int k = 1; k <= 3; k++) {
+					stopTimes.append(tripId + ",08:0" + k + ":00,08:0" + k + ":00,stop" + k + "," + k + "\n");
+				}
+			}
+		}
+		Files.write(directory.resolve(RouteById.FILENAME), routes.toString().getBytes(StandardCharsets.UTF_8));
+		Files.write(directory.resolve(TripIndex.FILENAME), trips.toString().getBytes(StandardCharsets.UTF_8));
+		Files.write(directory.resolve(StopTimeByTrip.FILENAME), stopTimes.toString().getBytes(StandardCharsets.UTF_8));
+		importer = new GtfsImporter(directory.toString());
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		importer.dispose();
+	}
+
+	@Test(groups = { "GtfsRouteImporter" }, description = "test rows of a route are kept in memory")
+	public void verifyRouteRowsAreKept() throws Exception {
+		GtfsRouteImporter routeImporter = new GtfsRouteImporter(importer, "r1");
+		routeImporter.load(false);
+
+		Assert.assertEquals(routeImporter.getRouteById().getValue("r1").getRouteShortName(), "1");
+		Assert.assertFalse(routeImporter.getRouteById().containsKey("r2"));
+		List<String> trips = new ArrayList<>();
+		for (GtfsTrip trip : routeImporter.getTripByRoute().values("r1")) {
+			trips.add(trip.getTripId());
+		}
+		Assert.assertEquals(trips.size(), 2);
+		Assert.assertEquals(trips.get(0), "t1_0");
+		Assert.assertEquals(trips.get(1), "t1_1");
+
+		// beans are not reused by copies
+		List<Integer> sequences = new ArrayList<>();
+		for (GtfsStopTime stopTime : routeImporter.getStopTimeByTrip().values("t1_1")) {
+			Assert.assertEquals(stopTime.getTripId(), "t1_1");
+			sequences.add(stopTime.getStopSequence());
+		}
+		Assert.assertEquals(sequences.size(), 3);
+		Assert.assertEquals(sequences.get(0).intValue(), 1);
+		Assert.assertEquals(sequences.get(2).intValue(), 3);
+
+		// other rows are read by the importer of the whole feed
+		Assert.assertSame(routeImporter.getTripById(), importer.getTripById());
+		routeImporter.dispose();
+		Assert.assertEquals(importer.getStopTimeByTrip().getValue("t1_1").getStopSequence().intValue(), 1);
+	}
+
+	@Test(groups = { "GtfsRouteImporter" }, description = "test routes are read by concurrent threads")
+	public void verifyRoutesAreReadConcurrently() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<GtfsRouteImporter>> futures = new ArrayList<>();
+			for (int i = 0; i < ROUTES; i++) {
+				String routeId = "r" + i;
+				futures.add(executor.submit(() -> {
+					GtfsRouteImporter routeImporter = new GtfsRouteImporter(importer, routeId);
+					routeImporter.load(false);
+					return routeImporter;
+				}));
+			}
+			for (int i = 0; i < ROUTES; i++) {
+				GtfsRouteImporter routeImporter = futures.get(i).get();
+				Assert.assertEquals(routeImporter.getRouteById().getValue("r" + i).getRouteLongName(), "route " + i);
+				for (GtfsTrip trip : routeImporter.getTripByRoute().values("r" + i)) {
+					int count = 0;
+					for (GtfsStopTime stopTime : routeImporter.getStopTimeByTrip().values(trip.getTripId())) {
+						Assert.assertEquals(stopTime.getTripId(), trip.getTripId());
+						count++;
+					}
+					Assert.assertEquals(count, 3);
+				}
+				routeImporter.dispose();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
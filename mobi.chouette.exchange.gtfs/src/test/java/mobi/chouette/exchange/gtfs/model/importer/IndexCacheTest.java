@@ -0,0 +1,78 @@
+package mobi.chouette.exchange.gtfs.model.importer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class IndexCacheTest {
+
+	private Path directory;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("gtfs-index-cache");
+		System.setProperty(IndexCache.DIRECTORY_PROPERTY, directory.toString());
+		System.setProperty(IndexCache.MAX_SIZE_PROPERTY, "1");
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		System.clearProperty(IndexCache.DIRECTORY_PROPERTY);
+		System.clearProperty(IndexCache.MAX_SIZE_PROPERTY);
+	}
+
+	@Test(groups = { "IndexCache" }, description = "test an index is found by file content")
+	public void verifyIndexIsCachedByContent() throws Exception {
+		IndexCache cache = IndexCache.getInstance();
+		Assert.assertNotNull(cache);
+		Path file = Files.createTempFile(directory, "trips", ".txt");
+		ByteBuffer content = ByteBuffer.wrap("trip_id\nt1\n".getBytes(StandardCharsets.UTF_8));
+		String key = cache.getKey(file.toString(), content, "trip_id");
+		Assert.assertNull(cache.get(key));
+
+		KeyDirectory index = new KeyDirectory("trips.txt");
+		index.add("t1", -1, 8, 2);
+		index.setRowCount(2);
+		cache.put(key, index);
+		index.dispose();
+
+		KeyDirectory cached = cache.get(key);
+		Assert.assertNotNull(cached);
+		Assert.assertEquals(cached.getRowCount(), 2);
+		Assert.assertEquals(cached.find("t1"), 0);
+		cached.dispose();
+
+		Assert.assertNotEquals(cache.getKey(file.toString(), content, "route_id"), key);
+		ByteBuffer other = ByteBuffer.wrap("trip_id\nt2\n".getBytes(StandardCharsets.UTF_8));
+		Assert.assertNotEquals(cache.getKey(file.toString() + ".other", other, "trip_id"), key);
+	}
+
+	@Test(groups = { "IndexCache" }, description = "test least recently used indexes are evicted")
+	public void verifyEviction() throws Exception {
+		IndexCache cache = IndexCache.getInstance();
+		for (int i = 0; i < 3; i++) {
+			KeyDirectory index = new KeyDirectory("stop_times.txt");
+			// about 400 KB once saved
+			for (int j = 0; j < 8000; j++) {
+				index.add("trip" + j, -1, j, j);
+			}
+			cache.put("index" + i, index);
+			index.dispose();
+			Files.setLastModifiedTime(directory.resolve("index" + i + ".index"),
+					FileTime.fromMillis(System.currentTimeMillis() - 10000 + i * 1000));
+		}
+		Assert.assertNull(cache.get("index0"));
+		for (int i = 1; i < 3; i++) {
+			KeyDirectory index = cache.get("index" + i);
+			Assert.assertNotNull(index);
+			index.dispose();
+		}
+	}
+}
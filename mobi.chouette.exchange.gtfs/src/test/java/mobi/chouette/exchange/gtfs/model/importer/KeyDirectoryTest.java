@@ -0,0 +1,73 @@
+package mobi.chouette.exchange.gtfs.model.importer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class KeyDirectoryTest {
+
+	@Test(groups = { "KeyDirectory" }, description = "test rows are kept by key in file order")
+	public void verifyRowsByKey() throws Exception {
+		KeyDirectory directory = new KeyDirectory("stop_times.txt");
+		try {
+			// enough keys to rehash the table several times
+			for (int i = 0; i < 10000; i++) {
+				directory.add("trip" + (i % 5000), -1, i * 10, i + 2);
+			}
+			directory.add("Kerniol-Cliscouët", -1, 100000, 10002);
+
+			Assert.assertEquals(directory.size(), 5001, "check key count");
+			Assert.assertEquals(directory.getKey(0), "trip0");
+			Assert.assertEquals(directory.getKey(5000), "Kerniol-Cliscouët");
+			Assert.assertEquals(directory.find("Kerniol-Cliscouët"), 5000);
+			Assert.assertEquals(directory.find("trip5000"), -1);
+
+			int record = directory.find("trip42");
+			Assert.assertEquals(directory.getCount(record), 2);
+			List<Integer> positions = new ArrayList<>();
+			List<Integer> lines = new ArrayList<>();
+			for (int entry = directory.getFirstEntry(record); entry >= 0; entry = directory.getNextEntry(entry)) {
+				positions.add(directory.getPosition(entry));
+				lines.add(directory.getLine(entry));
+			}
+			Assert.assertEquals(positions.toString(), "[420, 50420]");
+			Assert.assertEquals(lines.toString(), "[44, 5044]");
+		} finally {
+			directory.dispose();
+		}
+	}
+
+	@Test(groups = { "KeyDirectory" }, description = "test a saved directory is loaded back")
+	public void verifySaveAndLoad() throws Exception {
+		KeyDirectory directory = new KeyDirectory("trips.txt");
+		Path path = Files.createTempFile("trips.txt.", ".index");
+		try {
+			for (int i = 0; i < 100000; i++) {
+				directory.add("trip" + (i % 70000), -1, i * 10, i + 2);
+			}
+			directory.setRowCount(100001);
+			directory.save(path);
+		} finally {
+			directory.dispose();
+		}
+
+		KeyDirectory loaded = KeyDirectory.load(path);
+		try {
+			Assert.assertEquals(loaded.getRowCount(), 100001);
+			Assert.assertEquals(loaded.size(), 70000);
+			Assert.assertEquals(loaded.getKey(69999), "trip69999");
+			int record = loaded.find("trip5");
+			Assert.assertEquals(loaded.getCount(record), 2);
+			int entry = loaded.getNextEntry(loaded.getFirstEntry(record));
+			Assert.assertEquals(loaded.getPosition(entry), 700050);
+			Assert.assertEquals(loaded.getLine(entry), 70007);
+		} finally {
+			loaded.dispose();
+			Files.delete(path);
+		}
+	}
+}
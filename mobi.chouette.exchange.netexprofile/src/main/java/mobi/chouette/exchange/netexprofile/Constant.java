@@ -15,6 +15,7 @@ public interface Constant extends mobi.chouette.common.Constant {
 	String NETEX_WITH_COMMON_DATA = "netex_with_common_data";
 	String NETEX_DATA_JAVA = "netex_data_java";
 	String NETEX_DATA_DOM = "netex_data_dom";
+	String NETEX_PARSED_LINE_FILES = "netex_parsed_line_files";
 	String NETEX_XPATH_COMPILER = "netex_line_data_xpath";
 	String NETEX_LINE_DATA_CONTEXT = "netex_line_data_context";
 	String NETEX_PROFILE_VALIDATOR = "netext_profile_validator";
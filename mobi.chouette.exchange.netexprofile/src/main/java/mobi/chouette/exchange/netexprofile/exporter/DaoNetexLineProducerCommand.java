@@ -40,7 +40,7 @@ public class DaoNetexLineProducerCommand implements Command, Constant {
         try {
 
             Long lineId = (Long) context.get(LINE_ID);
-            Line line = lineDAO.find(lineId);
+            Line line = lineDAO.findForExport(lineId);
 
             InitialContext initialContext = (InitialContext) context.get(INITIAL_CONTEXT);
             Command export = CommandFactory.create(initialContext, NetexLineProducerCommand.class.getName());
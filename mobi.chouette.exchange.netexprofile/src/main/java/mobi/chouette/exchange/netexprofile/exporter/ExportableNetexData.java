@@ -22,6 +22,7 @@ import org.rutebanken.netex.model.DayTypeAssignment;
 import org.rutebanken.netex.model.DeadRun;
 import org.rutebanken.netex.model.DestinationDisplay;
 import org.rutebanken.netex.model.GroupOfLines;
+import org.rutebanken.netex.model.GroupsOfLinesInFrame_RelStructure;
 import org.rutebanken.netex.model.JourneyPattern;
 import org.rutebanken.netex.model.Line;
 import org.rutebanken.netex.model.Line_VersionStructure;
@@ -167,6 +168,75 @@ public class ExportableNetexData {
         serviceJourneyInterchanges.clear();
     }
 
+    /**
+     * merge the shared data collected by another exportable data, as if its lines had been exported with this one
+     */
+    public void merge(ExportableNetexData other) {
+        if (commonCondition == null) {
+            commonCondition = other.getCommonCondition();
+        }
+        mergeShared(sharedCodespaces, other.getSharedCodespaces());
+        mergeShared(sharedGroupsOfLines, other.getSharedGroupsOfLines());
+        for (Map.Entry<String, Network> entry : other.getSharedNetworks().entrySet()) {
+            Network network = sharedNetworks.putIfAbsent(entry.getKey(), entry.getValue());
+            if (network == null) {
+                network = entry.getValue();
+            }
+            mergeGroupsOfLines(network, entry.getValue());
+        }
+        mergeShared(sharedOrganisations, other.getSharedOrganisations());
+        mergeShared(sharedStopPlaces, other.getSharedStopPlaces());
+        mergeShared(sharedScheduledStopPoints, other.getSharedScheduledStopPoints());
+        mergeShared(sharedDestinationDisplays, other.getSharedDestinationDisplays());
+        mergeShared(sharedStopAssignments, other.getSharedStopAssignments());
+        mergeShared(sharedRoutePoints, other.getSharedRoutePoints());
+        mergeShared(sharedServiceLinks, other.getSharedServiceLinks());
+        mergeShared(sharedNotices, other.getSharedNotices());
+        mergeShared(sharedBrandings, other.getSharedBrandings());
+        mergeShared(sharedOperatingPeriods, other.getSharedOperatingPeriods());
+        mergeShared(sharedOperatingDays, other.getSharedOperatingDays());
+
+        // assignments are only produced with their day type
+        Set<String> mergedDayTypeIds = new HashSet<>();
+        for (Map.Entry<String, DayType> entry : other.getSharedDayTypes().entrySet()) {
+            if (sharedDayTypes.putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+                mergedDayTypeIds.add(entry.getValue().getId());
+            }
+        }
+        for (DayTypeAssignment dayTypeAssignment : other.getSharedDayTypeAssignments()) {
+            if (dayTypeAssignment.getDayTypeRef() != null
+                    && mergedDayTypeIds.contains(dayTypeAssignment.getDayTypeRef().getValue().getRef())) {
+                sharedDayTypeAssignments.add(dayTypeAssignment);
+            }
+        }
+    }
+
+    private static <T> void mergeShared(Map<String, T> shared, Map<String, T> other) {
+        for (Map.Entry<String, T> entry : other.entrySet()) {
+            shared.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * groups of lines are referenced by the network of their first line, use the merged instances
+     */
+    private void mergeGroupsOfLines(Network network, Network other) {
+        if (other.getGroupsOfLines() == null) {
+            return;
+        }
+        for (GroupOfLines groupOfLines : other.getGroupsOfLines().getGroupOfLines()) {
+            GroupOfLines merged = sharedGroupsOfLines.getOrDefault(groupOfLines.getId(), groupOfLines);
+            if (network.getGroupsOfLines() == null) {
+                network.setGroupsOfLines(new GroupsOfLinesInFrame_RelStructure());
+            }
+            boolean present = network.getGroupsOfLines().getGroupOfLines().stream()
+                    .anyMatch(g -> g == merged || (g.getId() != null && g.getId().equals(merged.getId())));
+            if (!present) {
+                network.getGroupsOfLines().getGroupOfLines().add(merged);
+            }
+        }
+    }
+
     public void dispose() {
         clear();
         sharedDayTypes.clear();
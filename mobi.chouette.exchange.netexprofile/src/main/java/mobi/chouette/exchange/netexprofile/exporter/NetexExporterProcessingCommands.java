@@ -6,10 +6,13 @@ import mobi.chouette.common.Constant;
 import mobi.chouette.common.Context;
 import mobi.chouette.common.chain.Command;
 import mobi.chouette.common.chain.CommandFactory;
+import mobi.chouette.exchange.ParallelLineExportCommands;
 import mobi.chouette.exchange.ProcessingCommands;
 import mobi.chouette.exchange.ProcessingCommandsFactory;
 import mobi.chouette.exchange.exporter.CompressCommand;
 import mobi.chouette.exchange.exporter.SaveMetadataCommand;
+import mobi.chouette.exchange.exporter.SharedDataKeys;
+import mobi.chouette.exchange.netexprofile.jaxb.NetexXMLProcessingHelperFactory;
 
 import javax.naming.InitialContext;
 import java.io.IOException;
@@ -18,7 +21,7 @@ import java.util.List;
 
 @Data
 @Log4j
-public class NetexExporterProcessingCommands implements ProcessingCommands, Constant {
+public class NetexExporterProcessingCommands implements ParallelLineExportCommands, Constant {
 
     public static class DefaultFactory extends ProcessingCommandsFactory {
 
@@ -67,6 +70,49 @@ public class NetexExporterProcessingCommands implements ProcessingCommands, Cons
         return commands;
     }
 
+    /**
+     * line context with its own exportable data and marshaller, the referentials and shared data keys of the job are
+     * shared
+     */
+    @Override
+    public Context createLineContext(Context context) throws Exception {
+        if (!context.containsKey(SHARED_DATA_KEYS)) {
+            context.put(SHARED_DATA_KEYS, new SharedDataKeys());
+        }
+        Context lineContext = new Context(context);
+        lineContext.remove(EXPORTABLE_DATA);
+        lineContext.remove(EXPORTABLE_NETEX_DATA);
+        lineContext.put(MARSHALLER, new NetexXMLProcessingHelperFactory().createFragmentMarshaller());
+        return lineContext;
+    }
+
+    /**
+     * merge the shared NeTEx data and the blocks of the lines exported on the line context
+     */
+    @Override
+    public void mergeLineContext(Context context, Context lineContext) {
+        ExportableData lineData = (ExportableData) lineContext.get(EXPORTABLE_DATA);
+        ExportableNetexData lineNetexData = (ExportableNetexData) lineContext.get(EXPORTABLE_NETEX_DATA);
+        if (lineData == null || lineNetexData == null) {
+            return;
+        }
+
+        ExportableData data = (ExportableData) context.get(EXPORTABLE_DATA);
+        if (data == null) {
+            data = new ExportableData();
+            context.put(EXPORTABLE_DATA, data);
+        }
+        data.getBlocks().addAll(lineData.getBlocks());
+
+        ExportableNetexData netexData = (ExportableNetexData) context.get(EXPORTABLE_NETEX_DATA);
+        if (netexData == null) {
+            netexData = new ExportableNetexData();
+            context.put(EXPORTABLE_NETEX_DATA, netexData);
+        }
+        netexData.merge(lineNetexData);
+        lineNetexData.clear();
+    }
+
     @Override
     public List<? extends Command> getStopAreaProcessingCommands(Context context, boolean withDao) {
         return new ArrayList<>();
@@ -14,6 +14,7 @@ import javax.xml.bind.Marshaller;
 
 import mobi.chouette.common.Context;
 import mobi.chouette.common.JobData;
+import mobi.chouette.exchange.exporter.ParallelLineExportCommand;
 import mobi.chouette.exchange.metadata.Metadata;
 import mobi.chouette.exchange.metadata.NeptuneObjectPresenter;
 import mobi.chouette.exchange.netexprofile.Constant;
@@ -97,7 +98,9 @@ public class NetexLineDataProducer extends NetexProducer implements Constant {
 		produceAndCollectSharedData(context, exportableData, exportableNetexData);
 
 		String fileName = ExportedFilenamer.createLineFilename(context, neptuneLine);
-		reporter.addFileReport(context, fileName, IO_TYPE.OUTPUT);
+		synchronized (ParallelLineExportCommand.getReportLock(context)) {
+			reporter.addFileReport(context, fileName, IO_TYPE.OUTPUT);
+		}
 		Path filePath = new File(outputPath.toFile(), fileName).toPath();
 
 		Marshaller marshaller = (Marshaller) context.get(MARSHALLER);
@@ -107,8 +110,10 @@ public class NetexLineDataProducer extends NetexProducer implements Constant {
 		if (parameters.isAddMetadata()) {
 			Metadata metadata = (Metadata) context.get(METADATA);
 			if (metadata != null) {
-				metadata.getResources().add(
-						new Metadata.Resource(fileName, NeptuneObjectPresenter.getName(neptuneLine.getNetwork()), NeptuneObjectPresenter.getName(neptuneLine)));
+				synchronized (ParallelLineExportCommand.getReportLock(context)) {
+					metadata.getResources().add(
+							new Metadata.Resource(fileName, NeptuneObjectPresenter.getName(neptuneLine.getNetwork()), NeptuneObjectPresenter.getName(neptuneLine)));
+				}
 			}
 		}
 	}
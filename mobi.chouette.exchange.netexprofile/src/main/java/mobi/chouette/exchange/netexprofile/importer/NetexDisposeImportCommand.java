@@ -32,6 +32,7 @@ public class NetexDisposeImportCommand extends AbstractDisposeImportCommand impl
 		try {
 			super.execute(context);
 			NetexParser.resetContext(context);
+			context.remove(NETEX_PARSED_LINE_FILES);
 
 			NetexprofileImportParameters parameters = (NetexprofileImportParameters) context.get(CONFIGURATION);
 			if (parameters.isCleanOnErrors() && ActionReporter.Factory.getInstance().hasActionError(context)) {
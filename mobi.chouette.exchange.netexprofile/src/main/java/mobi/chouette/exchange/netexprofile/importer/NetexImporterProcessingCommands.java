@@ -22,6 +22,7 @@ import mobi.chouette.common.chain.ChainCommand;
 import mobi.chouette.common.chain.Command;
 import mobi.chouette.common.chain.CommandFactory;
 import mobi.chouette.common.parallel.ParallelExecutionCommand;
+import mobi.chouette.exchange.ParallelLineProcessingCommands;
 import mobi.chouette.exchange.ProcessingCommands;
 import mobi.chouette.exchange.ProcessingCommandsFactory;
 import mobi.chouette.exchange.importer.BlocksRegisterCommand;
@@ -29,6 +30,7 @@ import mobi.chouette.exchange.importer.CleanRepositoryCommand;
 import mobi.chouette.exchange.importer.CopyCommand;
 import mobi.chouette.exchange.importer.GenerateRouteSectionsCommand;
 import mobi.chouette.exchange.importer.LineRegisterCommand;
+import mobi.chouette.exchange.importer.ParallelLineProcessingCommand.LineStages;
 import mobi.chouette.exchange.importer.UncompressCommand;
 import mobi.chouette.exchange.netexprofile.importer.util.IdVersion;
 import mobi.chouette.exchange.parameters.AbstractImportParameter;
@@ -44,15 +46,28 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import static mobi.chouette.exchange.netexprofile.Constant.NETEX_FILE_PATHS;
+import static mobi.chouette.exchange.netexprofile.Constant.NETEX_PARSED_LINE_FILES;
 
 @Data
 @Log4j
-public class NetexImporterProcessingCommands implements ProcessingCommands, Constant {
+public class NetexImporterProcessingCommands implements ParallelLineProcessingCommands, Constant {
 
 	private static final String VALIDATION_ERROR_NO_LINE = "3-No-Line";
 
 	private Integer lineValidationTimeoutSeconds;
 
+	/**
+	 * read each file once for schema validation, profile validation and unmarshalling
+	 */
+	private boolean singleParse;
+
+	/**
+	 * total size on disk of the line files whose unmarshalled tree is kept for line processing, in bytes
+	 * <br/>
+	 * The retained heap is several times larger than the files, depending on their content.
+	 */
+	private long parsedLineFileBytes;
+
 	public static class DefaultFactory extends ProcessingCommandsFactory {
 
 		@Override
@@ -65,6 +80,8 @@ public class NetexImporterProcessingCommands implements ProcessingCommands, Cons
 				result.lineValidationTimeoutSeconds = Integer.parseInt(lineValidationTimeoutString);
 				log.info("Parallel execution line validation command configured with time out seconds: " + result.lineValidationTimeoutSeconds);
 			}
+			result.singleParse = Boolean.parseBoolean(System.getProperty("iev.netex.import.single.parse"));
+			result.parsedLineFileBytes = Long.getLong("iev.netex.import.single.parse.kept.file.mb", 32) * 1024 * 1024;
 
 			return result;
 		}
@@ -79,6 +96,11 @@ public class NetexImporterProcessingCommands implements ProcessingCommands, Cons
 		InitialContext initialContext = (InitialContext) context.get(INITIAL_CONTEXT);
 		NetexprofileImportParameters parameters = (NetexprofileImportParameters) context.get(CONFIGURATION);
 		List<Command> commands = new ArrayList<>();
+		if (parameters.isSkipUnchangedLines()) {
+			// lines are deleted by NetexprofileLineDeleteCommand before registration, their fingerprint with them
+			log.warn("skip_unchanged_lines is not supported by NeTEx imports, all lines are registered");
+			parameters.setSkipUnchangedLines(false);
+		}
 		try {
 			Chain initChain = (Chain) CommandFactory.create(initialContext, ChainCommand.class.getName());
 			if (withDao && parameters.isCleanRepository()) {
@@ -99,125 +121,18 @@ public class NetexImporterProcessingCommands implements ProcessingCommands, Cons
 	public List<? extends Command> getLineProcessingCommands(Context context, boolean withDao) {
 		InitialContext initialContext = (InitialContext) context.get(INITIAL_CONTEXT);
 		NetexprofileImportParameters parameters = (NetexprofileImportParameters) context.get(CONFIGURATION);
-		ActionReporter reporter = ActionReporter.Factory.getInstance();
 
 		boolean level3validation = context.get(VALIDATION) != null;
 		List<Command> commands = new ArrayList<>();
-		JobData jobData = (JobData) context.get(JOB_DATA);
-		Path path = Paths.get(jobData.getPathName(), INPUT);
 
 		try {
-			Chain mainChain = (Chain) CommandFactory.create(initialContext, ChainCommand.class.getName());
+			List<Path> lineFilePaths = new ArrayList<>();
+			Chain mainChain = createMainChain(context, lineFilePaths);
 			commands.add(mainChain);
 
-
-			// Report any files that are not XML files
-			List<Path> excluded = FileUtil.listFiles(path, "*", "*.xml");
-
-			if (!excluded.isEmpty()) {
-				for (Path exclude : excluded) {
-					reporter.setFileState(context, exclude.getFileName().toString(), IO_TYPE.INPUT, ActionReporter.FILE_STATE.IGNORED);
-				}
-			}
-
-			// stream all file paths once
-			List<Path> allFilePaths = FileUtil.listFiles(path, "*.xml", ".*.xml");
-			Collections.sort(allFilePaths);
-			for (Path p : allFilePaths) {
-				reporter.setFileState(context, p.getFileName().toString(), IO_TYPE.INPUT, ActionReporter.FILE_STATE.IGNORED);
-			}
-			context.put(NETEX_FILE_PATHS, allFilePaths);
-
-			// schema validation
-
-			if (parameters.isValidateAgainstSchema()) {
-				NetexSchemaValidationCommand schemaValidation = (NetexSchemaValidationCommand) CommandFactory.create(initialContext,
-						NetexSchemaValidationCommand.class.getName());
-
-				mainChain.add(schemaValidation);
-			}
-			// common file parsing
-
-			List<Path> commonFilePaths = allFilePaths.stream().filter(
-					filePath -> filePath.getFileName() != null && filePath.getFileSystem().getPathMatcher("glob:_*.xml").matches(filePath.getFileName()))
-					.collect(Collectors.toList());
-
-			ChainCommand commonFileChains = (ChainCommand) CommandFactory.create(initialContext, ChainCommand.class.getName());
-			commonFileChains.setIgnored(parameters.isContinueOnLineErrors());
-
-			mainChain.add(commonFileChains);
-
-			context.put(mobi.chouette.exchange.netexprofile.Constant.NETEX_COMMON_FILE_IDENTIFICATORS, new HashMap<IdVersion, List<String>>());
-
-
-			for (Path file : commonFilePaths) {
-				ChainCommand commonFileChain = (ChainCommand) CommandFactory.create(initialContext, ChainCommand.class.getName());
-				commonFileChains.add(commonFileChain);
-				commonFileChain.setIgnored(parameters.isContinueOnLineErrors());
-
-				// init referentials
-				NetexInitReferentialCommand initializer = (NetexInitReferentialCommand) CommandFactory.create(initialContext,
-						NetexInitReferentialCommand.class.getName());
-				initializer.setPath(file);
-				initializer.setLineFile(false);
-				commonFileChain.add(initializer);
-
-				// profile validation
-				if(parameters.isValidateAgainstProfile()) {
-					Command validator = CommandFactory.create(initialContext, NetexValidationCommand.class.getName());
-					commonFileChain.add(validator);
-				}
-				NetexCommonFilesParserCommand commonFilesParser = (NetexCommonFilesParserCommand) CommandFactory.create(initialContext,
-						NetexCommonFilesParserCommand.class.getName());
-				commonFileChain.add(commonFilesParser);
-			}
-
-			// Check for duplicate identifiers declared in common files
-			DuplicateIdCheckerCommand duplicateIdChecker = (DuplicateIdCheckerCommand) CommandFactory.create(initialContext,
-					DuplicateIdCheckerCommand.class.getName());
-			mainChain.add(duplicateIdChecker);
-
-			// line file processing
-			List<Path> lineFilePaths = allFilePaths.stream().filter(
-					filePath -> filePath.getFileName() != null && !filePath.getFileSystem().getPathMatcher("glob:_*.xml").matches(filePath.getFileName()))
-					.collect(Collectors.toList());
-
-
-			// profile validation
-			if (parameters.isValidateAgainstProfile()) {
-
-				if(lineFilePaths.size() < 1) {
-					reportNoLineValidationError(context);
-				} else {
-					ParallelExecutionCommand lineValidationCommands = (ParallelExecutionCommand) CommandFactory.create(initialContext, ParallelExecutionCommand.class.getName());
-					if (lineValidationTimeoutSeconds != null) {
-						lineValidationCommands.setTimeoutSeconds(lineValidationTimeoutSeconds);
-					}
-					mainChain.add(lineValidationCommands);
-
-					// Compare by file size, largest first
-					List<Path> allPathsSortedLargestFirst = new ArrayList<>(lineFilePaths);
-					Collections.sort(allPathsSortedLargestFirst, (o1, o2) -> (int) (o2.toFile().length() - o1.toFile().length()));
-					for (Path file : allPathsSortedLargestFirst) {
-						Chain lineChain = (Chain) CommandFactory.create(initialContext, ChainCommand.class.getName());
-
-						lineValidationCommands.add(lineChain, c -> new Context(context));
-
-						// init referentials
-						NetexInitReferentialCommand initializer = (NetexInitReferentialCommand) CommandFactory.create(initialContext,
-								NetexInitReferentialCommand.class.getName());
-						initializer.setPath(file);
-						initializer.setLineFile(true);
-						lineChain.add(initializer);
-
-						Command validator = CommandFactory.create(initialContext, NetexValidationCommand.class.getName());
-						lineChain.add(validator);
-
-					}
-				}
-			}
-
 			if (withDao && !parameters.isNoSave()) {
+				keepParsedLineFiles(context, parameters);
+				context.put(CONTINUE_ON_LINE_ERRORS, parameters.isContinueOnLineErrors());
 				ChainCommand lineChains = (ChainCommand) CommandFactory.create(initialContext, ChainCommand.class.getName());
 				lineChains.setIgnored(parameters.isContinueOnLineErrors());
 
@@ -231,6 +146,8 @@ public class NetexImporterProcessingCommands implements ProcessingCommands, Cons
 							NetexInitReferentialCommand.class.getName());
 					initializer.setPath(file);
 					initializer.setLineFile(true);
+					initializer.setSingleParse(singleParse);
+					initializer.setReuseParsed(true);
 					lineChain.add(initializer);
 
 					// parsing
@@ -269,6 +186,220 @@ public class NetexImporterProcessingCommands implements ProcessingCommands, Cons
 		return commands;
 	}
 
+	@Override
+	public List<LineStages> getParallelLineProcessingCommands(Context context, boolean withDao) {
+		InitialContext initialContext = (InitialContext) context.get(INITIAL_CONTEXT);
+		NetexprofileImportParameters parameters = (NetexprofileImportParameters) context.get(CONFIGURATION);
+
+		boolean level3validation = context.get(VALIDATION) != null;
+		List<LineStages> stages = new ArrayList<>();
+
+		try {
+			List<Path> lineFilePaths = new ArrayList<>();
+			Chain mainChain = createMainChain(context, lineFilePaths);
+			LineStages mainStages = new LineStages(null, mainChain, null);
+			mainStages.setRequired(true);
+			stages.add(mainStages);
+
+			if (withDao && !parameters.isNoSave()) {
+				keepParsedLineFiles(context, parameters);
+				context.put(CONTINUE_ON_LINE_ERRORS, parameters.isContinueOnLineErrors());
+				for (Path file : lineFilePaths) {
+					// init referentials, read ahead as it does not use the referential
+					NetexInitReferentialCommand initializer = (NetexInitReferentialCommand) CommandFactory.create(initialContext,
+							NetexInitReferentialCommand.class.getName());
+					initializer.setPath(file);
+					initializer.setLineFile(true);
+					initializer.setSingleParse(singleParse);
+					initializer.setReuseParsed(true);
+
+					Chain lineChain = (Chain) CommandFactory.create(initialContext, ChainCommand.class.getName());
+
+					// parsing
+					NetexLineParserCommand parser = (NetexLineParserCommand) CommandFactory.create(initialContext, NetexLineParserCommand.class.getName());
+					parser.setPath(file);
+					lineChain.add(parser);
+
+					Command clean = CommandFactory.create(initialContext, NetexprofileLineDeleteCommand.class.getName());
+					lineChain.add(clean);
+
+					// register
+					Command register = CommandFactory.create(initialContext, LineRegisterCommand.class.getName());
+					lineChain.add(register);
+
+					Command copy = CommandFactory.create(initialContext, CopyCommand.class.getName());
+					lineChain.add(copy);
+
+					Command validate = null;
+					if (level3validation) {
+						// add validation
+						validate = CommandFactory.create(initialContext, ImportedLineValidatorCommand.class.getName());
+					}
+					LineStages lineStages = new LineStages(initializer, lineChain, validate);
+					lineStages.setRequired(!parameters.isContinueOnLineErrors());
+					stages.add(lineStages);
+				}
+
+				Command blocksRegister = CommandFactory.create(initialContext, BlocksRegisterCommand.class.getName());
+				LineStages blocksStages = new LineStages(null, blocksRegister, null);
+				blocksStages.setRequired(true);
+				stages.add(blocksStages);
+			}
+
+		} catch (Exception e) {
+			log.error("Error creating importer commands", e);
+		}
+
+		return stages;
+	}
+
+	/**
+	 * schema validation, common files processing and line files profile validation
+	 *
+	 * @param lineFilePaths filled with line file paths
+	 */
+	private Chain createMainChain(Context context, List<Path> lineFilePaths) throws Exception {
+		InitialContext initialContext = (InitialContext) context.get(INITIAL_CONTEXT);
+		NetexprofileImportParameters parameters = (NetexprofileImportParameters) context.get(CONFIGURATION);
+		ActionReporter reporter = ActionReporter.Factory.getInstance();
+
+		JobData jobData = (JobData) context.get(JOB_DATA);
+		Path path = Paths.get(jobData.getPathName(), INPUT);
+
+		Chain mainChain = (Chain) CommandFactory.create(initialContext, ChainCommand.class.getName());
+
+
+		// Report any files that are not XML files
+		List<Path> excluded = FileUtil.listFiles(path, "*", "*.xml");
+
+		if (!excluded.isEmpty()) {
+			for (Path exclude : excluded) {
+				reporter.setFileState(context, exclude.getFileName().toString(), IO_TYPE.INPUT, ActionReporter.FILE_STATE.IGNORED);
+			}
+		}
+
+		// stream all file paths once
+		List<Path> allFilePaths = FileUtil.listFiles(path, "*.xml", ".*.xml");
+		Collections.sort(allFilePaths);
+		for (Path p : allFilePaths) {
+			reporter.setFileState(context, p.getFileName().toString(), IO_TYPE.INPUT, ActionReporter.FILE_STATE.IGNORED);
+		}
+		context.put(NETEX_FILE_PATHS, allFilePaths);
+
+		// schema validation, done while parsing files for profile validation when they are read once
+		boolean validateWhileParsing = singleParse && parameters.isValidateAgainstSchema() && parameters.isValidateAgainstProfile();
+
+		if (parameters.isValidateAgainstSchema() && !validateWhileParsing) {
+			NetexSchemaValidationCommand schemaValidation = (NetexSchemaValidationCommand) CommandFactory.create(initialContext,
+					NetexSchemaValidationCommand.class.getName());
+
+			mainChain.add(schemaValidation);
+		}
+		// common file parsing
+
+		List<Path> commonFilePaths = allFilePaths.stream().filter(
+				filePath -> filePath.getFileName() != null && filePath.getFileSystem().getPathMatcher("glob:_*.xml").matches(filePath.getFileName()))
+				.collect(Collectors.toList());
+
+		ChainCommand commonFileChains = (ChainCommand) CommandFactory.create(initialContext, ChainCommand.class.getName());
+		commonFileChains.setIgnored(parameters.isContinueOnLineErrors());
+
+		mainChain.add(commonFileChains);
+
+		context.put(mobi.chouette.exchange.netexprofile.Constant.NETEX_COMMON_FILE_IDENTIFICATORS, new HashMap<IdVersion, List<String>>());
+
+
+		for (Path file : commonFilePaths) {
+			ChainCommand commonFileChain = (ChainCommand) CommandFactory.create(initialContext, ChainCommand.class.getName());
+			commonFileChains.add(commonFileChain);
+			commonFileChain.setIgnored(parameters.isContinueOnLineErrors());
+
+			// init referentials
+			NetexInitReferentialCommand initializer = (NetexInitReferentialCommand) CommandFactory.create(initialContext,
+					NetexInitReferentialCommand.class.getName());
+			initializer.setPath(file);
+			initializer.setLineFile(false);
+			initializer.setSingleParse(singleParse);
+			initializer.setValidateAgainstSchema(validateWhileParsing);
+			commonFileChain.add(initializer);
+
+			// profile validation
+			if(parameters.isValidateAgainstProfile()) {
+				Command validator = CommandFactory.create(initialContext, NetexValidationCommand.class.getName());
+				commonFileChain.add(validator);
+			}
+			NetexCommonFilesParserCommand commonFilesParser = (NetexCommonFilesParserCommand) CommandFactory.create(initialContext,
+					NetexCommonFilesParserCommand.class.getName());
+			commonFileChain.add(commonFilesParser);
+		}
+
+		// Check for duplicate identifiers declared in common files
+		DuplicateIdCheckerCommand duplicateIdChecker = (DuplicateIdCheckerCommand) CommandFactory.create(initialContext,
+				DuplicateIdCheckerCommand.class.getName());
+		mainChain.add(duplicateIdChecker);
+
+		// line file processing
+		lineFilePaths.addAll(allFilePaths.stream().filter(
+				filePath -> filePath.getFileName() != null && !filePath.getFileSystem().getPathMatcher("glob:_*.xml").matches(filePath.getFileName()))
+				.collect(Collectors.toList()));
+
+
+		// profile validation
+		if (parameters.isValidateAgainstProfile()) {
+
+			if(lineFilePaths.size() < 1) {
+				reportNoLineValidationError(context);
+			} else {
+				ParallelExecutionCommand lineValidationCommands = (ParallelExecutionCommand) CommandFactory.create(initialContext, ParallelExecutionCommand.class.getName());
+				if (lineValidationTimeoutSeconds != null) {
+					lineValidationCommands.setTimeoutSeconds(lineValidationTimeoutSeconds);
+				}
+				mainChain.add(lineValidationCommands);
+
+				// Compare by file size, largest first
+				List<Path> allPathsSortedLargestFirst = new ArrayList<>(lineFilePaths);
+				Collections.sort(allPathsSortedLargestFirst, (o1, o2) -> (int) (o2.toFile().length() - o1.toFile().length()));
+				for (Path file : allPathsSortedLargestFirst) {
+					Chain lineChain = (Chain) CommandFactory.create(initialContext, ChainCommand.class.getName());
+
+					lineValidationCommands.add(lineChain, c -> new Context(context));
+
+					// init referentials
+					NetexInitReferentialCommand initializer = (NetexInitReferentialCommand) CommandFactory.create(initialContext,
+							NetexInitReferentialCommand.class.getName());
+					initializer.setPath(file);
+					initializer.setLineFile(true);
+					initializer.setSingleParse(singleParse);
+					initializer.setValidateAgainstSchema(validateWhileParsing);
+					initializer.setKeepParsed(true);
+					lineChain.add(initializer);
+
+					Command validator = CommandFactory.create(initialContext, NetexValidationCommand.class.getName());
+					lineChain.add(validator);
+
+				}
+			}
+
+			if (validateWhileParsing) {
+				// stop before line processing when any file is not schema compliant
+				NetexSchemaValidationCommand schemaValidation = (NetexSchemaValidationCommand) CommandFactory.create(initialContext,
+						NetexSchemaValidationCommand.class.getName());
+				schemaValidation.setValidatedWhileParsing(true);
+				mainChain.add(schemaValidation);
+			}
+		}
+
+		return mainChain;
+	}
+
+	/**
+	 * line files are unmarshalled by profile validation before the line processing : keep them within the budget
+	 */
+	private void keepParsedLineFiles(Context context, NetexprofileImportParameters parameters) {
+		if (singleParse && parameters.isValidateAgainstProfile() && parsedLineFileBytes > 0) {
+			context.put(NETEX_PARSED_LINE_FILES, new ParsedLineFiles(parsedLineFileBytes));
+		}
+	}
 
 	private void reportNoLineValidationError(Context context) {
 		ValidationReporter validationReporter = ValidationReporter.Factory.getInstance();
@@ -27,9 +27,11 @@ import mobi.chouette.exchange.netexprofile.importer.validation.AbstractNetexProf
 import mobi.chouette.exchange.netexprofile.importer.validation.NetexProfileValidator;
 import mobi.chouette.exchange.netexprofile.jaxb.NetexXMLProcessingHelperFactory;
 import mobi.chouette.exchange.report.ActionReporter;
+import mobi.chouette.exchange.report.DeferredReports;
 import mobi.chouette.exchange.report.IO_TYPE;
 import mobi.chouette.exchange.validation.report.DataLocation;
 import mobi.chouette.exchange.validation.report.ValidationReporter;
+import net.sf.saxon.s9api.SaxonApiException;
 import net.sf.saxon.s9api.XdmNode;
 
 @Log4j
@@ -49,6 +51,36 @@ public class NetexInitReferentialCommand implements Command, Constant {
 	@Setter
 	private boolean lineFile;
 
+	/**
+	 * read the file once, the JAXB tree being built from the profile validation one
+	 */
+	@Getter
+	@Setter
+	private boolean singleParse;
+
+	/**
+	 * keep the unmarshalled line file for the line processing, see {@link ParsedLineFiles}
+	 */
+	@Getter
+	@Setter
+	private boolean keepParsed;
+
+	/**
+	 * use the line file unmarshalled by profile validation when it was kept
+	 */
+	@Getter
+	@Setter
+	private boolean reuseParsed;
+
+	/**
+	 * validate against the schema in the same read, requires single parse and profile validation
+	 * <br/>
+	 * schema errors are reported as they are found, not to be used on a deferred context
+	 */
+	@Getter
+	@Setter
+	private boolean validateAgainstSchema;
+
 	@Override
 	public boolean execute(Context context) throws Exception {
 		boolean result = SUCCESS;
@@ -59,10 +91,15 @@ public class NetexInitReferentialCommand implements Command, Constant {
 		
 		ActionReporter reporter = ActionReporter.Factory.getInstance();
 		ValidationReporter validationReporter = ValidationReporter.Factory.getInstance();
-		validationReporter.addItemToValidationReport(context, AbstractNetexProfileValidator._1_NETEX_UNKNOWN_PROFILE, "E");
+		boolean parseOnce = singleParse && parameters.isValidateAgainstProfile();
+		if (parseOnce && validateAgainstSchema) {
+			validationReporter.addItemToValidationReport(context, AbstractNetexProfileValidator._1_NETEX_SCHEMA_VALIDATION_ERROR, "E");
+		}
+		// reports may be deferred when the file is parsed ahead of the job thread
+		DeferredReports.report(context, c -> validationReporter.addItemToValidationReport(c, AbstractNetexProfileValidator._1_NETEX_UNKNOWN_PROFILE, "E"));
 
 		File file = path.toFile();
-		reporter.addFileReport(context, fileName, IO_TYPE.INPUT);
+		DeferredReports.report(context, c -> reporter.addFileReport(c, fileName, IO_TYPE.INPUT));
 		context.put(FILE_NAME, fileName);
 
 		try {
@@ -73,13 +110,32 @@ public class NetexInitReferentialCommand implements Command, Constant {
 			}
 
 			NetexXMLProcessingHelperFactory importer = (NetexXMLProcessingHelperFactory) context.get(IMPORTER);
+			ParsedLineFiles parsedLineFiles = lineFile ? (ParsedLineFiles) context.get(NETEX_PARSED_LINE_FILES) : null;
 
-			if(parameters.isValidateAgainstProfile()) {
-				XdmNode netexDom = importer.parseFileToXdmNode(file, elementsToSkip);
-				context.put(NETEX_DATA_DOM, netexDom);
+			PublicationDeliveryStructure netexJava = null;
+			if (reuseParsed && parsedLineFiles != null) {
+				netexJava = parsedLineFiles.take(path);
 			}
+			if (netexJava != null) {
+				log.debug("Reusing unmarshalled file " + fileName);
+			} else if (parseOnce) {
+				XdmNode netexDom = parseFile(context, importer, file, elementsToSkip);
+				if (netexDom == null) {
+					return ERROR;
+				}
+				context.put(NETEX_DATA_DOM, netexDom);
+				netexJava = importer.unmarshal(netexDom);
+				if (keepParsed && parsedLineFiles != null) {
+					parsedLineFiles.offer(path, netexJava);
+				}
+			} else {
+				if(parameters.isValidateAgainstProfile()) {
+					XdmNode netexDom = importer.parseFileToXdmNode(file, elementsToSkip);
+					context.put(NETEX_DATA_DOM, netexDom);
+				}
 
-			PublicationDeliveryStructure netexJava = importer.unmarshal(file,elementsToSkip);
+				netexJava = importer.unmarshal(file,elementsToSkip);
+			}
 
 			context.put(NETEX_DATA_JAVA, netexJava);
 
@@ -98,19 +154,22 @@ public class NetexInitReferentialCommand implements Command, Constant {
 
 			NetexProfileValidator profileValidator = availableProfileValidators.get(profileVersion);
 			if (profileValidator != null) {
-				profileValidator.initializeCheckPoints(context);
 				context.put(NETEX_PROFILE_VALIDATOR, profileValidator);
-				validationReporter.reportSuccess(context, AbstractNetexProfileValidator._1_NETEX_UNKNOWN_PROFILE);
+				DeferredReports.report(context, c -> {
+					profileValidator.initializeCheckPoints(c);
+					validationReporter.reportSuccess(c, AbstractNetexProfileValidator._1_NETEX_UNKNOWN_PROFILE);
+				});
 			} else {
 				log.error("Unsupported NeTEx profile in PublicationDelivery/@version: " + profileVersion);
 				// TODO fix reporting with lineNumber etc
-				validationReporter.addCheckPointReportError(context, AbstractNetexProfileValidator._1_NETEX_UNKNOWN_PROFILE, null, new DataLocation(fileName),
-						profileVersion);
+				String unknownVersion = profileVersion;
+				DeferredReports.report(context, c -> validationReporter.addCheckPointReportError(c, AbstractNetexProfileValidator._1_NETEX_UNKNOWN_PROFILE, null,
+						new DataLocation(fileName), unknownVersion));
 				result = ERROR;
 			}
 
 		} catch (Exception e) {
-			reporter.addFileErrorInReport(context, fileName, ActionReporter.FILE_ERROR_CODE.INTERNAL_ERROR, e.toString());
+			DeferredReports.report(context, c -> reporter.addFileErrorInReport(c, fileName, ActionReporter.FILE_ERROR_CODE.INTERNAL_ERROR, e.toString()));
 			log.error("Netex referential initialization failed ", e);
 			throw e;
 		} finally {
@@ -119,6 +178,39 @@ public class NetexInitReferentialCommand implements Command, Constant {
 		return result;
 	}
 
+	/**
+	 * @return the parsed file, null when it is not schema compliant
+	 */
+	private XdmNode parseFile(Context context, NetexXMLProcessingHelperFactory importer, File file, Set<QName> elementsToSkip) throws Exception {
+		if (!validateAgainstSchema) {
+			return importer.parseFileToXdmNode(file, elementsToSkip, null, null);
+		}
+		String fileName = file.getName();
+		ActionReporter reporter = ActionReporter.Factory.getInstance();
+		ValidationReporter validationReporter = ValidationReporter.Factory.getInstance();
+		NetexSchemaErrorHandler errorHandler = new NetexSchemaErrorHandler(context, reporter, validationReporter, fileName);
+
+		XdmNode dom = null;
+		try {
+			Monitor monitor = MonitorFactory.start("SchemaValidation");
+			dom = importer.parseFileToXdmNode(file, elementsToSkip, importer.getNetexSchema(file), errorHandler);
+			JamonUtils.logYellow(log, monitor);
+		} catch (SaxonApiException e) {
+			if (errorHandler.isValid()) {
+				throw e;
+			}
+			// too many errors or not well formed, already reported
+			log.warn(e);
+		}
+
+		if (!errorHandler.isValid() || reporter.hasFileValidationErrors(context, fileName)) {
+			reporter.addFileErrorInReport(context, fileName, ActionReporter.FILE_ERROR_CODE.INVALID_FORMAT, "Netex schema compliance failed");
+			return null;
+		}
+		validationReporter.reportSuccess(context, AbstractNetexProfileValidator._1_NETEX_SCHEMA_VALIDATION_ERROR);
+		return dom;
+	}
+
 	public static class DefaultCommandFactory extends CommandFactory {
 		@Override
 		protected Command create(InitialContext context) throws IOException {
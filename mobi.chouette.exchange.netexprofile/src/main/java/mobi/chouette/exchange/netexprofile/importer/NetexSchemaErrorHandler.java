@@ -0,0 +1,71 @@
+package mobi.chouette.exchange.netexprofile.importer;
+
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j;
+import mobi.chouette.common.Context;
+import mobi.chouette.exchange.netexprofile.importer.validation.AbstractNetexProfileValidator;
+import mobi.chouette.exchange.report.ActionReporter;
+import mobi.chouette.exchange.validation.report.DataLocation;
+import mobi.chouette.exchange.validation.report.ValidationReporter;
+
+/**
+ * reports the schema validation errors of a NeTEx file, validation is stopped after {@link #MAX_ERROR_COUNT} errors
+ */
+@Log4j
+class NetexSchemaErrorHandler implements ErrorHandler {
+
+	public static final int MAX_ERROR_COUNT = 100;
+
+	private final Context context;
+
+	private final ActionReporter actionReporter;
+
+	private final ValidationReporter validationReporter;
+
+	private final String fileName;
+
+	private int errorCount = 0;
+
+	@Getter
+	private boolean valid = true;
+
+	NetexSchemaErrorHandler(Context context, ActionReporter actionReporter, ValidationReporter validationReporter, String fileName) {
+		this.context = context;
+		this.actionReporter = actionReporter;
+		this.validationReporter = validationReporter;
+		this.fileName = fileName;
+	}
+
+	@Override
+	public void warning(SAXParseException exception) throws SAXException {
+		addToActionReport(exception);
+	}
+
+	@Override
+	public void fatalError(SAXParseException exception) throws SAXException {
+		errorCount++;
+		addToActionReport(exception);
+	}
+
+	@Override
+	public void error(SAXParseException exception) throws SAXException {
+		errorCount++;
+		addToActionReport(exception);
+	}
+
+	private void addToActionReport(SAXParseException exception) throws SAXParseException {
+		validationReporter.addCheckPointReportError(context, AbstractNetexProfileValidator._1_NETEX_SCHEMA_VALIDATION_ERROR,
+				new DataLocation(fileName, exception.getLineNumber(), exception.getColumnNumber()), exception.getMessage());
+		String message = exception.getLineNumber() + ":" + exception.getColumnNumber() + " " + exception.getMessage();
+		actionReporter.addFileErrorInReport(context, fileName, ActionReporter.FILE_ERROR_CODE.INVALID_FORMAT, message);
+		valid = false;
+		if (errorCount >= MAX_ERROR_COUNT) {
+			log.warn(fileName + " has too many schema validation errors (max is " + MAX_ERROR_COUNT + "). Additional errors will not be reported");
+			throw exception;
+		}
+	}
+}
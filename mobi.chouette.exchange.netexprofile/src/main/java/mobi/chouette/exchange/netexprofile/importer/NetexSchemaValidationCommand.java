@@ -8,12 +8,8 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ejb.Stateless;
 import javax.naming.InitialContext;
@@ -22,25 +18,24 @@ import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Validator;
 
 import mobi.chouette.common.monitor.JamonUtils;
-import org.rutebanken.netex.validation.NeTExValidator;
-import org.rutebanken.netex.validation.NeTExValidator.NetexVersion;
-import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
 
 import com.jamonapi.Monitor;
 import com.jamonapi.MonitorFactory;
 
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.log4j.Log4j;
 import mobi.chouette.common.Context;
 import mobi.chouette.common.chain.Command;
 import mobi.chouette.common.chain.CommandFactory;
+import mobi.chouette.common.parallel.SharedTaskExecutor;
 import mobi.chouette.exchange.netexprofile.Constant;
 import mobi.chouette.exchange.netexprofile.importer.validation.AbstractNetexProfileValidator;
 import mobi.chouette.exchange.netexprofile.jaxb.NetexXMLProcessingHelperFactory;
 import mobi.chouette.exchange.report.ActionReporter;
-import mobi.chouette.exchange.validation.report.DataLocation;
+import mobi.chouette.exchange.validation.report.CheckPointReport;
+import mobi.chouette.exchange.validation.report.ValidationReport;
 import mobi.chouette.exchange.validation.report.ValidationReporter;
 
 @Log4j
@@ -49,10 +44,22 @@ public class NetexSchemaValidationCommand implements Command, Constant {
 
 	public static final String COMMAND = "NetexSchemaValidationCommand";
 
+	/**
+	 * files already validated while parsed by {@link NetexInitReferentialCommand}, only fail when one of them is invalid
+	 */
+	@Getter
+	@Setter
+	private boolean validatedWhileParsing;
+
 	@Override
 	@SuppressWarnings("unchecked")
 	public boolean execute(Context context) throws Exception {
 		boolean result = SUCCESS;
+		if (validatedWhileParsing) {
+			ValidationReport validationReport = (ValidationReport) context.get(VALIDATION_REPORT);
+			CheckPointReport checkPoint = validationReport.findCheckPointReportByName(AbstractNetexProfileValidator._1_NETEX_SCHEMA_VALIDATION_ERROR);
+			return checkPoint == null || !ValidationReporter.RESULT.NOK.equals(checkPoint.getState());
+		}
 		Monitor monitor = MonitorFactory.start(COMMAND);
 		ActionReporter actionReporter = ActionReporter.Factory.getInstance();
 		ValidationReporter validationReporter = ValidationReporter.Factory.getInstance();
@@ -61,19 +68,8 @@ public class NetexSchemaValidationCommand implements Command, Constant {
 
 		validationReporter.addItemToValidationReport(context, AbstractNetexProfileValidator._1_NETEX_SCHEMA_VALIDATION_ERROR, "E");
 
-		final AtomicInteger counter = new AtomicInteger(0);
-		ThreadFactory threadFactory = new ThreadFactory() {
-			
-			@Override
-			public Thread newThread(Runnable r) {
-				Thread t = new Thread(r);
-				t.setName("netex-schema-validation-thread-"+(counter.incrementAndGet()));
-				t.setPriority(Thread.MIN_PRIORITY);
-				return t;
-			}
-		};
-		int processors = Runtime.getRuntime().availableProcessors();
-		ExecutorService executor = Executors.newFixedThreadPool(processors,threadFactory);;
+		SharedTaskExecutor executor = new SharedTaskExecutor(COMMAND, context);
+		executor.setTaskTimeoutSeconds(TimeUnit.MINUTES.toSeconds(60));
 
 		try {
 			List<Future<SchemaValidationTask>> schemaValidationResults = new ArrayList<>();
@@ -89,14 +85,11 @@ public class NetexSchemaValidationCommand implements Command, Constant {
 			
 			for (Path filePath : allPathsSortedLargestFirst) {
 				SchemaValidationTask schemaValidationTask = new SchemaValidationTask(context, actionReporter, validationReporter, importer, filePath.toFile());
-				schemaValidationResults.add(executor.submit(schemaValidationTask));
+				schemaValidationResults.add(executor.submit("SchemaValidationTask", schemaValidationTask));
 			}
 
-			executor.shutdown();
-			executor.awaitTermination(60, TimeUnit.MINUTES);
-
 			for (Future<SchemaValidationTask> schemaValidationResult : schemaValidationResults) {
-				SchemaValidationTask schemaValidationTask = schemaValidationResult.get();
+				SchemaValidationTask schemaValidationTask = executor.get(schemaValidationResult);
 
 				if (schemaValidationTask.getFileValidationResult() == ERROR) {
 					actionReporter.addFileErrorInReport(context, schemaValidationTask.getFile().getName(), ActionReporter.FILE_ERROR_CODE.INVALID_FORMAT,
@@ -121,7 +114,7 @@ public class NetexSchemaValidationCommand implements Command, Constant {
 
 	static class SchemaValidationTask implements Callable<SchemaValidationTask> {
 
-		public static final int MAX_ERROR_COUNT = 100;
+		public static final int MAX_ERROR_COUNT = NetexSchemaErrorHandler.MAX_ERROR_COUNT;
 
 		public SchemaValidationTask(Context context, ActionReporter actionReporter, ValidationReporter validationReporter, NetexXMLProcessingHelperFactory importer, File file) {
 			super();
@@ -158,54 +151,16 @@ public class NetexSchemaValidationCommand implements Command, Constant {
 			
 			try {
 				// validate xml file
-				NetexVersion schemaVersion = importer.detectNetexSchemaVersion(file);
-				if(schemaVersion == null) {
-					schemaVersion = NeTExValidator.LATEST;
-					log.warn("Could not detect schema version for file "+file.getName()+", defaulting to latest ("+schemaVersion+")");
-				}
-				Validator validator = importer.getNetexSchema(schemaVersion).newValidator();
-				validator.setErrorHandler(new ErrorHandler() {
-
-					int errorCount = 0;
-
-					@Override
-					public void warning(SAXParseException exception) throws SAXException {
-						addToActionReport(exception);
-					}
-
-					@Override
-					public void fatalError(SAXParseException exception) throws SAXException {
-						errorCount++;
-						addToActionReport(exception);
-					}
-
-					@Override
-					public void error(SAXParseException exception) throws SAXException {
-						errorCount++;
-						addToActionReport(exception);
-					}
-
-					public void addToActionReport(SAXParseException exception) throws SAXParseException {
-						validationReporter.addCheckPointReportError(context, AbstractNetexProfileValidator._1_NETEX_SCHEMA_VALIDATION_ERROR,
-								new DataLocation(fileName, exception.getLineNumber(), exception.getColumnNumber()), exception.getMessage());
-						String message = exception.getLineNumber() + ":" + exception.getColumnNumber() + " " + exception.getMessage();
-						actionReporter.addFileErrorInReport(context, fileName, ActionReporter.FILE_ERROR_CODE.INVALID_FORMAT, message);
-						fileValidationResult = ERROR;
-						if (errorCount >= MAX_ERROR_COUNT) {
-							log.warn(fileName + " has too many schema validation errors (max is " + MAX_ERROR_COUNT + "). Additional errors will not be reported");
-							throw exception;
-						}
-					}
-
-				});
-				// Default to success, code above will update to ERROR if bogus data are found
-				fileValidationResult = SUCCESS;
-				
+				Validator validator = importer.getNetexSchema(file).newValidator();
+				NetexSchemaErrorHandler errorHandler = new NetexSchemaErrorHandler(context, actionReporter, validationReporter, fileName);
+				validator.setErrorHandler(errorHandler);
+
 				Monitor monitor = MonitorFactory.start("SchemaValidation");
 				log.info("Schema validating "+fileName);
 				validator.validate(xmlSource);
 				log.info("Schema validation finished "+fileName);
 				JamonUtils.logYellow(log, monitor);
+				fileValidationResult = errorHandler.isValid() ? SUCCESS : ERROR;
 			} catch (SAXException e) {
 				log.warn(e);
 				fileValidationResult = ERROR;
@@ -0,0 +1,68 @@
+package mobi.chouette.exchange.netexprofile.importer;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.rutebanken.netex.model.PublicationDeliveryStructure;
+
+/**
+ * line files unmarshalled for profile validation, kept for the line processing when files are read once
+ * <br/>
+ * Files are kept while their total size on disk is within the budget, each one being taken once. The budget counts
+ * file bytes, not the heap retained by the unmarshalled trees which is several times larger.
+ */
+public class ParsedLineFiles {
+
+	private final Map<Path, Parsed> files = new ConcurrentHashMap<>();
+
+	private long availableFileBytes;
+
+	/**
+	 * @param fileBytes
+	 *            total size on disk of the files kept
+	 */
+	public ParsedLineFiles(long fileBytes) {
+		this.availableFileBytes = fileBytes;
+	}
+
+	/**
+	 * keep the unmarshalled file if it fits in the budget
+	 */
+	public void offer(Path path, PublicationDeliveryStructure netexJava) {
+		long size = path.toFile().length();
+		synchronized (this) {
+			if (size > availableFileBytes) {
+				return;
+			}
+			availableFileBytes -= size;
+		}
+		files.put(path, new Parsed(netexJava, size));
+	}
+
+	/**
+	 * @return the unmarshalled file, null when it was not kept
+	 */
+	public PublicationDeliveryStructure take(Path path) {
+		Parsed parsed = files.remove(path);
+		if (parsed == null) {
+			return null;
+		}
+		synchronized (this) {
+			availableFileBytes += parsed.size;
+		}
+		return parsed.netexJava;
+	}
+
+	private static class Parsed {
+
+		private final PublicationDeliveryStructure netexJava;
+
+		private final long size;
+
+		Parsed(PublicationDeliveryStructure netexJava, long size) {
+			this.netexJava = netexJava;
+			this.size = size;
+		}
+	}
+}
@@ -18,11 +18,15 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.rutebanken.netex.model.DataManagedObjectStructure;
 
+import com.jamonapi.Monitor;
+import com.jamonapi.MonitorFactory;
+
 import lombok.extern.log4j.Log4j;
 import mobi.chouette.common.Context;
 import mobi.chouette.exchange.netexprofile.Constant;
 import mobi.chouette.exchange.netexprofile.importer.util.DataLocationHelper;
 import mobi.chouette.exchange.netexprofile.importer.util.IdVersion;
+import mobi.chouette.exchange.netexprofile.util.XPathRegistry;
 import mobi.chouette.exchange.validation.report.ValidationReporter;
 import mobi.chouette.model.Codespace;
 
@@ -55,6 +59,9 @@ public abstract class AbstractNetexProfileValidator implements Constant, NetexPr
 
 	protected static final String OBJECT_IDS = "encountered_ids";
 
+	/** prefix of the monitors timing each rule, by checkpoint */
+	public static final String RULE_MONITOR = "NetexProfileRule:";
+
 	private List<ExternalReferenceValidator> externalReferenceValidators = new ArrayList<>();
 
 	@Override
@@ -129,8 +136,7 @@ public abstract class AbstractNetexProfileValidator implements Constant, NetexPr
 	}
 
 	protected boolean evaluationExpression(XPathCompiler xpath, XdmNode document, String expression) throws XPathExpressionException, SaxonApiException {
-		XPathSelector selector = xpath.compile(expression).load();
-		selector.setContextItem(document);
+		XPathSelector selector = XPathRegistry.load(xpath, expression, document);
 
 		return selector.effectiveBooleanValue();
 	}
@@ -139,9 +145,9 @@ public abstract class AbstractNetexProfileValidator implements Constant, NetexPr
 			throws XPathExpressionException, SaxonApiException {
 		ValidationReporter validationReporter = ValidationReporter.Factory.getInstance();
 		validateCheckpointExists(context, checkPointKey, validationReporter);
-		XPathSelector selector = xpath.compile(expression).load();
-		selector.setContextItem(document);
-		XdmValue nodes = selector.evaluate();
+		Monitor monitor = MonitorFactory.start(RULE_MONITOR + checkPointKey);
+		XdmValue nodes = XPathRegistry.load(xpath, expression, document).evaluate();
+		monitor.stop();
 		if (nodes.size() == 1) {
 			validationReporter.reportSuccess(context, checkPointKey);
 		} else {
@@ -156,9 +162,9 @@ public abstract class AbstractNetexProfileValidator implements Constant, NetexPr
 			throws XPathExpressionException, SaxonApiException {
 		ValidationReporter validationReporter = ValidationReporter.Factory.getInstance();
 		validateCheckpointExists(context, checkPointKey, validationReporter);
-		XPathSelector selector = xpath.compile(expression).load();
-		selector.setContextItem(document);
-		XdmValue nodes = selector.evaluate();
+		Monitor monitor = MonitorFactory.start(RULE_MONITOR + checkPointKey);
+		XdmValue nodes = XPathRegistry.load(xpath, expression, document).evaluate();
+		monitor.stop();
 		if (nodes.size() >= count) {
 			validationReporter.reportSuccess(context, checkPointKey);
 		} else {
@@ -173,9 +179,13 @@ public abstract class AbstractNetexProfileValidator implements Constant, NetexPr
 			throws XPathExpressionException, SaxonApiException {
 		ValidationReporter validationReporter = ValidationReporter.Factory.getInstance();
 		validateCheckpointExists(context, checkPointKey, validationReporter);
-		XPathSelector selector = xpath.compile(expression).load();
-		selector.setContextItem(document);
-		XdmValue nodes = selector.evaluate();
+		Monitor monitor = MonitorFactory.start(RULE_MONITOR + checkPointKey);
+		XdmValue nodes = XPathRegistry.load(xpath, expression, document).evaluate();
+		monitor.stop();
+		reportElementNotPresent(context, validationReporter, expression, checkPointKey, nodes);
+	}
+
+	private void reportElementNotPresent(Context context, ValidationReporter validationReporter, String expression, String checkPointKey, XdmValue nodes) {
 		if (nodes.size() == 0) {
 			validationReporter.reportSuccess(context, checkPointKey);
 		} else {
@@ -188,6 +198,58 @@ public abstract class AbstractNetexProfileValidator implements Constant, NetexPr
 		}
 	}
 
+	/**
+	 * rules checking that none of the nodes selected by a common path matches a predicate
+	 * <br/>
+	 * The path is evaluated once and each predicate on the selected nodes, instead of one scan of the document per
+	 * rule. Same result as {@link #validateElementNotPresent} with <code>path[predicate]</code> for predicates which
+	 * do not depend on the position of the node (<code>position()</code>, <code>last()</code>, numbers).
+	 */
+	protected class ElementNotPresentRules {
+
+		private final String path;
+
+		private final List<String> predicates = new ArrayList<>();
+
+		private final List<String> checkPointKeys = new ArrayList<>();
+
+		public ElementNotPresentRules(String path) {
+			this.path = path;
+		}
+
+		public ElementNotPresentRules add(String predicate, String checkPointKey) {
+			predicates.add(predicate);
+			checkPointKeys.add(checkPointKey);
+			return this;
+		}
+
+		public void validate(Context context, XPathCompiler xpath, XdmNode document) throws SaxonApiException {
+			ValidationReporter validationReporter = ValidationReporter.Factory.getInstance();
+			for (String checkPointKey : checkPointKeys) {
+				validateCheckpointExists(context, checkPointKey, validationReporter);
+			}
+
+			Monitor monitor = MonitorFactory.start(RULE_MONITOR + path);
+			XdmValue nodes = XPathRegistry.load(xpath, path, document).evaluate();
+			monitor.stop();
+
+			for (int i = 0; i < predicates.size(); i++) {
+				String checkPointKey = checkPointKeys.get(i);
+				monitor = MonitorFactory.start(RULE_MONITOR + checkPointKey);
+				XPathSelector selector = XPathRegistry.load(xpath, predicates.get(i), null);
+				List<XdmItem> matching = new ArrayList<>();
+				for (XdmItem node : nodes) {
+					selector.setContextItem(node);
+					if (selector.effectiveBooleanValue()) {
+						matching.add(node);
+					}
+				}
+				monitor.stop();
+				reportElementNotPresent(context, validationReporter, path + "[" + predicates.get(i) + "]", checkPointKey, new XdmValue(matching));
+			}
+		}
+	}
+
 	protected void validateCheckpointExists(Context context, String checkPointKey, ValidationReporter validationReporter) {
 		if (!validationReporter.checkIfCheckPointExists(context, checkPointKey)) {
 			log.error("Checkpoint " + checkPointKey + " not present in ValidationReport");
@@ -213,8 +275,7 @@ public abstract class AbstractNetexProfileValidator implements Constant, NetexPr
 	}
 
 	protected XdmItem selectNode(String expression, XPathCompiler xpath, XdmNode document) throws XPathExpressionException, SaxonApiException {
-		XPathSelector selector = xpath.compile(expression).load();
-		selector.setContextItem(document);
+		XPathSelector selector = XPathRegistry.load(xpath, expression, document);
 		XdmValue nodes = selector.evaluate();
 		if (nodes.size() > 0) {
 			return nodes.iterator().next();
@@ -224,8 +285,7 @@ public abstract class AbstractNetexProfileValidator implements Constant, NetexPr
 	}
 
 	protected XdmValue selectNodeSet(String expression, XPathCompiler xpath, XdmNode document) throws XPathExpressionException, SaxonApiException {
-		XPathSelector selector = xpath.compile(expression).load();
-		selector.setContextItem(document);
+		XPathSelector selector = XPathRegistry.load(xpath, expression, document);
 		XdmValue nodes = selector.evaluate();
 		return nodes;
 	}
@@ -238,8 +298,7 @@ public abstract class AbstractNetexProfileValidator implements Constant, NetexPr
 				.join(acceptedCodespaces.stream().map(codespace -> codespace.getXmlns() + "/" + codespace.getXmlnsUrl()).collect(Collectors.toList()), ' ');
 
 		boolean onlyAcceptedCodespaces = true;
-		XPathSelector selector = xpath.compile("//Codespace").load();
-		selector.setContextItem(dom);
+		XPathSelector selector = XPathRegistry.load(xpath, "//Codespace", dom);
 
 		for (XdmItem item : selector) {
 			Codespace codespace = new Codespace();
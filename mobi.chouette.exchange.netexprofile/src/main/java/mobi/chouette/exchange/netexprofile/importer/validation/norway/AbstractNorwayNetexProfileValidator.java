@@ -364,26 +364,23 @@ public abstract class AbstractNorwayNetexProfileValidator extends AbstractNetexP
 
 		if (subLevel != null) {
 
-			validateElementNotPresent(context, xpath, subLevel, "organisations/Operator[not(CompanyNumber) or normalize-space(CompanyNumber) = '']",
-					_1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_OPERATOR_COMPANY_NUMBER);
-			validateElementNotPresent(context, xpath, subLevel, "organisations/Operator[not(Name) or normalize-space(Name) = '']", _1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_OPERATOR_NAME);
-			validateElementNotPresent(context, xpath, subLevel, "organisations/Operator[not(LegalName) or normalize-space(LegalName) = '']",
-					_1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_OPERATOR_LEGAL_NAME);
-			validateElementNotPresent(context, xpath, subLevel, "organisations/Operator[not(ContactDetails)]",
-					_1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_OPERATOR_CONTACT_DETAILS);
+			new ElementNotPresentRules("organisations/Operator")
+					.add("not(CompanyNumber) or normalize-space(CompanyNumber) = ''", _1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_OPERATOR_COMPANY_NUMBER)
+					.add("not(Name) or normalize-space(Name) = ''", _1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_OPERATOR_NAME)
+					.add("not(LegalName) or normalize-space(LegalName) = ''", _1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_OPERATOR_LEGAL_NAME)
+					.add("not(ContactDetails)", _1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_OPERATOR_CONTACT_DETAILS)
+					.validate(context, xpath, subLevel);
 			validateElementNotPresent(context, xpath, subLevel, "organisations/Operator/ContactDetails[(not(Email) or normalize-space(Email) = '') and (not(Phone) or normalize-space(Phone) = '') and (not(Url) or normalize-space(Url) = '')]",
 					_1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_OPERATOR_CONTACT_DETAILS_URL_OR_PHONE_OR_EMAIL);
 			validateElementNotPresent(context, xpath, subLevel, "organisations/Operator[not(CustomerServiceContactDetails)]",
 					_1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_OPERATOR_CUSTOMER_SERVICE_CONTACT_DETAILS);
 			validateElementNotPresent(context, xpath, subLevel, "organisations/Operator/CustomerServiceContactDetails[not(Url) or normalize-space(Url) = '']", _1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_OPERATOR_CUSTOMER_SERVICE_CONTACT_DETAILS_URL);
-			validateElementNotPresent(context, xpath, subLevel, "organisations/Authority[not(CompanyNumber) or normalize-space(CompanyNumber) = '']",
-					_1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_AUTHORITY_COMPANY_NUMBER);
-			validateElementNotPresent(context, xpath, subLevel, "organisations/Authority[not(Name) or normalize-space(Name) = '']",
-					_1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_AUTHORITY_NAME);
-			validateElementNotPresent(context, xpath, subLevel, "organisations/Authority[not(LegalName) or normalize-space(LegalName) = '']",
-					_1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_AUTHORITY_LEGAL_NAME);
-			validateElementNotPresent(context, xpath, subLevel, "organisations/Authority[not(ContactDetails)]",
-					_1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_AUTHORITY_CONTACT_DETAILS);
+			new ElementNotPresentRules("organisations/Authority")
+					.add("not(CompanyNumber) or normalize-space(CompanyNumber) = ''", _1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_AUTHORITY_COMPANY_NUMBER)
+					.add("not(Name) or normalize-space(Name) = ''", _1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_AUTHORITY_NAME)
+					.add("not(LegalName) or normalize-space(LegalName) = ''", _1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_AUTHORITY_LEGAL_NAME)
+					.add("not(ContactDetails)", _1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_AUTHORITY_CONTACT_DETAILS)
+					.validate(context, xpath, subLevel);
 			validateElementNotPresent(context, xpath, subLevel, "organisations/Authority/ContactDetails[not(Url) or not(starts-with(Url, 'http://') or (starts-with(Url, 'https://')) )]",
 					_1_NETEXPROFILE_RESOURCE_FRAME_ORGANISATIONS_AUTHORITY_CONTACT_DETAILS_URL);
 		}
@@ -398,14 +395,12 @@ public abstract class AbstractNorwayNetexProfileValidator extends AbstractNetexP
 		if (subLevel != null) {
 			validateElementNotPresent(context, xpath, subLevel, "//DayType[not(//DayTypeAssignment/DayTypeRef/@ref = @id)]",
 					_1_NETEX_SERVICE_CALENDAR_FRAME_DAYTYPE_NOT_ASSIGNED);
-			validateElementNotPresent(context, xpath, subLevel, "//ServiceCalendar[not(dayTypes) and not(dayTypeAssignments)]",
-					_1_NETEX_SERVICE_CALENDAR_FRAME_EMPTY_SERVICE_CALENDAR);
-			validateElementNotPresent(context, xpath, subLevel, "//ServiceCalendar[not(ToDate)]",
-					_1_NETEX_SERVICE_CALENDAR_FRAME_SERVICE_CALENDAR_TODATE);
-			validateElementNotPresent(context, xpath, subLevel, "//ServiceCalendar[not(FromDate)]",
-					_1_NETEX_SERVICE_CALENDAR_FRAME_SERVICE_CALENDAR_FROMDATE);
-			validateElementNotPresent(context, xpath, subLevel, "//ServiceCalendar[FromDate and ToDate and ToDate < FromDate]",
-					_1_NETEX_SERVICE_CALENDAR_FRAME_SERVICE_CALENDAR_FROMDATE_AFTER_TODATE);
+			new ElementNotPresentRules("//ServiceCalendar")
+					.add("not(dayTypes) and not(dayTypeAssignments)", _1_NETEX_SERVICE_CALENDAR_FRAME_EMPTY_SERVICE_CALENDAR)
+					.add("not(ToDate)", _1_NETEX_SERVICE_CALENDAR_FRAME_SERVICE_CALENDAR_TODATE)
+					.add("not(FromDate)", _1_NETEX_SERVICE_CALENDAR_FRAME_SERVICE_CALENDAR_FROMDATE)
+					.add("FromDate and ToDate and ToDate < FromDate", _1_NETEX_SERVICE_CALENDAR_FRAME_SERVICE_CALENDAR_FROMDATE_AFTER_TODATE)
+					.validate(context, xpath, subLevel);
 		}
 
 	}
@@ -529,13 +524,17 @@ public abstract class AbstractNorwayNetexProfileValidator extends AbstractNetexP
 		validateElementNotPresent(context, xpath, subLevel, "groupsOfLines", _1_NETEX_SERVICE_FRAME_GROUPOFLINES_OUTSIDE_NETWORK);
 		validateElementNotPresent(context, xpath, subLevel, "timingPoints", _1_NETEX_SERVICE_FRAME_TIMING_POINTS);
 
-		validateElementNotPresent(context, xpath, subLevel, "stopAssignments/PassengerStopAssignment[not(ScheduledStopPointRef)]", _1_NETEX_SERVICE_FRAME_PASSENGER_STOP_ASSIGNMENT_SCHEDULEDSTOPPOINTREF);
-		validateElementNotPresent(context, xpath, subLevel, "stopAssignments/PassengerStopAssignment[not(QuayRef)]", _1_NETEX_SERVICE_FRAME_PASSENGER_STOP_ASSIGNMENT_QUAYREF);
-		validateElementNotPresent(context, xpath, subLevel, "stopAssignments/PassengerStopAssignment[QuayRef/@ref = following-sibling::PassengerStopAssignment/QuayRef/@ref]", _1_NETEX_SERVICE_FRAME_PASSENGER_STOP_ASSIGNMENT_DUPLICATE);
+		new ElementNotPresentRules("stopAssignments/PassengerStopAssignment")
+				.add("not(ScheduledStopPointRef)", _1_NETEX_SERVICE_FRAME_PASSENGER_STOP_ASSIGNMENT_SCHEDULEDSTOPPOINTREF)
+				.add("not(QuayRef)", _1_NETEX_SERVICE_FRAME_PASSENGER_STOP_ASSIGNMENT_QUAYREF)
+				.add("QuayRef/@ref = following-sibling::PassengerStopAssignment/QuayRef/@ref", _1_NETEX_SERVICE_FRAME_PASSENGER_STOP_ASSIGNMENT_DUPLICATE)
+				.validate(context, xpath, subLevel);
 
 
-		validateElementNotPresent(context, xpath, subLevel, "serviceLinks/ServiceLink[not(FromPointRef)]", _1_NETEX_SERVICE_FRAME_SERVICE_LINK_FROMPOINTREF);
-		validateElementNotPresent(context, xpath, subLevel, "serviceLinks/ServiceLink[not(ToPointRef)]", _1_NETEX_SERVICE_FRAME_SERVICE_LINK_TOPOINTREF);
+		new ElementNotPresentRules("serviceLinks/ServiceLink")
+				.add("not(FromPointRef)", _1_NETEX_SERVICE_FRAME_SERVICE_LINK_FROMPOINTREF)
+				.add("not(ToPointRef)", _1_NETEX_SERVICE_FRAME_SERVICE_LINK_TOPOINTREF)
+				.validate(context, xpath, subLevel);
 		validateElementNotPresent(context, xpath, subLevel, "serviceLinks/ServiceLink/projections/LinkSequenceProjection/g:LineString/g:posList[not(normalize-space(text()))]", _1_NETEX_SERVICE_FRAME_SERVICE_LINK_MISSING_POSITION_COORDINATES);
 	}
 
@@ -554,10 +553,14 @@ public abstract class AbstractNorwayNetexProfileValidator extends AbstractNetexP
 		validateElementNotPresent(context, xpath, dom, "frames//validityConditions", _1_NETEX_VALIDITYCONDITIONS_ON_FRAMES_INSIDE_COMPOSITEFRAME);
 		validateElementPresent(context, xpath, dom, "codespaces/Codespace[Xmlns = '" + NSR_XMLNS + "' and XmlnsUrl = '" + NSR_XMLNSURL + "']",
 				_1_NETEX_CODESPACE);
-		validateElementNotPresent(context, xpath, dom, "//ValidBetween[not(FromDate) and not(ToDate)]", _1_NETEX_VALIDBETWEEN_INCOMPLETE);
-		validateElementNotPresent(context, xpath, dom, "//ValidBetween[FromDate and ToDate and ToDate < FromDate]", _1_NETEX_VALIDBETWEEN_TODATE_BEFORE_FROMDATE);
-		validateElementNotPresent(context, xpath, dom, "//AvailabilityCondition[not(FromDate) and not(ToDate)]", _1_NETEX_AVAILABILITYCONDITION_INCOMPLETE);
-		validateElementNotPresent(context, xpath, dom, "//AvailabilityCondition[FromDate and ToDate and ToDate < FromDate]", _1_NETEX_AVAILABILITYCONDITION_TODATE_BEFORE_FROMDATE);
+		new ElementNotPresentRules("//ValidBetween")
+				.add("not(FromDate) and not(ToDate)", _1_NETEX_VALIDBETWEEN_INCOMPLETE)
+				.add("FromDate and ToDate and ToDate < FromDate", _1_NETEX_VALIDBETWEEN_TODATE_BEFORE_FROMDATE)
+				.validate(context, xpath, dom);
+		new ElementNotPresentRules("//AvailabilityCondition")
+				.add("not(FromDate) and not(ToDate)", _1_NETEX_AVAILABILITYCONDITION_INCOMPLETE)
+				.add("FromDate and ToDate and ToDate < FromDate", _1_NETEX_AVAILABILITYCONDITION_TODATE_BEFORE_FROMDATE)
+				.validate(context, xpath, dom);
 
 		validateNotices(context, xpath, dom);
 	}
@@ -10,8 +10,8 @@ import java.util.stream.Collectors;
 
 import javax.xml.xpath.XPathExpressionException;
 
+import net.sf.saxon.s9api.Axis;
 import net.sf.saxon.s9api.QName;
-import net.sf.saxon.s9api.XPathSelector;
 import org.apache.commons.lang3.StringUtils;
 
 import lombok.extern.log4j.Log4j;
@@ -30,6 +30,7 @@ import net.sf.saxon.s9api.SaxonApiException;
 import net.sf.saxon.s9api.XPathCompiler;
 import net.sf.saxon.s9api.XdmItem;
 import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.XdmSequenceIterator;
 import net.sf.saxon.s9api.XdmValue;
 import org.rutebanken.netex.model.BookingAccessEnumeration;
 import org.rutebanken.netex.model.BookingMethodEnumeration;
@@ -287,13 +288,14 @@ public class NorwayLineNetexProfileValidator extends AbstractNorwayNetexProfileV
 
 			validateServiceFrameCommonElements(context, xpath, subLevel);
 			validateElementPresent(context, xpath, subLevel, "lines/*[self::Line or self::FlexibleLine]", _1_NETEX_SERVICE_FRAME_LINE);
-			validateElementNotPresent(context, xpath, subLevel, "lines/*[self::Line or self::FlexibleLine][not(Name) or normalize-space(Name) = '']", _1_NETEX_SERVICE_FRAME_LINE_NAME);
-			validateElementNotPresent(context, xpath, subLevel, "lines/*[self::Line or self::FlexibleLine][not(PublicCode) or normalize-space(PublicCode) = '']", _1_NETEX_SERVICE_FRAME_LINE_PUBLIC_CODE);
-			validateElementNotPresent(context, xpath, subLevel, "lines/*[self::Line or self::FlexibleLine][not(TransportMode)]", _1_NETEX_SERVICE_FRAME_LINE_TRANSPORTMODE);
-			validateElementNotPresent(context, xpath, subLevel, "lines/*[self::Line or self::FlexibleLine][not(TransportSubmode)]", _1_NETEX_SERVICE_FRAME_LINE_TRANSPORTSUBMODE);
+			new ElementNotPresentRules("lines/*[self::Line or self::FlexibleLine]")
+					.add("not(Name) or normalize-space(Name) = ''", _1_NETEX_SERVICE_FRAME_LINE_NAME)
+					.add("not(PublicCode) or normalize-space(PublicCode) = ''", _1_NETEX_SERVICE_FRAME_LINE_PUBLIC_CODE)
+					.add("not(TransportMode)", _1_NETEX_SERVICE_FRAME_LINE_TRANSPORTMODE)
+					.add("not(TransportSubmode)", _1_NETEX_SERVICE_FRAME_LINE_TRANSPORTSUBMODE)
+					.add("not(RepresentedByGroupRef)", _1_NETEX_SERVICE_FRAME_LINE_GROUPOFLINES_OR_NETWORK)
+					.validate(context, xpath, subLevel);
 			validateElementNotPresent(context, xpath, subLevel, "lines/*[self::Line or self::FlexibleLine]/routes/Route", _1_NETEX_SERVICE_FRAME_ROUTE_INDIRECTION);
-			validateElementNotPresent(context, xpath, subLevel, "lines/*[self::Line or self::FlexibleLine][not(RepresentedByGroupRef)]",
-					_1_NETEX_SERVICE_FRAME_LINE_GROUPOFLINES_OR_NETWORK);
 
 
 			validateFlexibleLineMandatoryValues(context, xpath, subLevel);
@@ -310,9 +312,11 @@ public class NorwayLineNetexProfileValidator extends AbstractNorwayNetexProfileV
 					_1_NETEX_SERVICE_FRAME_FLEXBIBLE_LINE_ILLEGAL_BOOKINGACCESS);
 
 			validateAtLeastElementPresent(context, xpath, subLevel, "routes/Route", 1, _1_NETEX_SERVICE_FRAME_ROUTE_INDIRECTION);
-			validateElementNotPresent(context, xpath, subLevel, "routes/Route[not(Name) or normalize-space(Name) = '']", _1_NETEX_SERVICE_FRAME_ROUTE_NAME);
-			validateElementNotPresent(context, xpath, subLevel, "routes/Route[not(LineRef) and not(FlexibleLineRef)]", _1_NETEX_SERVICE_FRAME_ROUTE_LINEREF);
-			validateElementNotPresent(context, xpath, subLevel, "routes/Route[not(pointsInSequence)]", _1_NETEX_SERVICE_FRAME_ROUTE_POINTSINSEQUENCE);
+			new ElementNotPresentRules("routes/Route")
+					.add("not(Name) or normalize-space(Name) = ''", _1_NETEX_SERVICE_FRAME_ROUTE_NAME)
+					.add("not(LineRef) and not(FlexibleLineRef)", _1_NETEX_SERVICE_FRAME_ROUTE_LINEREF)
+					.add("not(pointsInSequence)", _1_NETEX_SERVICE_FRAME_ROUTE_POINTSINSEQUENCE)
+					.validate(context, xpath, subLevel);
 			validateElementNotPresent(context, xpath, subLevel, "routes/Route/DirectionRef", _1_NETEX_SERVICE_FRAME_ROUTE_DIRECTIONREF);
 
 			validateElementNotPresent(context, xpath, subLevel, "routes/Route/pointsInSequence/PointOnRoute[@order = preceding-sibling::PointOnRoute/@order]", _1_NETEX_SERVICE_FRAME_ROUTE_POINTSINSEQUENCE_DUPLICATE_ORDER);
@@ -383,21 +387,40 @@ public class NorwayLineNetexProfileValidator extends AbstractNorwayNetexProfileV
 		List<XdmValue> errorNodes = new ArrayList<>();
 
 		if (evaluationExpression(xpath, subLevel, "lines/FlexibleLine and lines/FlexibleLine[not(" + fieldName + ")]")) {
-			XPathSelector selector = xpath.compile("journeyPatterns/*[self::JourneyPattern or self::ServiceJourneyPattern][pointsInSequence/StopPointInJourneyPattern[not(BookingArrangements/" + fieldName + ")]]").load();
-			selector.setContextItem(subLevel);
-			XdmValue nodes = selector.evaluate();
+			XdmValue nodes = selectNodeSet("journeyPatterns/*[self::JourneyPattern or self::ServiceJourneyPattern][pointsInSequence/StopPointInJourneyPattern[not(BookingArrangements/" + fieldName + ")]]", xpath, subLevel);
+
+			// service journeys without the value, matched to the journey patterns here to keep a single compiled expression
+			XdmValue serviceJourneys = null;
+			QName idName = QName.fromEQName("id");
+			QName versionName = QName.fromEQName("version");
+			QName refName = QName.fromEQName("ref");
+			QName journeyPatternRefName = new QName("n", NETEX_NAMESPACE, "JourneyPatternRef");
 
 			for (XdmValue value : nodes) {
 				if (value instanceof XdmNode) {
 					XdmNode node = (XdmNode) value;
-					String id = node.getAttributeValue(QName.fromEQName("id"));
-					String version = node.getAttributeValue(QName.fromEQName("version"));
+					String id = String.valueOf(node.getAttributeValue(idName));
+					String version = String.valueOf(node.getAttributeValue(versionName));
 
-					XPathSelector sjSelector = xpath.compile("//vehicleJourneys/ServiceJourney[(not(FlexibleServiceProperties) or not(FlexibleServiceProperties/" + fieldName + ")) and JourneyPatternRef/@ref='" + id + "' and @version='" + version + "']").load();
-					sjSelector.setContextItem(subLevel);
-					XdmValue errorsForJP = sjSelector.evaluate();
+					if (serviceJourneys == null) {
+						serviceJourneys = selectNodeSet("//vehicleJourneys/ServiceJourney[not(FlexibleServiceProperties) or not(FlexibleServiceProperties/" + fieldName + ")]", xpath, subLevel);
+					}
+					List<XdmItem> errorsForJP = new ArrayList<>();
+					for (XdmItem item : serviceJourneys) {
+						XdmNode serviceJourney = (XdmNode) item;
+						if (!version.equals(serviceJourney.getAttributeValue(versionName))) {
+							continue;
+						}
+						XdmSequenceIterator refs = serviceJourney.axisIterator(Axis.CHILD, journeyPatternRefName);
+						while (refs.hasNext()) {
+							if (id.equals(((XdmNode) refs.next()).getAttributeValue(refName))) {
+								errorsForJP.add(serviceJourney);
+								break;
+							}
+						}
+					}
 					if (errorsForJP.size() > 0) {
-						errorNodes.add(errorsForJP);
+						errorNodes.add(new XdmValue(errorsForJP));
 					}
 				}
 
@@ -425,54 +448,48 @@ public class NorwayLineNetexProfileValidator extends AbstractNorwayNetexProfileV
 			validateAtLeastElementPresent(context, xpath, subLevel, "vehicleJourneys/ServiceJourney", 1, _1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY);
 			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/ServiceJourney/calls", _1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_CALLS);
 
-			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/ServiceJourney[not(passingTimes)]",
-					_1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_PASSING_TIMES);
+			new ElementNotPresentRules("vehicleJourneys/ServiceJourney")
+					.add("not(passingTimes)", _1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_PASSING_TIMES)
+					.add("not(passingTimes/TimetabledPassingTime[1]/DepartureTime)", _1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_PASSING_TIME_FIRST_DEPARTURE)
+					.add("count(passingTimes/TimetabledPassingTime[last()]/ArrivalTime) = 0", _1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_PASSING_TIME_LAST_ARRIVAL)
+					.add("not(JourneyPatternRef)", _1_NETEX_TIMETABLE_FRAME_SERVICEJOURNEY_JOURNEYPATTERN_REF)
+					.add("(TransportMode and not(TransportSubmode))  or (not(TransportMode) and TransportSubmode)", _1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_TRANSPORTMODE_OVERRIDE)
+					.add("not(OperatorRef) and not(//ServiceFrame/lines/*[self::Line or self::FlexibleLine]/OperatorRef)", _1_NETEX_TIMETABLE_FRAME_VEHICLEJOURNEY_OPERATORREF_OR_LINE_OPREATORREF)
+					.add("not(dayTypes/DayTypeRef) and not(@id=//TimetableFrame/vehicleJourneys/DatedServiceJourney/ServiceJourneyRef/@ref)", _1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_DAYTYPEREF)
+					.add("dayTypes/DayTypeRef and @id=//TimetableFrame/vehicleJourneys/DatedServiceJourney/ServiceJourneyRef/@ref", _1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_DAYTYPEREF_AND_DATED_SERVICE_JOURNEY)
+					.validate(context, xpath, subLevel);
 			validateElementNotPresent(context, xpath, subLevel,
 					"vehicleJourneys/ServiceJourney/passingTimes/TimetabledPassingTime[not(DepartureTime) and not(ArrivalTime)]",
 					_1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_PASSING_TIME_MISSING_DEPARTURE_OR_ARRIVAL);
-			validateElementNotPresent(context, xpath, subLevel,
-					"vehicleJourneys/ServiceJourney[not(passingTimes/TimetabledPassingTime[1]/DepartureTime)]",
-					_1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_PASSING_TIME_FIRST_DEPARTURE);
-			validateElementNotPresent(context, xpath, subLevel,
-					"vehicleJourneys/ServiceJourney[count(passingTimes/TimetabledPassingTime[last()]/ArrivalTime) = 0]",
-					_1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_PASSING_TIME_LAST_ARRIVAL);
-			validateElementNotPresent(context, xpath, subLevel, "//TimetabledPassingTime[DepartureTime = ArrivalTime]",
-					_1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_PASSING_TIME_SAME_VALUE);
-
-			validateElementNotPresent(context, xpath, subLevel, "//TimetabledPassingTime[not(@id)]",
-					_1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_PASSING_TIME_ID);
-			validateElementNotPresent(context, xpath, subLevel, "//TimetabledPassingTime[not(@version)]",
-					_1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_PASSING_TIME_VERSION);
-
 
-			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/ServiceJourney[not(JourneyPatternRef)]",
-					_1_NETEX_TIMETABLE_FRAME_SERVICEJOURNEY_JOURNEYPATTERN_REF);
-			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/ServiceJourney[(TransportMode and not(TransportSubmode))  or (not(TransportMode) and TransportSubmode)]",
-					_1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_TRANSPORTMODE_OVERRIDE);
-
-			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/ServiceJourney[not(OperatorRef) and not(//ServiceFrame/lines/*[self::Line or self::FlexibleLine]/OperatorRef)]", _1_NETEX_TIMETABLE_FRAME_VEHICLEJOURNEY_OPERATORREF_OR_LINE_OPREATORREF);
-
-			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/ServiceJourney[not(dayTypes/DayTypeRef) and not(@id=//TimetableFrame/vehicleJourneys/DatedServiceJourney/ServiceJourneyRef/@ref)]", _1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_DAYTYPEREF);
-			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/ServiceJourney[dayTypes/DayTypeRef and @id=//TimetableFrame/vehicleJourneys/DatedServiceJourney/ServiceJourneyRef/@ref]", _1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_DAYTYPEREF_AND_DATED_SERVICE_JOURNEY);
+			new ElementNotPresentRules("//TimetabledPassingTime")
+					.add("DepartureTime = ArrivalTime", _1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_PASSING_TIME_SAME_VALUE)
+					.add("not(@id)", _1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_PASSING_TIME_ID)
+					.add("not(@version)", _1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_PASSING_TIME_VERSION)
+					.validate(context, xpath, subLevel);
 
 
 			validateElementNotPresent(context, xpath, subLevel, "for $a in vehicleJourneys/ServiceJourney return if(count(//ServiceFrame/journeyPatterns/*[@id = $a/JourneyPatternRef/@ref]/pointsInSequence/StopPointInJourneyPattern) != count($a/passingTimes/TimetabledPassingTime)) then $a else ()", _1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_MISSING_PASSING_TIME);
 
 			validateElementNotPresent(context, xpath, subLevel, "//ServiceJourney[@id = preceding-sibling::ServiceJourney/@id]", _1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_DUPLICATE_WITH_DIFFERENT_VERSION);
 
-			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/DatedServiceJourney[not(OperatingDayRef)]", _1_NETEX_TIMETABLE_FRAME_DATED_SERVICE_JOURNEY_OPERATINGDAYREF);
-			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/DatedServiceJourney[not(ServiceJourneyRef)]", _1_NETEX_TIMETABLE_FRAME_DATED_SERVICE_JOURNEY_SERVICEJOURNEYREF);
-			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/DatedServiceJourney[count(ServiceJourneyRef) > 1]", _1_NETEX_TIMETABLE_FRAME_DATED_SERVICE_JOURNEY_MULTIPLE_SERVICEJOURNEYREF);
-			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/DatedServiceJourney[@id = preceding-sibling::DatedServiceJourney/@id]", _1_NETEX_TIMETABLE_FRAME_DATED_SERVICE_JOURNEY_DUPLICATE_WITH_DIFFERENT_VERSION);
-
-			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/DeadRun[not(passingTimes)]", _1_NETEX_TIMETABLE_FRAME_DEAD_RUN_PASSING_TIMES);
-			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/DeadRun[not(JourneyPatternRef)]", _1_NETEX_TIMETABLE_FRAME_DEAD_RUN_JOURNEYPATTERN_REF);
-			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/DeadRun[not(dayTypes/DayTypeRef)]", _1_NETEX_TIMETABLE_FRAME_DEAD_RUN_DAYTYPE_REF);
-
-			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/ServiceJourney/FlexibleServiceProperties[not(@id)]",
-					_1_NETEX_TIMETABLE_FRAME_FLEXIBLE_SERVICE_PROPERTIES_ID);
-			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/ServiceJourney/FlexibleServiceProperties[not(@version)]",
-					_1_NETEX_TIMETABLE_FRAME_FLEXIBLE_SERVICE_PROPERTIES_VERSION);
+			new ElementNotPresentRules("vehicleJourneys/DatedServiceJourney")
+					.add("not(OperatingDayRef)", _1_NETEX_TIMETABLE_FRAME_DATED_SERVICE_JOURNEY_OPERATINGDAYREF)
+					.add("not(ServiceJourneyRef)", _1_NETEX_TIMETABLE_FRAME_DATED_SERVICE_JOURNEY_SERVICEJOURNEYREF)
+					.add("count(ServiceJourneyRef) > 1", _1_NETEX_TIMETABLE_FRAME_DATED_SERVICE_JOURNEY_MULTIPLE_SERVICEJOURNEYREF)
+					.add("@id = preceding-sibling::DatedServiceJourney/@id", _1_NETEX_TIMETABLE_FRAME_DATED_SERVICE_JOURNEY_DUPLICATE_WITH_DIFFERENT_VERSION)
+					.validate(context, xpath, subLevel);
+
+			new ElementNotPresentRules("vehicleJourneys/DeadRun")
+					.add("not(passingTimes)", _1_NETEX_TIMETABLE_FRAME_DEAD_RUN_PASSING_TIMES)
+					.add("not(JourneyPatternRef)", _1_NETEX_TIMETABLE_FRAME_DEAD_RUN_JOURNEYPATTERN_REF)
+					.add("not(dayTypes/DayTypeRef)", _1_NETEX_TIMETABLE_FRAME_DEAD_RUN_DAYTYPE_REF)
+					.validate(context, xpath, subLevel);
+
+			new ElementNotPresentRules("vehicleJourneys/ServiceJourney/FlexibleServiceProperties")
+					.add("not(@id)", _1_NETEX_TIMETABLE_FRAME_FLEXIBLE_SERVICE_PROPERTIES_ID)
+					.add("not(@version)", _1_NETEX_TIMETABLE_FRAME_FLEXIBLE_SERVICE_PROPERTIES_VERSION)
+					.validate(context, xpath, subLevel);
 			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/ServiceJourney/FlexibleServiceProperties/BookWhen[not(. = (" + validBookWhenString + "))]",
 					_1_NETEX_TIMETABLE_FRAME_FLEXIBLE_SERVICE_PROPERTIES_ILLEGAL_BOOKWHEN);
 			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/ServiceJourney/FlexibleServiceProperties/BuyWhen[tokenize(.,' ')[not(. = (" + validBuyWhenString + "))]]",
@@ -484,14 +501,11 @@ public class NorwayLineNetexProfileValidator extends AbstractNorwayNetexProfileV
 			validateElementNotPresent(context, xpath, subLevel, "vehicleJourneys/ServiceJourney/FlexibleServiceProperties/FlexibleServiceType[not(. = (" + validFlexibleServiceTypeString + "))]",
 					_1_NETEX_TIMETABLE_FRAME_FLEXIBLE_SERVICE_PROPERTIES_ILLEGAL_FLEXIBLESERVICETYPE);
 
-			validateElementNotPresent(context, xpath, subLevel, "journeyInterchanges/ServiceJourneyInterchange[Advertised or Planned]",
-					_1_NETEX_TIMETABLE_FRAME_INTERCHANGE_PLANNED_AND_ADVERTISED);
-
-			validateElementNotPresent(context, xpath, subLevel, "journeyInterchanges/ServiceJourneyInterchange[Guaranteed='true' and  (MaximumWaitTime='PT0S' or MaximumWaitTime='PT0M') ]",
-					_1_NETEX_TIMETABLE_FRAME_INTERCHANGE_GUARANTEED_AND_MAX_WAIT_TIME_ZERO);
-
-			validateElementNotPresent(context, xpath, subLevel, "journeyInterchanges/ServiceJourneyInterchange[MaximumWaitTime > xs:dayTimeDuration('PT1H')]",
-					_1_NETEX_TIMETABLE_FRAME_INTERCHANGE_MAX_WAIT_TIME_TOO_LONG);
+			new ElementNotPresentRules("journeyInterchanges/ServiceJourneyInterchange")
+					.add("Advertised or Planned", _1_NETEX_TIMETABLE_FRAME_INTERCHANGE_PLANNED_AND_ADVERTISED)
+					.add("Guaranteed='true' and  (MaximumWaitTime='PT0S' or MaximumWaitTime='PT0M') ", _1_NETEX_TIMETABLE_FRAME_INTERCHANGE_GUARANTEED_AND_MAX_WAIT_TIME_ZERO)
+					.add("MaximumWaitTime > xs:dayTimeDuration('PT1H')", _1_NETEX_TIMETABLE_FRAME_INTERCHANGE_MAX_WAIT_TIME_TOO_LONG)
+					.validate(context, xpath, subLevel);
 
 			validateNoticeAssignments(context, xpath, subLevel);
 
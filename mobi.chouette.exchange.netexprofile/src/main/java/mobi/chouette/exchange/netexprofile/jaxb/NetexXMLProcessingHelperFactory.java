@@ -8,6 +8,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -21,16 +22,22 @@ import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.UnmarshallerHandler;
 import javax.xml.namespace.QName;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stax.StAXSource;
 import javax.xml.validation.Schema;
+import javax.xml.validation.ValidatorHandler;
 
 import org.rutebanken.netex.model.PublicationDeliveryStructure;
 import org.rutebanken.netex.validation.NeTExValidator;
 import org.rutebanken.netex.validation.NeTExValidator.NetexVersion;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import com.sun.xml.txw2.output.IndentingXMLStreamWriter;
@@ -39,10 +46,13 @@ import lombok.extern.log4j.Log4j;
 import mobi.chouette.exchange.netexprofile.Constant;
 import mobi.chouette.exchange.netexprofile.model.NetexProfileVersion;
 import mobi.chouette.exchange.netexprofile.parser.xml.PublicactionDeliveryVersionAttributeReader;
+import mobi.chouette.exchange.netexprofile.parser.xml.SkippingXMLFilter;
 import mobi.chouette.exchange.netexprofile.parser.xml.SkippingXMLStreamReaderFactory;
+import mobi.chouette.exchange.netexprofile.parser.xml.XMLParserUtil;
 
 import net.sf.saxon.s9api.DocumentBuilder;
 import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.SAXDestination;
 import net.sf.saxon.s9api.SaxonApiException;
 import net.sf.saxon.s9api.WhitespaceStrippingPolicy;
 import net.sf.saxon.s9api.XPathCompiler;
@@ -71,6 +81,18 @@ public class NetexXMLProcessingHelperFactory {
 		return schema;
 	}
 
+	/**
+	 * schema of the NeTEx version declared by the file, latest one when unknown
+	 */
+	public Schema getNetexSchema(File file) throws SAXException, IOException {
+		NetexVersion schemaVersion = detectNetexSchemaVersion(file);
+		if (schemaVersion == null) {
+			schemaVersion = NeTExValidator.LATEST;
+			log.warn("Could not detect schema version for file " + file.getName() + ", defaulting to latest (" + schemaVersion + ")");
+		}
+		return getNetexSchema(schemaVersion);
+	}
+
 	public NetexVersion detectNetexSchemaVersion(File f) {
 		String profileVersion = PublicactionDeliveryVersionAttributeReader.findPublicationDeliveryVersion(f);
 		String netexSchemaVersion = NetexProfileVersion.getSchemaVersion(profileVersion);
@@ -118,18 +140,57 @@ public class NetexXMLProcessingHelperFactory {
 		return commonDeliveryStructure.getValue();
 	}
 
+	/**
+	 * unmarshal an already parsed document, without reading the file again
+	 */
+	@SuppressWarnings("unchecked")
+	public PublicationDeliveryStructure unmarshal(XdmNode dom) throws JAXBException, SaxonApiException {
+		UnmarshallerHandler unmarshallerHandler = getNetexJaxBContext().createUnmarshaller().getUnmarshallerHandler();
+		processor.writeXdmValue(dom, new SAXDestination(unmarshallerHandler));
+		JAXBElement<PublicationDeliveryStructure> commonDeliveryStructure = (JAXBElement<PublicationDeliveryStructure>) unmarshallerHandler
+				.getResult();
+		return commonDeliveryStructure.getValue();
+	}
+
 	public XdmNode parseFileToXdmNode(File file, Set<QName> elementsToSkip)
 			throws SaxonApiException, FileNotFoundException, IOException, SAXException, XMLStreamException {
 
-		DocumentBuilder builder = processor.newDocumentBuilder();
-		builder.setLineNumbering(true);
-		builder.setWhitespaceStrippingPolicy(WhitespaceStrippingPolicy.ALL);
+		DocumentBuilder builder = newDocumentBuilder();
 
 		XdmNode dom = builder
 				.build(new StAXSource(SkippingXMLStreamReaderFactory.newXMLStreamReader(new BufferedInputStream(new FileInputStream(file)), elementsToSkip)));
 		return dom;
 	}
 
+	/**
+	 * parse the file to a tree in a single read, validating the whole file against the schema when one is given
+	 *
+	 * @param schema
+	 *            may be null
+	 * @param errorHandler
+	 *            receives parsing and validation errors, may be null
+	 */
+	public XdmNode parseFileToXdmNode(File file, Set<QName> elementsToSkip, Schema schema, ErrorHandler errorHandler)
+			throws SaxonApiException, IOException, SAXException, ParserConfigurationException {
+
+		ValidatorHandler validatorHandler = schema == null ? null : schema.newValidatorHandler();
+		SkippingXMLFilter filter = new SkippingXMLFilter(XMLParserUtil.getSecureSAXParserFactory().newSAXParser().getXMLReader(),
+				validatorHandler, errorHandler, elementsToSkip);
+
+		try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+			InputSource input = new InputSource(is);
+			input.setSystemId(file.toURI().toString());
+			return newDocumentBuilder().build(new SAXSource(filter, input));
+		}
+	}
+
+	private DocumentBuilder newDocumentBuilder() {
+		DocumentBuilder builder = processor.newDocumentBuilder();
+		builder.setLineNumbering(true);
+		builder.setWhitespaceStrippingPolicy(WhitespaceStrippingPolicy.ALL);
+		return builder;
+	}
+
 	public synchronized XPathCompiler getXPathCompiler() {
 
 		if (xpathCompiler == null) {
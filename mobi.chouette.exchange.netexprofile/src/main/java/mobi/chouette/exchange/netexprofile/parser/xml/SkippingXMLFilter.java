@@ -0,0 +1,153 @@
+package mobi.chouette.exchange.netexprofile.parser.xml;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+import javax.xml.validation.ValidatorHandler;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * SAX counterpart of {@link SkippingXMLStreamReaderFactory}, optionally validating the whole document against a
+ * schema before the elements to skip are removed
+ * <br/>
+ * Allows a single read of a file to both validate it and build a tree from it.
+ */
+public class SkippingXMLFilter extends XMLFilterImpl {
+
+	private static final String LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
+
+	private final ValidatorHandler validatorHandler;
+
+	private final ErrorHandler errorHandler;
+
+	private final Set<QName> elementsToSkip;
+
+	private final List<String[]> pendingPrefixMappings = new ArrayList<>();
+
+	/**
+	 * prefixes declared by the skipped element, their endPrefixMapping follows the end of the element
+	 */
+	private final List<String> skippedPrefixes = new ArrayList<>();
+
+	private int skipDepth = 0;
+
+	/**
+	 * @param parent
+	 *            namespace aware parser
+	 * @param validatorHandler
+	 *            schema validator, may be null
+	 * @param errorHandler
+	 *            receives parsing and validation errors, may be null
+	 * @param elementsToSkip
+	 *            elements removed with their content
+	 */
+	public SkippingXMLFilter(XMLReader parent, ValidatorHandler validatorHandler, ErrorHandler errorHandler,
+			Set<QName> elementsToSkip) {
+		super(parent);
+		this.validatorHandler = validatorHandler;
+		this.errorHandler = errorHandler;
+		this.elementsToSkip = elementsToSkip;
+	}
+
+	@Override
+	public void parse(InputSource input) throws SAXException, IOException {
+		XMLReader parent = getParent();
+		ErrorHandler handler = errorHandler != null ? errorHandler : getErrorHandler();
+		skipDepth = 0;
+		pendingPrefixMappings.clear();
+		skippedPrefixes.clear();
+		if (validatorHandler != null) {
+			validatorHandler.setErrorHandler(handler);
+			validatorHandler.setContentHandler(this);
+			parent.setContentHandler(validatorHandler);
+		} else {
+			parent.setContentHandler(this);
+		}
+		parent.setErrorHandler(handler);
+		parent.parse(input);
+	}
+
+	@Override
+	public void setProperty(String name, Object value) throws SAXNotRecognizedException, SAXNotSupportedException {
+		if (LEXICAL_HANDLER.equals(name)) {
+			// comments would bypass the skipping, they are not kept
+			throw new SAXNotRecognizedException(name);
+		}
+		super.setProperty(name, value);
+	}
+
+	@Override
+	public void startPrefixMapping(String prefix, String uri) throws SAXException {
+		if (skipDepth == 0) {
+			// forwarded with the element declaring it, unless skipped
+			pendingPrefixMappings.add(new String[] { prefix, uri });
+		}
+	}
+
+	@Override
+	public void endPrefixMapping(String prefix) throws SAXException {
+		if (skipDepth == 0 && !skippedPrefixes.remove(prefix)) {
+			super.endPrefixMapping(prefix);
+		}
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+		if (skipDepth > 0 || elementsToSkip.contains(new QName(uri, localName))) {
+			for (String[] mapping : pendingPrefixMappings) {
+				skippedPrefixes.add(mapping[0]);
+			}
+			pendingPrefixMappings.clear();
+			skipDepth++;
+			return;
+		}
+		for (String[] mapping : pendingPrefixMappings) {
+			super.startPrefixMapping(mapping[0], mapping[1]);
+		}
+		pendingPrefixMappings.clear();
+		skippedPrefixes.clear();
+		super.startElement(uri, localName, qName, atts);
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) throws SAXException {
+		if (skipDepth > 0) {
+			skipDepth--;
+			return;
+		}
+		skippedPrefixes.clear();
+		super.endElement(uri, localName, qName);
+	}
+
+	@Override
+	public void characters(char[] ch, int start, int length) throws SAXException {
+		if (skipDepth == 0) {
+			super.characters(ch, start, length);
+		}
+	}
+
+	@Override
+	public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+		if (skipDepth == 0) {
+			super.ignorableWhitespace(ch, start, length);
+		}
+	}
+
+	@Override
+	public void processingInstruction(String target, String data) throws SAXException {
+		if (skipDepth == 0) {
+			super.processingInstruction(target, data);
+		}
+	}
+}
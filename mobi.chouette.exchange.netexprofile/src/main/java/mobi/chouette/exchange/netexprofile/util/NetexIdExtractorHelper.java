@@ -39,8 +39,7 @@ public class NetexIdExtractorHelper {
 		}
 		filterClause.append("@").append(attributeName).append("]");
 
-		XPathSelector selector = xpath.compile(filterClause.toString()).load();
-		selector.setContextItem(dom);
+		XPathSelector selector = XPathRegistry.load(xpath, filterClause.toString(), dom);
 		XdmValue nodes = selector.evaluate();
 
 		String filename = (String) context.get(Constant.FILE_NAME);
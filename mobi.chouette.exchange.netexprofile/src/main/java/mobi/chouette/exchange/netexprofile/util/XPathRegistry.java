@@ -0,0 +1,50 @@
+package mobi.chouette.exchange.netexprofile.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XPathCompiler;
+import net.sf.saxon.s9api.XPathExecutable;
+import net.sf.saxon.s9api.XPathSelector;
+import net.sf.saxon.s9api.XdmItem;
+
+/**
+ * compiled XPath expressions by compiler and expression
+ * <br/>
+ * Profile rules are compiled once per compiler and shared by the validation threads, only the selectors are created
+ * on each evaluation. Expressions must not embed per document values.
+ */
+public final class XPathRegistry {
+
+	private static final Map<XPathCompiler, Map<String, XPathExecutable>> EXECUTABLES = Collections
+			.synchronizedMap(new WeakHashMap<>());
+
+	private XPathRegistry() {
+	}
+
+	public static XPathExecutable compile(XPathCompiler xpath, String expression) throws SaxonApiException {
+		Map<String, XPathExecutable> executables = EXECUTABLES.computeIfAbsent(xpath, x -> new ConcurrentHashMap<>());
+		XPathExecutable executable = executables.get(expression);
+		if (executable == null) {
+			// compiled twice at worst, both are equivalent
+			executable = xpath.compile(expression);
+			executables.put(expression, executable);
+		}
+		return executable;
+	}
+
+	/**
+	 * @param contextItem
+	 *            may be null, to be set before each evaluation
+	 */
+	public static XPathSelector load(XPathCompiler xpath, String expression, XdmItem contextItem) throws SaxonApiException {
+		XPathSelector selector = compile(xpath, expression).load();
+		if (contextItem != null) {
+			selector.setContextItem(contextItem);
+		}
+		return selector;
+	}
+}
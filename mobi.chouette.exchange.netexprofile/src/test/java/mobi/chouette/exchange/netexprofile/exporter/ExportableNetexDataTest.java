@@ -0,0 +1,79 @@
+package mobi.chouette.exchange.netexprofile.exporter;
+
+import org.rutebanken.netex.model.DayType;
+import org.rutebanken.netex.model.DayTypeAssignment;
+import org.rutebanken.netex.model.DayTypeRefStructure;
+import org.rutebanken.netex.model.GroupOfLines;
+import org.rutebanken.netex.model.GroupsOfLinesInFrame_RelStructure;
+import org.rutebanken.netex.model.Network;
+import org.rutebanken.netex.model.ObjectFactory;
+import org.rutebanken.netex.model.StopPlace;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ExportableNetexDataTest {
+
+    private ObjectFactory netexFactory = new ObjectFactory();
+
+    @Test
+    public void testMergeKeepsFirstSharedObjects() {
+        ExportableNetexData data = new ExportableNetexData();
+        StopPlace stopPlace = new StopPlace().withId("NSR:StopPlace:1");
+        data.getSharedStopPlaces().put(stopPlace.getId(), stopPlace);
+
+        ExportableNetexData other = new ExportableNetexData();
+        other.getSharedStopPlaces().put("NSR:StopPlace:1", new StopPlace().withId("NSR:StopPlace:1"));
+        other.getSharedStopPlaces().put("NSR:StopPlace:2", new StopPlace().withId("NSR:StopPlace:2"));
+
+        data.merge(other);
+
+        Assert.assertEquals(data.getSharedStopPlaces().size(), 2);
+        Assert.assertSame(data.getSharedStopPlaces().get("NSR:StopPlace:1"), stopPlace);
+    }
+
+    @Test
+    public void testMergeDayTypeAssignmentsOfNewDayTypesOnly() {
+        ExportableNetexData data = new ExportableNetexData();
+        addDayType(data, "TST:DayType:1");
+
+        ExportableNetexData other = new ExportableNetexData();
+        addDayType(other, "TST:DayType:1");
+        addDayType(other, "TST:DayType:2");
+
+        data.merge(other);
+
+        Assert.assertEquals(data.getSharedDayTypes().size(), 2);
+        Assert.assertEquals(data.getSharedDayTypeAssignments().size(), 2);
+    }
+
+    @Test
+    public void testMergeGroupsOfLinesInNetwork() {
+        ExportableNetexData data = new ExportableNetexData();
+        GroupOfLines first = new GroupOfLines().withId("TST:GroupOfLines:1");
+        data.getSharedGroupsOfLines().put(first.getId(), first);
+        data.getSharedNetworks().put("TST:Network:1", new Network().withId("TST:Network:1")
+                .withGroupsOfLines(new GroupsOfLinesInFrame_RelStructure().withGroupOfLines(first)));
+
+        ExportableNetexData other = new ExportableNetexData();
+        GroupOfLines firstCopy = new GroupOfLines().withId("TST:GroupOfLines:1");
+        GroupOfLines second = new GroupOfLines().withId("TST:GroupOfLines:2");
+        other.getSharedGroupsOfLines().put(firstCopy.getId(), firstCopy);
+        other.getSharedGroupsOfLines().put(second.getId(), second);
+        other.getSharedNetworks().put("TST:Network:1", new Network().withId("TST:Network:1")
+                .withGroupsOfLines(new GroupsOfLinesInFrame_RelStructure().withGroupOfLines(firstCopy, second)));
+
+        data.merge(other);
+
+        Network network = data.getSharedNetworks().get("TST:Network:1");
+        Assert.assertEquals(network.getGroupsOfLines().getGroupOfLines().size(), 2);
+        Assert.assertSame(network.getGroupsOfLines().getGroupOfLines().get(0), first);
+        Assert.assertSame(network.getGroupsOfLines().getGroupOfLines().get(1), second);
+    }
+
+    private void addDayType(ExportableNetexData data, String id) {
+        data.getSharedDayTypes().put(id, new DayType().withId(id));
+        DayTypeRefStructure dayTypeRef = new DayTypeRefStructure().withRef(id);
+        data.getSharedDayTypeAssignments().add(new DayTypeAssignment().withId(id + "-1")
+                .withDayTypeRef(netexFactory.createDayTypeRef(dayTypeRef)));
+    }
+}
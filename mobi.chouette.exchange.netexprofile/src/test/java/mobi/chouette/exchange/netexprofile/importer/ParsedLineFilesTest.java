@@ -0,0 +1,36 @@
+package mobi.chouette.exchange.netexprofile.importer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.rutebanken.netex.model.PublicationDeliveryStructure;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ParsedLineFilesTest {
+
+	@Test
+	public void testFilesAreKeptWithinBudget() throws Exception {
+		Path first = Files.createTempFile("line", ".xml");
+		Path second = Files.createTempFile("line", ".xml");
+		try {
+			Files.write(first, new byte[600]);
+			Files.write(second, new byte[600]);
+			PublicationDeliveryStructure firstJava = new PublicationDeliveryStructure();
+			PublicationDeliveryStructure secondJava = new PublicationDeliveryStructure();
+			ParsedLineFiles parsedLineFiles = new ParsedLineFiles(1000);
+
+			parsedLineFiles.offer(first, firstJava);
+			parsedLineFiles.offer(second, secondJava);
+			Assert.assertNull(parsedLineFiles.take(second), "file over the budget should not be kept");
+			Assert.assertSame(parsedLineFiles.take(first), firstJava);
+			Assert.assertNull(parsedLineFiles.take(first), "file should be taken once");
+
+			parsedLineFiles.offer(second, secondJava);
+			Assert.assertSame(parsedLineFiles.take(second), secondJava, "budget should be available again once taken");
+		} finally {
+			Files.delete(first);
+			Files.delete(second);
+		}
+	}
+}
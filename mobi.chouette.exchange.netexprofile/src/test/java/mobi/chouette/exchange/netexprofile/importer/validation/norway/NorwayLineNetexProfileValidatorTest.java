@@ -38,6 +38,7 @@ import mobi.chouette.exchange.validation.report.ValidationReporter.RESULT;
 import mobi.chouette.model.Codespace;
 import mobi.chouette.model.util.Referential;
 
+import net.sf.saxon.s9api.XPathCompiler;
 import net.sf.saxon.s9api.XdmNode;
 
 public class NorwayLineNetexProfileValidatorTest {
@@ -78,6 +79,61 @@ public class NorwayLineNetexProfileValidatorTest {
 		Assert.assertFalse(valid);
 	}
 
+	private static class RuleEvaluator extends NorwayLineNetexProfileValidator {
+
+		void validateEachRule(Context context, XPathCompiler xpath, XdmNode dom, String path, String[][] rules) throws Exception {
+			for (String[] rule : rules) {
+				validateElementNotPresent(context, xpath, dom, path + "[" + rule[0] + "]", rule[1]);
+			}
+		}
+
+		void validateGroupedRules(Context context, XPathCompiler xpath, XdmNode dom, String path, String[][] rules) throws Exception {
+			ElementNotPresentRules group = new ElementNotPresentRules(path);
+			for (String[] rule : rules) {
+				group.add(rule[0], rule[1]);
+			}
+			group.validate(context, xpath, dom);
+		}
+	}
+
+	@Test
+	public void testGroupedRulesReportSameErrors() throws Exception {
+		NetexXMLProcessingHelperFactory importer = new NetexXMLProcessingHelperFactory();
+		XdmNode dom = importer.parseFileToXdmNode(new File("src/test/data/Profile_ERROR_FlexibleLine_1.xml"), new HashSet<>());
+		String path = "//TimetableFrame/vehicleJourneys/ServiceJourney";
+		String[][] rules = {
+				{ "not(passingTimes/TimetabledPassingTime[1]/DepartureTime)", NorwayLineNetexProfileValidator._1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_PASSING_TIME_FIRST_DEPARTURE },
+				{ "@version", NorwayLineNetexProfileValidator._1_NETEX_TIMETABLE_FRAME_SERVICEJOURNEY_JOURNEYPATTERN_REF },
+				{ "not(JourneyPatternRef)", NorwayLineNetexProfileValidator._1_NETEX_TIMETABLE_FRAME_SERVICEJOURNEY_JOURNEYPATTERN_REF },
+				{ "not(FlexibleServiceProperties)", NorwayLineNetexProfileValidator._1_NETEX_TIMETABLE_FRAME_FLEXIBLE_SERVICE_PROPERTIES_ID },
+				{ "not(dayTypes/DayTypeRef) and not(@id=//TimetableFrame/vehicleJourneys/DatedServiceJourney/ServiceJourneyRef/@ref)",
+						NorwayLineNetexProfileValidator._1_NETEX_TIMETABLE_FRAME_SERVICE_JOURNEY_DAYTYPEREF } };
+
+		RuleEvaluator evaluator = new RuleEvaluator();
+		Context eachContext = createContext(importer);
+		ValidationReport eachReport = new ValidationReport();
+		eachContext.put(Constant.VALIDATION_REPORT, eachReport);
+		eachContext.put(Constant.FILE_NAME, "Profile_ERROR_FlexibleLine_1.xml");
+		evaluator.initializeCheckPoints(eachContext);
+		evaluator.validateEachRule(eachContext, importer.getXPathCompiler(), dom, path, rules);
+
+		Context groupedContext = createContext(importer);
+		ValidationReport groupedReport = new ValidationReport();
+		groupedContext.put(Constant.VALIDATION_REPORT, groupedReport);
+		groupedContext.put(Constant.FILE_NAME, "Profile_ERROR_FlexibleLine_1.xml");
+		evaluator.initializeCheckPoints(groupedContext);
+		evaluator.validateGroupedRules(groupedContext, importer.getXPathCompiler(), dom, path, rules);
+
+		Assert.assertFalse(eachReport.getCheckPointErrors().isEmpty(), "@version rule should report every journey");
+		for (String[] rule : rules) {
+			Assert.assertEquals(groupedReport.findCheckPointReportByName(rule[1]).getState(), eachReport.findCheckPointReportByName(rule[1]).getState(),
+					rule[1]);
+		}
+		// errors are reported journey by journey when grouped, rule by rule otherwise
+		Assert.assertEquals(groupedReport.getCheckPointErrors().stream().map(Object::toString).sorted().collect(Collectors.toList()),
+				eachReport.getCheckPointErrors().stream().map(Object::toString).sorted().collect(Collectors.toList()));
+	}
+
 	private NetexProfileValidator createNetexProfileValidator() {
 		NetexProfileValidator validator = new NorwayLineNetexProfileValidator();
 		validator.addExternalReferenceValidator(new ServiceJourneyInterchangeIgnorer());
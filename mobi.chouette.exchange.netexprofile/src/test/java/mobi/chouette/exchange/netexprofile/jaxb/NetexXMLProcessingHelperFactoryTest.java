@@ -0,0 +1,107 @@
+package mobi.chouette.exchange.netexprofile.jaxb;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+
+import org.rutebanken.netex.model.ObjectFactory;
+import org.rutebanken.netex.model.PublicationDeliveryStructure;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXParseException;
+
+import mobi.chouette.exchange.netexprofile.Constant;
+import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.XdmValue;
+
+public class NetexXMLProcessingHelperFactoryTest {
+
+	private static class CollectingErrorHandler implements ErrorHandler {
+		private final List<String> errors = new ArrayList<>();
+
+		@Override
+		public void warning(SAXParseException exception) {
+			add(exception);
+		}
+
+		@Override
+		public void error(SAXParseException exception) {
+			add(exception);
+		}
+
+		@Override
+		public void fatalError(SAXParseException exception) {
+			add(exception);
+		}
+
+		private void add(SAXParseException exception) {
+			errors.add(exception.getLineNumber() + ":" + exception.getColumnNumber() + " " + exception.getMessage());
+		}
+	}
+
+	private String marshal(NetexXMLProcessingHelperFactory importer, PublicationDeliveryStructure publicationDelivery) throws Exception {
+		Marshaller marshaller = importer.createFragmentMarshaller();
+		StringWriter writer = new StringWriter();
+		JAXBElement<PublicationDeliveryStructure> element = new ObjectFactory().createPublicationDelivery(publicationDelivery);
+		marshaller.marshal(element, writer);
+		return writer.toString();
+	}
+
+	@Test
+	public void testSingleParseUnmarshalsSameDocument() throws Exception {
+		NetexXMLProcessingHelperFactory importer = new NetexXMLProcessingHelperFactory();
+		File file = new File("src/test/data/WF739-201608311015.xml");
+
+		CollectingErrorHandler errorHandler = new CollectingErrorHandler();
+		XdmNode dom = importer.parseFileToXdmNode(file, new HashSet<>(), importer.getNetexSchema(file), errorHandler);
+		Assert.assertTrue(errorHandler.errors.isEmpty(), errorHandler.errors.toString());
+
+		PublicationDeliveryStructure fromDom = importer.unmarshal(dom);
+		PublicationDeliveryStructure fromFile = importer.unmarshal(file, new HashSet<>());
+		Assert.assertEquals(marshal(importer, fromDom), marshal(importer, fromFile));
+	}
+
+	@Test
+	public void testSingleParseReportsSameSchemaErrors() throws Exception {
+		NetexXMLProcessingHelperFactory importer = new NetexXMLProcessingHelperFactory();
+		File file = new File("src/test/data/Version107_with_error.xml");
+		Schema schema = importer.getNetexSchema(file);
+
+		CollectingErrorHandler expected = new CollectingErrorHandler();
+		Validator validator = schema.newValidator();
+		validator.setErrorHandler(expected);
+		validator.validate(new StreamSource(file));
+		Assert.assertFalse(expected.errors.isEmpty());
+
+		CollectingErrorHandler actual = new CollectingErrorHandler();
+		importer.parseFileToXdmNode(file, new HashSet<>(), schema, actual);
+		Assert.assertEquals(actual.errors, expected.errors);
+	}
+
+	@Test
+	public void testSingleParseSkipsElements() throws Exception {
+		NetexXMLProcessingHelperFactory importer = new NetexXMLProcessingHelperFactory();
+		File file = new File("src/test/data/SK264.xml");
+		Set<QName> elementsToSkip = Collections.singleton(new QName(Constant.NETEX_NAMESPACE, "SiteFrame"));
+
+		XdmNode dom = importer.parseFileToXdmNode(file, elementsToSkip, null, null);
+		XdmNode reference = importer.parseFileToXdmNode(file, elementsToSkip);
+
+		XdmValue siteFrames = importer.getXPathCompiler().evaluate("//n:SiteFrame", dom);
+		Assert.assertEquals(siteFrames.size(), 0);
+		Assert.assertEquals(importer.getXPathCompiler().evaluate("count(//*)", dom).toString(),
+				importer.getXPathCompiler().evaluate("count(//*)", reference).toString());
+	}
+}
@@ -0,0 +1,55 @@
+package mobi.chouette.exchange.netexprofile.parser.xml;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+public class SkippingXMLFilterTest {
+
+	private static final String XML = "<root xmlns=\"http://www.netex.org.uk/netex\">"
+			+ "<skipped xmlns:x=\"http://example.com/x\"><x:child/></skipped>"
+			+ "<kept xmlns:y=\"http://example.com/y\"><y:child/></kept>"
+			+ "</root>";
+
+	@Test
+	public void testPrefixMappingsOfSkippedElementAreDropped() throws Exception {
+		List<String> events = new ArrayList<>();
+		SkippingXMLFilter filter = new SkippingXMLFilter(XMLParserUtil.getSecureSAXParserFactory().newSAXParser().getXMLReader(),
+				null, null, Collections.singleton(new QName("http://www.netex.org.uk/netex", "skipped")));
+		filter.setContentHandler(new DefaultHandler() {
+			@Override
+			public void startPrefixMapping(String prefix, String uri) {
+				events.add("start " + prefix);
+			}
+
+			@Override
+			public void endPrefixMapping(String prefix) {
+				events.add("end " + prefix);
+			}
+
+			@Override
+			public void startElement(String uri, String localName, String qName, Attributes attributes) {
+				events.add("<" + localName + ">");
+			}
+
+			@Override
+			public void endElement(String uri, String localName, String qName) {
+				events.add("</" + localName + ">");
+			}
+		});
+
+		filter.parse(new InputSource(new StringReader(XML)));
+
+		Assert.assertEquals(events, List.of("start ", "<root>", "start y", "<kept>", "<child>", "</child>", "</kept>",
+				"end y", "</root>", "end "));
+	}
+}
@@ -1,17 +1,29 @@
 package mobi.chouette.exchange.stopplace;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
-import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
-import javax.xml.transform.stream.StreamSource;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import lombok.Getter;
 import lombok.extern.log4j.Log4j;
@@ -24,102 +36,240 @@ import mobi.chouette.model.util.Referential;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.rutebanken.netex.model.Common_VersionFrameStructure;
+import org.rutebanken.netex.model.ObjectFactory;
 import org.rutebanken.netex.model.PublicationDeliveryStructure;
 import org.rutebanken.netex.model.Quay;
-import org.rutebanken.netex.model.Site_VersionFrameStructure;
 import org.rutebanken.netex.model.StopPlace;
+import org.rutebanken.netex.model.StopPlacesInFrame_RelStructure;
+import org.rutebanken.netex.model.TariffZone;
+import org.rutebanken.netex.model.TariffZonesInFrame_RelStructure;
 
 import static mobi.chouette.exchange.netexprofile.Constant.NETEX_LINE_DATA_CONTEXT;
-
+import static mobi.chouette.exchange.netexprofile.parser.xml.XMLParserUtil.getSecureXmlInputFactory;
+
+/**
+ * Convert the stop places of a publication delivery to stop areas.
+ * <br/>
+ * The delivery is read twice with a StAX reader, never unmarshalled as a whole : a first pass collects tariff zones and
+ * the number of children of multimodal parent stop places, the second one unmarshals stop places one at a time and
+ * converts them in batches. Stop places of a multimodal family (parent and children) are held until the whole family is
+ * read and converted together, in batches of whole families. Families not complete at the end of the delivery, and
+ * stop places being both parent and child, are converted in the last batch. Merged quays are collected in the update
+ * context of the batch of their stop place.
+ */
 @Log4j
 public class PublicationDeliveryStopPlaceParser {
     private static final String IMPORT_ID_KEY = "imported-id";
     private static final String MERGED_ID_KEY = "merged-id";
     private static final String ID_VALUE_SEPARATOR = ",";
-    private InputStream inputStream;
+    private static final String STOP_PLACE = "StopPlace";
+    private static final String STOP_PLACES = "stopPlaces";
+    private static final String TARIFF_ZONE = "TariffZone";
+    private static final String TARIFF_ZONES = "tariffZones";
+    private static final String PARENT_SITE_REF = "ParentSiteRef";
+    private static final String REF = "ref";
+
     private Instant now;
 
     @Getter
     private StopAreaUpdateContext updateContext;
 
+    private TariffZonesInFrame_RelStructure tariffZones;
+
+    /**
+     * number of children per multimodal parent stop place id
+     */
+    private Map<String, Integer> parentStopPlaceChildCounts;
+
+    /**
+     * convert all stop places of the delivery in a single update context
+     */
     public PublicationDeliveryStopPlaceParser(InputStream inputStream) {
-        this.inputStream = inputStream;
+        this();
+        parseStopPlaces(inputStream, Integer.MAX_VALUE, batch -> {
+            updateContext.getInactiveStopAreaIds().addAll(batch.getInactiveStopAreaIds());
+            updateContext.getActiveStopAreas().addAll(batch.getActiveStopAreas());
+            updateContext.addMergedQuays(batch.getMergedQuays());
+        });
+    }
+
+    public PublicationDeliveryStopPlaceParser() {
         now = Instant.now();
         updateContext = new StopAreaUpdateContext();
-        parseStopPlaces();
     }
 
-
-    public void parseStopPlaces() {
+    /**
+     * convert the stop places of the delivery by batches of at most batchSize stop places
+     *
+     * @param batchConsumer receives the update context of each batch, with the quays merged by its stop places
+     */
+    public void parseStopPlaces(InputStream inputStream, int batchSize, Consumer<StopAreaUpdateContext> batchConsumer) {
+        Path file = null;
         try {
-            PublicationDeliveryStructure incomingPublicationDelivery = unmarshal(inputStream);
+            file = Files.createTempFile("stop-places", ".xml");
+            Files.copy(inputStream, file, StandardCopyOption.REPLACE_EXISTING);
 
-            convertToStopAreas(incomingPublicationDelivery);
+            collectTariffZonesAndParents(file);
+            convertToStopAreas(file, batchSize, batchConsumer);
+        } catch (RuntimeException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to unmarshall delivery publication structure: " + e.getMessage(), e);
+        } finally {
+            if (file != null) {
+                file.toFile().delete();
+            }
         }
     }
 
-    private void convertToStopAreas(PublicationDeliveryStructure incomingPublicationDelivery) throws Exception {
+    private void collectTariffZonesAndParents(Path file) throws IOException, XMLStreamException, JAXBException {
+        tariffZones = null;
+        parentStopPlaceChildCounts = new HashMap<>();
+        Unmarshaller unmarshaller = createUnmarshaller();
+        ObjectFactory netexFactory = new ObjectFactory();
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            XMLStreamReader reader = getSecureXmlInputFactory().createXMLStreamReader(in);
+            try {
+                String parentElement = null;
+                while (reader.hasNext()) {
+                    if (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+                        reader.next();
+                        continue;
+                    }
+                    String name = reader.getLocalName();
+                    if (TARIFF_ZONE.equals(name) && TARIFF_ZONES.equals(parentElement)) {
+                        TariffZone tariffZone = unmarshaller.unmarshal(reader, TariffZone.class).getValue();
+                        if (tariffZones == null) {
+                            tariffZones = new TariffZonesInFrame_RelStructure();
+                        }
+                        tariffZones.getTariffZone().add(netexFactory.createTariffZone(tariffZone));
+                        continue;
+                    }
+                    if (PARENT_SITE_REF.equals(name)) {
+                        String ref = reader.getAttributeValue(null, REF);
+                        if (ref != null) {
+                            parentStopPlaceChildCounts.merge(ref, 1, Integer::sum);
+                        }
+                    }
+                    parentElement = name;
+                    reader.next();
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
 
-        Context context = new Context();
-        Referential referential = new Referential();
-        context.put(Constant.REFERENTIAL, referential);
+    private void convertToStopAreas(Path file, int batchSize, Consumer<StopAreaUpdateContext> batchConsumer) throws Exception {
         StopPlaceParser stopPlaceParser = (StopPlaceParser) ParserFactory.create(StopPlaceParser.class.getName());
-
-        for (JAXBElement<? extends Common_VersionFrameStructure> frameStructureElmt : incomingPublicationDelivery.getDataObjects().getCompositeFrameOrCommonFrame()) {
-            Common_VersionFrameStructure frameStructure = frameStructureElmt.getValue();
-
-            if (frameStructure instanceof Site_VersionFrameStructure) {
-                Site_VersionFrameStructure siteFrame = (Site_VersionFrameStructure) frameStructure;
-
-                if (siteFrame.getStopPlaces() != null) {
-
-                    if (siteFrame.getTariffZones() != null) {
-                        context.put(NETEX_LINE_DATA_CONTEXT, siteFrame.getTariffZones());
-                        stopPlaceParser.parse(context);
+        if (tariffZones != null) {
+            Context context = new Context();
+            context.put(Constant.REFERENTIAL, new Referential());
+            context.put(NETEX_LINE_DATA_CONTEXT, tariffZones);
+            stopPlaceParser.parse(context);
+        }
+        Unmarshaller unmarshaller = createUnmarshaller();
+
+        List<StopPlace> batch = new ArrayList<>();
+        // multimodal parents and their children must be converted together
+        Map<String, List<StopPlace>> incompleteFamilies = new HashMap<>();
+        List<StopPlace> multimodalBatch = new ArrayList<>();
+        List<StopPlace> nestedStopPlaces = new ArrayList<>();
+        int stopPlaceCount = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            XMLStreamReader reader = getSecureXmlInputFactory().createXMLStreamReader(in);
+            try {
+                String parentElement = null;
+                while (reader.hasNext()) {
+                    if (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+                        reader.next();
+                        continue;
                     }
+                    String name = reader.getLocalName();
+                    if (STOP_PLACE.equals(name) && STOP_PLACES.equals(parentElement)) {
+                        StopPlace stopPlace = unmarshaller.unmarshal(reader, StopPlace.class).getValue();
+                        stopPlaceCount++;
+                        boolean parent = parentStopPlaceChildCounts.containsKey(stopPlace.getId());
+                        boolean child = stopPlace.getParentSiteRef() != null;
+                        if (parent && child) {
+                            nestedStopPlaces.add(stopPlace);
+                        } else if (parent || child) {
+                            String parentId = parent ? stopPlace.getId() : stopPlace.getParentSiteRef().getRef();
+                            List<StopPlace> family = incompleteFamilies.computeIfAbsent(parentId, k -> new ArrayList<>());
+                            family.add(stopPlace);
+                            if (family.size() == parentStopPlaceChildCounts.getOrDefault(parentId, 0) + 1) {
+                                incompleteFamilies.remove(parentId);
+                                multimodalBatch.addAll(family);
+                                if (multimodalBatch.size() >= batchSize) {
+                                    batchConsumer.accept(convertToStopAreas(stopPlaceParser, multimodalBatch));
+                                    multimodalBatch = new ArrayList<>();
+                                }
+                            }
+                        } else {
+                            batch.add(stopPlace);
+                            if (batch.size() >= batchSize) {
+                                batchConsumer.accept(convertToStopAreas(stopPlaceParser, batch));
+                                batch = new ArrayList<>();
+                            }
+                        }
+                        continue;
+                    }
+                    parentElement = name;
+                    reader.next();
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        batch.addAll(multimodalBatch);
+        incompleteFamilies.values().forEach(batch::addAll);
+        batch.addAll(nestedStopPlaces);
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(convertToStopAreas(stopPlaceParser, batch));
+        }
+        log.info("Converted " + stopPlaceCount + " stop places");
+    }
 
-                    context.put(NETEX_LINE_DATA_CONTEXT, siteFrame.getStopPlaces());
-                    stopPlaceParser.parse(context);
-
+    private StopAreaUpdateContext convertToStopAreas(StopPlaceParser stopPlaceParser, List<StopPlace> stopPlaces) throws Exception {
+        StopAreaUpdateContext batchContext = new StopAreaUpdateContext();
+        Context context = new Context();
+        Referential referential = new Referential();
+        context.put(Constant.REFERENTIAL, referential);
 
-                    for (StopPlace stopPlace : siteFrame.getStopPlaces().getStopPlace()) {
+        StopPlacesInFrame_RelStructure stopPlacesStructure = new StopPlacesInFrame_RelStructure();
+        stopPlacesStructure.getStopPlace().addAll(stopPlaces);
+        context.put(NETEX_LINE_DATA_CONTEXT, stopPlacesStructure);
+        stopPlaceParser.parse(context);
 
-                        if (!isActive(stopPlace, now)) {
-                            updateContext.getInactiveStopAreaIds().add(stopPlace.getId());
-                            referential.getStopAreas().remove(stopPlace.getId());
-                        } else if (stopPlace.getQuays() != null && !CollectionUtils.isEmpty(stopPlace.getQuays().getQuayRefOrQuay())) {
-                            stopPlace.getQuays().getQuayRefOrQuay().forEach(quay -> collectMergedIdForQuay(quay));
-                        }
-                    }
+        for (StopPlace stopPlace : stopPlaces) {
 
-                }
+            if (!isActive(stopPlace, now)) {
+                batchContext.getInactiveStopAreaIds().add(stopPlace.getId());
+                referential.getStopAreas().remove(stopPlace.getId());
+            } else if (stopPlace.getQuays() != null && !CollectionUtils.isEmpty(stopPlace.getQuays().getQuayRefOrQuay())) {
+                stopPlace.getQuays().getQuayRefOrQuay().forEach(quay -> collectMergedIdForQuay(batchContext, quay));
             }
         }
 
-        updateContext.getActiveStopAreas().addAll(referential.getStopAreas().values().stream().filter(sa -> sa.getParent() == null).collect(Collectors.toSet()));
+        batchContext.getActiveStopAreas().addAll(referential.getStopAreas().values().stream().filter(sa -> sa.getParent() == null).collect(Collectors.toSet()));
+        return batchContext;
     }
 
-    private void collectMergedIdForQuay(Object quayObj) {
+    private void collectMergedIdForQuay(StopAreaUpdateContext batchContext, Object quayObj) {
         if (quayObj instanceof Quay) {
             Quay quay = (Quay) quayObj;
             if (quay.getKeyList() != null && quay.getKeyList().getKeyValue() != null) {
-                quay.getKeyList().getKeyValue().stream().filter(kv -> MERGED_ID_KEY.equals(kv.getKey())).forEach(kv -> addMergedIds(quay.getId(), kv.getValue()));
-                quay.getKeyList().getKeyValue().stream().filter(kv -> IMPORT_ID_KEY.equals(kv.getKey())).forEach(kv -> addMergedIds(quay.getId(), kv.getValue()));
+                quay.getKeyList().getKeyValue().stream().filter(kv -> MERGED_ID_KEY.equals(kv.getKey())).forEach(kv -> addMergedIds(batchContext, quay.getId(), kv.getValue()));
+                quay.getKeyList().getKeyValue().stream().filter(kv -> IMPORT_ID_KEY.equals(kv.getKey())).forEach(kv -> addMergedIds(batchContext, quay.getId(), kv.getValue()));
             }
         }
     }
 
-    private void addMergedIds(String mergedToId, String mergedFromIdsAsString) {
+    private void addMergedIds(StopAreaUpdateContext batchContext, String mergedToId, String mergedFromIdsAsString) {
         Set<String> mergedFromIds = Arrays.asList(mergedFromIdsAsString.split(ID_VALUE_SEPARATOR)).stream().filter(id -> !StringUtils.isEmpty(id)).collect(Collectors.toSet());
 
-        if (updateContext.getMergedQuays().get(mergedToId) != null) {
-            updateContext.getMergedQuays().get(mergedToId).addAll(mergedFromIds);
-        } else {
-            updateContext.getMergedQuays().put(mergedToId, mergedFromIds);
-        }
+        batchContext.addMergedQuays(Collections.singletonMap(mergedToId, mergedFromIds));
     }
 
     private boolean isActive(StopPlace stopPlace, Instant atTime) {
@@ -131,14 +281,8 @@ public class PublicationDeliveryStopPlaceParser {
         return validTo == null || validTo.atZone(ZoneId.systemDefault()).toInstant().isAfter(atTime);
     }
 
-    private PublicationDeliveryStructure unmarshal(InputStream inputStream) throws JAXBException {
-        Unmarshaller jaxbUnmarshaller = JAXBUtil.getJAXBContext(PublicationDeliveryStructure.class).createUnmarshaller();
-
-        JAXBElement<PublicationDeliveryStructure> jaxbElement = jaxbUnmarshaller.unmarshal(new StreamSource(inputStream), PublicationDeliveryStructure.class);
-        PublicationDeliveryStructure publicationDeliveryStructure = jaxbElement.getValue();
-
-        return publicationDeliveryStructure;
-
+    private Unmarshaller createUnmarshaller() throws JAXBException {
+        return JAXBUtil.getJAXBContext(PublicationDeliveryStructure.class).createUnmarshaller();
     }
 
 }
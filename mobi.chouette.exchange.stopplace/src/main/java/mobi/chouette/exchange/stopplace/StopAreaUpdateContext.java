@@ -16,7 +16,16 @@ public class StopAreaUpdateContext {
 	private Set<StopArea> activeStopAreas = new HashSet<>();
 	@Getter
 	private Map<String, Set<String>> mergedQuays = new HashMap<>();
+	/**
+	 * contained stop areas detached from their parent, when their deletion is left to the caller
+	 */
+	@Getter
+	private Set<String> removedContainedStopAreaIds = new HashSet<>();
+
 
+	public void addMergedQuays(Map<String, Set<String>> quays) {
+		quays.forEach((mergedToId, mergedFromIds) -> mergedQuays.computeIfAbsent(mergedToId, k -> new HashSet<>()).addAll(mergedFromIds));
+	}
 
 	public int getChangedStopCount() {
 		return getActiveStopAreas().size() + getInactiveStopAreaIds().size();
@@ -58,6 +58,23 @@ public class StopAreaUpdateService {
 		new StopAreaUpdateTask(stopAreaDAO, stopAreaUpdater, context, updateContext).update();
 	}
 
+	/**
+	 * Create or update the stop areas of one batch of a delivery in a separate transaction. Contained stop areas
+	 * detached from their parent are registered in the update context, see {@link #deleteDetachedContainedStopAreas}.
+	 */
+	@TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+	public void createOrUpdateStopAreaBatch(Context context, StopAreaUpdateContext updateContext) {
+		new StopAreaUpdateTask(stopAreaDAO, stopAreaUpdater, context, updateContext).updateBatch();
+	}
+
+	/**
+	 * Delete the contained stop areas detached by previous batches and not attached to another parent since
+	 */
+	@TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+	public void deleteDetachedContainedStopAreas(Context context, StopAreaUpdateContext updateContext) {
+		new StopAreaUpdateTask(stopAreaDAO, stopAreaUpdater, context, updateContext).removeDetachedContainedStopAreas();
+	}
+
 	@TransactionAttribute
 	public void deleteStopArea(String objectId) {
 		StopArea stopArea = stopAreaDAO.findByObjectId(objectId);
@@ -106,9 +123,7 @@ public class StopAreaUpdateService {
 	 */
 	@TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
 	public int updateStopAreaReferences(Map<String, Set<String>> replacementMap) {
-		final AtomicInteger updatedStopPoints = new AtomicInteger();
-		replacementMap.forEach((newStopAreaId, oldStopAreaIds) -> updatedStopPoints.addAndGet(scheduledStopPointDAO.replaceContainedInStopAreaReferences(oldStopAreaIds, newStopAreaId)));
-		return updatedStopPoints.get();
+		return scheduledStopPointDAO.replaceContainedInStopAreaReferences(replacementMap);
 	}
 
 
@@ -38,11 +38,37 @@ public class StopAreaUpdateTask {
 	}
 
 	public void update() {
+		updateStopAreas();
+
+		removedContainedStopAreas.values().forEach(containedStopArea -> removeContainedStopArea(containedStopArea));
+	}
+
+	/**
+	 * Update stop areas of one batch of a delivery. Contained stop areas detached from their parent are not deleted, as
+	 * they may be moved to a stop area of a later batch, but registered in the update context.
+	 */
+	public void updateBatch() {
+		updateStopAreas();
+
+		updateContext.getRemovedContainedStopAreaIds().addAll(removedContainedStopAreas.keySet());
+	}
+
+	/**
+	 * Delete the contained stop areas registered by previous batches that have not been moved to another parent since.
+	 */
+	public void removeDetachedContainedStopAreas() {
+		for (String objectId : updateContext.getRemovedContainedStopAreaIds()) {
+			StopArea containedStopArea = stopAreaDAO.findByObjectId(objectId);
+			if (containedStopArea != null && containedStopArea.getParent() == null) {
+				removeContainedStopArea(containedStopArea);
+			}
+		}
+	}
+
+	private void updateStopAreas() {
 		updateContext.getInactiveStopAreaIds().stream().forEach(stopAreaId -> removeStopArea(stopAreaId));
 
 		updateContext.getActiveStopAreas().forEach(sa -> createOrUpdate(sa));
-
-		removedContainedStopAreas.values().forEach(containedStopArea -> removeContainedStopArea(containedStopArea));
 	}
 
 
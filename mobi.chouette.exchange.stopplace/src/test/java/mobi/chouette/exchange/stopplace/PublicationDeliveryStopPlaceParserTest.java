@@ -8,7 +8,10 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.io.FileInputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -37,4 +40,47 @@ public class PublicationDeliveryStopPlaceParserTest {
 
 
     }
+
+    @Test
+    public void testParseStopPlacesByBatches() throws Exception {
+        PublicationDeliveryStopPlaceParser parser = new PublicationDeliveryStopPlaceParser();
+        List<StopAreaUpdateContext> batches = new ArrayList<>();
+        parser.parseStopPlaces(new FileInputStream("src/test/resources/netex/PublicationDeliveryWithStopPlaces.xml"), 1, batches::add);
+
+        Assert.assertEquals(batches.size(), 3);
+        Set<String> activeIds = new HashSet<>();
+        Set<String> inactiveIds = new HashSet<>();
+        StopAreaUpdateContext merges = new StopAreaUpdateContext();
+        for (StopAreaUpdateContext batch : batches) {
+            Assert.assertEquals(batch.getChangedStopCount(), 1);
+            batch.getActiveStopAreas().forEach(sa -> activeIds.add(sa.getObjectId()));
+            inactiveIds.addAll(batch.getInactiveStopAreaIds());
+            merges.addMergedQuays(batch.getMergedQuays());
+        }
+        Assert.assertEquals(activeIds, Sets.newHashSet("NSR:StopPlace:51566", "NSR:StopPlace:11001"));
+        Assert.assertEquals(inactiveIds, Sets.newHashSet("NSR:StopPlace:10089"));
+        Assert.assertTrue(parser.getUpdateContext().getMergedQuays().isEmpty(), "Merged quays should be collected by batch");
+
+        Map<String, Set<String>> mergedQuays = merges.getMergedQuays();
+        Assert.assertEquals(mergedQuays.size(), 4);
+        Assert.assertEquals(mergedQuays.get("NSR:Quay:11001a"), Sets.newHashSet("NSR:Quay:11002", "NSR:Quay:11003", "SKY:Quay:12348413"));
+    }
+
+    @Test
+    public void testParseMultiModalStopPlacesByBatches() throws Exception {
+        PublicationDeliveryStopPlaceParser parser = new PublicationDeliveryStopPlaceParser();
+        List<StopAreaUpdateContext> batches = new ArrayList<>();
+        parser.parseStopPlaces(new FileInputStream("src/test/resources/netex/PublicationDeliveryWithMultiModalStopPlaces.xml"), 3, batches::add);
+
+        // a family is converted as soon as it is complete, with the stop places of other families when under the batch size
+        Assert.assertEquals(batches.size(), 2);
+        Set<String> firstIds = new HashSet<>();
+        batches.get(0).getActiveStopAreas().forEach(sa -> firstIds.add(sa.getObjectId()));
+        Assert.assertEquals(firstIds, Sets.newHashSet("NSR:StopPlace:4000"));
+        Assert.assertEquals(batches.get(0).getActiveStopAreas().iterator().next().getContainedStopAreas().size(), 2);
+
+        Set<String> lastIds = new HashSet<>();
+        batches.get(1).getActiveStopAreas().forEach(sa -> lastIds.add(sa.getObjectId()));
+        Assert.assertEquals(lastIds, Sets.newHashSet("NSR:StopPlace:5000", "NSR:StopPlace:6000"));
+    }
 }
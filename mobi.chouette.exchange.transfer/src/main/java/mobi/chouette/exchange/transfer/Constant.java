@@ -5,5 +5,10 @@ public interface Constant extends mobi.chouette.common.Constant {
 	public static final String LINES = "LINES";
 	public static final String BLOCKS = "BLOCKS";
 	public static final String PROGRESSION = "PROGRESSION";
+	public static final String LINE_IDS = "LINE_IDS";
+	public static final String LINE_CHUNK = "LINE_CHUNK";
+	public static final String CLEAN_TARGET = "CLEAN_TARGET";
+	public static final String RESUME_TRANSFER = "RESUME_TRANSFER";
+	public static final String TRANSFER_CHECKPOINT_FILE = "transfer.checkpoint";
 
 }
@@ -2,6 +2,7 @@ package mobi.chouette.exchange.transfer.exporter;
 
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.Array;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -11,10 +12,14 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import javax.persistence.Embeddable;
+import javax.persistence.ManyToMany;
+import javax.persistence.OneToMany;
 
 import lombok.extern.log4j.Log4j;
 import mobi.chouette.model.AccessLink;
@@ -30,6 +35,26 @@ import org.hibernate.proxy.LazyInitializer;
 
 @Log4j
 public class HibernateDeproxynator<T> {
+
+	// inverse collection fields by class and property name, empty when the property is not one
+	private static final Map<String, Optional<Field>> INVERSE_COLLECTIONS = new ConcurrentHashMap<>();
+
+	private final boolean pruneInverseCollections;
+
+	public HibernateDeproxynator() {
+		this(false);
+	}
+
+	/**
+	 * @param pruneInverseCollections
+	 *            replace inverse collections which are not cascaded (network lines, timetable vehicle journeys ...)
+	 *            with empty ones instead of loading them, so that only the graph owned by the deproxied objects is
+	 *            loaded
+	 */
+	public HibernateDeproxynator(boolean pruneInverseCollections) {
+		this.pruneInverseCollections = pruneInverseCollections;
+	}
+
 	public List deepDeproxy(final List maybeProxy) throws ClassCastException {
 		if (maybeProxy == null)
 			return null;
@@ -141,6 +166,14 @@ public class HibernateDeproxynator<T> {
 				try {
 					String name = property.getName();
 					if (!"owner".equals(name) && property.getWriteMethod() != null) {
+						if (pruneInverseCollections) {
+							Field inverse = getInverseCollection(ret.getClass(), name);
+							if (inverse != null) {
+								inverse.set(ret, Set.class.isAssignableFrom(inverse.getType()) ? new HashSet<>()
+										: new ArrayList<>());
+								continue;
+							}
+						}
 						Object value = PropertyUtils.getProperty(ret, name);
 
 						boolean needToSetProperty = false;
@@ -212,6 +245,28 @@ public class HibernateDeproxynator<T> {
 		return ret;
 	}
 
+	private static Field getInverseCollection(Class<?> clazz, String name) {
+		return INVERSE_COLLECTIONS.computeIfAbsent(clazz.getName() + "." + name, key -> {
+			for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+				try {
+					Field field = c.getDeclaredField(name);
+					OneToMany oneToMany = field.getAnnotation(OneToMany.class);
+					ManyToMany manyToMany = field.getAnnotation(ManyToMany.class);
+					boolean inverse = (oneToMany != null && !oneToMany.mappedBy().isEmpty() && oneToMany.cascade().length == 0)
+							|| (manyToMany != null && !manyToMany.mappedBy().isEmpty() && manyToMany.cascade().length == 0);
+					if (inverse) {
+						field.setAccessible(true);
+						return Optional.of(field);
+					}
+					return Optional.empty();
+				} catch (NoSuchFieldException e) {
+					// declared in super class
+				}
+			}
+			return Optional.empty();
+		}).orElse(null);
+	}
+
 	private boolean isReferentialObject(Object ret) {
 		return ret instanceof NeptuneObject && !(ret instanceof StopArea || ret instanceof AccessLink || ret instanceof AccessPoint || ret instanceof ConnectionLink);
 	}
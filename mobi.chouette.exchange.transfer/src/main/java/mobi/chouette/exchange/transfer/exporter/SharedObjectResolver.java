@@ -0,0 +1,212 @@
+package mobi.chouette.exchange.transfer.exporter;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Transient;
+
+import lombok.extern.log4j.Log4j;
+import mobi.chouette.model.AccessLink;
+import mobi.chouette.model.AccessPoint;
+import mobi.chouette.model.ConnectionLink;
+import mobi.chouette.model.DatedServiceJourney;
+import mobi.chouette.model.DeadRun;
+import mobi.chouette.model.FootNoteAlternativeText;
+import mobi.chouette.model.Interchange;
+import mobi.chouette.model.JourneyFrequency;
+import mobi.chouette.model.JourneyPattern;
+import mobi.chouette.model.Line;
+import mobi.chouette.model.NeptuneIdentifiedObject;
+import mobi.chouette.model.NeptuneObject;
+import mobi.chouette.model.Route;
+import mobi.chouette.model.StopArea;
+import mobi.chouette.model.StopPoint;
+import mobi.chouette.model.VehicleJourney;
+import mobi.chouette.model.VehicleJourneyAtStop;
+
+import com.google.common.collect.Iterables;
+
+/**
+ * replaces the objects shared between lines (timetables, networks, companies, scheduled stop points ...) which
+ * already exist in the target dataspace with references to the persistent ones
+ * <br/>
+ * Used by chunked transfer, where the objects persisted by previous chunks are no longer in the persistence context.
+ */
+@Log4j
+class SharedObjectResolver {
+
+	// objects owned by a single line, always persisted with it
+	private static final Set<Class<?>> OWNED_TYPES = Set.of(Line.class, Route.class, StopPoint.class,
+			JourneyPattern.class, VehicleJourney.class, VehicleJourneyAtStop.class, JourneyFrequency.class,
+			DatedServiceJourney.class, DeadRun.class, Interchange.class, FootNoteAlternativeText.class);
+
+	// objects not stored in the dataspace
+	private static final Set<Class<?>> IGNORED_TYPES = Set.of(StopArea.class, AccessLink.class, AccessPoint.class,
+			ConnectionLink.class);
+
+	private static final int QUERY_SIZE = 1000;
+
+	private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<>();
+
+	private final EntityManager em;
+
+	SharedObjectResolver(EntityManager em) {
+		this.em = em;
+	}
+
+	/**
+	 * replace shared objects reachable from the given ones by references to the persistent ones
+	 *
+	 * @return number of replaced objects
+	 */
+	int resolve(Collection<?> objects) {
+		Walker collector = new Walker(null);
+		collector.visitAll(objects);
+
+		Map<Class<?>, Map<String, Long>> persistent = new HashMap<>();
+		for (Map.Entry<Class<?>, Set<String>> entry : collector.shared.entrySet()) {
+			Map<String, Long> ids = findIds(entry.getKey(), entry.getValue());
+			if (!ids.isEmpty()) {
+				persistent.put(entry.getKey(), ids);
+			}
+		}
+		if (persistent.isEmpty()) {
+			return 0;
+		}
+
+		Walker replacer = new Walker(persistent);
+		replacer.visitAll(objects);
+		return replacer.replaced;
+	}
+
+	private Map<String, Long> findIds(Class<?> type, Set<String> objectIds) {
+		Map<String, Long> result = new HashMap<>();
+		for (List<String> ids : Iterables.partition(objectIds, QUERY_SIZE)) {
+			List<Object[]> rows = em.createQuery(
+					"select o.objectId, o.id from " + type.getSimpleName() + " o where o.objectId in :ids",
+					Object[].class).setParameter("ids", ids).getResultList();
+			for (Object[] row : rows) {
+				result.put((String) row[0], (Long) row[1]);
+			}
+		}
+		if (log.isDebugEnabled()) {
+			log.debug(type.getSimpleName() + " : " + result.size() + " of " + objectIds.size() + " already transferred");
+		}
+		return result;
+	}
+
+	private static Field[] getFields(Class<?> type) {
+		return FIELDS.computeIfAbsent(type, t -> {
+			List<Field> result = new ArrayList<>();
+			for (Class<?> c = t; c != null && c != Object.class; c = c.getSuperclass()) {
+				for (Field field : c.getDeclaredFields()) {
+					int modifiers = field.getModifiers();
+					if (Modifier.isStatic(modifiers) || field.isAnnotationPresent(Transient.class)
+							|| field.isSynthetic() || field.getType().isPrimitive()) {
+						continue;
+					}
+					field.setAccessible(true);
+					result.add(field);
+				}
+			}
+			return result.toArray(new Field[result.size()]);
+		});
+	}
+
+	private class Walker {
+
+		private final Map<Object, Boolean> visited = new IdentityHashMap<>();
+
+		// shared object ids by type, collected when there is nothing to replace yet
+		private final Map<Class<?>, Set<String>> shared = new HashMap<>();
+
+		private final Map<Class<?>, Map<String, Long>> persistent;
+
+		private int replaced;
+
+		private Walker(Map<Class<?>, Map<String, Long>> persistent) {
+			this.persistent = persistent;
+		}
+
+		private void visitAll(Collection<?> objects) {
+			for (Object object : objects) {
+				visit(object);
+			}
+		}
+
+		/**
+		 * @return the object or the reference replacing it
+		 */
+		private Object visit(Object value) {
+			if (!(value instanceof NeptuneObject) || IGNORED_TYPES.contains(value.getClass())) {
+				return value;
+			}
+			if (value instanceof NeptuneIdentifiedObject && !OWNED_TYPES.contains(value.getClass())) {
+				Class<?> type = value.getClass();
+				String objectId = ((NeptuneIdentifiedObject) value).getObjectId();
+				if (objectId != null && persistent != null) {
+					Long id = persistent.getOrDefault(type, Collections.emptyMap()).get(objectId);
+					if (id != null) {
+						replaced++;
+						return em.getReference(type, id);
+					}
+				} else if (objectId != null) {
+					shared.computeIfAbsent(type, t -> new HashSet<>()).add(objectId);
+				}
+			}
+			if (visited.put(value, Boolean.TRUE) == null) {
+				visitFields(value);
+			}
+			return value;
+		}
+
+		private void visitFields(Object object) {
+			for (Field field : getFields(object.getClass())) {
+				try {
+					Object value = field.get(object);
+					if (value instanceof List) {
+						List<Object> list = (List<Object>) value;
+						for (int i = 0; i < list.size(); i++) {
+							Object element = list.get(i);
+							Object result = visit(element);
+							if (result != element) {
+								list.set(i, result);
+							}
+						}
+					} else if (value instanceof Set) {
+						Set<Object> set = (Set<Object>) value;
+						List<Object> results = new ArrayList<>(set.size());
+						boolean changed = false;
+						for (Object element : set) {
+							Object result = visit(element);
+							changed |= result != element;
+							results.add(result);
+						}
+						if (changed) {
+							set.clear();
+							set.addAll(results);
+						}
+					} else if (value instanceof NeptuneObject) {
+						Object result = visit(value);
+						if (result != value) {
+							field.set(object, result);
+						}
+					}
+				} catch (IllegalAccessException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+	}
+}
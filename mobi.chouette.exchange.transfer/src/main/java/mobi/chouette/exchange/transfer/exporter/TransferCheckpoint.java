@@ -0,0 +1,49 @@
+package mobi.chouette.exchange.transfer.exporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import mobi.chouette.common.file.FileStore;
+import mobi.chouette.exchange.transfer.Constant;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * number of lines already transferred by a chunked transfer, saved in the file store of the job directory so that
+ * a job rescheduled on another node resumes after the last transferred chunk
+ */
+public class TransferCheckpoint {
+
+	private final FileStore fileStore;
+
+	private final Path path;
+
+	public TransferCheckpoint(FileStore fileStore, Path jobDirectory) {
+		this.fileStore = fileStore;
+		this.path = jobDirectory.resolve(Constant.TRANSFER_CHECKPOINT_FILE);
+	}
+
+	/**
+	 * @return number of lines transferred, 0 if no checkpoint is saved
+	 */
+	public int read() throws IOException {
+		if (!fileStore.exists(path)) {
+			return 0;
+		}
+		try (InputStream content = fileStore.getFileContent(path)) {
+			return Integer.parseInt(IOUtils.toString(content, StandardCharsets.UTF_8).trim());
+		}
+	}
+
+	public void write(int transferred) {
+		fileStore.writeFile(path, new ByteArrayInputStream(Integer.toString(transferred).getBytes(StandardCharsets.UTF_8)));
+	}
+
+	public void delete() {
+		fileStore.delete(path);
+	}
+
+}
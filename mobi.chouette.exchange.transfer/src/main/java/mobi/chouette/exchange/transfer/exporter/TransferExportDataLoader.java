@@ -51,6 +51,11 @@ public class TransferExportDataLoader implements Command, Constant {
 	@TransactionTimeout(value = 2, unit = TimeUnit.HOURS)
 	public boolean execute(Context context) throws Exception {
 
+		TransferExportParameters configuration = (TransferExportParameters) context.get(CONFIGURATION);
+		if (configuration.getChunkSize() > 0) {
+			return loadChunk(context);
+		}
+
 		List<Block> blocksToTransfer = prepareBlocks(context);
 		context.put(BLOCKS, blocksToTransfer);
 
@@ -65,6 +70,26 @@ public class TransferExportDataLoader implements Command, Constant {
 		return true;
 	}
 
+	/**
+	 * chunked transfer : first call lists the lines, then each call loads the lines of the current chunk, blocks are
+	 * loaded once all lines are transferred
+	 */
+	protected boolean loadChunk(Context context) throws Exception {
+		List<Long> chunk = (List<Long>) context.get(LINE_CHUNK);
+		if (chunk != null) {
+			context.put(LINES, prepareLines(context, lineDAO.findAll(chunk), true));
+		} else if (context.containsKey(LINE_IDS)) {
+			context.put(BLOCKS, prepareBlocks(context));
+		} else {
+			log.info("Listing lines to transfer");
+			List<Long> lineIds = em.createQuery("select l.id from Line l order by l.id", Long.class).getResultList();
+			context.put(LINE_IDS, lineIds);
+			LocalDateTime lastUpdateTimestamp = referentialLastUpdateDAO.getLastUpdateTimestamp();
+			context.put(REFERENTIAL_LAST_UPDATE_TIMESTAMP, lastUpdateTimestamp);
+		}
+		return true;
+	}
+
 	protected List<Block> prepareBlocks(Context context) {
 		if (!em.isJoinedToTransaction()) {
 			throw new RuntimeException("No transaction");
@@ -96,10 +121,13 @@ public class TransferExportDataLoader implements Command, Constant {
 			throw new RuntimeException("No transaction");
 		}
 		
+		log.info("Loading all lines...");
+		return prepareLines(context, lineDAO.findAll(), false);
+	}
+
+	protected List<Line> prepareLines(Context context, List<Line> allLines, boolean pruneInverseCollections) {
 		TransferExportParameters configuration = (TransferExportParameters) context.get(CONFIGURATION);
 
-		log.info("Loading all lines...");
-		List<Line> allLines = lineDAO.findAll();
 		log.info("Filtering lines");
 		List<Line> linesToTransfer = allLines
 				.stream()
@@ -107,7 +135,7 @@ public class TransferExportDataLoader implements Command, Constant {
 				.collect(Collectors.toList());
 		log.info("Filtering lines completed");
 		log.info("Removing Hibernate proxies");
-		HibernateDeproxynator<?> deProxy = new HibernateDeproxynator<>();
+		HibernateDeproxynator<?> deProxy = new HibernateDeproxynator<>(pruneInverseCollections);
 		linesToTransfer = deProxy.deepDeproxy(linesToTransfer);
 		log.info("Removing Hibernate proxies completed");
 		
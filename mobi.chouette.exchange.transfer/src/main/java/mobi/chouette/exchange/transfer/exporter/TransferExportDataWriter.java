@@ -5,6 +5,7 @@ import mobi.chouette.common.Context;
 import mobi.chouette.common.chain.Command;
 import mobi.chouette.common.chain.CommandFactory;
 import mobi.chouette.dao.BlockDAO;
+import mobi.chouette.dao.BulkCopyDAO;
 import mobi.chouette.dao.DeadRunDAO;
 import mobi.chouette.dao.InterchangeDAO;
 import mobi.chouette.dao.LineDAO;
@@ -78,6 +79,9 @@ public class TransferExportDataWriter implements Command, Constant {
 	@EJB
 	private ScheduledStopPointDAO scheduledStopPointDAO;
 
+	@EJB
+	private BulkCopyDAO bulkCopyDAO;
+
 	@PersistenceContext(unitName = "referential")
 	private EntityManager em;
 
@@ -88,16 +92,17 @@ public class TransferExportDataWriter implements Command, Constant {
 			throw new RuntimeException("No transaction");
 		}
 
+		TransferExportParameters configuration = (TransferExportParameters) context.get(CONFIGURATION);
+		if (configuration.getChunkSize() > 0) {
+			return context.containsKey(LINE_CHUNK) ? writeChunk(context) : writeBlocks(context);
+		}
+
 		List<Block> blocksToTransfer = (List<Block>) context.get(BLOCKS);
 		List<Line> lineToTransfer = (List<Line>) context.get(LINES);
 		ProgressionCommand progression = (ProgressionCommand) context.get(PROGRESSION);
 
 		InitialContext initialContext = (InitialContext) context.get(INITIAL_CONTEXT);
-		Command cleanCommand = CommandFactory.create(initialContext, CleanRepositoryCommand.class.getName());
-		log.info("Cleaning target dataspace");
-		boolean cleanCommandResult = cleanCommand.execute(context);
-		if(!cleanCommandResult) {
-			log.error("Error cleaning dataspace");
+		if (!clean(context)) {
 			return ERROR;
 		}
 		
@@ -134,70 +139,55 @@ public class TransferExportDataWriter implements Command, Constant {
 			
 			List<Interchange> validInterchanges = interchanges.stream().filter(interchange -> isInterchangeValid(interchange, vehicleJourneyIds)).collect(Collectors.toList());
 			log.info("Inserting " + validInterchanges.size() + " interchanges. Discarded " + (interchanges.size() - validInterchanges.size()) + " interchanges where consumer is invalid");
-			validInterchanges.forEach(interchange -> interchangeDAO.create(interchange));
-
 			log.info("Inserting " + referential.getRouteSections().size() + " route sections");
-			for (RouteSection sa : referential.getRouteSections().values()) {
-				routeSectionDAO.create(sa);
-			}
-			log.info("Flushing " + referential.getRouteSections().size() + " route sections");
-			routeSectionDAO.flush();
-			progression.execute(context);
 
-			referential.clear(true);
-			
-			for (int i = 0; i < lineToTransfer.size(); i++) {
-				Line line = lineToTransfer.get(i);
-				log.info("Persisting transfered line " + line.getObjectId() + " / " + line.getName());
-
-				lineDAO.create(line);
-				progression.execute(context);
-
-				if ((i + 1) % FLUSH_SIZE == 0) {
-					log.info("Intermediary flush");
+			// the target is clean, every object is new : lines are copied by batches, interchanges and route
+			// sections with the first batch. Objects of previous batches are only referenced by id, lines cannot be
+			// persisted anymore once a batch is copied.
+			List<Object> batch = new ArrayList<>(validInterchanges);
+			batch.addAll(referential.getRouteSections().values());
+			boolean copy = true;
+			int start = 0;
+			do {
+				int end = Math.min(start + FLUSH_SIZE, lineToTransfer.size());
+				List<Line> lines = lineToTransfer.subList(start, end);
+				batch.addAll(lines);
+				log.info("Persisting transfered lines " + start + " to " + end);
+				if (copy && !bulkCopyDAO.copyNewEntities(batch)) {
+					if (start > 0) {
+						throw new IllegalStateException("transfered lines " + start + " to " + end + " cannot be copied");
+					}
+					log.info("Transfered lines cannot be copied, persisting them");
+					copy = false;
+				}
+				if (!copy) {
+					if (start == 0) {
+						validInterchanges.forEach(interchange -> interchangeDAO.create(interchange));
+						for (RouteSection sa : referential.getRouteSections().values()) {
+							routeSectionDAO.create(sa);
+						}
+					}
+					lines.forEach(lineDAO::create);
 					lineDAO.flush();
-					// Remove most flushed objects from persistence context to ease garbage collection
-					detachLineFromPersistenceContext(lineToTransfer, i, FLUSH_SIZE);
-					log.info("Intermediary flush completed");
 				}
-			}
-
-			lineDAO.flush();
-			log.info("Starting to persist blocks");
-			for (Block block : blocksToTransfer) {
-				if (log.isDebugEnabled()) {
-					log.debug("Preparing block " + block.getObjectId());
+				if (start == 0) {
+					// route sections
+					progression.execute(context);
 				}
-
-				// persist only the vehicle journeys that were effectively transferred, ignoring the others.
-				List<VehicleJourney> persistentVehicleJourneys = vehicleJourneyDAO.findByObjectIdNoFlush(block.getVehicleJourneys().stream().map(vj -> vj.getObjectId()).collect(Collectors.toList()));
-				block.setVehicleJourneys(persistentVehicleJourneys);
-
-				// persist only the start points and end points that were effectively transferred, ignoring the others
-				if(block.getStartPoint() != null) {
-					block.setStartPoint(scheduledStopPointDAO.findByObjectId(block.getStartPoint().getObjectId()));
+				for (int i = start; i < end; i++) {
+					progression.execute(context);
 				}
-				if(block.getEndPoint() != null) {
-					block.setEndPoint(scheduledStopPointDAO.findByObjectId(block.getEndPoint().getObjectId()));
+				if (end > start) {
+					// Remove most flushed objects from persistence context to ease garbage collection
+					detachLineFromPersistenceContext(lineToTransfer, end - 1, FLUSH_SIZE);
 				}
+				batch.clear();
+				start = end;
+			} while (start < lineToTransfer.size());
+			referential.clear(true);
 
-
-				// persist only the deadRuns that were effectively transferred, ignoring the others.
-				List<DeadRun> persistentDeadRuns = deadRunDAO.findByObjectIdNoFlush(block.getDeadRuns().stream().map(vj -> vj.getObjectId()).collect(Collectors.toList()));
-				block.setDeadRuns(persistentDeadRuns);
-
-				// reuse the timetables that were already created during the line transfer step,
-				// the other timetables are tied only to blocks and are not persisted yet.
-				List<Timetable> persistentTimetables = timetableDAO.findByObjectIdNoFlush(block.getTimetables().stream().map(tt -> tt.getObjectId()).collect(Collectors.toList()));
-				block.getTimetables().removeAll(persistentTimetables);
-				block.getTimetables().addAll(persistentTimetables);
-
-			}
-			log.info("Persisting blocks");
-			// Persisting all blocks at once, for performance (batched INSERT in DB)
-			blocksToTransfer.forEach(blockDAO::create);
-			log.info("Flushing blocks");
 			lineDAO.flush();
+			persistBlocks(blocksToTransfer);
 
 			log.info("Updating target referential last update timestamp");
 			Command updateReferentialLastUpdateTimestampCommand = CommandFactory.create(initialContext, UpdateReferentialLastUpdateTimestampCommand.class.getName());
@@ -216,6 +206,151 @@ public class TransferExportDataWriter implements Command, Constant {
 		}
 	}
 
+	private boolean clean(Context context) throws Exception {
+		InitialContext initialContext = (InitialContext) context.get(INITIAL_CONTEXT);
+		Command cleanCommand = CommandFactory.create(initialContext, CleanRepositoryCommand.class.getName());
+		log.info("Cleaning target dataspace");
+		boolean cleanCommandResult = cleanCommand.execute(context);
+		if(!cleanCommandResult) {
+			log.error("Error cleaning dataspace");
+		}
+		return cleanCommandResult;
+	}
+
+	/**
+	 * chunked transfer : persist the lines of the current chunk, objects shared with lines of previous chunks are
+	 * replaced by the persistent ones
+	 */
+	protected boolean writeChunk(Context context) throws Exception {
+		List<Line> lineToTransfer = (List<Line>) context.get(LINES);
+		ProgressionCommand progression = (ProgressionCommand) context.get(PROGRESSION);
+
+		try {
+			if (Boolean.TRUE.equals(context.get(CLEAN_TARGET)) && !clean(context)) {
+				return ERROR;
+			}
+
+			if (Boolean.TRUE.equals(context.get(RESUME_TRANSFER)) && !lineToTransfer.isEmpty()) {
+				// lines committed before the job was interrupted
+				List<Line> transferred = lineDAO.findByObjectIdNoFlush(lineToTransfer.stream().map(Line::getObjectId)
+						.collect(Collectors.toList()));
+				if (transferred != null && !transferred.isEmpty()) {
+					Set<String> transferredIds = transferred.stream().map(Line::getObjectId).collect(Collectors.toSet());
+					log.info("Skipping " + transferredIds.size() + " lines already transferred");
+					lineToTransfer.removeIf(line -> transferredIds.contains(line.getObjectId()));
+					em.clear();
+				}
+			}
+
+			// interchanges are written by object id, feeders are checked once all lines are transferred
+			List<Interchange> interchanges = new ArrayList<>();
+			for (Line l : lineToTransfer) {
+				for (Route r : l.getRoutes()) {
+					for (JourneyPattern jp : r.getJourneyPatterns()) {
+						for (VehicleJourney vj : jp.getVehicleJourneys()) {
+							for (Interchange ci : vj.getConsumerInterchanges()) {
+								clearInterchangeOjbectReferences(ci);
+								interchanges.add(ci);
+							}
+							vj.getConsumerInterchanges().clear();
+						}
+					}
+				}
+			}
+
+			int resolved = new SharedObjectResolver(em).resolve(lineToTransfer);
+			log.info("Persisting " + lineToTransfer.size() + " lines, " + resolved + " shared objects already transferred");
+			List<Object> batch = new ArrayList<>(lineToTransfer);
+			batch.addAll(interchanges);
+			if (!bulkCopyDAO.copyNewEntities(batch)) {
+				log.info("Lines cannot be copied, persisting them");
+				lineToTransfer.forEach(lineDAO::create);
+				interchanges.forEach(interchangeDAO::create);
+			}
+			for (int i = 0; i < lineToTransfer.size(); i++) {
+				progression.execute(context);
+			}
+			lineDAO.flush();
+			return SUCCESS;
+		} finally {
+			em.clear();
+			lineToTransfer.clear();
+		}
+	}
+
+	/**
+	 * chunked transfer : persist the blocks once all lines are transferred and remove interchanges whose feeder was
+	 * not transferred
+	 */
+	protected boolean writeBlocks(Context context) throws Exception {
+		List<Block> blocksToTransfer = (List<Block>) context.get(BLOCKS);
+		InitialContext initialContext = (InitialContext) context.get(INITIAL_CONTEXT);
+		try {
+			if (Boolean.TRUE.equals(context.get(RESUME_TRANSFER)) && !blocksToTransfer.isEmpty()) {
+				List<Block> transferred = blockDAO.findByObjectIdNoFlush(blocksToTransfer.stream().map(Block::getObjectId)
+						.collect(Collectors.toList()));
+				if (transferred != null && !transferred.isEmpty()) {
+					Set<String> transferredIds = transferred.stream().map(Block::getObjectId).collect(Collectors.toSet());
+					log.info("Skipping " + transferredIds.size() + " blocks already transferred");
+					blocksToTransfer.removeIf(block -> transferredIds.contains(block.getObjectId()));
+					em.clear();
+				}
+			}
+			persistBlocks(blocksToTransfer);
+
+			int discarded = interchangeDAO.deleteWithMissingFeederVehicleJourney();
+			log.info("Discarded " + discarded + " interchanges where feeder is invalid");
+
+			log.info("Updating target referential last update timestamp");
+			Command updateReferentialLastUpdateTimestampCommand = CommandFactory.create(initialContext, UpdateReferentialLastUpdateTimestampCommand.class.getName());
+			updateReferentialLastUpdateTimestampCommand.execute(context);
+
+			lineDAO.flush();
+			return SUCCESS;
+		} finally {
+			em.clear();
+			blocksToTransfer.clear();
+		}
+	}
+
+	private void persistBlocks(List<Block> blocksToTransfer) {
+		log.info("Starting to persist blocks");
+		for (Block block : blocksToTransfer) {
+			if (log.isDebugEnabled()) {
+				log.debug("Preparing block " + block.getObjectId());
+			}
+
+			// persist only the vehicle journeys that were effectively transferred, ignoring the others.
+			List<VehicleJourney> persistentVehicleJourneys = vehicleJourneyDAO.findByObjectIdNoFlush(block.getVehicleJourneys().stream().map(vj -> vj.getObjectId()).collect(Collectors.toList()));
+			block.setVehicleJourneys(persistentVehicleJourneys);
+
+			// persist only the start points and end points that were effectively transferred, ignoring the others
+			if(block.getStartPoint() != null) {
+				block.setStartPoint(scheduledStopPointDAO.findByObjectId(block.getStartPoint().getObjectId()));
+			}
+			if(block.getEndPoint() != null) {
+				block.setEndPoint(scheduledStopPointDAO.findByObjectId(block.getEndPoint().getObjectId()));
+			}
+
+
+			// persist only the deadRuns that were effectively transferred, ignoring the others.
+			List<DeadRun> persistentDeadRuns = deadRunDAO.findByObjectIdNoFlush(block.getDeadRuns().stream().map(vj -> vj.getObjectId()).collect(Collectors.toList()));
+			block.setDeadRuns(persistentDeadRuns);
+
+			// reuse the timetables that were already created during the line transfer step,
+			// the other timetables are tied only to blocks and are not persisted yet.
+			List<Timetable> persistentTimetables = timetableDAO.findByObjectIdNoFlush(block.getTimetables().stream().map(tt -> tt.getObjectId()).collect(Collectors.toList()));
+			block.getTimetables().removeAll(persistentTimetables);
+			block.getTimetables().addAll(persistentTimetables);
+
+		}
+		log.info("Persisting blocks");
+		// Persisting all blocks at once, for performance (batched INSERT in DB)
+		blocksToTransfer.forEach(blockDAO::create);
+		log.info("Flushing blocks");
+		lineDAO.flush();
+	}
+
 	// If interchange consumer is within referential the journey must be among the journeys to be transferred for the interchange to be valid.
 	// Unable to verify validity of inter-referential interchanges. To must be done in Level 2 validation.
 	private boolean isInterchangeValid(Interchange i, Set<String> vehicleJourneyIds){
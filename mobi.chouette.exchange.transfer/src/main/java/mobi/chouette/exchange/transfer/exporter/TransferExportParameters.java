@@ -18,7 +18,7 @@ import mobi.chouette.exchange.parameters.AbstractExportParameter;
 @NoArgsConstructor
 @ToString(callSuper = true)
 @XmlAccessorType(XmlAccessType.FIELD)
-@XmlType(propOrder = { "destReferentialName"})
+@XmlType(propOrder = { "destReferentialName", "chunkSize"})
 public class TransferExportParameters extends AbstractExportParameter{
 
 	@Getter
@@ -26,6 +26,14 @@ public class TransferExportParameters extends AbstractExportParameter{
 	@XmlElement(name = "dest_referential_name", required = true)
 	private String destReferentialName;
 
+	/**
+	 * number of lines transferred by transaction ; 0 transfers the whole dataspace in a single transaction
+	 */
+	@Getter
+	@Setter
+	@XmlElement(name = "chunk_size")
+	private int chunkSize = 0;
+
 	@Override
 	public List<String> getAdditionalRequiredReferentialLocks() {
 		List<String> requiredLocks= super.getAdditionalRequiredReferentialLocks();
@@ -1,6 +1,8 @@
 package mobi.chouette.exchange.transfer.exporter;
 
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
@@ -14,8 +16,10 @@ import javax.naming.NamingException;
 
 import lombok.extern.log4j.Log4j;
 import mobi.chouette.common.Context;
+import mobi.chouette.common.JobData;
 import mobi.chouette.common.chain.Command;
 import mobi.chouette.common.chain.CommandFactory;
+import mobi.chouette.common.file.FileStoreFactory;
 import mobi.chouette.common.monitor.JamonUtils;
 import mobi.chouette.exchange.CommandCancelledException;
 import mobi.chouette.exchange.ProgressionCommand;
@@ -27,6 +31,7 @@ import mobi.chouette.model.Line;
 import mobi.chouette.persistence.hibernate.ContextHolder;
 import mobi.chouette.service.JobService;
 import mobi.chouette.service.JobServiceManager;
+import mobi.chouette.service.ServiceException;
 
 import com.jamonapi.Monitor;
 import com.jamonapi.MonitorFactory;
@@ -64,26 +69,25 @@ public class TransferExporterCommand implements Command, Constant, ReportConstan
 			jobServiceManager.validateReferential(parameters.getDestReferentialName());
 			progression.execute(context);
 
-			Command dataLoader = CommandFactory.create(initialContext, TransferExportDataLoader.class.getName());
-			dataLoader.execute(context);
-			progression.execute(context);
-			int numLines = ((List<Line>) context.get(LINES)).size();
+			if (parameters.getChunkSize() > 0) {
+				result = transferByChunk(context, parameters, progression, currentTentant);
+			} else {
+				Command dataLoader = CommandFactory.create(initialContext, TransferExportDataLoader.class.getName());
+				dataLoader.execute(context);
+				progression.execute(context);
+				int numLines = ((List<Line>) context.get(LINES)).size();
 
-			// Cancel existing jobs since this one is deleting all data
-			for (JobService job : jobServiceManager.activeJobs()) {
-				if (job.getReferential().equals(parameters.getDestReferentialName())) {
-					jobServiceManager.cancel(job.getReferential(), job.getId());
-				}
-			}
+				cancelTargetJobs(parameters);
 
-			ContextHolder.setContext(parameters.getDestReferentialName());
+				ContextHolder.setContext(parameters.getDestReferentialName());
 
-			progression.start(context, numLines + 3); // separate saving of stopareas, connectionlinks and accesslinks
+				progression.start(context, numLines + 3); // separate saving of stopareas, connectionlinks and accesslinks
 
-			Command dataWriter = CommandFactory.create(initialContext, TransferExportDataWriter.class.getName());
-			dataWriter.execute(context);
-			progression.execute(context);
-			result = SUCCESS;
+				Command dataWriter = CommandFactory.create(initialContext, TransferExportDataWriter.class.getName());
+				dataWriter.execute(context);
+				progression.execute(context);
+				result = SUCCESS;
+			}
 
 			progression.terminate(context, 1);
 			progression.execute(context);
@@ -103,6 +107,85 @@ public class TransferExporterCommand implements Command, Constant, ReportConstan
 		return result;
 	}
 
+	/**
+	 * transfer lines by chunks of {@link TransferExportParameters#getChunkSize()} lines, each chunk loaded and
+	 * written in its own transactions. The number of transferred lines is saved in the file store of the job
+	 * directory after each chunk, so that a rescheduled job resumes after the last transferred chunk instead of
+	 * cleaning the target dataspace again.
+	 */
+	private boolean transferByChunk(Context context, TransferExportParameters parameters,
+			ProgressionCommand progression, String sourceTenant) throws Exception {
+		InitialContext initialContext = (InitialContext) context.get(INITIAL_CONTEXT);
+		Command dataLoader = CommandFactory.create(initialContext, TransferExportDataLoader.class.getName());
+		Command dataWriter = CommandFactory.create(initialContext, TransferExportDataWriter.class.getName());
+
+		dataLoader.execute(context);
+		progression.execute(context);
+		List<Long> lineIds = (List<Long>) context.get(LINE_IDS);
+
+		cancelTargetJobs(parameters);
+
+		TransferCheckpoint checkpoint = getCheckpoint(context);
+		int transferred = checkpoint == null ? 0 : checkpoint.read();
+		if (transferred > 0) {
+			log.info("Resuming transfer after " + transferred + " of " + lineIds.size() + " lines");
+			context.put(RESUME_TRANSFER, Boolean.TRUE);
+		} else {
+			transferred = 0;
+			context.put(CLEAN_TARGET, Boolean.TRUE);
+		}
+		progression.start(context, lineIds.size() - transferred + 1);
+
+		// at least one chunk, the target dataspace is cleaned by the first one
+		do {
+			List<Long> chunk = new ArrayList<>(lineIds.subList(transferred,
+					Math.min(transferred + parameters.getChunkSize(), lineIds.size())));
+			context.put(LINE_CHUNK, chunk);
+			ContextHolder.setContext(sourceTenant);
+			dataLoader.execute(context);
+			ContextHolder.setContext(parameters.getDestReferentialName());
+			if (!dataWriter.execute(context)) {
+				return ERROR;
+			}
+			context.put(CLEAN_TARGET, Boolean.FALSE);
+			transferred += chunk.size();
+			if (checkpoint != null) {
+				checkpoint.write(transferred);
+			}
+			log.info("Transferred " + transferred + " of " + lineIds.size() + " lines");
+		} while (transferred < lineIds.size());
+		context.remove(LINE_CHUNK);
+
+		ContextHolder.setContext(sourceTenant);
+		dataLoader.execute(context);
+		ContextHolder.setContext(parameters.getDestReferentialName());
+		if (!dataWriter.execute(context)) {
+			return ERROR;
+		}
+		progression.execute(context);
+		if (checkpoint != null) {
+			checkpoint.delete();
+		}
+		return SUCCESS;
+	}
+
+	// Cancel existing jobs since this one is deleting all data
+	private void cancelTargetJobs(TransferExportParameters parameters) throws ServiceException {
+		for (JobService job : jobServiceManager.activeJobs()) {
+			if (job.getReferential().equals(parameters.getDestReferentialName())) {
+				jobServiceManager.cancel(job.getReferential(), job.getId());
+			}
+		}
+	}
+
+	private TransferCheckpoint getCheckpoint(Context context) {
+		JobData jobData = (JobData) context.get(JOB_DATA);
+		if (jobData == null || jobData.getPathName() == null) {
+			return null;
+		}
+		return new TransferCheckpoint(FileStoreFactory.getFileStore(), Paths.get(jobData.getPathName()));
+	}
+
 	public static class DefaultCommandFactory extends CommandFactory {
 
 		@Override
@@ -0,0 +1,87 @@
+package mobi.chouette.exchange.transfer.exporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import mobi.chouette.common.file.FileStore;
+import mobi.chouette.exchange.transfer.Constant;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TransferCheckpointTest {
+
+	/**
+	 * remote store shared by all nodes
+	 */
+	private static class MemoryFileStore implements FileStore {
+
+		private final Map<Path, byte[]> files = new HashMap<>();
+
+		@Override
+		public InputStream getFileContent(Path filePath) {
+			return new ByteArrayInputStream(files.get(filePath));
+		}
+
+		@Override
+		public void writeFile(Path filePath, InputStream content) {
+			try {
+				files.put(filePath, IOUtils.toByteArray(content));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public boolean delete(Path filePath) {
+			return files.remove(filePath) != null;
+		}
+
+		@Override
+		public void deleteFolder(Path folder) {
+			files.keySet().removeIf(path -> path.startsWith(folder));
+		}
+
+		@Override
+		public void createFolder(Path folder) {
+		}
+
+		@Override
+		public boolean exists(Path filePath) {
+			return files.containsKey(filePath);
+		}
+	}
+
+	@Test
+	public void resumeWithoutLocalFile() throws Exception {
+		FileStore store = new MemoryFileStore();
+		Path jobDirectory = Files.createTempDirectory("transfer");
+		try {
+			new TransferCheckpoint(store, jobDirectory).write(42);
+			Assert.assertFalse(Files.exists(jobDirectory.resolve(Constant.TRANSFER_CHECKPOINT_FILE)),
+					"checkpoint must not be a local file");
+
+			// job rescheduled on another node, only the file store is shared
+			TransferCheckpoint resumed = new TransferCheckpoint(store, jobDirectory);
+			Assert.assertEquals(resumed.read(), 42);
+
+			resumed.delete();
+			Assert.assertEquals(new TransferCheckpoint(store, jobDirectory).read(), 0);
+		} finally {
+			Files.deleteIfExists(jobDirectory);
+		}
+	}
+
+	@Test
+	public void noCheckpointStartsFromFirstLine() throws Exception {
+		Assert.assertEquals(new TransferCheckpoint(new MemoryFileStore(), Paths.get("target/referential/test")).read(), 0);
+	}
+}
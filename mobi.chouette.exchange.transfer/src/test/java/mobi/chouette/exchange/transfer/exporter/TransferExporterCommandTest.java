@@ -220,20 +220,71 @@ public class TransferExporterCommandTest extends Arquillian implements mobi.chou
 
 	}
 
+	@Test
+	public void transferDataByChunks() throws Exception {
+		Context context = initImportContext();
+		JobDataTest test = new JobDataTest();
+		context.put(JOB_DATA, test);
+		test.setPathName("target/referential/test_chunks");
+		File f = new File("target/referential/test_chunks");
+		if (f.exists())
+			FileUtils.deleteDirectory(f);
+		f.mkdirs();
+		((TransferExportParameters) context.get(CONFIGURATION)).setChunkSize(1);
+
+		ContextHolder.setContext("chouette_gui");
+		Command cleanCommand = CommandFactory.create(initialContext, CleanRepositoryCommand.class.getName());
+		Assert.assertTrue(cleanCommand.execute(context));
+		ContextHolder.setContext("chouette_gui_transfer");
+		Assert.assertTrue(cleanCommand.execute(context));
+
+		// two lines sharing their company, timetable and scheduled stop points
+		ContextHolder.setContext("chouette_gui");
+		Referential referential = new Referential();
+		lineDao.create(createLineStructure(referential, 1));
+		lineDao.create(createLineStructure(referential, 2));
+
+		Command command = CommandFactory.create(initialContext, TransferExporterCommand.class.getName());
+		Assert.assertTrue(command.execute(context));
+		Assert.assertFalse(new File(f, mobi.chouette.exchange.transfer.Constant.TRANSFER_CHECKPOINT_FILE).exists(), "checkpoint removed once transfer completed");
+
+		ContextHolder.setContext("chouette_gui_transfer");
+		try {
+			utx.begin();
+			em.joinTransaction();
+
+			Line line1 = lineDao.findByObjectId("TST:Line:1");
+			Line line2 = lineDao.findByObjectId("TST:Line:2");
+			Assert.assertNotNull(line1, "Line 1 not found");
+			Assert.assertNotNull(line2, "Line 2 not found");
+			assertEquals(line2.getCompany().getId(), line1.getCompany().getId(), "company transferred once");
+			VehicleJourney vj1 = vjDao.findByObjectId("TST:ServiceJourney:1");
+			VehicleJourney vj2 = vjDao.findByObjectId("TST:ServiceJourney:2");
+			assertEquals(vj2.getTimetables().get(0).getId(), vj1.getTimetables().get(0).getId(), "timetable transferred once");
+			assertEquals(vj2.getVehicleJourneyAtStops().size(), 2, "vehicleJourneyAtStop count");
+		} finally {
+			utx.rollback();
+		}
+	}
+
 	protected Line createLineStructure(Referential referential) {
+		return createLineStructure(referential, 1);
+	}
+
+	protected Line createLineStructure(Referential referential, int n) {
 
 		Company c = ObjectFactory.getCompany(referential, "TST:Company:1");
 		c.setName("CompanyName");
 
-		Line l = ObjectFactory.getLine(referential, "TST:Line:1");
+		Line l = ObjectFactory.getLine(referential, "TST:Line:" + n);
 		l.setName("TestLine");
 		l.setCompany(c);
 
-		Route r = ObjectFactory.getRoute(referential, "TST:Route:1");
+		Route r = ObjectFactory.getRoute(referential, "TST:Route:" + n);
 		r.setName("RouteName");
 		r.setLine(l);
 
-		JourneyPattern jp = ObjectFactory.getJourneyPattern(referential, "TST:JourneyPattern:1");
+		JourneyPattern jp = ObjectFactory.getJourneyPattern(referential, "TST:JourneyPattern:" + n);
 		jp.setName("JourneyPatternName");
 		jp.setRoute(r);
 
@@ -242,7 +293,7 @@ public class TransferExporterCommandTest extends Arquillian implements mobi.chou
 		stop1.setDetached(false);
 		stop1.setAreaType(ChouetteAreaEnum.CommercialStopPoint);
 
-		StopPoint stopPoint1 = ObjectFactory.getStopPoint(referential, "TST:StopPoint:1");
+		StopPoint stopPoint1 = ObjectFactory.getStopPoint(referential, "TST:StopPoint:1-" + n);
 		ScheduledStopPoint scheduledStopPoint1 = ObjectFactory.getScheduledStopPoint(referential, "TST:ScheduledStopPoint:1");
 		stopPoint1.setScheduledStopPoint(scheduledStopPoint1);
 		stopPoint1.getScheduledStopPoint().setContainedInStopAreaRef(new SimpleObjectReference<>(stop1));
@@ -255,7 +306,7 @@ public class TransferExporterCommandTest extends Arquillian implements mobi.chou
 		stop2.setDetached(false);
 		stop2.setAreaType(ChouetteAreaEnum.CommercialStopPoint);
 
-		StopPoint stopPoint2 = ObjectFactory.getStopPoint(referential, "TST:StopPoint:2");
+		StopPoint stopPoint2 = ObjectFactory.getStopPoint(referential, "TST:StopPoint:2-" + n);
 		ScheduledStopPoint scheduledStopPoint2= ObjectFactory.getScheduledStopPoint(referential, "TST:ScheduledStopPoint:2");
 		stopPoint2.setScheduledStopPoint(scheduledStopPoint2);
 		stopPoint2.getScheduledStopPoint().setContainedInStopAreaRef(new SimpleObjectReference<>(stop2));
@@ -269,19 +320,19 @@ public class TransferExporterCommandTest extends Arquillian implements mobi.chou
 		p.setEndDate(LocalDate.now().plusDays(10));
 		t.addPeriod(p);
 
-		VehicleJourney vj = ObjectFactory.getVehicleJourney(referential, "TST:ServiceJourney:1");
+		VehicleJourney vj = ObjectFactory.getVehicleJourney(referential, "TST:ServiceJourney:" + n);
 		vj.setJourneyPattern(jp);
 		vj.setRoute(r);
 		vj.setCompany(c);
 
 		vj.addTimetable(t);
 
-		VehicleJourneyAtStop vjStop1 = ObjectFactory.getVehicleJourneyAtStop(referential,"TST:TimetabledPassingTime:1");
+		VehicleJourneyAtStop vjStop1 = ObjectFactory.getVehicleJourneyAtStop(referential,"TST:TimetabledPassingTime:1-" + n);
 		vjStop1.setDepartureTime(LocalTime.now());
 		vjStop1.setStopPoint(stopPoint1);
 		vjStop1.setVehicleJourney(vj);
 
-		VehicleJourneyAtStop vjStop2 = ObjectFactory.getVehicleJourneyAtStop(referential,"TST:TimetabledPassingTime:2");
+		VehicleJourneyAtStop vjStop2 = ObjectFactory.getVehicleJourneyAtStop(referential,"TST:TimetabledPassingTime:2-" + n);
 		vjStop2.setDepartureTime(LocalTime.now());
 		vjStop2.setStopPoint(stopPoint2);
 		vjStop2.setVehicleJourney(vj);
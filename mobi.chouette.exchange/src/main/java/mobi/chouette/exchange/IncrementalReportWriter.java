@@ -0,0 +1,156 @@
+package mobi.chouette.exchange;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import mobi.chouette.common.Constant;
+import mobi.chouette.common.Context;
+import mobi.chouette.common.JobData;
+import mobi.chouette.common.file.FileStoreFactory;
+import mobi.chouette.exchange.report.Report;
+import mobi.chouette.exchange.validation.report.CheckPointErrorReport;
+import mobi.chouette.exchange.validation.report.ValidationReport;
+
+/**
+ * saves the reports of a job to the file store without building them in memory
+ * <br/>
+ * Validation errors are only ever appended to a validation report : they are printed once to a local journal as they
+ * come, and the complete report is assembled from the journal when published. The action report is spooled to a local
+ * file and only published when its content changed. Published files keep the format of {@link Report#print}.
+ */
+public class IncrementalReportWriter implements Constant {
+
+	public static final String REPORT_WRITER = "report_writer";
+
+	public static final String JOURNAL_SUFFIX = ".journal";
+
+	public static final String SPOOL_SUFFIX = ".part";
+
+	private final Path directory;
+
+	private ValidationReport journaledReport;
+
+	private int journaledErrorCount = 0;
+
+	private CheckPointErrorReport lastJournaledError;
+
+	private long publishedActionReportChecksum = -1;
+
+	private long publishedActionReportLength = -1;
+
+	IncrementalReportWriter(Path directory) {
+		this.directory = directory;
+	}
+
+	public static IncrementalReportWriter getInstance(Context context) {
+		return (IncrementalReportWriter) context.computeIfAbsent(REPORT_WRITER, k -> {
+			JobData jobData = (JobData) context.get(JOB_DATA);
+			return new IncrementalReportWriter(Paths.get(jobData.getPathName()));
+		});
+	}
+
+	/**
+	 * spool the report locally and publish it if it changed since the last call
+	 */
+	public synchronized void saveActionReport(Report report) throws IOException {
+		// the job directory only exists locally when the file store is local
+		Files.createDirectories(directory);
+		File spool = directory.resolve(REPORT_FILE + SPOOL_SUFFIX).toFile();
+		CRC32 checksum = new CRC32();
+		try (PrintStream stream = new PrintStream(new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(spool)),
+				checksum), false, "UTF-8")) {
+			report.print(stream);
+		}
+		if (checksum.getValue() == publishedActionReportChecksum && spool.length() == publishedActionReportLength) {
+			return;
+		}
+		try (InputStream content = new FileInputStream(spool)) {
+			FileStoreFactory.getFileStore().writeFile(directory.resolve(REPORT_FILE), content);
+		}
+		publishedActionReportChecksum = checksum.getValue();
+		publishedActionReportLength = spool.length();
+	}
+
+	/**
+	 * append the errors added since the last call to the local journal
+	 */
+	public synchronized void appendValidationErrors(ValidationReport report) throws IOException {
+		File journal = directory.resolve(VALIDATION_FILE + JOURNAL_SUFFIX).toFile();
+		List<CheckPointErrorReport> errors = report.getCheckPointErrors();
+		int errorCount;
+		boolean append;
+		synchronized (errors) {
+			errorCount = errors.size();
+			append = report == journaledReport && errorCount >= journaledErrorCount
+					&& (journaledErrorCount == 0 || errors.get(journaledErrorCount - 1) == lastJournaledError);
+			lastJournaledError = errorCount == 0 ? null : errors.get(errorCount - 1);
+		}
+		if (append && errorCount == journaledErrorCount) {
+			return;
+		}
+		// a new or cleared report restarts the journal
+		int from = append ? journaledErrorCount : 0;
+		Files.createDirectories(directory);
+		try (PrintStream stream = new PrintStream(new BufferedOutputStream(new FileOutputStream(journal, append)), false,
+				"UTF-8")) {
+			report.printErrors(stream, new StringBuilder(), from, errorCount);
+		}
+		journaledReport = report;
+		journaledErrorCount = errorCount;
+	}
+
+	/**
+	 * complete the journal and publish the whole validation report
+	 */
+	public synchronized void saveValidationReport(ValidationReport report) throws IOException {
+		appendValidationErrors(report);
+		File journal = directory.resolve(VALIDATION_FILE + JOURNAL_SUFFIX).toFile();
+
+		StringBuilder ret = new StringBuilder();
+		ByteArrayOutputStream head = new ByteArrayOutputStream();
+		try (PrintStream stream = new PrintStream(head, false, "UTF-8")) {
+			report.printHead(stream, ret);
+			if (journaledErrorCount > 0)
+				report.printErrorsHead(stream, ret);
+		}
+		ByteArrayOutputStream tail = new ByteArrayOutputStream();
+		try (PrintStream stream = new PrintStream(tail, false, "UTF-8")) {
+			if (journaledErrorCount > 0)
+				report.printErrorsTail(stream, ret);
+			report.printTail(stream);
+		}
+
+		InputStream errors = journaledErrorCount > 0 ? new FileInputStream(journal) : new ByteArrayInputStream(new byte[0]);
+		try (InputStream content = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+				new ByteArrayInputStream(head.toByteArray()), errors, new ByteArrayInputStream(tail.toByteArray()))))) {
+			FileStoreFactory.getFileStore().writeFile(directory.resolve(VALIDATION_FILE), content);
+		}
+	}
+
+	/**
+	 * remove the local working files
+	 */
+	public synchronized void close() {
+		directory.resolve(REPORT_FILE + SPOOL_SUFFIX).toFile().delete();
+		directory.resolve(VALIDATION_FILE + JOURNAL_SUFFIX).toFile().delete();
+		journaledReport = null;
+		journaledErrorCount = 0;
+		lastJournaledError = null;
+	}
+}
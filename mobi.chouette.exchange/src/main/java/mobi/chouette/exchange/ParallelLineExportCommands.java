@@ -0,0 +1,23 @@
+package mobi.chouette.exchange;
+
+import mobi.chouette.common.Context;
+
+/**
+ *
+ * give line contexts for exporters supporting parallel line processing <br/>
+ * line processing commands are executed concurrently, each on a line context owned by a single worker and reused
+ * for the lines it exports:
+ * <ul>
+ * <li>createLineContext : called on the job thread, copy of the job context with the per line data of the worker
+ * (exportable data, marshaller ...)</li>
+ * <li>mergeLineContext : called on the job thread once all lines are exported, merge the shared data collected by the
+ * worker into the job context before post processing</li>
+ * </ul>
+ *
+ */
+public interface ParallelLineExportCommands extends ProcessingCommands {
+
+	Context createLineContext(Context context) throws Exception;
+
+	void mergeLineContext(Context context, Context lineContext);
+}
@@ -0,0 +1,22 @@
+package mobi.chouette.exchange;
+
+import java.util.List;
+
+import mobi.chouette.common.Context;
+import mobi.chouette.exchange.importer.ParallelLineProcessingCommand.LineStages;
+
+/**
+ *
+ * give line processing commands split in stages for importers supporting parallel line processing <br/>
+ * each element of the returned list replaces one element of getLineProcessingCommands:
+ * <ul>
+ * <li>prepare : optional, executed in parallel on a copy of the context, must not use the referential</li>
+ * <li>register : executed in line order on the job context (parsing, database registration, copy)</li>
+ * <li>validate : optional, executed in parallel on a copy of the context with the line referential</li>
+ * </ul>
+ *
+ */
+public interface ParallelLineProcessingCommands extends ProcessingCommands {
+
+	List<LineStages> getParallelLineProcessingCommands(Context context, boolean withDao);
+}
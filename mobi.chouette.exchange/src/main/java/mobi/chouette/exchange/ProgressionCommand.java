@@ -1,11 +1,6 @@
 package mobi.chouette.exchange;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Date;
 
 import javax.naming.InitialContext;
@@ -14,16 +9,15 @@ import lombok.extern.log4j.Log4j;
 import mobi.chouette.common.Color;
 import mobi.chouette.common.Constant;
 import mobi.chouette.common.Context;
-import mobi.chouette.common.JobData;
 import mobi.chouette.common.chain.Command;
 import mobi.chouette.common.chain.CommandFactory;
-import mobi.chouette.common.file.FileStoreFactory;
 import mobi.chouette.exchange.parameters.AbstractParameter;
 import mobi.chouette.exchange.report.ProgressionReport;
 import mobi.chouette.exchange.report.Report;
 import mobi.chouette.exchange.report.ReportConstant;
 import mobi.chouette.exchange.report.StepProgression;
 import mobi.chouette.exchange.report.StepProgression.STEP;
+import mobi.chouette.exchange.validation.report.ValidationReport;
 
 import com.jamonapi.Monitor;
 import com.jamonapi.MonitorFactory;
@@ -60,6 +54,9 @@ public class ProgressionCommand implements Command, Constant, ReportConstant {
 	public void dispose(Context context) {
 		saveReport(context, true);
 		saveMainValidationReport(context, true);
+		if (!context.containsKey("testng") && context.containsKey(JOB_DATA)) {
+			IncrementalReportWriter.getInstance(context).close();
+		}
 
 		Monitor monitor = MonitorFactory.getTimeMonitor("ActionReport");
 		if (monitor != null)
@@ -80,15 +77,8 @@ public class ProgressionCommand implements Command, Constant, ReportConstant {
 		if (force || report.getDate().before(delay)) {
 			report.setDate(date);
 			Monitor monitor = MonitorFactory.start("ActionReport");
-			JobData jobData = (JobData) context.get(JOB_DATA);
-			Path path = Paths.get(jobData.getPathName(), REPORT_FILE);
-			// pseudo pretty print
 			try {
-				ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-				PrintStream stream = new PrintStream(outputStream, false, "UTF-8");
-				report.print(stream);
-				stream.close();
-				FileStoreFactory.getFileStore().writeFile(path, new ByteArrayInputStream(outputStream.toByteArray()));
+				IncrementalReportWriter.getInstance(context).saveActionReport(report);
 			} catch (Exception e) {
 				log.error("failed to save report", e);
 			}
@@ -105,7 +95,7 @@ public class ProgressionCommand implements Command, Constant, ReportConstant {
 	public void saveMainValidationReport(Context context, boolean force) {
 		if (context.containsKey("testng"))
 			return;
-		Report report = (Report) context.get(VALIDATION_REPORT);
+		ValidationReport report = (ValidationReport) context.get(VALIDATION_REPORT);
 		// ne pas sauver un rapport null ou vide
 		if (report == null || report.isEmpty())
 			return;
@@ -114,16 +104,8 @@ public class ProgressionCommand implements Command, Constant, ReportConstant {
 		if (force || report.getDate().before(delay)) {
 			report.setDate(date);
 			Monitor monitor = MonitorFactory.start("ValidationReport");
-			JobData jobData = (JobData) context.get(JOB_DATA);
-			Path path = Paths.get(jobData.getPathName(), VALIDATION_FILE);
-
-			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
 			try {
-				PrintStream stream = new PrintStream(outputStream, false, "UTF-8");
-				report.print(stream);
-				stream.close();
-				FileStoreFactory.getFileStore().writeFile(path, new ByteArrayInputStream(outputStream.toByteArray()));
-
+				IncrementalReportWriter.getInstance(context).saveValidationReport(report);
 			} catch (Exception e) {
 				log.error("failed to save validation report", e);
 			}
@@ -132,6 +114,27 @@ public class ProgressionCommand implements Command, Constant, ReportConstant {
 
 	}
 
+	/**
+	 * append new validation errors to the local journal, the report itself is published on step changes and at
+	 * the end of the job
+	 *
+	 * @param context
+	 */
+	public void journalMainValidationReport(Context context) {
+		if (context.containsKey("testng"))
+			return;
+		ValidationReport report = (ValidationReport) context.get(VALIDATION_REPORT);
+		if (report == null || report.isEmpty())
+			return;
+		Monitor monitor = MonitorFactory.start("ValidationReport");
+		try {
+			IncrementalReportWriter.getInstance(context).appendValidationErrors(report);
+		} catch (Exception e) {
+			log.error("failed to journal validation report", e);
+		}
+		monitor.stop();
+	}
+
 	@Override
 	public boolean execute(Context context) throws Exception {
 		boolean result = SUCCESS;
@@ -141,9 +144,7 @@ public class ProgressionCommand implements Command, Constant, ReportConstant {
 		step.setRealized(step.getRealized() + 1);
 		boolean force = report.getProgression().getCurrentStep() != STEP.PROCESSING.ordinal() + 1;
 		saveReport(context, force);
-		if (force && context.containsKey(VALIDATION_REPORT)) {
-			saveMainValidationReport(context, force);
-		}
+		journalMainValidationReport(context);
 		if (context.containsKey(CANCEL_ASKED) || Thread.currentThread().isInterrupted()) {
 			log.info("Command cancelled");
 			throw new CommandCancelledException(COMMAND_CANCELLED);
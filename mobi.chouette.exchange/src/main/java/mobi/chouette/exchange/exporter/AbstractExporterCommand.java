@@ -7,13 +7,17 @@ import java.util.List;
 import java.util.Set;
 
 import javax.ejb.EJB;
+import javax.naming.InitialContext;
 
 import lombok.extern.log4j.Log4j;
 import mobi.chouette.common.Constant;
 import mobi.chouette.common.Context;
 import mobi.chouette.common.JobData;
 import mobi.chouette.common.chain.Command;
+import mobi.chouette.common.chain.CommandFactory;
+import mobi.chouette.common.parallel.SharedTaskExecutor;
 import mobi.chouette.exchange.DaoReader;
+import mobi.chouette.exchange.ParallelLineExportCommands;
 import mobi.chouette.exchange.ProcessingCommands;
 import mobi.chouette.exchange.ProgressionCommand;
 import mobi.chouette.exchange.parameters.AbstractExportParameter;
@@ -22,6 +26,8 @@ import mobi.chouette.exchange.report.ActionReporter;
 @Log4j
 public class AbstractExporterCommand implements Constant {
 
+	public static final String LINE_PROCESSING_THREADS_PROPERTY = "iev.export.line.processing.threads";
+
 	@EJB DaoReader reader;
 	
 	protected enum Mode {
@@ -77,28 +83,48 @@ public class AbstractExporterCommand implements Constant {
                 progression.execute(context);
 
                 // process lines
-                List<? extends Command> lineProcessingCommands = commands.getLineProcessingCommands(context, true);
-                progression.start(context, lines.size());
                 int lineCount = 0;
-
-                // export each line
-                for (Long line : lines) {
-                    context.put(LINE_ID, line);
-                    boolean exportFailed = false;
-                    for (Command exportCommand : lineProcessingCommands) {
-                        result = exportCommand.execute(context);
-                        if (!result) {
-                            exportFailed = true;
-                            break;
-                        }
+                int lineProcessingThreads = getLineProcessingThreads(context);
+                if (lineProcessingThreads > 1 && commands instanceof ParallelLineExportCommands) {
+                    ParallelLineExportCommand master = (ParallelLineExportCommand) CommandFactory.create(
+                            (InitialContext) context.get(INITIAL_CONTEXT), ParallelLineExportCommand.class.getName());
+                    master.setIgnored(continueLineProcesingOnError);
+                    master.setThreads(lineProcessingThreads);
+                    master.setProgression(progression);
+                    master.setCommands((ParallelLineExportCommands) commands);
+                    for (Long line : lines) {
+                        master.add(line);
                     }
-                    progression.execute(context);
-                    if (!exportFailed) {
-                        lineCount++;
-                    } else if (!continueLineProcesingOnError) {
+                    log.info("exporting " + master.getLineCount() + " lines with " + lineProcessingThreads + " threads");
+                    progression.start(context, lines.size());
+                    if (master.execute(context) == ERROR) {
                         reporter.setActionError(context, ActionReporter.ERROR_CODE.INVALID_DATA, "unable to export data");
                         return ERROR;
                     }
+                    lineCount = master.getExportedLineCount();
+                } else {
+                    List<? extends Command> lineProcessingCommands = commands.getLineProcessingCommands(context, true);
+                    progression.start(context, lines.size());
+
+                    // export each line
+                    for (Long line : lines) {
+                        context.put(LINE_ID, line);
+                        boolean exportFailed = false;
+                        for (Command exportCommand : lineProcessingCommands) {
+                            result = exportCommand.execute(context);
+                            if (!result) {
+                                exportFailed = true;
+                                break;
+                            }
+                        }
+                        progression.execute(context);
+                        if (!exportFailed) {
+                            lineCount++;
+                        } else if (!continueLineProcesingOnError) {
+                            reporter.setActionError(context, ActionReporter.ERROR_CODE.INVALID_DATA, "unable to export data");
+                            return ERROR;
+                        }
+                    }
                 }
 
                 // check if data where exported
@@ -152,4 +178,14 @@ public class AbstractExporterCommand implements Constant {
 		return result;
 	}
 
+	/**
+	 * number of lines exported concurrently, from iev.export.line.processing.threads.&lt;referential&gt; or
+	 * iev.export.line.processing.threads, 1 if not set ; at most the thread cap per job of the
+	 * {@link SharedTaskExecutor}
+	 */
+	protected int getLineProcessingThreads(Context context) {
+		return SharedTaskExecutor.capJobConcurrency("line export",
+				SharedTaskExecutor.getJobConcurrency(context, LINE_PROCESSING_THREADS_PROPERTY, 1));
+	}
+
 }
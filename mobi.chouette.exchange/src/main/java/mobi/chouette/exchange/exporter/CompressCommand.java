@@ -2,8 +2,15 @@ package mobi.chouette.exchange.exporter;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.naming.InitialContext;
 
@@ -14,18 +21,30 @@ import mobi.chouette.common.FileUtil;
 import mobi.chouette.common.JobData;
 import mobi.chouette.common.chain.Command;
 import mobi.chouette.common.chain.CommandFactory;
+import mobi.chouette.common.file.FileStore;
 import mobi.chouette.common.file.FileStoreFactory;
+import mobi.chouette.common.parallel.SharedTaskExecutor;
 
 import com.jamonapi.Monitor;
 import com.jamonapi.MonitorFactory;
 import mobi.chouette.common.monitor.JamonUtils;
 import org.apache.commons.io.FileUtils;
 
+/**
+ * Zip the output directory of the job straight into the permanent file store.
+ * <br/>
+ * The archive is never written to local disk as a whole : it is piped to the file store while files are deflated in
+ * parallel (see {@link FileUtil#compress(Path, java.io.OutputStream, int)}) by at most
+ * {@link SharedTaskExecutor#getDefaultMaxConcurrency()} threads. An archive truncated by a compression failure is
+ * deleted from the file store.
+ */
 @Log4j
 public class CompressCommand implements Command, Constant {
 
 	public static final String COMMAND = "CompressCommand";
 
+	private static final int PIPE_SIZE = 1 << 16;
+
 	@Override
 	public boolean execute(Context context) throws Exception {
 
@@ -39,17 +58,13 @@ public class CompressCommand implements Command, Constant {
 			String file = jobData.getOutputFilename();
 			Path target = Paths.get(path, OUTPUT);
 
-			Path tmpFilename= Paths.get(target.toString(),file);
-			File tmpFile= tmpFilename.toFile();
-			if (tmpFile.exists()) tmpFile.delete();
-
-			FileUtil.compress(target.toString(), tmpFile.toString());
+			// do not include an archive left by a previous run
+			File previous = Paths.get(target.toString(), file).toFile();
+			if (previous.exists()) previous.delete();
 
 			// Store file in permanent storage
 			Path filename = Paths.get(path, file);
-			FileStoreFactory.getFileStore().writeFile(filename, FileUtils.openInputStream(tmpFile));
-
-			tmpFile.delete();
+			writeArchive(target, filename);
 
 			result = SUCCESS;
 			try {
@@ -67,6 +82,40 @@ public class CompressCommand implements Command, Constant {
 		return result;
 	}
 
+	private void writeArchive(Path directory, Path filename) throws Exception {
+		FileStore fileStore = FileStoreFactory.getFileStore();
+		ExecutorService writer = Executors.newSingleThreadExecutor();
+		PipedInputStream in = new PipedInputStream(PIPE_SIZE);
+		PipedOutputStream out = new PipedOutputStream(in);
+		try {
+			Future<?> compression = writer.submit(() -> {
+				try (PipedOutputStream zipOutput = out) {
+					compress(directory, zipOutput);
+				}
+				return null;
+			});
+			try {
+				fileStore.writeFile(filename, in);
+			} finally {
+				// unblocks the compression if the file store stopped reading
+				in.close();
+			}
+			try {
+				compression.get();
+			} catch (ExecutionException e) {
+				// the file store received a truncated archive
+				fileStore.delete(filename);
+				throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+			}
+		} finally {
+			writer.shutdownNow();
+		}
+	}
+
+	protected void compress(Path directory, OutputStream output) throws IOException {
+		FileUtil.compress(directory, output, SharedTaskExecutor.getDefaultMaxConcurrency());
+	}
+
 	public static class DefaultCommandFactory extends CommandFactory {
 
 		@Override
@@ -0,0 +1,203 @@
+package mobi.chouette.exchange.exporter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import javax.naming.InitialContext;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j;
+import mobi.chouette.common.Constant;
+import mobi.chouette.common.Context;
+import mobi.chouette.common.chain.Command;
+import mobi.chouette.common.chain.CommandFactory;
+import mobi.chouette.common.monitor.JamonUtils;
+import mobi.chouette.common.parallel.SharedTaskExecutor;
+import mobi.chouette.exchange.ParallelLineExportCommands;
+import mobi.chouette.exchange.ProgressionCommand;
+import mobi.chouette.persistence.hibernate.ContextHolder;
+
+import com.jamonapi.Monitor;
+import com.jamonapi.MonitorFactory;
+
+/**
+ * Export lines concurrently on the {@link SharedTaskExecutor}, at most threads lines at a time.
+ * <br/>
+ * Each line is exported on a line context given by {@link ParallelLineExportCommands#createLineContext}; line contexts
+ * are reused from one line to the next, so that at most threads line contexts are created, and merged into the job
+ * context by {@link ParallelLineExportCommands#mergeLineContext} once all lines are exported. Line commands are
+ * executed in the schema of the job referential and must run their own transaction.
+ * <br/>
+ * Line results are checked in line order on the job thread: exceptions abort the export and a line in error stops it
+ * unless ignored is set. Line commands sharing job data (action report, metadata) must lock it with
+ * {@link #getReportLock(Context)}.
+ */
+@Log4j
+public class ParallelLineExportCommand implements Command, Constant {
+
+	public static final String COMMAND = "ParallelLineExportCommand";
+
+	private List<Long> lines = new ArrayList<>();
+
+	@Getter
+	@Setter
+	private int threads = 1;
+
+	@Getter
+	@Setter
+	private boolean ignored = false;
+
+	@Getter
+	@Setter
+	private ProgressionCommand progression;
+
+	@Getter
+	@Setter
+	private ParallelLineExportCommands commands;
+
+	@Getter
+	private int exportedLineCount;
+
+	public void add(Long lineId) {
+		lines.add(lineId);
+	}
+
+	public int getLineCount() {
+		return lines.size();
+	}
+
+	/**
+	 * lock guarding the action report and metadata of a job while its lines are exported
+	 */
+	public static Object getReportLock(Context context) {
+		Object report = context.get(REPORT);
+		return report != null ? report : context;
+	}
+
+	@Override
+	public boolean execute(Context context) throws Exception {
+
+		if (context == null) {
+			throw new IllegalArgumentException("Context is null");
+		}
+		Monitor monitor = MonitorFactory.start(COMMAND);
+		exportedLineCount = 0;
+
+		int poolSize = Math.max(1, threads);
+		SharedTaskExecutor executor = new SharedTaskExecutor(COMMAND, context, poolSize);
+
+		List<? extends Command> lineCommands = commands.getLineProcessingCommands(context, true);
+		String schema = ContextHolder.getContext();
+		List<Context> lineContexts = new ArrayList<>();
+		Deque<Context> idleContexts = new ArrayDeque<>();
+		Deque<Future<Boolean>> exports = new ArrayDeque<>();
+
+		try {
+			for (Long line : lines) {
+
+				// keep at most poolSize lines in progress
+				while (exports.size() >= poolSize) {
+					if (!isExported(context, executor, exports.poll()))
+						return ERROR;
+				}
+
+				Context lineContext;
+				synchronized (idleContexts) {
+					lineContext = idleContexts.poll();
+				}
+				if (lineContext == null) {
+					lineContext = commands.createLineContext(context);
+					lineContexts.add(lineContext);
+				}
+				exports.add(executor.submit("export", new ExportTask(line, lineCommands, lineContext, idleContexts, schema)));
+			}
+
+			while (!exports.isEmpty()) {
+				if (!isExported(context, executor, exports.poll()))
+					return ERROR;
+			}
+		} finally {
+			executor.shutdown();
+			JamonUtils.logMagenta(log, monitor);
+		}
+
+		for (Context lineContext : lineContexts) {
+			commands.mergeLineContext(context, lineContext);
+		}
+		return SUCCESS;
+	}
+
+	private boolean isExported(Context context, SharedTaskExecutor executor, Future<Boolean> export) throws Exception {
+		boolean result = executor.get(export);
+		if (progression != null) {
+			synchronized (getReportLock(context)) {
+				progression.execute(context);
+			}
+		}
+		if (result == SUCCESS) {
+			exportedLineCount++;
+			return true;
+		}
+		return ignored;
+	}
+
+	private static class ExportTask implements Callable<Boolean> {
+
+		private Long lineId;
+
+		private List<? extends Command> commands;
+
+		private Context context;
+
+		private Deque<Context> idleContexts;
+
+		private String schema;
+
+		public ExportTask(Long lineId, List<? extends Command> commands, Context context, Deque<Context> idleContexts,
+				String schema) {
+			this.lineId = lineId;
+			this.commands = commands;
+			this.context = context;
+			this.idleContexts = idleContexts;
+			this.schema = schema;
+		}
+
+		@Override
+		public Boolean call() throws Exception {
+			ContextHolder.setContext(schema);
+			try {
+				context.put(LINE_ID, lineId);
+				for (Command command : commands) {
+					if (!command.execute(context))
+						return ERROR;
+				}
+				return SUCCESS;
+			} finally {
+				ContextHolder.setContext(null);
+				synchronized (idleContexts) {
+					idleContexts.add(context);
+				}
+			}
+		}
+	}
+
+	public static class DefaultCommandFactory extends CommandFactory {
+
+		@Override
+		protected Command create(InitialContext context) throws IOException {
+			Command result = new ParallelLineExportCommand();
+			return result;
+		}
+	}
+
+	static {
+		CommandFactory.factories.put(ParallelLineExportCommand.class.getName(),
+				new ParallelLineExportCommand.DefaultCommandFactory());
+	}
+}
@@ -1,7 +1,6 @@
 package mobi.chouette.exchange.importer;
 
 import java.util.List;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import javax.naming.InitialContext;
@@ -12,8 +11,12 @@ import mobi.chouette.common.Context;
 import mobi.chouette.common.chain.ChainCommand;
 import mobi.chouette.common.chain.Command;
 import mobi.chouette.common.chain.CommandFactory;
+import mobi.chouette.common.parallel.SharedTaskExecutor;
+import mobi.chouette.exchange.ParallelLineProcessingCommands;
 import mobi.chouette.exchange.ProcessingCommands;
 import mobi.chouette.exchange.ProgressionCommand;
+import mobi.chouette.exchange.importer.ParallelLineProcessingCommand.LineStages;
+import mobi.chouette.exchange.parameters.AbstractImportParameter;
 import mobi.chouette.exchange.report.ActionReporter;
 import mobi.chouette.exchange.report.ActionReporter.OBJECT_TYPE;
 import mobi.chouette.model.util.Referential;
@@ -21,6 +24,8 @@ import mobi.chouette.model.util.Referential;
 @Log4j
 public class AbstractImporterCommand implements Constant {
 
+	public static final String LINE_PROCESSING_THREADS_PROPERTY = "iev.import.line.processing.threads";
+
 	protected enum Mode {
 		line, stopareas
 	};
@@ -49,45 +54,61 @@ public class AbstractImporterCommand implements Constant {
 			}
 
 			if (mode.equals(Mode.line)) {
-				// get lines info
-				List<? extends Command> lineProcessingCommands = commands.getLineProcessingCommands(context, true);
+				// whether line errors stop the import, processing commands may set it from their parameters
+				context.put(CONTINUE_ON_LINE_ERRORS, continueProcesingOnError);
+				int lineProcessingThreads = getLineProcessingThreads(context);
+				if (lineProcessingThreads > 1 && commands instanceof ParallelLineProcessingCommands) {
+					// get lines info split in stages
+					List<LineStages> lineProcessingStages = ((ParallelLineProcessingCommands) commands)
+							.getParallelLineProcessingCommands(context, true);
+
+					ParallelLineProcessingCommand master = (ParallelLineProcessingCommand) CommandFactory.create(
+							initialContext, ParallelLineProcessingCommand.class.getName());
+					master.setIgnored(continueProcesingOnError);
+					master.setThreads(lineProcessingThreads);
+					master.setProgression(progression);
+					for (LineStages stages : lineProcessingStages) {
+						master.add(stages);
+					}
+					progression.execute(context);
 
-				ChainCommand master = (ChainCommand) CommandFactory
-						.create(initialContext, ChainCommand.class.getName());
-				master.setIgnored(continueProcesingOnError);
+					clearReferential(context);
+					if (master.getLineCount() > 0) {
+						log.info("processing " + master.getLineCount() + " lines with " + lineProcessingThreads + " threads");
+						progression.start(context, master.getLineCount());
+						if (master.execute(context) == ERROR && !continueProcesingOnError) {
+							return ERROR;
+						}
+					}
+				} else {
+					// get lines info
+					List<? extends Command> lineProcessingCommands = commands.getLineProcessingCommands(context, true);
 
-				for (Command command : lineProcessingCommands) {
-					master.add(progression);
-					master.add(command);
-				}
-				progression.execute(context);
+					ChainCommand master = (ChainCommand) CommandFactory.create(initialContext,
+							ChainCommand.class.getName());
+					master.setIgnored(continueProcesingOnError);
 
-				Referential referential = (Referential) context.get(REFERENTIAL);
-				if (referential != null) {
-					referential.clear(true);
-					// System.gc();
-				}
-				if (lineProcessingCommands.size() > 0) {
-					progression.start(context, lineProcessingCommands.size());
-					if (master.execute(context) == ERROR && !continueProcesingOnError) {
-						return ERROR;
+					for (Command command : lineProcessingCommands) {
+						master.add(progression);
+						master.add(command);
 					}
-				}
+					progression.execute(context);
 
-				// check if CopyCommands ended (with timeout to 5 minutes >
-				// transaction timeout)
-				if (context.containsKey(COPY_IN_PROGRESS)) {
-					long timeout = 5;
-					TimeUnit unit = TimeUnit.MINUTES;
-					List<Future<Void>> futures = (List<Future<Void>>) context.get(COPY_IN_PROGRESS);
-					for (Future<Void> future : futures) {
-						if (!future.isDone()) {
-							log.info("waiting for CopyCommand");
-							future.get(timeout, unit);
+					clearReferential(context);
+					if (lineProcessingCommands.size() > 0) {
+						progression.start(context, lineProcessingCommands.size());
+						if (master.execute(context) == ERROR && !continueProcesingOnError) {
+							return ERROR;
 						}
 					}
 				}
 
+				// wait for the COPY batches of the lines, failures are reported on their line
+				if (!waitForCopy(context) && !Boolean.TRUE.equals(context.get(CONTINUE_ON_LINE_ERRORS))) {
+					reporter.setActionError(context, ActionReporter.ERROR_CODE.INTERNAL_ERROR, "lines could not be written");
+					return ERROR;
+				}
+
 			} else {
 				// get stop info
 				List<? extends Command> stopProcessingCommands = commands.getStopAreaProcessingCommands(context, true);
@@ -135,8 +156,56 @@ public class AbstractImporterCommand implements Constant {
 				log.warn("problem on dispose commands " + e.getMessage());
 			}
 			context.remove(CACHE);
+			context.remove(CONTINUE_ON_LINE_ERRORS);
+			CopyPipeline pipeline = (CopyPipeline) context.remove(COPY_IN_PROGRESS);
+			if (pipeline != null) {
+				pipeline.abort();
+			}
 		}
 		return result ; // && disposeResult;
 	}
 
+	/**
+	 * wait until pending COPY batches are written, failing if none completes within 5 minutes
+	 *
+	 * @return false if a batch failed
+	 */
+	private boolean waitForCopy(Context context) throws Exception {
+		CopyPipeline pipeline = (CopyPipeline) context.get(COPY_IN_PROGRESS);
+		if (pipeline == null) {
+			return true;
+		}
+		if (pipeline.getPendingBatches() > 0) {
+			log.info("waiting for CopyCommand");
+		}
+		pipeline.close(5, TimeUnit.MINUTES);
+		context.remove(COPY_IN_PROGRESS);
+		return !pipeline.reportFailures(context);
+	}
+
+	private void clearReferential(Context context) {
+		Referential referential = (Referential) context.get(REFERENTIAL);
+		if (referential != null) {
+			referential.clear(true);
+			// System.gc();
+		}
+	}
+
+	/**
+	 * number of lines processed concurrently : job parameter if set, else
+	 * iev.import.line.processing.threads.&lt;referential&gt; or iev.import.line.processing.threads system property,
+	 * else 1 (serial processing) ; at most the thread cap per job of the {@link SharedTaskExecutor}
+	 */
+	protected int getLineProcessingThreads(Context context) {
+		Object configuration = context.get(CONFIGURATION);
+		int threads;
+		if (configuration instanceof AbstractImportParameter
+				&& ((AbstractImportParameter) configuration).getLineProcessingThreads() > 0) {
+			threads = ((AbstractImportParameter) configuration).getLineProcessingThreads();
+		} else {
+			threads = SharedTaskExecutor.getJobConcurrency(context, LINE_PROCESSING_THREADS_PROPERTY, 1);
+		}
+		return SharedTaskExecutor.capJobConcurrency("line import", threads);
+	}
+
 }
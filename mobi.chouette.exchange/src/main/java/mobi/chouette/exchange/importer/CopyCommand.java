@@ -1,17 +1,10 @@
 package mobi.chouette.exchange.importer;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
 
 import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.Stateless;
-import javax.ejb.TransactionAttribute;
-import javax.ejb.TransactionAttributeType;
 import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
@@ -20,10 +13,18 @@ import lombok.extern.log4j.Log4j;
 import mobi.chouette.common.ContenerChecker;
 import mobi.chouette.common.Context;
 import mobi.chouette.common.PropertyNames;
+import mobi.chouette.common.PropertyUtil;
 import mobi.chouette.common.chain.Command;
 import mobi.chouette.common.chain.CommandFactory;
 import mobi.chouette.common.monitor.JamonUtils;
-import mobi.chouette.dao.VehicleJourneyDAO;
+import mobi.chouette.dao.BinaryCopyBuffer;
+import mobi.chouette.dao.BulkCopyDAO;
+import mobi.chouette.dao.LineDAO;
+import mobi.chouette.exchange.report.ActionReporter;
+import mobi.chouette.exchange.report.ActionReporter.ERROR_CODE;
+import mobi.chouette.model.Line;
+import mobi.chouette.model.util.NamingUtil;
+import mobi.chouette.model.util.Referential;
 import mobi.chouette.persistence.hibernate.ContextHolder;
 
 import com.jamonapi.Monitor;
@@ -36,57 +37,48 @@ public class CopyCommand implements Command {
 	public static final String COMMAND = "CopyCommand";
 
 	@EJB 
-	private VehicleJourneyDAO vehicleJourneyDAO;
+	private BulkCopyDAO bulkCopyDAO;
 	
 	@EJB 
 	private ContenerChecker checker;
 
+	@EJB
+	private LineDAO lineDAO;
+
 	@Resource(lookup = "java:comp/DefaultManagedExecutorService")
 	ManagedExecutorService executor;
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public boolean execute(Context context) throws Exception {
-		String sMaxCopy = System.getProperty(checker.getContext()+ PropertyNames.MAX_COPY_BY_JOB);
-		if (sMaxCopy == null) sMaxCopy = "5";
-		int maxCopy = Integer.parseInt(sMaxCopy);
-
 		boolean result = ERROR;
 
 		try {
+			CopyPipeline pipeline = (CopyPipeline) context.get(COPY_IN_PROGRESS);
 
 			Boolean optimized = (Boolean) context.get(OPTIMIZED);
-			if (optimized) {
-				List<Future<Void>> futures = (List<Future<Void>>) context.get(COPY_IN_PROGRESS);
-				if (futures == null) {
-					futures = new ArrayList<>();
-					context.put(COPY_IN_PROGRESS, futures);
-				}
-				while (futures.size() >= maxCopy)
-				{
-					for (Iterator<Future<Void>> iterator = futures.iterator(); iterator.hasNext();) {
-						Future<Void> future = iterator.next();
-						if (future.isDone()) iterator.remove();
-					}
-					if (futures.size() >= maxCopy)
-					{
-						for (Iterator<Future<Void>> iterator = futures.iterator(); iterator.hasNext();) {
-							Future<Void> future = iterator.next();
-							if (future.isDone()) iterator.remove();
-							else
-							{
-								log.info("too many copy in progress, waiting ...");
-								future.get();
-								break;
-							}
-						}						
-					}
+			BinaryCopyBuffer buffer = (BinaryCopyBuffer) context.remove(BUFFER);
+			String fingerprint = (String) context.remove(CONTENT_FINGERPRINT);
+			if (optimized && buffer != null) {
+				if (pipeline == null) {
+					pipeline = createPipeline();
+					context.put(COPY_IN_PROGRESS, pipeline);
 				}
-				CommandCallable callable = new CommandCallable();
-				callable.buffer = (String) context.remove(BUFFER);
-				callable.schema = ContextHolder.getContext();
-				Future<Void> future = executor.submit(callable);
-				futures.add(future);
+				Referential referential = (Referential) context.get(REFERENTIAL);
+				Line line = referential.getLines().values().iterator().next();
+				String lineId = line.getObjectId();
+				// the line is skipped as unchanged by later imports only once its passing times are written
+				Runnable written = fingerprint == null ? null
+						: () -> lineDAO.updateContentFingerprint(lineId, fingerprint);
+				pipeline.submit(lineId, NamingUtil.getName(line), buffer, written);
+			}
+
+			// failures of previous lines are reported on these lines, the current line goes on unless the import
+			// stops on line errors
+			if (pipeline != null && pipeline.reportFailures(context)
+					&& !Boolean.TRUE.equals(context.get(CONTINUE_ON_LINE_ERRORS))) {
+				ActionReporter.Factory.getInstance().setActionError(context, ERROR_CODE.INTERNAL_ERROR,
+						"lines could not be written");
+				return ERROR;
 			}
 
 			result = SUCCESS;
@@ -98,21 +90,21 @@ public class CopyCommand implements Command {
 		return result;
 	}
 
-	private class CommandCallable implements Callable<Void> {
-		private String buffer;
-		private String schema;
-
-		@Override
-		@TransactionAttribute(TransactionAttributeType.REQUIRED)
-		public Void call() throws Exception {
+	private CopyPipeline createPipeline() {
+		int maxCopy = getProperty(PropertyNames.MAX_COPY_BY_JOB, 5);
+		long maxBytes = getProperty(PropertyNames.MAX_COPY_MB_BY_JOB, 256) * 1024L * 1024L;
+		// a batch may be prepared while each writer loads one
+		CopyPipeline pipeline = new CopyPipeline(maxCopy, maxCopy * 2, maxBytes);
+		pipeline.start(executor, ContextHolder.getContext(), buffer -> {
 			Monitor monitor = MonitorFactory.start(COMMAND);
-			ContextHolder.setContext(schema);
-			vehicleJourneyDAO.copy(buffer);
+			bulkCopyDAO.copy(buffer);
 			JamonUtils.logMagenta(log, monitor);
-			ContextHolder.setContext(null);
-			return null;
-		}
+		});
+		return pipeline;
+	}
 
+	private int getProperty(String name, int defaultValue) {
+		return PropertyUtil.getIntProperty(checker.getContext() + name, defaultValue);
 	}
 
 	public static class DefaultCommandFactory extends CommandFactory {
@@ -0,0 +1,281 @@
+package mobi.chouette.exchange.importer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j;
+import mobi.chouette.common.Context;
+import mobi.chouette.dao.BinaryCopyBuffer;
+import mobi.chouette.exchange.report.ActionReporter;
+import mobi.chouette.exchange.report.ActionReporter.ERROR_CODE;
+import mobi.chouette.exchange.report.ActionReporter.OBJECT_STATE;
+import mobi.chouette.exchange.report.ActionReporter.OBJECT_TYPE;
+import mobi.chouette.exchange.report.IO_TYPE;
+import mobi.chouette.persistence.hibernate.ContextHolder;
+
+/**
+ * bounded producer/consumer pipeline of COPY batches of an import job
+ * <br/>
+ * Line registration submits one batch per line, a fixed number of writers load them, each batch in its own
+ * transaction. Submission blocks while too many batches are pending or while pending batches hold more than the
+ * maximum number of bytes, and fails once no writer is running anymore. Failed batches are kept to be reported on
+ * their line by the job thread, the completion action of a batch only runs once it is written.
+ */
+@Log4j
+public class CopyPipeline {
+
+	private static final Batch END = new Batch(null, null, null, null);
+
+	/**
+	 * delay between two checks of the writers while waiting
+	 */
+	private static final long WRITER_CHECK_MILLIS = 1000;
+
+	private final BlockingQueue<Batch> queue = new LinkedBlockingQueue<>();
+
+	private final Queue<Batch> failures = new ConcurrentLinkedQueue<>();
+
+	private final List<Future<?>> writers = new ArrayList<>();
+
+	private final int writerCount;
+
+	private final int maxBatches;
+
+	private final long maxBytes;
+
+	@Getter
+	private int pendingBatches;
+
+	@Getter
+	private long pendingBytes;
+
+	private long lastProgress = System.currentTimeMillis();
+
+	private boolean closed;
+
+	/**
+	 * @param writerCount
+	 *            number of concurrent COPY
+	 * @param maxBatches
+	 *            maximum number of pending batches (queued or being written)
+	 * @param maxBytes
+	 *            maximum size of pending batches ; a single larger batch is still accepted when nothing is pending
+	 */
+	public CopyPipeline(int writerCount, int maxBatches, long maxBytes) {
+		this.writerCount = Math.max(1, writerCount);
+		this.maxBatches = Math.max(1, maxBatches);
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * start the writers
+	 *
+	 * @param schema
+	 *            referential the batches are written to
+	 * @param writer
+	 *            loads a batch
+	 */
+	public void start(ExecutorService executor, String schema, Consumer<BinaryCopyBuffer> writer) {
+		for (int i = 0; i < writerCount; i++) {
+			writers.add(executor.submit(() -> write(schema, writer)));
+		}
+	}
+
+	private void write(String schema, Consumer<BinaryCopyBuffer> writer) {
+		ContextHolder.setContext(schema);
+		try {
+			while (true) {
+				Batch batch = queue.take();
+				if (batch == END) {
+					return;
+				}
+				try {
+					writer.accept(batch.buffer);
+					complete(batch);
+				} catch (Exception e) {
+					log.error("copy failed for line " + batch.lineId + " : " + e.getMessage());
+					batch.error = e;
+					failures.add(batch);
+				} finally {
+					release(batch);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			ContextHolder.setContext(null);
+		}
+	}
+
+	/**
+	 * run the completion action of a written batch, before it is released so that close waits for it
+	 */
+	private void complete(Batch batch) {
+		if (batch.written == null) {
+			return;
+		}
+		try {
+			batch.written.run();
+		} catch (Exception e) {
+			log.warn("completion of copy failed for line " + batch.lineId + " : " + e.getMessage());
+		}
+	}
+
+	/**
+	 * queue the COPY batch of a line, waiting for room in the pipeline
+	 */
+	public void submit(String lineId, String lineName, BinaryCopyBuffer buffer) throws InterruptedException {
+		submit(lineId, lineName, buffer, null);
+	}
+
+	/**
+	 * queue the COPY batch of a line, waiting for room in the pipeline
+	 *
+	 * @param written
+	 *            run by the writer once the batch is written, not run if the batch fails or is lost ; a failure of
+	 *            this action is logged only
+	 */
+	public void submit(String lineId, String lineName, BinaryCopyBuffer buffer, Runnable written)
+			throws InterruptedException {
+		Batch batch = new Batch(lineId, lineName, buffer, written);
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("copy pipeline closed");
+			}
+			boolean waiting = false;
+			while (pendingBatches >= maxBatches || (pendingBatches > 0 && pendingBytes + batch.size > maxBytes)) {
+				if (!waiting) {
+					log.info("too many copy in progress (" + pendingBatches + " batches, " + pendingBytes
+							+ " bytes), waiting ...");
+					waiting = true;
+				}
+				wait(WRITER_CHECK_MILLIS);
+				checkWriters();
+			}
+			pendingBatches++;
+			pendingBytes += batch.size;
+		}
+		queue.add(batch);
+	}
+
+	private synchronized void release(Batch batch) {
+		batch.buffer = null;
+		pendingBatches--;
+		pendingBytes -= batch.size;
+		lastProgress = System.currentTimeMillis();
+		notifyAll();
+	}
+
+	/**
+	 * wait for all pending batches to be written and stop the writers
+	 *
+	 * @param timeout
+	 *            maximum time without any batch written
+	 */
+	public void close(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+		synchronized (this) {
+			closed = true;
+		}
+		for (int i = 0; i < writers.size(); i++) {
+			queue.add(END);
+		}
+		long delay = unit.toMillis(timeout);
+		synchronized (this) {
+			lastProgress = System.currentTimeMillis();
+			while (pendingBatches > 0) {
+				long remaining = lastProgress + delay - System.currentTimeMillis();
+				if (remaining <= 0) {
+					abort();
+					throw new TimeoutException("no copy completed for " + timeout + " " + unit + ", " + pendingBatches
+							+ " batches pending");
+				}
+				wait(Math.min(remaining, WRITER_CHECK_MILLIS));
+				if (pendingBatches > 0) {
+					checkWriters();
+				}
+			}
+		}
+	}
+
+	/**
+	 * fail if pending batches cannot be written anymore
+	 */
+	private void checkWriters() {
+		for (Future<?> writer : writers) {
+			if (!writer.isDone()) {
+				return;
+			}
+		}
+		abort();
+		throw new IllegalStateException("no copy writer running, " + pendingBatches + " batches pending");
+	}
+
+	/**
+	 * stop the writers, pending batches are lost
+	 */
+	public void abort() {
+		synchronized (this) {
+			closed = true;
+		}
+		queue.clear();
+		for (Future<?> writer : writers) {
+			writer.cancel(true);
+		}
+	}
+
+	/**
+	 * report failed batches on their line, the action error is left to the caller stopping the import
+	 *
+	 * @return true if a failure was reported
+	 */
+	public boolean reportFailures(Context context) {
+		boolean result = false;
+		ActionReporter reporter = ActionReporter.Factory.getInstance();
+		for (Batch batch = failures.poll(); batch != null; batch = failures.poll()) {
+			String message = getMessage(batch.error);
+			reporter.addObjectReport(context, batch.lineId, OBJECT_TYPE.LINE, batch.lineName, OBJECT_STATE.ERROR,
+					IO_TYPE.INPUT);
+			reporter.addErrorToObjectReport(context, batch.lineId, OBJECT_TYPE.LINE, ERROR_CODE.WRITE_ERROR, message);
+			result = true;
+		}
+		return result;
+	}
+
+	private static String getMessage(Throwable e) {
+		while (e.getCause() != null) {
+			e = e.getCause();
+		}
+		if (e instanceof SQLException && ((SQLException) e).getNextException() != null) {
+			e = ((SQLException) e).getNextException();
+		}
+		return e.getMessage();
+	}
+
+	private static class Batch {
+		private final String lineId;
+		private final String lineName;
+		private final long size;
+		private final Runnable written;
+		private BinaryCopyBuffer buffer;
+		private Exception error;
+
+		private Batch(String lineId, String lineName, BinaryCopyBuffer buffer, Runnable written) {
+			this.lineId = lineId;
+			this.lineName = lineName;
+			this.buffer = buffer;
+			this.written = written;
+			this.size = buffer == null ? 0 : buffer.size();
+		}
+	}
+}
@@ -3,6 +3,7 @@ package mobi.chouette.exchange.importer;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import javax.ejb.EJB;
 import javax.ejb.Stateless;
@@ -56,8 +57,11 @@ public class GenerateRouteSectionsCommand implements Command, Constant {
 		log.info("Generating route sections for all journeyPatterns without route sections for " + configuration.getReferentialName() + " with transport modes: " + configuration.getGenerateMissingRouteSectionsForModes());
 		RouteSectionRepository routeSectionRepository = new RouteSectionRepository(routeSectionGenerator);
 		try {
-			journeyPatternDAO.findAll().stream().filter(jp -> CollectionUtils.isEmpty(jp.getRouteSections()))
-					.filter(jp -> configuration.getGenerateMissingRouteSectionsForModes().contains(jp.getRoute().getLine().getTransportModeName())).forEach(jp -> generateRouteSectionsForJourneyPattern(jp, routeSectionRepository));
+			List<JourneyPattern> journeyPatterns = journeyPatternDAO.findAll().stream().filter(jp -> CollectionUtils.isEmpty(jp.getRouteSections()))
+					.filter(jp -> configuration.getGenerateMissingRouteSectionsForModes().contains(jp.getRoute().getLine().getTransportModeName())).collect(Collectors.toList());
+			// sections shared by several journey patterns are requested once, several at a time
+			routeSectionRepository.prefetchLineStrings(context, journeyPatterns);
+			journeyPatterns.forEach(jp -> generateRouteSectionsForJourneyPattern(jp, routeSectionRepository));
 		} catch (Exception e) {
 			log.warn("Route section generation failed with exception for " + configuration.getReferentialName() + " : " + e.getMessage(), e);
 		} finally {
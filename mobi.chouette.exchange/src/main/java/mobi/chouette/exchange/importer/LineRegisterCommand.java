@@ -1,9 +1,9 @@
 package mobi.chouette.exchange.importer;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -21,10 +21,13 @@ import mobi.chouette.common.PropertyNames;
 import mobi.chouette.common.chain.Command;
 import mobi.chouette.common.chain.CommandFactory;
 import mobi.chouette.common.monitor.JamonUtils;
+import mobi.chouette.dao.BinaryCopyBuffer;
+import mobi.chouette.dao.BulkCopyDAO;
 import mobi.chouette.dao.LineDAO;
 import mobi.chouette.dao.VehicleJourneyDAO;
 import mobi.chouette.exchange.importer.updater.LineOptimiser;
 import mobi.chouette.exchange.importer.updater.LineUpdater;
+import mobi.chouette.exchange.importer.updater.SharedEntityIdCache;
 import mobi.chouette.exchange.importer.updater.StopAreaIdMapper;
 import mobi.chouette.exchange.importer.updater.Updater;
 import mobi.chouette.exchange.parameters.AbstractImportParameter;
@@ -41,6 +44,7 @@ import mobi.chouette.model.StopPoint;
 import mobi.chouette.model.Timetable;
 import mobi.chouette.model.VehicleJourney;
 import mobi.chouette.model.VehicleJourneyAtStop;
+import mobi.chouette.model.util.FingerprintUtil;
 import mobi.chouette.model.util.NamingUtil;
 import mobi.chouette.model.util.Referential;
 
@@ -48,7 +52,6 @@ import com.jamonapi.Monitor;
 import com.jamonapi.MonitorFactory;
 import org.jboss.ejb3.annotation.TransactionTimeout;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 @Log4j
 @Stateless(name = LineRegisterCommand.COMMAND)
@@ -68,6 +71,9 @@ public class LineRegisterCommand implements Command {
 	@EJB
 	private VehicleJourneyDAO vehicleJourneyDAO;
 
+	@EJB
+	private BulkCopyDAO bulkCopyDAO;
+
 	@EJB(beanName = LineUpdater.BEAN_NAME)
 	private Updater<Line> lineUpdater;
 
@@ -107,18 +113,52 @@ public class LineRegisterCommand implements Command {
 				log.info("Will not map ids against external stop place registry as import parameter stop_registry_map_id != true");
 			}
 
+			// fingerprint of the line as imported, to skip it when it is imported again unchanged
+			String fingerprint = null;
+			if (importParameter.isSkipUnchangedLines()) {
+				Monitor fMonitor = MonitorFactory.start("LineFingerprint");
+				fingerprint = FingerprintUtil.fingerprint(newValue);
+				fMonitor.stop();
+				if (fingerprint.equals(lineDAO.findContentFingerprint(newValue.getObjectId()))) {
+					log.info("skipping unchanged line : " + newValue.getObjectId());
+					JamonUtils.logMagenta(log, monitor);
+					return SUCCESS;
+				}
+			}
+
 
 			log.info("register line : " + newValue.getObjectId() + " " + newValue.getName() + " vehicleJourney count = "
 					+ referential.getVehicleJourneys().size());
 			try {
 	
-				optimiser.initialize(cache, referential);
+				SharedEntityIdCache sharedIds = SharedEntityIdCache.getInstance(context);
+				optimiser.initialize(cache, referential, sharedIds);
 	
 				Line oldValue = cache.getLines().get(newValue.getObjectId());
 				lineUpdater.update(context, oldValue, newValue);
-				lineDAO.create(oldValue);
+				boolean optimized = Boolean.TRUE.equals(context.get(OPTIMIZED));
+				// passing times copied later must be written before the line can be skipped as unchanged : the
+				// fingerprint is then stored by CopyCommand once the copy batch of the line succeeded
+				oldValue.setContentFingerprint(optimized ? null : fingerprint);
+				// a new line is only inserted : written with COPY unless shared objects cascade to its objects
+				if (oldValue.getId() != null || !bulkCopyDAO.copyNewEntities(Collections.singletonList(oldValue))) {
+					lineDAO.create(oldValue);
+				}
 				// flush now to prevent SQL errors outside the method
 				lineDAO.flush();
+				optimiser.register(cache, sharedIds);
+				if (optimized) {
+					// vehicle journey at stops are not in the persistence context, they are copied by CopyCommand
+					Monitor wMonitor = MonitorFactory.start("prepareCopy");
+					List<String> list = new ArrayList<>(referential.getVehicleJourneys().keySet());
+					BinaryCopyBuffer buffer = prepareCopy(cache, referential);
+					vehicleJourneyDAO.deleteChildren(list);
+					context.put(BUFFER, buffer);
+					if (fingerprint != null) {
+						context.put(CONTENT_FINGERPRINT, fingerprint);
+					}
+					wMonitor.stop();
+				}
 				// empty the persistence context to prevent a second dirty-checking at transaction commit time
 				lineDAO.clear();
 
@@ -217,53 +257,47 @@ public class LineRegisterCommand implements Command {
 	}
 	
 	
-	protected void write(StringWriter buffer, VehicleJourney vehicleJourney, StopPoint stopPoint,
-			VehicleJourneyAtStop vehicleJourneyAtStop) throws IOException {
+	/**
+	 * vehicle journey at stops of the registered line, with pre-allocated ids
+	 */
+	protected BinaryCopyBuffer prepareCopy(Referential cache, Referential referential) {
+		int count = 0;
+		for (VehicleJourney item : referential.getVehicleJourneys().values()) {
+			count += item.getVehicleJourneyAtStops().size();
+		}
+		long[] ids = bulkCopyDAO.allocateIds(VehicleJourneyAtStop.class, count);
+		BinaryCopyBuffer buffer = new BinaryCopyBuffer("vehicle_journey_at_stops", "id", "objectid",
+				"object_version", "creation_time", "creator_id", "vehicle_journey_id", "stop_point_id", "arrival_time",
+				"departure_time", "arrival_day_offset", "departure_day_offset");
+		int index = 0;
+		for (VehicleJourney item : referential.getVehicleJourneys().values()) {
+			VehicleJourney vehicleJourney = cache.getVehicleJourneys().get(item.getObjectId());
+			for (VehicleJourneyAtStop vehicleJourneyAtStop : item.getVehicleJourneyAtStops()) {
+				StopPoint stopPoint = cache.getStopPoints().get(vehicleJourneyAtStop.getStopPoint().getObjectId());
+				write(buffer, ids[index++], vehicleJourney, stopPoint, vehicleJourneyAtStop);
+			}
+		}
+		return buffer;
+	}
+
+	protected void write(BinaryCopyBuffer buffer, long id, VehicleJourney vehicleJourney, StopPoint stopPoint,
+			VehicleJourneyAtStop vehicleJourneyAtStop) {
 		// The list of fields to synchronize with
 		// VehicleJourneyAtStopUpdater.update(Context context,
 		// VehicleJourneyAtStop oldValue,
 		// VehicleJourneyAtStop newValue)
-		
-
-		DateTimeFormatter timeFormat = DateTimeFormatter.ofPattern("HH:mm:ss");
-		DateTimeFormatter dateTimeFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
-		
-		buffer.write(vehicleJourneyAtStop.getObjectId().replace('|', '_'));
-		buffer.append(SEP);
-		buffer.write(vehicleJourneyAtStop.getObjectVersion().toString());
-		buffer.append(SEP);
-		if(vehicleJourneyAtStop.getCreationTime() != null) {
-			buffer.write(dateTimeFormat.format(vehicleJourneyAtStop.getCreationTime()));
-		} else {
-			buffer.write(NULL);
-		}
-		buffer.append(SEP);
-		if(vehicleJourneyAtStop.getCreatorId() != null) {
-			buffer.write(vehicleJourneyAtStop.getCreatorId().replace('|', '_'));
-		} else {
-			buffer.write(NULL);
-		}
-		buffer.append(SEP);
-		buffer.write(vehicleJourney.getId().toString());
-		buffer.append(SEP);
-		buffer.write(stopPoint.getId().toString());
-		buffer.append(SEP);
-		if (vehicleJourneyAtStop.getArrivalTime() != null)
-			buffer.write(timeFormat.format(vehicleJourneyAtStop.getArrivalTime()));
-		else
-			buffer.write(NULL);
-		buffer.append(SEP);
-		if (vehicleJourneyAtStop.getDepartureTime() != null)
-			buffer.write(timeFormat.format(vehicleJourneyAtStop.getDepartureTime()));
-		else
-			buffer.write(NULL);
-		buffer.append(SEP);
-		buffer.write(Integer.toString(vehicleJourneyAtStop.getArrivalDayOffset()));
-		buffer.append(SEP);
-		buffer.write(Integer.toString(vehicleJourneyAtStop.getDepartureDayOffset()));
-
-		buffer.append('\n');
-
+		buffer.startRow();
+		buffer.addLong(id);
+		buffer.addText(vehicleJourneyAtStop.getObjectId());
+		buffer.addLong(vehicleJourneyAtStop.getObjectVersion());
+		buffer.addTimestamp(vehicleJourneyAtStop.getCreationTime());
+		buffer.addText(vehicleJourneyAtStop.getCreatorId());
+		buffer.addLong(vehicleJourney.getId());
+		buffer.addLong(stopPoint.getId());
+		buffer.addTime(vehicleJourneyAtStop.getArrivalTime());
+		buffer.addTime(vehicleJourneyAtStop.getDepartureTime());
+		buffer.addInt(vehicleJourneyAtStop.getArrivalDayOffset());
+		buffer.addInt(vehicleJourneyAtStop.getDepartureDayOffset());
 	}
 
 	public static class DefaultCommandFactory extends CommandFactory {
@@ -0,0 +1,394 @@
+package mobi.chouette.exchange.importer;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import javax.naming.InitialContext;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j;
+import mobi.chouette.common.Constant;
+import mobi.chouette.common.Context;
+import mobi.chouette.common.chain.Command;
+import mobi.chouette.common.chain.CommandFactory;
+import mobi.chouette.common.monitor.JamonUtils;
+import mobi.chouette.common.parallel.SharedTaskExecutor;
+import mobi.chouette.exchange.ProgressionCommand;
+import mobi.chouette.exchange.report.DeferredReports;
+import mobi.chouette.exchange.validation.ValidationData;
+import mobi.chouette.model.util.Referential;
+
+import com.jamonapi.Monitor;
+import com.jamonapi.MonitorFactory;
+
+/**
+ * Process lines as a pipeline : prepare stages (file parsing not depending on the referential) are executed ahead
+ * and validate stages are executed behind on the {@link SharedTaskExecutor}, at most threads at a time, while
+ * register stages (referential population and database registration) are executed one line at a time, in line
+ * order, on the job context.
+ * <br/>
+ * Each line is registered in its own {@link Referential} sharing the shared maps of the job referential, so that
+ * the graph of a line being validated is not cleared by the parsing of the next one ; validation reads a snapshot of
+ * it, the shared maps being populated by the next lines.
+ * <br/>
+ * Prepare and validate stages run on a copy of the context with deferred reports (see {@link DeferredReports}),
+ * replayed on the job context in line order : reports of a line registered while previous lines are being validated
+ * are deferred as well, so that reports are built in the same order as with a serial processing ; nothing is read
+ * ahead of a required line.
+ * <br/>
+ * As with a {@link mobi.chouette.common.chain.ChainCommand}, exceptions abort the processing and a line in error
+ * stops it unless ignored is set and the line is not required. Only the validation of a required line is completed
+ * before the next line is registered : when the validation of another line fails, the lines registered meanwhile are
+ * kept and the processing stops there unless ignored is set.
+ */
+@Log4j
+public class ParallelLineProcessingCommand implements Command, Constant {
+
+	public static final String COMMAND = "ParallelLineProcessingCommand";
+
+	private List<LineStages> lines = new ArrayList<>();
+
+	@Getter
+	@Setter
+	private int threads = 1;
+
+	@Getter
+	@Setter
+	private boolean ignored = false;
+
+	@Getter
+	@Setter
+	private ProgressionCommand progression;
+
+	public void add(LineStages stages) {
+		lines.add(stages);
+	}
+
+	public int getLineCount() {
+		return lines.size();
+	}
+
+	@Override
+	public boolean execute(Context context) throws Exception {
+
+		if (context == null) {
+			throw new IllegalArgumentException("Context is null");
+		}
+		boolean result = SUCCESS;
+		Monitor monitor = MonitorFactory.start(COMMAND);
+
+		int poolSize = Math.max(1, threads);
+		SharedTaskExecutor executor = new SharedTaskExecutor(COMMAND, context, poolSize);
+
+		Referential referential = (Referential) context.get(REFERENTIAL);
+		ValidationData validationData = (ValidationData) context.get(VALIDATION_DATA);
+		Map<Integer, Future<PreparedLine>> preparations = new HashMap<>();
+		// registered lines whose reports are not applied yet, in line order
+		Deque<PendingLine> pendingLines = new ArrayDeque<>();
+
+		try {
+			for (int i = 0; i < lines.size(); i++) {
+
+				// read ahead at most poolSize lines, not beyond a required line which may initialize the context
+				for (int j = i; j < Math.min(lines.size(), i + poolSize + 1); j++) {
+					Command prepare = lines.get(j).getPrepare();
+					if (prepare != null && !preparations.containsKey(j)) {
+						preparations.put(j, executor.submit("prepare", new PrepareTask(prepare, context)));
+					}
+					if (lines.get(j).isRequired()) {
+						break;
+					}
+				}
+
+				// keep at most poolSize lines waiting for validation, and none after a required line
+				while (!pendingLines.isEmpty() && (pendingLines.size() >= poolSize
+						|| pendingLines.peekLast().getStages().isRequired())) {
+					PendingLine pendingLine = pendingLines.poll();
+					if (!complete(executor, pendingLine, context, validationData)) {
+						result = ERROR;
+						if (pendingLine.getStages().isRequired() || !ignored)
+							return result;
+					}
+				}
+
+				if (progression != null) {
+					progression.execute(context);
+				}
+
+				LineStages line = lines.get(i);
+				PendingLine registered = new PendingLine(line);
+				boolean deferred = !pendingLines.isEmpty();
+				if (deferred) {
+					// previous lines are being validated, their reports come first
+					DeferredReports.defer(context);
+				}
+				pendingLines.add(registered);
+
+				boolean lineResult = SUCCESS;
+				try {
+					Future<PreparedLine> preparation = preparations.remove(i);
+					if (preparation != null) {
+						PreparedLine prepared = executor.get(preparation);
+						context.putAll(prepared.getChanges());
+						DeferredReports.replay(prepared.getReports(), context);
+						if (prepared.getFailure() != null) {
+							throw prepared.getFailure();
+						}
+						lineResult = prepared.isResult();
+					}
+
+					if (lineResult == SUCCESS) {
+						if (referential != null) {
+							context.put(REFERENTIAL, referential.createLineReferential());
+						}
+						lineResult = line.getRegister().execute(context);
+					}
+				} finally {
+					if (deferred) {
+						registered.setReports(DeferredReports.remove(context));
+					}
+				}
+
+				if (lineResult == SUCCESS && line.getValidate() != null) {
+					Context validationContext = new Context(context);
+					if (referential != null) {
+						validationContext.put(REFERENTIAL, ((Referential) context.get(REFERENTIAL)).createSnapshot());
+					}
+					if (validationData != null) {
+						validationContext.put(VALIDATION_DATA, validationData.createLineData());
+					}
+					registered.setValidation(executor.submit("validate", new ValidateTask(line.getValidate(), validationContext)));
+				}
+				if (registered.getValidation() == null && registered.getReports().isEmpty()) {
+					pendingLines.removeLast();
+				}
+
+				if (lineResult == ERROR) {
+					result = ERROR;
+					if (line.isRequired() || !ignored)
+						return result;
+				}
+			}
+
+			while (!pendingLines.isEmpty()) {
+				PendingLine pendingLine = pendingLines.poll();
+				if (!complete(executor, pendingLine, context, validationData)) {
+					result = ERROR;
+					if (pendingLine.getStages().isRequired() || !ignored)
+						return result;
+				}
+			}
+		} finally {
+			// lines registered before a failure are reported as with a serial processing
+			for (PendingLine pendingLine : pendingLines) {
+				try {
+					complete(executor, pendingLine, context, validationData);
+				} catch (Exception e) {
+					log.error("validation of a line failed : " + e.getMessage(), e);
+				}
+			}
+			executor.shutdown();
+			if (referential != null) {
+				context.put(REFERENTIAL, referential);
+			}
+			JamonUtils.logMagenta(log, monitor);
+		}
+		return result;
+	}
+
+	/**
+	 * apply the reports of a registered line on the job context, then wait for its validation and apply its reports
+	 *
+	 * @return false if the validation failed
+	 */
+	private boolean complete(SharedTaskExecutor executor, PendingLine line, Context context,
+			ValidationData validationData) throws Exception {
+		DeferredReports.replay(line.getReports(), context);
+		line.setReports(Collections.emptyList());
+		if (line.getValidation() == null) {
+			return SUCCESS;
+		}
+		ValidatedLine validated = executor.get(line.getValidation());
+		line.setValidation(null);
+		try {
+			DeferredReports.replay(validated.getReports(), context);
+		} catch (RuntimeException e) {
+			// as when the validator fails on the job thread, the remaining reports of the line are lost
+			log.error(e.getMessage(), e);
+		}
+		if (validated.getFailure() != null) {
+			throw validated.getFailure();
+		}
+		ValidationData lineData = (ValidationData) validated.getContext().get(VALIDATION_DATA);
+		if (lineData != null && validationData != null && lineData != validationData) {
+			validationData.merge(lineData);
+		}
+		return validated.isResult();
+	}
+
+	/**
+	 * commands to execute for a single line
+	 */
+	public static class LineStages {
+
+		@Getter
+		private Command prepare;
+
+		@Getter
+		private Command register;
+
+		@Getter
+		private Command validate;
+
+		/**
+		 * stop the processing when this line is in error, even if errors are ignored
+		 */
+		@Getter
+		@Setter
+		private boolean required = false;
+
+		public LineStages(Command prepare, Command register, Command validate) {
+			this.prepare = prepare;
+			this.register = register;
+			this.validate = validate;
+		}
+	}
+
+	@AllArgsConstructor
+	private static class PreparedLine {
+
+		@Getter
+		private boolean result;
+
+		@Getter
+		private Map<String, Object> changes;
+
+		@Getter
+		private List<Consumer<Context>> reports;
+
+		@Getter
+		private Exception failure;
+	}
+
+	@AllArgsConstructor
+	private static class ValidatedLine {
+
+		@Getter
+		private boolean result;
+
+		@Getter
+		private Context context;
+
+		@Getter
+		private List<Consumer<Context>> reports;
+
+		@Getter
+		private Exception failure;
+	}
+
+	private static class PendingLine {
+
+		@Getter
+		private LineStages stages;
+
+		@Getter
+		@Setter
+		private List<Consumer<Context>> reports = Collections.emptyList();
+
+		@Getter
+		@Setter
+		private Future<ValidatedLine> validation;
+
+		public PendingLine(LineStages stages) {
+			this.stages = stages;
+		}
+	}
+
+	private static class PrepareTask implements Callable<PreparedLine> {
+
+		private Command command;
+
+		private Context snapshot;
+
+		public PrepareTask(Command command, Context context) {
+			this.command = command;
+			this.snapshot = new Context(context);
+		}
+
+		@Override
+		public PreparedLine call() throws Exception {
+			Context lineContext = new Context(snapshot);
+			DeferredReports.defer(lineContext);
+			boolean result = ERROR;
+			Exception failure = null;
+			try {
+				result = command.execute(lineContext);
+			} catch (Exception e) {
+				// rethrown on the job thread once the reports are replayed
+				failure = e;
+			}
+			List<Consumer<Context>> reports = DeferredReports.remove(lineContext);
+
+			// only keep entries set by the prepare command
+			Map<String, Object> changes = new HashMap<>();
+			for (Map.Entry<String, Object> entry : lineContext.entrySet()) {
+				if (snapshot.get(entry.getKey()) != entry.getValue()) {
+					changes.put(entry.getKey(), entry.getValue());
+				}
+			}
+			return new PreparedLine(result, changes, reports, failure);
+		}
+	}
+
+	private static class ValidateTask implements Callable<ValidatedLine> {
+
+		private Command command;
+
+		private Context context;
+
+		public ValidateTask(Command command, Context context) {
+			this.command = command;
+			this.context = context;
+		}
+
+		@Override
+		public ValidatedLine call() throws Exception {
+			DeferredReports.defer(context);
+			boolean result = ERROR;
+			Exception failure = null;
+			try {
+				result = command.execute(context);
+			} catch (Exception e) {
+				// rethrown on the job thread once the reports are replayed
+				failure = e;
+			}
+			List<Consumer<Context>> reports = DeferredReports.remove(context);
+			return new ValidatedLine(result, context, reports, failure);
+		}
+	}
+
+	public static class DefaultCommandFactory extends CommandFactory {
+
+		@Override
+		protected Command create(InitialContext context) throws IOException {
+			Command result = new ParallelLineProcessingCommand();
+			return result;
+		}
+	}
+
+	static {
+		CommandFactory.factories.put(ParallelLineProcessingCommand.class.getName(),
+				new ParallelLineProcessingCommand.DefaultCommandFactory());
+	}
+}
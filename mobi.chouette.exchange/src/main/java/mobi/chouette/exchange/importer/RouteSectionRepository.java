@@ -3,7 +3,10 @@ package mobi.chouette.exchange.importer;
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.LineString;
 import lombok.extern.log4j.Log4j;
+import mobi.chouette.common.Context;
 import mobi.chouette.common.GeometryUtil;
+import mobi.chouette.common.PropertyUtil;
+import mobi.chouette.common.parallel.SharedTaskExecutor;
 import mobi.chouette.exchange.importer.geometry.RouteSectionGenerator;
 import mobi.chouette.exchange.importer.geometry.osrm.OsrmRouteSectionId;
 import mobi.chouette.model.JourneyPattern;
@@ -14,20 +17,38 @@ import mobi.chouette.model.type.TransportModeNameEnum;
 import mobi.chouette.model.util.ObjectIdTypes;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Generate route sections between two points thanks to the external OSRM service.
  * LineStrings generated by OSRM for a given set of coordinates and transport mode are cached.
  * RouteSection objects that have identical (start point, stop point, lineString) are reused.
+ * LineStrings of all the sections of a referential may be requested beforehand, with at most
+ * iev.route.section.generate.concurrent.requests requests at the same time.
  */
 
 @Log4j
 public class RouteSectionRepository {
 
+    public static final String CONCURRENT_REQUESTS_PROPERTY = "iev.route.section.generate.concurrent.requests";
+
+    private static final String PREFETCH = "RouteSectionPrefetch";
+
     private static final int DEFAULT_MAX_METERS_FROM_QUAY = 100;
 
+    private static final int DEFAULT_CONCURRENT_REQUESTS = 4;
+
+    private static final int REQUEST_TIMEOUT_SECONDS = 60;
+
     private final RouteSectionGenerator routeSectionGenerator;
     private final Map<OsrmRouteSectionId, LineString> lineStringCache;
     private final Map<String, RouteSection> routeSectionCache;
@@ -51,6 +72,60 @@ public class RouteSectionRepository {
     }
 
 
+    /**
+     * Request the LineStrings of the sections between consecutive stop points of the journey patterns, each distinct
+     * (start point, end point, transport mode) triple once.
+     * Sections whose request timed out are requested again by {@link #getRouteSection}.
+     *
+     * @param context
+     * @param journeyPatterns
+     */
+    public void prefetchLineStrings(Context context, Collection<JourneyPattern> journeyPatterns) {
+        Set<OsrmRouteSectionId> ids = new LinkedHashSet<>();
+        for (JourneyPattern jp : journeyPatterns) {
+            TransportModeNameEnum transportMode = jp.getRoute().getLine().getTransportModeName();
+            Coordinate previous = null;
+            for (StopPoint stopPoint : jp.getStopPoints()) {
+                Coordinate current = getCoordinateFromStopPoint(stopPoint);
+                if (previous != null && current != null) {
+                    OsrmRouteSectionId id = new OsrmRouteSectionId(previous, current, transportMode);
+                    if (!lineStringCache.containsKey(id)) {
+                        ids.add(id);
+                    }
+                }
+                previous = current;
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        log.info("Requesting " + ids.size() + " distinct route sections");
+
+        SharedTaskExecutor executor = new SharedTaskExecutor(PREFETCH, context, PropertyUtil.getIntProperty(CONCURRENT_REQUESTS_PROPERTY, DEFAULT_CONCURRENT_REQUESTS));
+        executor.setTaskTimeoutSeconds(REQUEST_TIMEOUT_SECONDS);
+        try {
+            List<OsrmRouteSectionId> requested = new ArrayList<>();
+            List<Future<LineString>> futures = new ArrayList<>();
+            for (OsrmRouteSectionId id : ids) {
+                requested.add(id);
+                futures.add(executor.submit("getRouteSection", () -> routeSectionGenerator.getRouteSection(id)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    lineStringCache.put(requested.get(i), executor.get(futures.get(i)));
+                } catch (TimeoutException e) {
+                    log.warn("Route section request timed out : " + e.getMessage());
+                }
+            }
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Route section requests failed : " + e.getMessage(), e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     /**
      * Generate a RouteSection between two points for a given transport mode.
      * The LineStrings between two points are calculated by the OSRM service.
@@ -69,7 +144,14 @@ public class RouteSectionRepository {
             Coordinate to = getCoordinateFromStopPoint(toStopPoint);
             LineString lineString = null;
             if (from != null && to != null) {
-                lineString = lineStringCache.computeIfAbsent(new OsrmRouteSectionId(from, to, transportMode), routeSectionGenerator::getRouteSection);
+                OsrmRouteSectionId id = new OsrmRouteSectionId(from, to, transportMode);
+                // sections without route are cached too, as a null LineString
+                if (lineStringCache.containsKey(id)) {
+                    lineString = lineStringCache.get(id);
+                } else {
+                    lineString = routeSectionGenerator.getRouteSection(id);
+                    lineStringCache.put(id, lineString);
+                }
                 if (!isLineStringGoodMatchForQuays(lineString, from, to)) {
                     log.info("Ignoring generated LineString because it is to far from stop at start and/or end of section." +
                             "JP: " + jp.getObjectId() + ", From: " + fromStopPoint.getScheduledStopPoint().getContainedInStopAreaRef().getObject() +
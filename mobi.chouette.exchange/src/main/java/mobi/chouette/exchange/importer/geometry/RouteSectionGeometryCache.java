@@ -0,0 +1,119 @@
+package mobi.chouette.exchange.importer.geometry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import mobi.chouette.common.PropertyUtil;
+import mobi.chouette.exchange.importer.geometry.osrm.OsrmRouteSectionId;
+import mobi.chouette.model.type.TransportModeNameEnum;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.LineString;
+
+/**
+ * LineStrings generated for a (from, to, transport mode) triple, shared by all jobs of the node.
+ * <br/>
+ * Coordinates are rounded to iev.route.section.cache.coordinate.decimals decimals (default 6, about 10 cm) so that
+ * stops imported again with insignificant coordinate changes reuse the generated geometry. Sections for which no
+ * route exists are kept as well, as a null LineString. The least recently used entries are dropped beyond
+ * iev.route.section.cache.size entries (default 100000).
+ */
+public class RouteSectionGeometryCache {
+
+	public static final String MAX_SIZE_PROPERTY = "iev.route.section.cache.size";
+
+	public static final String DECIMALS_PROPERTY = "iev.route.section.cache.coordinate.decimals";
+
+	private static final int DEFAULT_MAX_SIZE = 100000;
+
+	private static final int DEFAULT_DECIMALS = 6;
+
+	private final int maxSize;
+
+	private final double scale;
+
+	private final Map<Key, LineString> lineStrings;
+
+	public RouteSectionGeometryCache() {
+		this(PropertyUtil.getIntProperty(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE),
+				PropertyUtil.getIntProperty(DECIMALS_PROPERTY, DEFAULT_DECIMALS, 0));
+	}
+
+	public RouteSectionGeometryCache(int maxSize, int decimals) {
+		this.maxSize = maxSize;
+		this.scale = Math.pow(10, decimals);
+		this.lineStrings = new LinkedHashMap<Key, LineString>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, LineString> eldest) {
+				return size() > RouteSectionGeometryCache.this.maxSize;
+			}
+		};
+	}
+
+	public synchronized boolean contains(OsrmRouteSectionId id) {
+		return lineStrings.containsKey(toKey(id));
+	}
+
+	/**
+	 * @return cached LineString, null when not cached or when no route exists (see {@link #contains})
+	 */
+	public synchronized LineString get(OsrmRouteSectionId id) {
+		return lineStrings.get(toKey(id));
+	}
+
+	public synchronized void put(OsrmRouteSectionId id, LineString lineString) {
+		lineStrings.put(toKey(id), lineString);
+	}
+
+	public synchronized int size() {
+		return lineStrings.size();
+	}
+
+	public synchronized void clear() {
+		lineStrings.clear();
+	}
+
+	private Key toKey(OsrmRouteSectionId id) {
+		Coordinate from = id.getFrom();
+		Coordinate to = id.getTo();
+		return new Key(round(from.x), round(from.y), round(to.x), round(to.y), id.getTransportMode());
+	}
+
+	private long round(double value) {
+		return Math.round(value * scale);
+	}
+
+	private static class Key {
+
+		private final long fromX;
+		private final long fromY;
+		private final long toX;
+		private final long toY;
+		private final TransportModeNameEnum transportMode;
+
+		Key(long fromX, long fromY, long toX, long toY, TransportModeNameEnum transportMode) {
+			this.fromX = fromX;
+			this.fromY = fromY;
+			this.toX = toX;
+			this.toY = toY;
+			this.transportMode = transportMode;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Key that = (Key) o;
+			return fromX == that.fromX && fromY == that.fromY && toX == that.toX && toY == that.toY
+					&& transportMode == that.transportMode;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(fromX, fromY, toX, toY, transportMode);
+		}
+	}
+}
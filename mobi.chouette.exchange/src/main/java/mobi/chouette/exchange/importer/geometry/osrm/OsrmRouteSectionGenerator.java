@@ -10,12 +10,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.Singleton;
 
 import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.extern.log4j.Log4j;
 import mobi.chouette.exchange.importer.geometry.PolylineDecoder;
 import mobi.chouette.exchange.importer.geometry.RouteSectionGenerator;
+import mobi.chouette.exchange.importer.geometry.RouteSectionGeometryCache;
 import mobi.chouette.exchange.importer.geometry.osrm.model.OsrmLeg;
 import mobi.chouette.exchange.importer.geometry.osrm.model.OsrmResponse;
 import mobi.chouette.exchange.importer.geometry.osrm.model.OsrmRoute;
@@ -37,8 +40,12 @@ import static mobi.chouette.common.PropertyNames.OSRM_ROUTE_SECTIONS_BASE;
 
 /**
  * Generate route sections between two points by external osrm service.
+ * <br/>
+ * Generated LineStrings, and sections without route, are kept in a cache shared by all jobs. Calls are not
+ * serialized so that several sections may be requested at the same time.
  */
 @Singleton(name = OsrmRouteSectionGenerator.BEAN_NAME)
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 @Log4j
 public class OsrmRouteSectionGenerator implements RouteSectionGenerator {
 
@@ -48,12 +55,17 @@ public class OsrmRouteSectionGenerator implements RouteSectionGenerator {
 
 	private Map<TransportModeNameEnum, String> urlPerTransportMode;
 
+	private final RouteSectionGeometryCache geometryCache = new RouteSectionGeometryCache();
+
 	private ObjectReader osrmResponseReader = new ObjectMapper().reader( OsrmResponse.class);
 	private PolylineDecoder polylineDecoder = new PolylineDecoder();
 	private GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), LongLatTypeEnum.WGS84.getValue());
 
 	@Override
 	public LineString getRouteSection(OsrmRouteSectionId osrmRouteSectionId) {
+		if (geometryCache.contains(osrmRouteSectionId)) {
+			return geometryCache.get(osrmRouteSectionId);
+		}
 
 		Coordinate from = osrmRouteSectionId.getFrom();
 		Coordinate to = osrmRouteSectionId.getTo();
@@ -63,11 +75,16 @@ public class OsrmRouteSectionGenerator implements RouteSectionGenerator {
 			String url=getUrl(from, to, transportMode);
 			if (url!=null) {
 				String osrmResponseString = invokeService(url);
+				LineString lineString = null;
 				if(osrmResponseString != null) {
-					return mapToLineString(osrmResponseString);
+					lineString = mapToLineString(osrmResponseString);
 				} else {
 					log.info("Skipping route section generation since no route was found for request : " + url);
 				}
+				// only sections with a route or an explicit no route answer are cached, failed requests and responses
+				// that cannot be parsed throw and will be issued again by the next job
+				geometryCache.put(osrmRouteSectionId, lineString);
+				return lineString;
 			} else {
 				log.debug("Skipping route section generation as no osrm endpoint defined for transport mode: " + transportMode);
 			}
@@ -90,6 +107,10 @@ public class OsrmRouteSectionGenerator implements RouteSectionGenerator {
 		return Joiner.on(",").join(from.x, from.y) + ";" + Joiner.on(",").join(to.x, to.y);
 	}
 
+	/**
+	 * @return the route as a LineString, null when the response has no route
+	 * @throws OsrmRouteSectionException if the response cannot be parsed
+	 */
 	LineString mapToLineString(String osrmResponseString) {
 
 		try {
@@ -101,7 +122,7 @@ public class OsrmRouteSectionGenerator implements RouteSectionGenerator {
 				return geometryFactory.createLineString(coordinates);
 			}
 		} catch (Exception e) {
-			log.warn("Failed parse osrm response: " + osrmResponseString);
+			throw new OsrmRouteSectionException("Failed parse osrm response: " + osrmResponseString, e);
 		}
 		return null;
 	}
@@ -121,13 +142,16 @@ public class OsrmRouteSectionGenerator implements RouteSectionGenerator {
 			connection.setUseCaches(false);
 			connection.setDoOutput(true);
 			connection.setConnectTimeout(TIMEOUT_SECONDS * (int) DateUtils.MILLIS_PER_SECOND);
+			connection.setReadTimeout(TIMEOUT_SECONDS * (int) DateUtils.MILLIS_PER_SECOND);
 			connection.connect();
 			int httpResponseCode = connection.getResponseCode();
 			if(httpResponseCode == 200) {
-				InputStream is = connection.getInputStream();
-				StringWriter writer = new StringWriter();
-				IOUtils.copy(is, writer);
-				return writer.toString();
+				// closing the stream read to the end keeps the connection alive for the next request
+				try (InputStream is = connection.getInputStream()) {
+					StringWriter writer = new StringWriter();
+					IOUtils.copy(is, writer, "UTF-8");
+					return writer.toString();
+				}
 			} else if(httpResponseCode == 400) {
 				return null;
 			} else {
@@ -138,7 +162,7 @@ public class OsrmRouteSectionGenerator implements RouteSectionGenerator {
 		}
 	}
 
-	private Map<TransportModeNameEnum, String> getUrlPerTransportMode() {
+	private synchronized Map<TransportModeNameEnum, String> getUrlPerTransportMode() {
 		if (urlPerTransportMode == null) {
 			urlPerTransportMode = new HashMap<>();
 			for (TransportModeNameEnum transportMode : TransportModeNameEnum.values()) {
@@ -1,6 +1,8 @@
 package mobi.chouette.exchange.importer.updater;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -12,6 +14,7 @@ import javax.ejb.Stateless;
 import mobi.chouette.dao.AccessLinkDAO;
 import mobi.chouette.dao.AccessPointDAO;
 import mobi.chouette.dao.CompanyDAO;
+import mobi.chouette.dao.GenericDAO;
 import mobi.chouette.dao.ConnectionLinkDAO;
 import mobi.chouette.dao.GroupOfLineDAO;
 import mobi.chouette.dao.JourneyPatternDAO;
@@ -95,34 +98,96 @@ public class LineOptimiser {
 	private TimebandDAO timebandDAO;
 
 	public void initialize(Referential cache, Referential referential) {
+		initialize(cache, referential, null);
+	}
+
+	/**
+	 * @param sharedIds
+	 *            ids of the shared entities known by the job, may be null
+	 */
+	public void initialize(Referential cache, Referential referential, SharedEntityIdCache sharedIds) {
 
 //		Monitor monitor = MonitorFactory.start("LineOptimiser");
-		initializeStopArea(cache, referential.getStopAreas().values());
+		initializeStopArea(cache, referential.getStopAreas().values(), sharedIds);
 
 		initializeConnectionLink(cache, referential.getConnectionLinks().values());
 		initializeAccessLink(cache, referential.getAccessLinks().values());
 		initializeAccessPoint(cache, referential.getAccessPoints().values());
 
-		initializeTimetable(cache, referential.getTimetables().values());
-		initializePTNetwork(cache, referential.getPtNetworks().values());
-		initializeCompany(cache, referential.getCompanies().values());
-		initializeGroupOfLine(cache, referential.getGroupOfLines().values());
+		initializeTimetable(cache, referential.getTimetables().values(), sharedIds);
+		initializePTNetwork(cache, referential.getPtNetworks().values(), sharedIds);
+		initializeCompany(cache, referential.getCompanies().values(), sharedIds);
+		initializeGroupOfLine(cache, referential.getGroupOfLines().values(), sharedIds);
 
 		initializeLine(cache, referential.getLines().values());
 		initializeRoute(cache, referential.getRoutes().values());
 		initializeStopPoint(cache, referential.getStopPoints().values());
-		initializeReferencedStopAreas(cache, referential.getStopPoints().values(), referential.getRoutePoints().values());
+		initializeReferencedStopAreas(cache, referential.getStopPoints().values(), referential.getRoutePoints().values(), sharedIds);
 		initializeJourneyPattern(cache, referential.getJourneyPatterns().values());
 		initializeVehicleJourney(cache, referential.getVehicleJourneys().values());
 
-		initializeTimeband(cache, referential.getTimebands().values());
+		initializeTimeband(cache, referential.getTimebands().values(), sharedIds);
 //		monitor.stop();
 	}
 
-	private void initializeStopArea(Referential cache, Collection<StopArea> list) {
+	/**
+	 * keep the ids of the shared entities of a registered line, once flushed
+	 */
+	public void register(Referential cache, SharedEntityIdCache sharedIds) {
+		sharedIds.putAll(StopArea.class, cache.getStopAreas().values());
+		sharedIds.putAll(Timetable.class, cache.getTimetables().values());
+		sharedIds.putAll(Network.class, cache.getPtNetworks().values());
+		sharedIds.putAll(Company.class, cache.getCompanies().values());
+		sharedIds.putAll(GroupOfLine.class, cache.getGroupOfLines().values());
+		sharedIds.putAll(Timeband.class, cache.getTimebands().values());
+	}
+
+	/**
+	 * entities by object ids, loaded by id when known by the job
+	 */
+	private <T extends NeptuneIdentifiedObject> List<T> findByObjectId(GenericDAO<T> dao, Class<T> type,
+			Collection<String> objectIds, SharedEntityIdCache sharedIds) {
+		if (sharedIds == null) {
+			return dao.findByObjectId(objectIds);
+		}
+		List<T> result = new ArrayList<>();
+		Set<String> unknown = new HashSet<>();
+		Set<String> pending = new HashSet<>();
+		List<Long> ids = new ArrayList<>();
+		for (String objectId : objectIds) {
+			Long id = sharedIds.get(type, objectId);
+			if (id == null) {
+				unknown.add(objectId);
+			} else if (pending.add(objectId)) {
+				ids.add(id);
+			}
+		}
+		if (!ids.isEmpty()) {
+			for (T object : dao.findAllCached(ids)) {
+				if (pending.remove(object.getObjectId())) {
+					result.add(object);
+				}
+			}
+			// ids of rolled back or deleted entities
+			for (String objectId : pending) {
+				sharedIds.remove(type, objectId);
+				unknown.add(objectId);
+			}
+		}
+		if (!unknown.isEmpty()) {
+			List<T> objects = dao.findByObjectId(unknown);
+			if (objects != null) {
+				result.addAll(objects);
+				sharedIds.putAll(type, objects);
+			}
+		}
+		return result;
+	}
+
+	private void initializeStopArea(Referential cache, Collection<StopArea> list, SharedEntityIdCache sharedIds) {
 		if (list != null && !list.isEmpty()) {
 			Collection<String> objectIds = UpdaterUtils.getObjectIds(list);
-			List<StopArea> objects = stopAreaDAO.findByObjectId(objectIds);
+			List<StopArea> objects = findByObjectId(stopAreaDAO, StopArea.class, objectIds, sharedIds);
 			for (StopArea object : objects) {
 				cache.getStopAreas().put(object.getObjectId(), object);
 			}
@@ -188,10 +253,10 @@ public class LineOptimiser {
 		}
 	}
 
-	private void initializeTimetable(Referential cache, Collection<Timetable> list) {
+	private void initializeTimetable(Referential cache, Collection<Timetable> list, SharedEntityIdCache sharedIds) {
 		if (list != null && !list.isEmpty()) {
 			Collection<String> objectIds = UpdaterUtils.getObjectIds(list);
-			List<Timetable> objects = timetableDAO.findByObjectId(objectIds);
+			List<Timetable> objects = findByObjectId(timetableDAO, Timetable.class, objectIds, sharedIds);
 			for (Timetable object : objects) {
 				cache.getTimetables().put(object.getObjectId(), object);
 			}
@@ -205,10 +270,10 @@ public class LineOptimiser {
 		}
 	}
 
-	private void initializePTNetwork(Referential cache, Collection<Network> list) {
+	private void initializePTNetwork(Referential cache, Collection<Network> list, SharedEntityIdCache sharedIds) {
 		if (list != null && !list.isEmpty()) {
 			Collection<String> objectIds = UpdaterUtils.getObjectIds(list);
-			List<Network> objects = ptNetworkDAO.findByObjectId(objectIds);
+			List<Network> objects = findByObjectId(ptNetworkDAO, Network.class, objectIds, sharedIds);
 			for (Network object : objects) {
 				cache.getPtNetworks().put(object.getObjectId(), object);
 			}
@@ -222,10 +287,10 @@ public class LineOptimiser {
 		}
 	}
 
-	private void initializeCompany(Referential cache, Collection<Company> list) {
+	private void initializeCompany(Referential cache, Collection<Company> list, SharedEntityIdCache sharedIds) {
 		if (list != null && !list.isEmpty()) {
 			Collection<String> objectIds = UpdaterUtils.getObjectIds(list);
-			List<Company> objects = companyDAO.findByObjectId(objectIds);
+			List<Company> objects = findByObjectId(companyDAO, Company.class, objectIds, sharedIds);
 			for (Company object : objects) {
 				cache.getCompanies().put(object.getObjectId(), object);
 			}
@@ -239,10 +304,10 @@ public class LineOptimiser {
 		}
 	}
 
-	private void initializeGroupOfLine(Referential cache, Collection<GroupOfLine> list) {
+	private void initializeGroupOfLine(Referential cache, Collection<GroupOfLine> list, SharedEntityIdCache sharedIds) {
 		if (list != null && !list.isEmpty()) {
 			Collection<String> objectIds = UpdaterUtils.getObjectIds(list);
-			List<GroupOfLine> objects = groupOfLineDAO.findByObjectId(objectIds);
+			List<GroupOfLine> objects = findByObjectId(groupOfLineDAO, GroupOfLine.class, objectIds, sharedIds);
 			for (GroupOfLine object : objects) {
 				cache.getGroupOfLines().put(object.getObjectId(), object);
 			}
@@ -307,7 +372,7 @@ public class LineOptimiser {
 		}
 	}
 
-	private void initializeReferencedStopAreas(Referential cache, Collection<StopPoint> stopPoints, Collection<RoutePoint> routePoints) {
+	private void initializeReferencedStopAreas(Referential cache, Collection<StopPoint> stopPoints, Collection<RoutePoint> routePoints, SharedEntityIdCache sharedIds) {
 
 		Set<String> stopPointReferencedStopAreasObjectIds = stopPoints.stream()
 				.map(StopPoint::getScheduledStopPoint)
@@ -321,7 +386,10 @@ public class LineOptimiser {
 				.filter(Objects::nonNull)
 				.collect(Collectors.toSet());
 
-		List<StopArea> referencedStopAreas = stopAreaDAO.findByObjectId(stopPointReferencedStopAreasObjectIds);
+		if (stopPointReferencedStopAreasObjectIds.isEmpty()) {
+			return;
+		}
+		List<StopArea> referencedStopAreas = findByObjectId(stopAreaDAO, StopArea.class, stopPointReferencedStopAreasObjectIds, sharedIds);
 		for (StopArea referencedStopArea : referencedStopAreas) {
 			cache.getStopAreas().put(referencedStopArea.getObjectId(), referencedStopArea);
 			for (ScheduledStopPoint scheduledStopPoint : referencedStopArea.getContainedScheduledStopPoints()) {
@@ -366,10 +434,10 @@ public class LineOptimiser {
 		}
 	}
 
-	private void initializeTimeband(Referential cache, Collection<Timeband> list) {
+	private void initializeTimeband(Referential cache, Collection<Timeband> list, SharedEntityIdCache sharedIds) {
 		if (list != null && !list.isEmpty()) {
 			Collection<String> objectIds = UpdaterUtils.getObjectIds(list);
-			List<Timeband> objects = timebandDAO.findByObjectId(objectIds);
+			List<Timeband> objects = findByObjectId(timebandDAO, Timeband.class, objectIds, sharedIds);
 			for (Timeband object : objects) {
 				cache.getTimebands().put(object.getObjectId(), object);
 			}
@@ -0,0 +1,78 @@
+package mobi.chouette.exchange.importer.updater;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import mobi.chouette.common.Context;
+import mobi.chouette.common.PropertyUtil;
+import mobi.chouette.model.NeptuneIdentifiedObject;
+
+/**
+ * database ids of the shared entities (stop areas, companies, timetables ...) resolved by the previous lines of an
+ * import job, by entity type and object id
+ * <br/>
+ * Entities are not kept, only their ids : each line is registered in its own transaction and loads its entities by
+ * id, from the second level cache when possible. An id that no longer matches an entity with the same object id
+ * (rolled back or deleted since) is dropped by the caller and the entity is searched by object id again.
+ */
+public class SharedEntityIdCache {
+
+	public static final String SHARED_ENTITY_IDS = "shared_entity_ids";
+
+	public static final String MAX_SIZE_PROPERTY = "iev.import.shared.entity.cache.size";
+
+	private static final int DEFAULT_MAX_SIZE = 100000;
+
+	private final int maxSize;
+
+	private final Map<Class<?>, Map<String, Long>> ids = new HashMap<>();
+
+	public SharedEntityIdCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public static SharedEntityIdCache getInstance(Context context) {
+		return (SharedEntityIdCache) context.computeIfAbsent(SHARED_ENTITY_IDS,
+				k -> new SharedEntityIdCache(PropertyUtil.getIntProperty(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE)));
+	}
+
+	public synchronized Long get(Class<?> type, String objectId) {
+		return idsOf(type).get(objectId);
+	}
+
+	public synchronized void remove(Class<?> type, String objectId) {
+		idsOf(type).remove(objectId);
+	}
+
+	/**
+	 * keep the ids of persisted entities, entities without id are ignored
+	 */
+	public synchronized void putAll(Class<?> type, Collection<? extends NeptuneIdentifiedObject> entities) {
+		if (entities == null) {
+			return;
+		}
+		Map<String, Long> map = idsOf(type);
+		for (NeptuneIdentifiedObject entity : entities) {
+			if (entity.getId() != null && entity.getObjectId() != null) {
+				map.put(entity.getObjectId(), entity.getId());
+			}
+		}
+	}
+
+	public synchronized int size(Class<?> type) {
+		return idsOf(type).size();
+	}
+
+	private Map<String, Long> idsOf(Class<?> type) {
+		return ids.computeIfAbsent(type, k -> new LinkedHashMap<String, Long>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+				return size() > maxSize;
+			}
+		});
+	}
+}
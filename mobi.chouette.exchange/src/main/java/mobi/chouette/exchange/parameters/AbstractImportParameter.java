@@ -22,7 +22,7 @@ import org.apache.log4j.Logger;
 @ToString
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlType(propOrder = { "noSave", "cleanRepository", "stopAreaRemoteIdMapping", "stopAreaImportMode", "keepObsoleteLines",
-		"generateMissingRouteSectionsForModes" }, name = "actionImportParameter")
+		"generateMissingRouteSectionsForModes", "lineProcessingThreads", "skipUnchangedLines" }, name = "actionImportParameter")
 public class AbstractImportParameter extends AbstractParameter {
 
 	@XmlElement(name = "no_save", defaultValue = "false")
@@ -62,6 +62,25 @@ public class AbstractImportParameter extends AbstractParameter {
 	@Setter
 	private Set<TransportModeNameEnum> generateMissingRouteSectionsForModes = new HashSet<>();
 
+	/**
+	 * Number of lines processed concurrently by importers supporting it (parsing ahead and validation).
+	 * 0 to use the server configuration, 1 for serial processing. Lowered, with a warning, to the thread cap per job
+	 * of the server (iev.parallel.execution.job.threads.max).
+	 */
+	@XmlElement(name = "line_processing_threads", defaultValue = "0")
+	@Getter
+	@Setter
+	private int lineProcessingThreads = 0;
+
+	/**
+	 * Whether lines identical to their last import (same content fingerprint) are left untouched.
+	 * Not supported by NeTEx imports, which delete lines before registering them.
+	 */
+	@XmlElement(name = "skip_unchanged_lines", defaultValue = "false")
+	@Getter
+	@Setter
+	private boolean skipUnchangedLines = false;
+
 
 	public boolean isValid(Logger log) {
 		return super.isValid(log);
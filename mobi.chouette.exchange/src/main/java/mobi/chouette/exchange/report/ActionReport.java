@@ -16,6 +16,7 @@ import javax.xml.bind.annotation.XmlType;
 
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import mobi.chouette.common.Constant;
 import mobi.chouette.exchange.report.ActionReporter.FILE_STATE;
 import mobi.chouette.exchange.report.ActionReporter.OBJECT_TYPE;
@@ -28,7 +29,8 @@ import org.codehaus.jettison.json.JSONObject;
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlType(propOrder = { "progression", "result", "zip", "files", "lines", "stats", "failure", "objects", "collections" })
 @Data
-@EqualsAndHashCode(callSuper = false)
+@EqualsAndHashCode(callSuper = false, exclude = { "fileReportIndex" })
+@ToString(exclude = { "fileReportIndex" })
 public class ActionReport extends AbstractReport implements Constant, ProgressionReport, Report {
 
 	@XmlElement(name = "progression", required = true)
@@ -43,6 +45,9 @@ public class ActionReport extends AbstractReport implements Constant, Progressio
 	@XmlElement(name = "files")
 	private List<FileReport> files = new ArrayList<>();
 
+	@XmlTransient
+	private final ReportIndex<FileReport> fileReportIndex = new ReportIndex<>(FileReport::getName);
+
 	@XmlElement(name = "failure")
 	private ActionError failure;
 
@@ -62,11 +67,7 @@ public class ActionReport extends AbstractReport implements Constant, Progressio
 	 * @return
 	 */
 	protected FileReport findFileReport(String name) {
-		for (FileReport fileReport : files) {
-			if (fileReport.getName().equals(name))
-				return fileReport;
-		}
-		return null;
+		return fileReportIndex.find(files, name);
 	}
 
 	/**
@@ -157,7 +158,10 @@ public class ActionReport extends AbstractReport implements Constant, Progressio
 	 * @param file
 	 */
 	protected void addFileReport(FileReport file) {
-		files.add(file);
+		synchronized (files) {
+			files.add(file);
+			fileReportIndex.added(files, file);
+		}
 	}
 
 	/**
@@ -222,11 +226,7 @@ public class ActionReport extends AbstractReport implements Constant, Progressio
 
 	public ObjectReport findObjectReport(String objectId, OBJECT_TYPE type) {
 		if (collections.containsKey(type)) {
-			ObjectCollectionReport collection = collections.get(type);
-			for (ObjectReport objectReport : collection.getObjectReports()) {
-				if (objectReport.getObjectId().equals(objectId))
-					return objectReport;
-			}
+			return collections.get(type).findObjectReport(objectId);
 		} else if (objects.containsKey(type)) {
 			return objects.get(type);
 		}
@@ -8,6 +8,8 @@ public class ActionReporterImpl implements ActionReporter, Constant {
 
 	@Override
 	public void addZipReport(Context context, String fileInfoName, IO_TYPE ioType) {
+		if (DeferredReports.record(context, c -> addZipReport(c, fileInfoName, ioType)))
+			return;
 		ActionReport actionReport = (ActionReport) context.get(REPORT);
 		FileReport fileReport = actionReport.findZipReport(fileInfoName);
 
@@ -18,6 +20,8 @@ public class ActionReporterImpl implements ActionReporter, Constant {
 
 	@Override
 	public void addZipErrorInReport(Context context, String fileInfoName, FILE_ERROR_CODE code, String message) {
+		if (DeferredReports.record(context, c -> addZipErrorInReport(c, fileInfoName, code, message)))
+			return;
 		ActionReport actionReport = (ActionReport) context.get(REPORT);
 		FileReport fileReport = actionReport.findZipReport(fileInfoName);
 		// if (fileReport == null)
@@ -29,6 +33,8 @@ public class ActionReporterImpl implements ActionReporter, Constant {
 
 	@Override
 	public void addFileReport(Context context, String fileInfoName, IO_TYPE ioType) {
+		if (DeferredReports.record(context, c -> addFileReport(c, fileInfoName, ioType)))
+			return;
 		ActionReport actionReport = (ActionReport) context.get(REPORT);
 		FileReport fileReport = actionReport.findFileReport(fileInfoName);
 
@@ -39,6 +45,8 @@ public class ActionReporterImpl implements ActionReporter, Constant {
 
 	@Override
 	public void setFileState(Context context, String fileInfoName, IO_TYPE ioType, FILE_STATE state) {
+		if (DeferredReports.record(context, c -> setFileState(c, fileInfoName, ioType, state)))
+			return;
 		ActionReport actionReport = (ActionReport) context.get(REPORT);
 		FileReport fileReport = actionReport.findFileReport(fileInfoName);
 
@@ -52,6 +60,8 @@ public class ActionReporterImpl implements ActionReporter, Constant {
 
 	@Override
 	public void addFileErrorInReport(Context context, String fileInfoName, FILE_ERROR_CODE code, String message) {
+		if (DeferredReports.record(context, c -> addFileErrorInReport(c, fileInfoName, code, message)))
+			return;
 		ActionReport actionReport = (ActionReport) context.get(REPORT);
 		FileReport fileReport = actionReport.findFileReport(fileInfoName);
 
@@ -65,6 +75,8 @@ public class ActionReporterImpl implements ActionReporter, Constant {
 
 	@Override
 	public void setActionError(Context context, ERROR_CODE code, String description) {
+		if (DeferredReports.record(context, c -> setActionError(c, code, description)))
+			return;
 		ActionReport actionReport = (ActionReport) context.get(REPORT);
 		ActionError actionError = new ActionError(code, description);
 
@@ -82,6 +94,8 @@ public class ActionReporterImpl implements ActionReporter, Constant {
 	@Override
 	public void addObjectReport(Context context, String objectId, OBJECT_TYPE type, String description,
 			OBJECT_STATE status, IO_TYPE ioType) {
+		if (DeferredReports.record(context, c -> addObjectReport(c, objectId, type, description, status, ioType)))
+			return;
 		ActionReport actionReport = (ActionReport) context.get(REPORT);
 		if (actionReport != null) {
 			ObjectReport old = actionReport.findObjectReport(objectId, type);
@@ -107,6 +121,8 @@ public class ActionReporterImpl implements ActionReporter, Constant {
 	@Override
 	public void addErrorToObjectReport(Context context, String objectId, OBJECT_TYPE type, ERROR_CODE code,
 			String descriptionError) {
+		if (DeferredReports.record(context, c -> addErrorToObjectReport(c, objectId, type, code, descriptionError)))
+			return;
 		ActionReport actionReport = (ActionReport) context.get(REPORT);
 		if (actionReport != null) {
 			if (actionReport.findObjectReport(objectId, type) == null) {
@@ -122,6 +138,8 @@ public class ActionReporterImpl implements ActionReporter, Constant {
 	@Override
 	public void addStatToObjectReport(Context context, String objectId, OBJECT_TYPE type, OBJECT_TYPE statType,
 			int count) {
+		if (DeferredReports.record(context, c -> addStatToObjectReport(c, objectId, type, statType, count)))
+			return;
 		ActionReport actionReport = (ActionReport) context.get(REPORT);
 		if (actionReport != null) {
 			if (actionReport.getObjects().containsKey(type)) {
@@ -149,6 +167,8 @@ public class ActionReporterImpl implements ActionReporter, Constant {
 	@Override
 	public void setStatToObjectReport(Context context, String objectId, OBJECT_TYPE type, OBJECT_TYPE statType,
 			int count) {
+		if (DeferredReports.record(context, c -> setStatToObjectReport(c, objectId, type, statType, count)))
+			return;
 		ActionReport actionReport = (ActionReport) context.get(REPORT);
 		if (actionReport != null) {
 			if (actionReport.getObjects().containsKey(type)) {
@@ -0,0 +1,75 @@
+package mobi.chouette.exchange.report;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import mobi.chouette.common.Constant;
+import mobi.chouette.common.Context;
+
+/**
+ * report operations of a command executed out of the job thread
+ * <br/>
+ * Action and validation reports are not thread safe : when the context is deferred, operations are recorded in the
+ * context instead of being applied, to be replayed on the job context by the job thread, in the recording order.
+ * <br/>
+ * {@link ActionReporterImpl} and {@link mobi.chouette.exchange.validation.report.ValidationReporterImpl} record
+ * their updates themselves ; updates returning a value and queries are applied on the shared reports.
+ */
+public class DeferredReports implements Constant {
+
+	private DeferredReports() {
+	}
+
+	/**
+	 * record report operations in the context from now on
+	 */
+	public static void defer(Context context) {
+		context.put(DEFERRED_REPORTS, new ArrayList<Consumer<Context>>());
+	}
+
+	/**
+	 * apply the report operation on the context, or record it when the context is deferred
+	 */
+	public static void report(Context context, Consumer<Context> operation) {
+		if (!record(context, operation)) {
+			operation.accept(context);
+		}
+	}
+
+	/**
+	 * record the report operation when the context is deferred
+	 *
+	 * @return false if the context is not deferred, the operation is then to be applied by the caller
+	 */
+	@SuppressWarnings("unchecked")
+	public static boolean record(Context context, Consumer<Context> operation) {
+		List<Consumer<Context>> operations = (List<Consumer<Context>>) context.get(DEFERRED_REPORTS);
+		if (operations == null) {
+			return false;
+		}
+		operations.add(operation);
+		return true;
+	}
+
+	/**
+	 * stop recording report operations in the context
+	 *
+	 * @return operations recorded since {@link #defer(Context)}
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<Consumer<Context>> remove(Context context) {
+		List<Consumer<Context>> operations = (List<Consumer<Context>>) context.remove(DEFERRED_REPORTS);
+		return operations == null ? Collections.emptyList() : operations;
+	}
+
+	/**
+	 * apply the operations on the context, or record them again when the context is deferred
+	 */
+	public static void replay(List<Consumer<Context>> operations, Context context) {
+		for (Consumer<Context> operation : operations) {
+			report(context, operation);
+		}
+	}
+}
@@ -10,6 +10,7 @@ import java.util.Map.Entry;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlTransient;
 import javax.xml.bind.annotation.XmlType;
 
 import lombok.Data;
@@ -22,8 +23,8 @@ import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 
 @Data
-@EqualsAndHashCode(callSuper=false)
-@ToString
+@EqualsAndHashCode(callSuper=false, exclude = { "objectReportIndex" })
+@ToString(exclude = { "objectReportIndex" })
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlType(propOrder = { "objectType", "objectReports", "stats", "ioType" })
 public class ObjectCollectionReport  extends AbstractReport {
@@ -33,6 +34,9 @@ public class ObjectCollectionReport  extends AbstractReport {
 	@XmlElement(name = "object_reports")
 	private List<ObjectReport> objectReports = new ArrayList<ObjectReport>();
 
+	@XmlTransient
+	private final ReportIndex<ObjectReport> objectReportIndex = new ReportIndex<>(ObjectReport::getObjectId);
+
 	@XmlElement(name = "stats")
 	private Map<ActionReporter.OBJECT_TYPE, Integer> stats = new HashMap<ActionReporter.OBJECT_TYPE, Integer>();
 
@@ -41,8 +45,12 @@ public class ObjectCollectionReport  extends AbstractReport {
 	 * @param object
 	 */
 	protected void addObjectReport(ObjectReport object) {
-		if (findObjectReport(object.getObjectId()) == null)
-		   objectReports.add(object);
+		synchronized (objectReports) {
+			if (findObjectReport(object.getObjectId()) == null) {
+				objectReports.add(object);
+				objectReportIndex.added(objectReports, object);
+			}
+		}
 	}
 
 	/**
@@ -82,11 +90,7 @@ public class ObjectCollectionReport  extends AbstractReport {
 	}
 
 	public ObjectReport findObjectReport(String objectId) {
-		for (ObjectReport object : objectReports) {
-			if (object.getObjectId().equals(objectId))
-				return object;
-		}
-		return null;
+		return objectReportIndex.find(objectReports, objectId);
 	}
 
 	@Override
@@ -0,0 +1,54 @@
+package mobi.chouette.exchange.report;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * lookup by key on a list of report items, returning the first item of the list with the key
+ * <br/>
+ * Items appended through the owning report are indexed as they come ; the index is rebuilt when the list was
+ * replaced or changed by other means. The index is guarded by the monitor of the list.
+ */
+public class ReportIndex<T> {
+
+	private final Function<T, String> keyFunction;
+
+	private final Map<String, T> index = new HashMap<>();
+
+	private List<T> indexedList;
+
+	private int indexedSize = 0;
+
+	public ReportIndex(Function<T, String> keyFunction) {
+		this.keyFunction = keyFunction;
+	}
+
+	/**
+	 * @param list
+	 *            list the item was just appended to
+	 */
+	public void added(List<T> list, T item) {
+		synchronized (list) {
+			if (list == indexedList && indexedSize == list.size() - 1) {
+				index.putIfAbsent(keyFunction.apply(item), item);
+				indexedSize++;
+			}
+		}
+	}
+
+	public T find(List<T> list, String key) {
+		synchronized (list) {
+			if (list != indexedList || indexedSize != list.size()) {
+				index.clear();
+				for (T item : list) {
+					index.putIfAbsent(keyFunction.apply(item), item);
+				}
+				indexedList = list;
+				indexedSize = list.size();
+			}
+			return index.get(key);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package mobi.chouette.exchange.validation;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -51,7 +52,7 @@ public class ValidationData {
 	private List<Route> routes = new ArrayList<>();
 	private List<StopPoint> stopPoints = new ArrayList<>();
 	private Line currentLine;
-	private Map<String, DataLocation> dataLocations = new HashMap<>();
+	private Map<String, DataLocation> dataLocations = Collections.synchronizedMap(new HashMap<>());
 	private Map<String, Set<String>> linesOfStopAreas = new HashMap<>();
 	private Set<Interchange> interchanges = new HashSet<>();
 
@@ -91,6 +92,55 @@ public class ValidationData {
 		allVehicleJourneys.clear();
 	}
 
+	/**
+	 * create an empty collection for a single line, sharing data locations with this one
+	 * 
+	 * @return line collection
+	 */
+	public ValidationData createLineData() {
+		ValidationData result = new ValidationData();
+		result.setDataLocations(dataLocations);
+		return result;
+	}
+
+	/**
+	 * add shared data collected for a single line into this collection
+	 * 
+	 * @param lineData
+	 *            collection filled for one line
+	 */
+	public synchronized void merge(ValidationData lineData) {
+		networks.addAll(lineData.getNetworks());
+		networkIds.addAll(lineData.getNetworkIds());
+		lines.addAll(lineData.getLines());
+		lineIds.addAll(lineData.getLineIds());
+		companies.addAll(lineData.getCompanies());
+		companyIds.addAll(lineData.getCompanyIds());
+		groupOfLines.addAll(lineData.getGroupOfLines());
+		groupOfLineIds.addAll(lineData.getGroupOfLineIds());
+		stopAreas.addAll(lineData.getStopAreas());
+		dummyStopAreas.addAll(lineData.getDummyStopAreas());
+		stopAreaIds.addAll(lineData.getStopAreaIds());
+		connectionLinks.addAll(lineData.getConnectionLinks());
+		connectionLinkIds.addAll(lineData.getConnectionLinkIds());
+		accessLinks.addAll(lineData.getAccessLinks());
+		accessLinkIds.addAll(lineData.getAccessLinkIds());
+		accessPoints.addAll(lineData.getAccessPoints());
+		accessPointIds.addAll(lineData.getAccessPointIds());
+		timetables.addAll(lineData.getTimetables());
+		timetableIds.addAll(lineData.getTimetableIds());
+		allVehicleJourneys.addAll(lineData.getAllVehicleJourneys());
+		interchanges.addAll(lineData.getInterchanges());
+		for (Map.Entry<String, Set<String>> entry : lineData.getLinesOfStopAreas().entrySet()) {
+			Set<String> lineIdsOfStopArea = linesOfStopAreas.get(entry.getKey());
+			if (lineIdsOfStopArea == null) {
+				lineIdsOfStopArea = new HashSet<>();
+				linesOfStopAreas.put(entry.getKey(), lineIdsOfStopArea);
+			}
+			lineIdsOfStopArea.addAll(entry.getValue());
+		}
+	}
+
 	public void addVehicleJourney(VehicleJourney vehicleJourney) {
 		vehicleJourneys.add(vehicleJourney);
 		allVehicleJourneys.add(vehicleJourney);
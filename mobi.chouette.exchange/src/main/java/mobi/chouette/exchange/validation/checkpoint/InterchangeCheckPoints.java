@@ -5,7 +5,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.SortedSet;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -23,11 +22,11 @@ import mobi.chouette.model.VehicleJourney;
 import mobi.chouette.model.VehicleJourneyAtStop;
 import mobi.chouette.model.type.AlightingPossibilityEnum;
 import mobi.chouette.model.type.BoardingPossibilityEnum;
+import mobi.chouette.model.util.DaySet;
 
 import com.google.common.base.Joiner;
 import org.apache.commons.lang3.time.DateUtils;
 import org.apache.commons.lang3.tuple.Pair;
-import java.time.LocalDate;
 
 @Log4j
 public class InterchangeCheckPoints extends AbstractValidation<Interchange> implements Validator<Interchange> {
@@ -222,14 +221,8 @@ public class InterchangeCheckPoints extends AbstractValidation<Interchange> impl
 	}
 
 	private boolean hasSharedActiveDate(VehicleJourneyAtStop feederVJAtStop, VehicleJourneyAtStop consumerVJAtStop, int dayOffsetDiff) {
-		SortedSet<LocalDate> feederActiveDates = feederVJAtStop.getVehicleJourney().getActiveDates();
-		for (LocalDate consumerActiveDate : consumerVJAtStop.getVehicleJourney().getActiveDates()) {
-			LocalDate matchingFeederDate = consumerActiveDate.plusDays(dayOffsetDiff);
-			if (feederActiveDates.contains(matchingFeederDate)) {
-				return true;
-			}
-		}
-		return false;
+		DaySet feederActiveDays = feederVJAtStop.getVehicleJourney().getActiveDays();
+		return feederActiveDays.intersects(consumerVJAtStop.getVehicleJourney().getActiveDays().shift(dayOffsetDiff));
 	}
 
 	void checkConsumerBoarding(Context context, Interchange interchange, VehicleJourneyAtStop consumerVJAtStop) {
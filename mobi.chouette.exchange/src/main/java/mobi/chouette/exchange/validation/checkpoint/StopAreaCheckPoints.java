@@ -1,12 +1,10 @@
 package mobi.chouette.exchange.validation.checkpoint;
 
-import com.vividsolutions.jts.geom.Coordinate;
-import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Point;
 import com.vividsolutions.jts.geom.Polygon;
-import com.vividsolutions.jts.index.quadtree.Quadtree;
 import lombok.extern.log4j.Log4j;
 import mobi.chouette.common.Context;
+import mobi.chouette.common.parallel.SharedTaskExecutor;
 import mobi.chouette.exchange.validation.ValidationData;
 import mobi.chouette.exchange.validation.Validator;
 import mobi.chouette.exchange.validation.parameters.ValidationParameters;
@@ -18,17 +16,15 @@ import mobi.chouette.model.type.TransportModeNameEnum;
 import mobi.chouette.model.type.TransportSubModeNameEnum;
 
 import java.util.*;
+import java.util.concurrent.Future;
 
 @Log4j
 public class StopAreaCheckPoints extends AbstractValidation<StopArea> implements Validator<StopArea> {
 
-	private double minLat;
-	private double maxLat;
-	private double minLon;
-	private double maxLon;
-	private Envelope searchEnv;
+	private static final String COMMAND = "StopAreaCheckPoints";
 
-	private Quadtree spatialIndex;
+	// below this number of stop areas, distance checks are evaluated on the calling thread
+	private static final int PARALLEL_THRESHOLD = 2000;
 
 	@Override
 	public void validate(Context context, StopArea target) {
@@ -81,19 +77,8 @@ public class StopAreaCheckPoints extends AbstractValidation<StopArea> implements
 			log.error("cannot decode enveloppe " + parameters.getStopAreasArea());
 		}
 
-		// prepare quadtree index
-		spatialIndex = new Quadtree();
-		for (StopArea stopArea : beans) {
-			ChouetteAreaEnum type = stopArea.getAreaType();
-			if (type.equals(ChouetteAreaEnum.BoardingPosition) || type.equals(ChouetteAreaEnum.Quay)) {
-				if (stopArea.hasCoordinates()) {
-
-					Coordinate c = new Coordinate(stopArea.getLongitude().doubleValue(), stopArea.getLatitude()
-							.doubleValue());
-					spatialIndex.insert(Quadtree.ensureExtent(new Envelope(c), 0.00001), stopArea);
-				}
-			}
-		}
+		StopAreaSpatialIndex index = new StopAreaSpatialIndex(beans, data.getLinesOfStopAreas());
+		List<Finding>[] findings = findDistanceErrors(context, index, parameters);
 
 		for (int i = 0; i < beans.size(); i++) {
 			StopArea stopArea = beans.get(i);
@@ -106,7 +91,7 @@ public class StopAreaCheckPoints extends AbstractValidation<StopArea> implements
 			}
 
 			check3StopArea4(context, stopArea, enveloppe);
-			check3StopArea5(context, stopArea, parameters);
+			report(context, findings[i], STOP_AREA_5);
 			check3StopArea6(context, stopArea, parameters);
 			check3StopArea7(context, stopArea, parameters);
 
@@ -117,41 +102,87 @@ public class StopAreaCheckPoints extends AbstractValidation<StopArea> implements
 			if (test4_2)
 				check4StopArea2(context, stopArea);
 
-			check3StopArea2(context, stopArea, parameters);
-
-			// Unable to see relevance for this. Make skipping configurable?
-//			for (int j = i + 1; j < beans.size(); j++) {
-//				check3StopArea3(context, i, stopArea, j, beans.get(j));
-//			}
-
+			report(context, findings[i], STOP_AREA_2);
+			report(context, findings[i], STOP_AREA_3);
 		}
 		return;
 	}
 
-	protected void updateSquare(StopArea stopArea, ValidationParameters parameters) {
-
-		if (!stopArea.hasCoordinates())
-			return;
-		long distanceMin = parameters.getInterStopAreaDistanceMin();
-
-		double rLat = A * Math.cos(stopArea.getLatitude().doubleValue() * toRad);
-		minLon = stopArea.getLongitude().doubleValue() - (distanceMin * 1.2 / rLat);
-		maxLon = stopArea.getLongitude().doubleValue() + (distanceMin * 1.2 / rLat);
-		minLat = stopArea.getLatitude().doubleValue() - (distanceMin * 1.2 / A);
-		maxLat = stopArea.getLatitude().doubleValue() + (distanceMin * 1.2 / A);
+	/**
+	 * evaluate distance checks (3-StopArea-2, 3-StopArea-3 and 3-StopArea-5) of all stop areas, in parallel over
+	 * partitions of the stop areas when there are many of them
+	 *
+	 * @return errors by stop area rank, null when none
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Finding>[] findDistanceErrors(Context context, StopAreaSpatialIndex index,
+			ValidationParameters parameters) {
+		int size = index.size();
+		List<Finding>[] result = new List[size];
+		if (size < PARALLEL_THRESHOLD) {
+			findDistanceErrors(index, parameters, 0, size, result);
+			return result;
+		}
 
-		searchEnv = new Envelope(minLon, maxLon, minLat, maxLat);
+		SharedTaskExecutor executor = new SharedTaskExecutor(COMMAND, context);
+		int partitionSize = Math.max(PARALLEL_THRESHOLD / 4, size / (SharedTaskExecutor.getDefaultMaxConcurrency() * 4));
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (int from = 0; from < size; from += partitionSize) {
+				final int start = from;
+				final int end = Math.min(from + partitionSize, size);
+				futures.add(executor.submit("DistanceChecks", () -> {
+					findDistanceErrors(index, parameters, start, end, result);
+					return null;
+				}));
+			}
+			for (Future<Void> future : futures) {
+				executor.get(future);
+			}
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException("stop area distance checks failed", e);
+		} finally {
+			executor.shutdown();
+		}
+		return result;
 	}
 
-	protected boolean near(StopArea area) {
-		if (area.getLongitude().doubleValue() < minLon || area.getLongitude().doubleValue() > maxLon) {
-			return false;
-		}
-		if (area.getLatitude().doubleValue() < minLat || area.getLatitude().doubleValue() > maxLat) {
-			return false;
+	private void findDistanceErrors(StopAreaSpatialIndex index, ValidationParameters parameters, int start, int end,
+			List<Finding>[] result) {
+		Integer distanceMin = parameters.getInterStopAreaDistanceMin();
+		Integer parentDistanceMax = parameters.getParentStopAreaDistanceMax();
+		int duplicateDistanceMax = parameters.getStopAreaDuplicateDistanceMax();
+		List<StopAreaSpatialIndex.Stop> stops = index.getStops();
+		for (int i = start; i < end; i++) {
+			StopAreaSpatialIndex.Stop stop = stops.get(i);
+			// no test for ITL
+			if (stop.type.equals(ChouetteAreaEnum.ITL) || !stop.located)
+				continue;
+			List<Finding> findings = new ArrayList<>(0);
+			if (parentDistanceMax != null)
+				check3StopArea5(stop, parentDistanceMax, findings);
+			if (distanceMin != null)
+				check3StopArea2(index, stop, distanceMin, findings);
+			if (duplicateDistanceMax > 0)
+				check3StopArea3(index, stop, duplicateDistanceMax, findings);
+			if (!findings.isEmpty())
+				result[i] = findings;
 		}
-		return true;
+	}
 
+	private void report(Context context, List<Finding> findings, String checkPoint) {
+		if (findings == null)
+			return;
+		ValidationReporter reporter = ValidationReporter.Factory.getInstance();
+		for (Finding finding : findings) {
+			if (finding.checkPoint.equals(checkPoint)) {
+				DataLocation source = buildLocation(context, finding.source);
+				DataLocation target = buildLocation(context, finding.target);
+				reporter.addCheckPointReportError(context, checkPoint, source, finding.value, finding.limit, target);
+			}
+		}
 	}
 
 	private void check3StopArea1(Context context, StopArea stopArea) {
@@ -164,67 +195,53 @@ public class StopAreaCheckPoints extends AbstractValidation<StopArea> implements
 		}
 	}
 
-	@SuppressWarnings("rawtypes")
-	private void check3StopArea2(Context context, StopArea stopArea, ValidationParameters parameters) {
+	private void check3StopArea2(StopAreaSpatialIndex index, StopAreaSpatialIndex.Stop stop, long distanceMin,
+			List<Finding> findings) {
 		// 3-StopArea-2 : check distance of stop areas with different name
-		if (!stopArea.hasCoordinates())
+		if (!stop.type.equals(ChouetteAreaEnum.BoardingPosition) && !stop.type.equals(ChouetteAreaEnum.Quay))
 			return;
-		long distanceMin = parameters.getInterStopAreaDistanceMin();
-		ChouetteAreaEnum type = stopArea.getAreaType();
-		if (type.equals(ChouetteAreaEnum.BoardingPosition) || type.equals(ChouetteAreaEnum.Quay)) {
-			updateSquare(stopArea, parameters);
-
-			Coordinate c = new Coordinate(stopArea.getLongitude().doubleValue(), stopArea.getLatitude().doubleValue());
-			spatialIndex.remove(Quadtree.ensureExtent(new Envelope(c), 0.00001), stopArea);
-			List areas = spatialIndex.query(searchEnv);
-			for (Object object : areas) {
-				StopArea stopArea2 = (StopArea) object;
-				if (stopArea2.equals(stopArea))
-					continue;
-				if (!stopArea2.getAreaType().equals(type))
-					continue;
-				if (Objects.equals(stopArea.getParent(),stopArea2.getParent()))
-					continue;
-				double distance = quickDistance(stopArea, stopArea2);
-				if (distance < distanceMin) {
-					DataLocation source = buildLocation(context, stopArea);
-					DataLocation target = buildLocation(context, stopArea2);
-
-					ValidationReporter reporter = ValidationReporter.Factory.getInstance();
-					reporter.addCheckPointReportError(context, STOP_AREA_2, source, Integer.toString((int) distance),
-							Integer.toString((int) distanceMin), target);
-				}
-
+		for (StopAreaSpatialIndex.Stop stop2 : sortByRank(index.query(stop, distanceMin))) {
+			// each pair is checked once, from the first stop area
+			if (stop2.rank <= stop.rank)
+				continue;
+			if (!stop2.type.equals(stop.type))
+				continue;
+			if (Objects.equals(stop.parent, stop2.parent))
+				continue;
+			double distance = stop.distance(stop2);
+			if (distance < distanceMin) {
+				findings.add(new Finding(STOP_AREA_2, stop.stopArea, stop2.stopArea, Integer.toString((int) distance),
+						Integer.toString((int) distanceMin)));
 			}
-
 		}
-
 	}
 
-	private void check3StopArea3(Context context, int rank, StopArea stopArea, int rank2, StopArea stopArea2) {
-		// 3-StopArea-3 : check multiple occurrence of a stopArea of same type
-		if (!stopArea2.getAreaType().equals(stopArea.getAreaType()))
-			return;
-		// same name; same code; same address ...
-		if (!Objects.equals(stopArea.getName(),stopArea2.getName())) {
-			return;
-		}
-		if (stopArea.getStreetName() != null && !stopArea.getStreetName().equals(stopArea2.getStreetName())) {
-			return;
-		}
-		if (stopArea.getCountryCode() != null && !stopArea.getCountryCode().equals(stopArea2.getCountryCode())) {
-			return;
-		}
-		Collection<String> lines = getLines(context, stopArea);
-		Collection<String> lines2 = getLines(context, stopArea2);
-		if (lines.containsAll(lines2) && lines2.containsAll(lines)) {
-			DataLocation source = buildLocation(context, stopArea);
-			DataLocation target = buildLocation(context, stopArea2);
-
-			ValidationReporter reporter = ValidationReporter.Factory.getInstance();
-			reporter.addCheckPointReportError(context, STOP_AREA_3, source, null, null, target);
+	private void check3StopArea3(StopAreaSpatialIndex index, StopAreaSpatialIndex.Stop stop, long distanceMax,
+			List<Finding> findings) {
+		// 3-StopArea-3 : check multiple occurrence of a stopArea of same type near the same location
+		for (StopAreaSpatialIndex.Stop stop2 : sortByRank(index.query(stop, distanceMax))) {
+			if (stop2.rank <= stop.rank)
+				continue;
+			if (!stop2.type.equals(stop.type))
+				continue;
+			// same name; same code; same address ...
+			if (!Objects.equals(stop.name, stop2.name))
+				continue;
+			if (stop.streetName != null && !stop.streetName.equals(stop2.streetName))
+				continue;
+			if (stop.countryCode != null && !stop.countryCode.equals(stop2.countryCode))
+				continue;
+			if (stop.distance(stop2) > distanceMax)
+				continue;
+			if (stop.lines.containsAll(stop2.lines) && stop2.lines.containsAll(stop.lines)) {
+				findings.add(new Finding(STOP_AREA_3, stop.stopArea, stop2.stopArea, null, null));
+			}
 		}
+	}
 
+	private static List<StopAreaSpatialIndex.Stop> sortByRank(List<StopAreaSpatialIndex.Stop> stops) {
+		stops.sort(Comparator.comparingInt(stop -> stop.rank));
+		return stops;
 	}
 
 	private void check3StopArea4(Context context, StopArea stopArea, Polygon enveloppe) {
@@ -241,24 +258,14 @@ public class StopAreaCheckPoints extends AbstractValidation<StopArea> implements
 
 	}
 
-	private void check3StopArea5(Context context, StopArea stopArea, ValidationParameters parameters) {
+	private void check3StopArea5(StopAreaSpatialIndex.Stop stop, long distanceMax, List<Finding> findings) {
 		// 3-StopArea-5 : check distance with parents
-		if (!stopArea.hasCoordinates())
-			return;
-		long distanceMax = parameters.getParentStopAreaDistanceMax();
-		StopArea stopArea2 = stopArea.getParent();
-		if (stopArea2 == null)
+		if (!stop.parentLocated)
 			return; // no parent
-		if (!stopArea2.hasCoordinates())
-			return;
-		double distance = quickDistance(stopArea, stopArea2);
+		double distance = stop.parentDistance();
 		if (distance > distanceMax) {
-			DataLocation source = buildLocation(context, stopArea);
-			DataLocation target = buildLocation(context, stopArea2);
-
-			ValidationReporter reporter = ValidationReporter.Factory.getInstance();
-			reporter.addCheckPointReportError(context, STOP_AREA_5, source, Integer.toString((int) distance),
-					Integer.toString((int) distanceMax), target);
+			findings.add(new Finding(STOP_AREA_5, stop.stopArea, stop.parent, Integer.toString((int) distance),
+					Integer.toString((int) distanceMax)));
 		}
 	}
 
@@ -407,13 +414,19 @@ public class StopAreaCheckPoints extends AbstractValidation<StopArea> implements
 		}
 	}
 
-	private Collection<String> getLines(Context context, StopArea area) {
-		ValidationData data = (ValidationData) context.get(VALIDATION_DATA);
-		Set<String> lines = data.getLinesOfStopAreas().get(area.getObjectId());
-		if (lines == null)
-			lines = new HashSet<>();
-		return lines;
-
+	private static class Finding {
+		private final String checkPoint;
+		private final StopArea source;
+		private final StopArea target;
+		private final String value;
+		private final String limit;
+
+		private Finding(String checkPoint, StopArea source, StopArea target, String value, String limit) {
+			this.checkPoint = checkPoint;
+			this.source = source;
+			this.target = target;
+			this.value = value;
+			this.limit = limit;
+		}
 	}
-
 }
@@ -0,0 +1,115 @@
+package mobi.chouette.exchange.validation.checkpoint;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+import mobi.chouette.model.StopArea;
+import mobi.chouette.model.type.ChouetteAreaEnum;
+
+/**
+ * read only snapshot of stop areas with an STR tree index on their coordinates
+ * <br/>
+ * Attributes used by distance checks are copied once on the calling thread, the snapshot and the index can then be
+ * queried concurrently without touching the (possibly lazy loaded) stop areas.
+ */
+public class StopAreaSpatialIndex {
+
+	public static class Stop {
+		final int rank;
+		final StopArea stopArea;
+		final ChouetteAreaEnum type;
+		final StopArea parent;
+		final String name;
+		final String streetName;
+		final String countryCode;
+		final Collection<String> lines;
+		final boolean located;
+		final double longitude;
+		final double latitude;
+		final boolean parentLocated;
+		final double parentLongitude;
+		final double parentLatitude;
+
+		private Stop(int rank, StopArea stopArea, Collection<String> lines) {
+			this.rank = rank;
+			this.stopArea = stopArea;
+			this.type = stopArea.getAreaType();
+			this.parent = stopArea.getParent();
+			this.name = stopArea.getName();
+			this.streetName = stopArea.getStreetName();
+			this.countryCode = stopArea.getCountryCode();
+			this.lines = lines == null ? Collections.emptySet() : lines;
+			this.located = stopArea.hasCoordinates();
+			this.longitude = located ? stopArea.getLongitude().doubleValue() : Double.NaN;
+			this.latitude = located ? stopArea.getLatitude().doubleValue() : Double.NaN;
+			this.parentLocated = parent != null && parent.hasCoordinates();
+			this.parentLongitude = parentLocated ? parent.getLongitude().doubleValue() : Double.NaN;
+			this.parentLatitude = parentLocated ? parent.getLatitude().doubleValue() : Double.NaN;
+		}
+
+		public double distance(Stop other) {
+			return AbstractValidation.quickDistanceFromCoordinates(latitude, other.latitude, longitude,
+					other.longitude);
+		}
+
+		public double parentDistance() {
+			return AbstractValidation.quickDistanceFromCoordinates(latitude, parentLatitude, longitude,
+					parentLongitude);
+		}
+	}
+
+	private final List<Stop> stops;
+
+	private final STRtree index = new STRtree();
+
+	/**
+	 * @param stopAreas
+	 *            stop areas, ranked in list order
+	 * @param linesOfStopAreas
+	 *            line object ids by stop area object id
+	 */
+	public StopAreaSpatialIndex(List<StopArea> stopAreas, Map<String, Set<String>> linesOfStopAreas) {
+		stops = new ArrayList<>(stopAreas.size());
+		for (StopArea stopArea : stopAreas) {
+			Stop stop = new Stop(stops.size(), stopArea, linesOfStopAreas == null ? null : linesOfStopAreas
+					.get(stopArea.getObjectId()));
+			stops.add(stop);
+			if (stop.located) {
+				index.insert(new Envelope(stop.longitude, stop.longitude, stop.latitude, stop.latitude), stop);
+			}
+		}
+		// built before any concurrent query
+		index.build();
+	}
+
+	public List<Stop> getStops() {
+		return stops;
+	}
+
+	public int size() {
+		return stops.size();
+	}
+
+	/**
+	 * located stops in a box of about 1.2 x distance around the given one ; exact distance must be checked by the
+	 * caller
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Stop> query(Stop center, double distance) {
+		if (!center.located || index.size() == 0) {
+			return Collections.emptyList();
+		}
+		double rLat = AbstractValidation.A * Math.cos(center.latitude * AbstractValidation.toRad);
+		double dLon = distance * 1.2 / rLat;
+		double dLat = distance * 1.2 / AbstractValidation.A;
+		return index.query(new Envelope(center.longitude - dLon, center.longitude + dLon, center.latitude - dLat,
+				center.latitude + dLat));
+	}
+}
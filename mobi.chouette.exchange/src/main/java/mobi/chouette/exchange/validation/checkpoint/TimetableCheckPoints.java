@@ -44,7 +44,7 @@ public class TimetableCheckPoints extends AbstractValidation<Timetable> implemen
     }
 
     private void validateInactiveTimetable(Context context, Timetable timetable) {
-        if (timetable != null && timetable.getActiveDates().isEmpty()) {
+        if (timetable != null && timetable.getActiveDays().isEmpty()) {
             ValidationReporter reporter = ValidationReporter.Factory.getInstance();
             DataLocation locationTimetable = buildLocation(context, timetable);
             reporter.addCheckPointReportError(context, L4_TIME_TABLE_2, locationTimetable);
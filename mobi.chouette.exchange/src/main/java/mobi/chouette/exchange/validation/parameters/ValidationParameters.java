@@ -15,6 +15,7 @@ import lombok.Data;
 		"stopAreasArea",
 		"interStopAreaDistanceMin",
 		"parentStopAreaDistanceMax",
+		"stopAreaDuplicateDistanceMax",
 		"interAccessPointDistanceMin",
 		"maxSpeedHardLimitFactor",
 		"interConnectionLinkDistanceMax",
@@ -85,6 +86,9 @@ public class ValidationParameters {
 	@XmlElement(name = "parent_stop_area_distance_max")
 	private Integer parentStopAreaDistanceMax;
 
+	@XmlElement(name = "stop_area_duplicate_distance_max", defaultValue = "0")
+	private int stopAreaDuplicateDistanceMax = 0;
+
 	@XmlElement(name = "inter_access_point_distance_min", defaultValue = "20")
 	private int  interAccessPointDistanceMin = 20;
 
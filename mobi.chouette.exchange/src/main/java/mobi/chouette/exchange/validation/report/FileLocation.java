@@ -14,9 +14,10 @@ public class FileLocation extends AbstractReport {
 
 	private String filename;
 
-	private Integer lineNumber;
+	// -1 when unknown, kept unboxed as validations may report many locations
+	private int line = -1;
 
-	private Integer columnNumber;
+	private int column = -1;
 
 	protected FileLocation(String fileName) {
 		this.filename = fileName;
@@ -24,10 +25,8 @@ public class FileLocation extends AbstractReport {
 
 	protected FileLocation(String fileName, int lineNumber, int columnNumber) {
 		this.filename = fileName;
-		if (Integer.valueOf(lineNumber) >= 0)
-			this.lineNumber = Integer.valueOf(lineNumber);
-		if (Integer.valueOf(columnNumber) >= 0)
-			this.columnNumber = Integer.valueOf(columnNumber);
+		this.line = Math.max(lineNumber, -1);
+		this.column = Math.max(columnNumber, -1);
 	}
 
 	public FileLocation(DataLocation dl) {
@@ -35,16 +34,32 @@ public class FileLocation extends AbstractReport {
 
 	}
 
+	public Integer getLineNumber() {
+		return line < 0 ? null : Integer.valueOf(line);
+	}
+
+	public void setLineNumber(Integer lineNumber) {
+		this.line = lineNumber == null ? -1 : Math.max(lineNumber, -1);
+	}
+
+	public Integer getColumnNumber() {
+		return column < 0 ? null : Integer.valueOf(column);
+	}
+
+	public void setColumnNumber(Integer columnNumber) {
+		this.column = columnNumber == null ? -1 : Math.max(columnNumber, -1);
+	}
+
 	@Override
 	public void print(PrintStream out, StringBuilder ret , int level, boolean first) {
 		ret.setLength(0);
 		out.print(addLevel(ret, level).append('{'));
 		out.print(toJsonString(ret, level + 1, "filename", filename, true));
-		if (lineNumber != null) {
-			out.print(toJsonString(ret, level + 1, "line_number", lineNumber, false));
+		if (line >= 0) {
+			out.print(toJsonString(ret, level + 1, "line_number", line, false));
 		}
-		if (columnNumber != null) {
-			out.print(toJsonString(ret, level + 1, "column_number", columnNumber, false));
+		if (column >= 0) {
+			out.print(toJsonString(ret, level + 1, "column_number", column, false));
 		}
 		ret.setLength(0);
 		out.print(addLevel(ret.append('\n'), level).append('}'));
@@ -12,10 +12,11 @@ import lombok.Setter;
 import lombok.ToString;
 import mobi.chouette.exchange.report.AbstractReport;
 import mobi.chouette.exchange.report.Report;
+import mobi.chouette.exchange.report.ReportIndex;
 import mobi.chouette.exchange.validation.report.CheckPointReport.SEVERITY;
 import mobi.chouette.exchange.validation.report.ValidationReporter.VALIDATION_RESULT;
 
-@ToString
+@ToString(exclude = { "checkPointIndex", "checkPointErrorIndex" })
 public class ValidationReport extends AbstractReport implements Report {
 
 	@Getter
@@ -30,6 +31,10 @@ public class ValidationReport extends AbstractReport implements Report {
 	@Setter
 	private List<CheckPointErrorReport> checkPointErrors = Collections.synchronizedList(new ArrayList<CheckPointErrorReport>());
 
+	private final ReportIndex<CheckPointReport> checkPointIndex = new ReportIndex<>(CheckPointReport::getName);
+
+	private final ReportIndex<CheckPointErrorReport> checkPointErrorIndex = new ReportIndex<>(CheckPointErrorReport::getKey);
+
 	@Getter
 	@Setter
 	private boolean maxByFile = true;
@@ -40,30 +45,28 @@ public class ValidationReport extends AbstractReport implements Report {
 
 
 	public CheckPointReport findCheckPointReportByName(String name) {
-		for (CheckPointReport checkPoint : checkPoints) {
-			if (checkPoint.getName().equals(name))
-				return checkPoint;
-		}
-		return null;
+		return checkPointIndex.find(checkPoints, name);
 	}
 
 	public CheckPointErrorReport findCheckPointReportErrorByKey(String key) {
-		for (CheckPointErrorReport checkPointError : checkPointErrors) {
-			if (checkPointError.getKey().equals(key))
-				return checkPointError;
-		}
-		return null;
+		return checkPointErrorIndex.find(checkPointErrors, key);
 	}
 
 	protected void addCheckPointReport(CheckPointReport checkPoint) {
 		checkPoint.setMaxByFile(maxByFile);
-		checkPoints.add(checkPoint);
+		synchronized (checkPoints) {
+			checkPoints.add(checkPoint);
+			checkPointIndex.added(checkPoints, checkPoint);
+		}
 		if (result.ordinal() < VALIDATION_RESULT.OK.ordinal())
 			result = VALIDATION_RESULT.OK;
 	}
 
 	protected void addCheckPointErrorReport(CheckPointErrorReport checkPointError) {
-		checkPointErrors.add(checkPointError);
+		synchronized (checkPointErrors) {
+			checkPointErrors.add(checkPointError);
+			checkPointErrorIndex.added(checkPointErrors, checkPointError);
+		}
 		if (result != VALIDATION_RESULT.ERROR) {
 			CheckPointReport checkPoint = findCheckPointReportByName(checkPointError.getTestId());
 			if (checkPoint.getSeverity().equals(SEVERITY.WARNING)) {
@@ -92,14 +95,60 @@ public class ValidationReport extends AbstractReport implements Report {
 
 	@Override
 	public void print(PrintStream out, StringBuilder ret , int level, boolean first) {
+		printHead(out, ret);
+		if (!checkPointErrors.isEmpty()) {
+			printErrorsHead(out, ret);
+			printErrors(out, ret, 0, checkPointErrors.size());
+			printErrorsTail(out, ret);
+		}
+		printTail(out);
+	}
+
+	/**
+	 * print the report up to the check points, errors are printed with {@link #printErrors}
+	 */
+	public void printHead(PrintStream out, StringBuilder ret) {
 		ret.setLength(0);
-		level = 1;
 		out.print("{\"validation_report\": {");
-		out.print(toJsonString(ret, level, "result", result, true));
+		out.print(toJsonString(ret, 1, "result", result, true));
 		if (!checkPoints.isEmpty())
-			printArray(out, ret, level + 1, "check_points", checkPoints, false);
-		if (!checkPointErrors.isEmpty())
-			printArray(out, ret, level + 1, "errors", checkPointErrors, false);
+			printArray(out, ret, 2, "check_points", checkPoints, false);
+	}
+
+	public void printErrorsHead(PrintStream out, StringBuilder ret) {
+		ret.setLength(0);
+		out.print(addLevel(ret.append(",\n"), 2).append("\"errors\": ["));
+		ret.setLength(0);
+	}
+
+	/**
+	 * print the errors of the given range as array items, the first error of the report starts the array
+	 *
+	 * @param from
+	 *            index of the first error to print
+	 * @param to
+	 *            index after the last error to print
+	 */
+	public void printErrors(PrintStream out, StringBuilder ret, int from, int to) {
+		synchronized (checkPointErrors) {
+			for (int i = from; i < to; i++) {
+				ret.setLength(0);
+				if (i > 0)
+					ret.append(',');
+				out.print(ret.append('\n'));
+				checkPointErrors.get(i).print(out, ret, 3, i == 0);
+			}
+		}
+		ret.setLength(0);
+	}
+
+	public void printErrorsTail(PrintStream out, StringBuilder ret) {
+		ret.setLength(0);
+		out.print(addLevel(ret.append('\n'), 2).append(']'));
+		ret.setLength(0);
+	}
+
+	public void printTail(PrintStream out) {
 		out.println("\n}}");
 	}
 
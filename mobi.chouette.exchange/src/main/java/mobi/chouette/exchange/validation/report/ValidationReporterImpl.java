@@ -1,10 +1,13 @@
 package mobi.chouette.exchange.validation.report;
 
+import java.util.function.Supplier;
+
 import lombok.extern.log4j.Log4j;
 import mobi.chouette.common.Constant;
 import mobi.chouette.common.Context;
 import mobi.chouette.exchange.report.ActionReporter;
 import mobi.chouette.exchange.report.ActionReporter.OBJECT_TYPE;
+import mobi.chouette.exchange.report.DeferredReports;
 import mobi.chouette.exchange.report.IO_TYPE;
 import mobi.chouette.exchange.validation.report.CheckPointReport.SEVERITY;
 import mobi.chouette.exchange.validation.report.DataLocation.Path;
@@ -13,7 +16,9 @@ import mobi.chouette.exchange.validation.report.DataLocation.Path;
 public class ValidationReporterImpl implements ValidationReporter, Constant {
 
 	@Override
-	public void addItemToValidationReport(Context context, String key, String severity) {
+	public synchronized void addItemToValidationReport(Context context, String key, String severity) {
+		if (DeferredReports.record(context, c -> addItemToValidationReport(c, key, severity)))
+			return;
 		ValidationReport validationReport = (ValidationReport) context.get(VALIDATION_REPORT);
 		CheckPointReport checkPoint = validationReport.findCheckPointReportByName(key);
 		if (checkPoint == null) {
@@ -31,7 +36,9 @@ public class ValidationReporterImpl implements ValidationReporter, Constant {
 	}
 
 	@Override
-	public void addItemToValidationReport(Context context, String prefix, String name, int count, String... severities) {
+	public synchronized void addItemToValidationReport(Context context, String prefix, String name, int count, String... severities) {
+		if (DeferredReports.record(context, c -> addItemToValidationReport(c, prefix, name, count, severities)))
+			return;
 		ValidationReport validationReport = (ValidationReport) context.get(VALIDATION_REPORT);
 		for (int i = 1; i <= count; i++) {
 			String key = prefix + name + "-" + i;
@@ -81,11 +88,10 @@ public class ValidationReporterImpl implements ValidationReporter, Constant {
 	@Override
 	public void addCheckPointReportError(Context context, String checkPointName, String detail, DataLocation location,
 			String value, String refValue) {
+		if (DeferredReports.record(context, c -> addCheckPointReportError(c, checkPointName, detail, location, value, refValue)))
+			return;
 		ValidationReport validationReport = (ValidationReport) context.get(VALIDATION_REPORT);
-		Location detailLocation = null;
-		if (location != null)
-			detailLocation = new Location(location);
-		else
+		if (location == null)
 			log.warn("Added check point report error with location=null for cp: " + checkPointName + ", detail: " + detail + " ,value" + value + " ,refValue: " + refValue);
 
 		CheckPointReport checkPoint = validationReport.findCheckPointReportByName(checkPointName);
@@ -93,25 +99,28 @@ public class ValidationReporterImpl implements ValidationReporter, Constant {
 		if (checkPoint == null)
 			throw new NullPointerException("unknown checkPointName " + checkPointName);
 		checkPoint.setState(RESULT.NOK);
-		CheckPointErrorReport newCheckPointError;
 
-		if (detail != null)
-			newCheckPointError = new CheckPointErrorReport(checkPointName, checkPointName + "_" + detail, detailLocation, value,
-					refValue);
-		else
-			newCheckPointError = new CheckPointErrorReport(checkPointName, checkPointName, detailLocation, value, refValue);
-
-		addCheckPointError(context, location, validationReport, checkPoint, newCheckPointError);
+		addCheckPointError(context, location, validationReport, checkPoint, () -> {
+			Location detailLocation = location == null ? null : new Location(location);
+			if (detail != null)
+				return new CheckPointErrorReport(checkPointName, checkPointName + "_" + detail, detailLocation, value,
+						refValue);
+			return new CheckPointErrorReport(checkPointName, checkPointName, detailLocation, value, refValue);
+		});
 	}
 
-	private synchronized void addCheckPointError(Context context, DataLocation location, ValidationReport validationReport, CheckPointReport checkPoint, CheckPointErrorReport newCheckPointError) {
+	/**
+	 * count the error and keep it only if the check point or the file / object reports still retain errors, the
+	 * error details are only built in that case
+	 */
+	private synchronized void addCheckPointError(Context context, DataLocation location, ValidationReport validationReport, CheckPointReport checkPoint, Supplier<CheckPointErrorReport> newCheckPointError) {
 		int index = validationReport.getCheckPointErrors().size();
 		boolean checkPointAdded = checkPoint.addCheckPointError(index);
 
 		boolean reportAdded = addReferencesToActionReport(context, location, index, checkPoint.getSeverity());
 
 		if (checkPointAdded || reportAdded)
-			validationReport.addCheckPointErrorReport(newCheckPointError);
+			validationReport.addCheckPointErrorReport(newCheckPointError.get());
 	}
 
 	@Override
@@ -123,32 +132,31 @@ public class ValidationReporterImpl implements ValidationReporter, Constant {
 	@Override
 	public void addCheckPointReportError(Context context, String checkPointName, String detail, DataLocation location,
 			String value, String refValue, DataLocation... targetLocations) {
+		if (DeferredReports.record(context, c -> addCheckPointReportError(c, checkPointName, detail, location, value, refValue, targetLocations)))
+			return;
 		ValidationReport validationReport = (ValidationReport) context.get(VALIDATION_REPORT);
-		Location detailLocation = null;
-		if (location != null)
-			detailLocation = new Location(location);
 
 		CheckPointReport checkPoint = validationReport.findCheckPointReportByName(checkPointName);
 
 		if (checkPoint == null)
 			throw new NullPointerException("unknown checkPointName " + checkPointName);
 		checkPoint.setState(RESULT.NOK);
-		CheckPointErrorReport newCheckPointError;
 
-		if (detail != null)
-			newCheckPointError = new CheckPointErrorReport(checkPointName,checkPointName + "_" + detail, detailLocation, value,
-					refValue);
-		else
-			newCheckPointError = new CheckPointErrorReport(checkPointName,checkPointName, detailLocation, value, refValue);
+		addCheckPointError(context, location, validationReport, checkPoint, () -> {
+			Location detailLocation = location == null ? null : new Location(location);
+			CheckPointErrorReport newCheckPointError;
+			if (detail != null)
+				newCheckPointError = new CheckPointErrorReport(checkPointName,checkPointName + "_" + detail, detailLocation, value,
+						refValue);
+			else
+				newCheckPointError = new CheckPointErrorReport(checkPointName,checkPointName, detailLocation, value, refValue);
 
-		if (targetLocations.length > 0) {
 			for (DataLocation dataLocation : targetLocations) {
 				Location targetLocation = new Location(dataLocation);
 				newCheckPointError.getTargets().add(targetLocation);
 			}
-		}
-
-		addCheckPointError(context, location, validationReport, checkPoint, newCheckPointError);
+			return newCheckPointError;
+		});
 	}
 
 	private boolean addReferencesToActionReport(Context context, DataLocation location, int code, SEVERITY severity) {
@@ -203,24 +211,27 @@ public class ValidationReporterImpl implements ValidationReporter, Constant {
 
 	@Override
 	public void addCheckPointReportError(Context context, String checkPointName, DataLocation[] locations, String value) {
+		if (DeferredReports.record(context, c -> addCheckPointReportError(c, checkPointName, locations, value)))
+			return;
 		ValidationReport validationReport = (ValidationReport) context.get(VALIDATION_REPORT);
 
-		for (DataLocation location : locations) {
-			Location detailLocation = new Location(location);
-			CheckPointReport checkPoint = validationReport.findCheckPointReportByName(checkPointName);
+		CheckPointReport checkPoint = validationReport.findCheckPointReportByName(checkPointName);
 
+		for (DataLocation location : locations) {
 			if (checkPoint == null)
 				throw new NullPointerException("unknown checkPointName " + checkPointName);
 			checkPoint.setState(RESULT.NOK);
 
-			CheckPointErrorReport newCheckPointError = new CheckPointErrorReport(checkPointName, checkPointName, detailLocation, value);
-			addCheckPointError(context, location, validationReport, checkPoint, newCheckPointError);
+			addCheckPointError(context, location, validationReport, checkPoint,
+					() -> new CheckPointErrorReport(checkPointName, checkPointName, new Location(location), value));
 		}
 
 	}
 
 	@Override
 	public void reportSuccess(Context context, String checkpointName, String filenameInfo) {
+		if (DeferredReports.record(context, c -> reportSuccess(c, checkpointName, filenameInfo)))
+			return;
 		ActionReporter reporter = ActionReporter.Factory.getInstance();
 		ValidationReport validationReport = (ValidationReport) context.get(VALIDATION_REPORT);
 		CheckPointReport checkPoint = validationReport.findCheckPointReportByName(checkpointName);
@@ -235,6 +246,8 @@ public class ValidationReporterImpl implements ValidationReporter, Constant {
 
 	@Override
 	public void reportSuccess(Context context, String checkpointName) {
+		if (DeferredReports.record(context, c -> reportSuccess(c, checkpointName)))
+			return;
 		ValidationReport validationReport = (ValidationReport) context.get(VALIDATION_REPORT);
 		CheckPointReport checkPoint = validationReport.findCheckPointReportByName(checkpointName);
 
@@ -247,6 +260,8 @@ public class ValidationReporterImpl implements ValidationReporter, Constant {
 
 	@Override
 	public void prepareCheckPointReport(Context context, String checkPointName) {
+		if (DeferredReports.record(context, c -> prepareCheckPointReport(c, checkPointName)))
+			return;
 		ValidationReport validationReport = (ValidationReport) context.get(VALIDATION_REPORT);
 		CheckPointReport checkPoint = validationReport.findCheckPointReportByName(checkPointName);
 		if (checkPoint != null) {
@@ -257,6 +272,8 @@ public class ValidationReporterImpl implements ValidationReporter, Constant {
 
 	@Override
 	public void updateCheckPointReportState(Context context, String checkPointName, RESULT state) {
+		if (DeferredReports.record(context, c -> updateCheckPointReportState(c, checkPointName, state)))
+			return;
 		ValidationReport validationReport = (ValidationReport) context.get(VALIDATION_REPORT);
 		CheckPointReport checkPoint = validationReport.findCheckPointReportByName(checkPointName);
 		checkPoint.setState(state);
@@ -264,6 +281,8 @@ public class ValidationReporterImpl implements ValidationReporter, Constant {
 
 	@Override
 	public void clearValidationReport(Context context) {
+		if (DeferredReports.record(context, c -> clearValidationReport(c)))
+			return;
 		ValidationReport validationReport = (ValidationReport) context.get(VALIDATION_REPORT);
 		validationReport.setResult(VALIDATION_RESULT.NO_PROCESSING);
 		validationReport.getCheckPoints().clear();
@@ -272,6 +291,8 @@ public class ValidationReporterImpl implements ValidationReporter, Constant {
 
 	@Override
 	public void updateCheckPointReportSeverity(Context context, String checkPointName, SEVERITY severity) {
+		if (DeferredReports.record(context, c -> updateCheckPointReportSeverity(c, checkPointName, severity)))
+			return;
 		ValidationReport validationReport = (ValidationReport) context.get(VALIDATION_REPORT);
 		CheckPointReport checkPoint = validationReport.findCheckPointReportByName(checkPointName);
 		if (checkPoint != null) {
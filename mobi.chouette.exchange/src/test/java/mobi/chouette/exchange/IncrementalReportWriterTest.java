@@ -0,0 +1,105 @@
+package mobi.chouette.exchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import mobi.chouette.common.Constant;
+import mobi.chouette.common.Context;
+import mobi.chouette.exchange.report.ActionReport;
+import mobi.chouette.exchange.validation.report.DataLocation;
+import mobi.chouette.exchange.validation.report.ValidationReport;
+import mobi.chouette.exchange.validation.report.ValidationReporter;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class IncrementalReportWriterTest implements Constant {
+
+	private File d = new File("target/referential/incremental");
+
+	private Context createContext() throws Exception {
+		if (d.exists())
+			FileUtils.deleteDirectory(d);
+		d.mkdirs();
+		Context context = new Context();
+		JobDataTest jobData = new JobDataTest();
+		jobData.setPathName(d.getPath());
+		context.put(JOB_DATA, jobData);
+		context.put(REPORT, new ActionReport());
+		context.put(VALIDATION_REPORT, new ValidationReport());
+		return context;
+	}
+
+	private String print(ValidationReport report) throws Exception {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		PrintStream stream = new PrintStream(outputStream, false, "UTF-8");
+		report.print(stream);
+		stream.close();
+		return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	@Test(groups = { "report" }, description = "journaled validation report is printed as a whole")
+	public void testValidationReportFromJournal() throws Exception {
+		Context context = createContext();
+		ValidationReport report = (ValidationReport) context.get(VALIDATION_REPORT);
+		ValidationReporter reporter = ValidationReporter.Factory.getInstance();
+		reporter.addItemToValidationReport(context, "1-TEST-", "Checkpoint", 2, "E", "W");
+		IncrementalReportWriter writer = IncrementalReportWriter.getInstance(context);
+
+		writer.saveValidationReport(report);
+		File validationFile = new File(d, VALIDATION_FILE);
+		Assert.assertEquals(FileUtils.readFileToString(validationFile, StandardCharsets.UTF_8), print(report));
+
+		reporter.addCheckPointReportError(context, "1-TEST-Checkpoint-1", new DataLocation("file1", 1, 2), "first \"value\"");
+		writer.appendValidationErrors(report);
+		reporter.addCheckPointReportError(context, "1-TEST-Checkpoint-2", new DataLocation("file2", 3, 4), "second");
+		reporter.addCheckPointReportError(context, "1-TEST-Checkpoint-1", new DataLocation("file3", 5, 6), "third");
+		writer.saveValidationReport(report);
+		Assert.assertEquals(FileUtils.readFileToString(validationFile, StandardCharsets.UTF_8), print(report));
+
+		// a cleared report restarts the journal
+		reporter.clearValidationReport(context);
+		reporter.addItemToValidationReport(context, "1-TEST-", "Checkpoint", 1, "W");
+		for (int i = 0; i < 4; i++) {
+			reporter.addCheckPointReportError(context, "1-TEST-Checkpoint-1", new DataLocation("file4", i, 8), "fourth");
+		}
+		writer.saveValidationReport(report);
+		Assert.assertEquals(FileUtils.readFileToString(validationFile, StandardCharsets.UTF_8), print(report));
+
+		writer.close();
+		Assert.assertFalse(new File(d, VALIDATION_FILE + IncrementalReportWriter.JOURNAL_SUFFIX).exists());
+		Assert.assertTrue(validationFile.exists());
+	}
+
+	@Test(groups = { "report" }, description = "unchanged action report is not published again")
+	public void testActionReportPublishedOnChange() throws Exception {
+		Context context = createContext();
+		ActionReport report = (ActionReport) context.get(REPORT);
+		IncrementalReportWriter writer = IncrementalReportWriter.getInstance(context);
+		File reportFile = new File(d, REPORT_FILE);
+
+		writer.saveActionReport(report);
+		Assert.assertTrue(reportFile.delete());
+		writer.saveActionReport(report);
+		Assert.assertFalse(reportFile.exists(), "unchanged report should not be published");
+
+		report.getProgression().setCurrentStep(2);
+		writer.saveActionReport(report);
+		Assert.assertTrue(reportFile.exists(), "changed report should be published");
+	}
+
+	@Test(groups = { "report" }, description = "local working files are written when the job directory does not exist")
+	public void testMissingJobDirectory() throws Exception {
+		Context context = createContext();
+		FileUtils.deleteDirectory(d);
+		IncrementalReportWriter writer = IncrementalReportWriter.getInstance(context);
+
+		writer.saveActionReport((ActionReport) context.get(REPORT));
+		writer.saveValidationReport((ValidationReport) context.get(VALIDATION_REPORT));
+		Assert.assertTrue(new File(d, REPORT_FILE).exists());
+		Assert.assertTrue(new File(d, VALIDATION_FILE).exists());
+	}
+}
@@ -2,6 +2,11 @@ package mobi.chouette.exchange.exporter;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import javax.naming.InitialContext;
 
@@ -11,6 +16,8 @@ import mobi.chouette.common.FileUtil;
 import mobi.chouette.common.chain.CommandFactory;
 import mobi.chouette.exchange.JobDataTest;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -46,5 +53,63 @@ public class CompressCommandTest implements Constant
 		Assert.assertTrue (archive.exists(), "arhive file should exists");
 
 	}
-	
+
+	@Test (groups = { "compress" }, description = "compress command streams output files to the archive")
+	public void testOutputFilesArchived() throws Exception
+	{
+		InitialContext initialContext = new InitialContext();
+		Context context = new Context();
+		context.put(INITIAL_CONTEXT, initialContext);
+		JobDataTest test = new JobDataTest();
+		context.put(JOB_DATA, test);
+		test.setPathName("target/referential/test");
+		test.setOutputFilename("output.zip");
+		if (d.exists())
+			FileUtils.deleteDirectory(d);
+		File output = new File(d,OUTPUT);
+		FileUtils.write(new File(output, "f1.xml"), "first", StandardCharsets.UTF_8);
+		FileUtils.write(new File(output, "lines/f2.xml"), "second", StandardCharsets.UTF_8);
+		// archive left by a previous run
+		FileUtils.write(new File(output, "output.zip"), "stale", StandardCharsets.UTF_8);
+
+		CompressCommand command = (CompressCommand) CommandFactory
+				.create(initialContext, CompressCommand.class.getName());
+		Assert.assertTrue(command.execute(context), "command should succeed");
+
+		Assert.assertFalse(output.exists(), "output directory should be purged");
+		try (ZipFile archive = new ZipFile(new File(d,"output.zip"))) {
+			Assert.assertEquals(archive.size(), 2);
+			ZipEntry entry = archive.getEntry("lines/f2.xml");
+			Assert.assertNotNull(entry, "sub directory entry should exist");
+			Assert.assertEquals(IOUtils.toString(archive.getInputStream(entry), StandardCharsets.UTF_8), "second");
+			Assert.assertEquals(IOUtils.toString(archive.getInputStream(archive.getEntry("f1.xml")), StandardCharsets.UTF_8), "first");
+		}
+	}
+
+	@Test (groups = { "compress" }, description = "archive truncated by a compression failure is deleted")
+	public void testFailedCompressionDeletesArchive() throws Exception
+	{
+		Context context = new Context();
+		JobDataTest test = new JobDataTest();
+		context.put(JOB_DATA, test);
+		test.setPathName("target/referential/test");
+		test.setOutputFilename("output.zip");
+		if (d.exists())
+			FileUtils.deleteDirectory(d);
+		File output = new File(d,OUTPUT);
+		FileUtils.write(new File(output, "f1.xml"), "first", StandardCharsets.UTF_8);
+
+		CompressCommand command = new CompressCommand() {
+			@Override
+			protected void compress(Path directory, OutputStream zipOutput) throws IOException {
+				zipOutput.write(new byte[] { 'P', 'K', 3, 4 });
+				throw new IOException("compression failure");
+			}
+		};
+		Assert.assertFalse(command.execute(context), "command should fail");
+
+		Assert.assertFalse(new File(d,"output.zip").exists(), "truncated archive should be deleted");
+		Assert.assertTrue(output.exists(), "output directory should be kept");
+	}
+
 }
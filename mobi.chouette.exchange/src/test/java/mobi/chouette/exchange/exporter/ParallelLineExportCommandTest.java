@@ -0,0 +1,154 @@
+package mobi.chouette.exchange.exporter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mobi.chouette.common.Context;
+import mobi.chouette.common.chain.Command;
+import mobi.chouette.exchange.ParallelLineExportCommands;
+import mobi.chouette.exchange.ProgressionCommand;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelLineExportCommandTest {
+
+	@Test
+	public void lineContextsAreReusedAndMerged() throws Exception {
+		List<Long> exported = Collections.synchronizedList(new ArrayList<>());
+		StubCommands commands = new StubCommands(c -> exported.add((Long) c.get(ParallelLineExportCommand.LINE_ID)));
+		ParallelLineExportCommand command = createCommand(commands, 2, 10);
+
+		Assert.assertTrue(command.execute(new Context()));
+		Assert.assertEquals(10, command.getExportedLineCount());
+		Assert.assertEquals(10, exported.size());
+		Assert.assertEquals(2, commands.created.size());
+		assertMerged(commands);
+	}
+
+	@Test
+	public void resultsAreCheckedInLineOrder() throws Exception {
+		StubCommands commands = new StubCommands(c -> {
+			if (Long.valueOf(0).equals(c.get(ParallelLineExportCommand.LINE_ID))) {
+				// first line completes last
+				Thread.sleep(200);
+				return false;
+			}
+			return true;
+		});
+		ParallelLineExportCommand command = createCommand(commands, 4, 4);
+		AtomicInteger checked = new AtomicInteger();
+		command.setProgression(new ProgressionCommand() {
+			@Override
+			public boolean execute(Context context) {
+				checked.incrementAndGet();
+				return true;
+			}
+		});
+
+		Assert.assertFalse(command.execute(new Context()));
+		Assert.assertEquals(1, checked.get());
+		Assert.assertEquals(0, command.getExportedLineCount());
+		Assert.assertTrue(commands.merged.isEmpty());
+	}
+
+	@Test
+	public void lineInErrorStopsExportUnlessIgnored() throws Exception {
+		StubCommands commands = new StubCommands(c -> !Long.valueOf(2).equals(c.get(ParallelLineExportCommand.LINE_ID)));
+		ParallelLineExportCommand command = createCommand(commands, 2, 5);
+
+		Assert.assertFalse(command.execute(new Context()));
+		Assert.assertEquals(2, command.getExportedLineCount());
+		Assert.assertTrue(commands.merged.isEmpty());
+
+		commands.created.clear();
+		command.setIgnored(true);
+		Assert.assertTrue(command.execute(new Context()));
+		Assert.assertEquals(4, command.getExportedLineCount());
+		assertMerged(commands);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void failureOfLineCommandAbortsExport() throws Exception {
+		StubCommands commands = new StubCommands(c -> {
+			throw new IllegalStateException();
+		});
+		ParallelLineExportCommand command = createCommand(commands, 2, 3);
+		command.setIgnored(true);
+
+		try {
+			command.execute(new Context());
+		} finally {
+			Assert.assertTrue(commands.merged.isEmpty());
+		}
+	}
+
+	private void assertMerged(StubCommands commands) {
+		Assert.assertEquals(commands.created.size(), commands.merged.size());
+		for (int i = 0; i < commands.created.size(); i++) {
+			Assert.assertSame(commands.created.get(i), commands.merged.get(i));
+		}
+	}
+
+	private ParallelLineExportCommand createCommand(StubCommands commands, int threads, int lines) {
+		ParallelLineExportCommand command = new ParallelLineExportCommand();
+		command.setThreads(threads);
+		command.setCommands(commands);
+		for (long line = 0; line < lines; line++) {
+			command.add(line);
+		}
+		return command;
+	}
+
+	private static class StubCommands implements ParallelLineExportCommands {
+
+		private final Command lineCommand;
+
+		private final List<Context> created = new ArrayList<>();
+
+		private final List<Context> merged = new ArrayList<>();
+
+		StubCommands(Command lineCommand) {
+			this.lineCommand = lineCommand;
+		}
+
+		@Override
+		public Context createLineContext(Context context) {
+			Context lineContext = new Context(context);
+			created.add(lineContext);
+			return lineContext;
+		}
+
+		@Override
+		public void mergeLineContext(Context context, Context lineContext) {
+			merged.add(lineContext);
+		}
+
+		@Override
+		public List<? extends Command> getLineProcessingCommands(Context context, boolean withDao) {
+			return Collections.singletonList(lineCommand);
+		}
+
+		@Override
+		public List<? extends Command> getPreProcessingCommands(Context context, boolean withDao) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public List<? extends Command> getStopAreaProcessingCommands(Context context, boolean withDao) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public List<? extends Command> getPostProcessingCommands(Context context, boolean withDao) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public List<? extends Command> getDisposeCommands(Context context, boolean withDao) {
+			return Collections.emptyList();
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package mobi.chouette.exchange.importer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mobi.chouette.common.Constant;
+import mobi.chouette.common.Context;
+import mobi.chouette.dao.BinaryCopyBuffer;
+import mobi.chouette.exchange.report.ActionReport;
+import mobi.chouette.exchange.report.ActionReporter;
+import mobi.chouette.exchange.report.ActionReporter.OBJECT_STATE;
+import mobi.chouette.exchange.report.ActionReporter.OBJECT_TYPE;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class CopyPipelineTest implements Constant {
+
+	private static BinaryCopyBuffer createBuffer(int rows) {
+		BinaryCopyBuffer buffer = new BinaryCopyBuffer("test", "name");
+		for (int i = 0; i < rows; i++) {
+			buffer.startRow().addText("row " + i);
+		}
+		return buffer;
+	}
+
+	@Test(groups = { "copy" }, description = "pending batches are bounded in bytes")
+	public void testPendingBytesAreBounded() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			long maxBytes = createBuffer(1000).size() * 2L;
+			CopyPipeline pipeline = new CopyPipeline(2, 10, maxBytes);
+			CountDownLatch release = new CountDownLatch(1);
+			AtomicInteger written = new AtomicInteger();
+			pipeline.start(executor, null, buffer -> {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				written.incrementAndGet();
+			});
+			pipeline.submit("line1", "line 1", createBuffer(1000));
+			pipeline.submit("line2", "line 2", createBuffer(1000));
+
+			Thread producer = new Thread(() -> {
+				try {
+					pipeline.submit("line3", "line 3", createBuffer(1000));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			producer.start();
+			producer.join(500);
+			Assert.assertTrue(producer.isAlive(), "third batch must wait for room");
+			Assert.assertTrue(pipeline.getPendingBytes() <= maxBytes);
+
+			release.countDown();
+			producer.join(5000);
+			Assert.assertFalse(producer.isAlive());
+			pipeline.close(1, TimeUnit.MINUTES);
+			Assert.assertEquals(written.get(), 3);
+			Assert.assertEquals(pipeline.getPendingBatches(), 0);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(groups = { "copy" }, description = "failed batches are reported on their line")
+	public void testFailuresAreReported() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(1);
+		try {
+			Context context = new Context();
+			ActionReport report = new ActionReport();
+			context.put(REPORT, report);
+			CopyPipeline pipeline = new CopyPipeline(1, 2, 1024 * 1024);
+			pipeline.start(executor, null, buffer -> {
+				throw new IllegalStateException("duplicate key");
+			});
+			pipeline.submit("line1", "line 1", createBuffer(10));
+			pipeline.close(1, TimeUnit.MINUTES);
+
+			Assert.assertTrue(pipeline.reportFailures(context));
+			Assert.assertFalse(pipeline.reportFailures(context), "failures are reported once");
+			Assert.assertEquals(report.findObjectReport("line1", OBJECT_TYPE.LINE).getStatus(), OBJECT_STATE.ERROR);
+			Assert.assertFalse(ActionReporter.Factory.getInstance().hasActionError(context),
+					"stopping the import is left to the caller");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(groups = { "copy" }, description = "completion runs for written batches only")
+	public void testCompletionOfWrittenBatches() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(1);
+		try {
+			CopyPipeline pipeline = new CopyPipeline(1, 2, 1024 * 1024);
+			pipeline.start(executor, null, buffer -> {
+				if (buffer.getRowCount() > 10) {
+					throw new IllegalStateException("duplicate key");
+				}
+			});
+			AtomicInteger completed = new AtomicInteger();
+			pipeline.submit("line1", "line 1", createBuffer(10), () -> completed.addAndGet(1));
+			pipeline.submit("line2", "line 2", createBuffer(20), () -> completed.addAndGet(10));
+			pipeline.close(1, TimeUnit.MINUTES);
+
+			Assert.assertEquals(completed.get(), 1, "failed batch must not be completed");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(groups = { "copy" }, description = "close fails when no batch completes", expectedExceptions = TimeoutException.class)
+	public void testStalledPipelineTimesOut() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(1);
+		try {
+			CopyPipeline pipeline = new CopyPipeline(1, 2, 1024 * 1024);
+			pipeline.start(executor, null, buffer -> {
+				try {
+					Thread.sleep(10000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			pipeline.submit("line1", "line 1", createBuffer(10));
+			pipeline.close(200, TimeUnit.MILLISECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(groups = { "copy" }, description = "submit fails once all writers are stopped", expectedExceptions = IllegalStateException.class, timeOut = 10000)
+	public void testSubmitFailsWithoutWriter() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(1);
+		try {
+			CopyPipeline pipeline = new CopyPipeline(1, 1, 1024 * 1024);
+			pipeline.start(executor, null, buffer -> {
+				throw new AssertionError("writer killed");
+			});
+			pipeline.submit("line1", "line 1", createBuffer(10));
+			pipeline.submit("line2", "line 2", createBuffer(10));
+			pipeline.submit("line3", "line 3", createBuffer(10));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
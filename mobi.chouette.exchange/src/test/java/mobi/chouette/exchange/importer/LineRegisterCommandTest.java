@@ -1,10 +1,12 @@
 package mobi.chouette.exchange.importer;
 
-import java.io.StringWriter;
+import java.io.DataInputStream;
+import java.nio.charset.StandardCharsets;
 import javax.naming.InitialContext;
 
 import mobi.chouette.common.Constant;
 import mobi.chouette.common.Context;
+import mobi.chouette.dao.BinaryCopyBuffer;
 import mobi.chouette.model.StopPoint;
 import mobi.chouette.model.VehicleJourney;
 import mobi.chouette.model.VehicleJourneyAtStop;
@@ -26,7 +28,9 @@ public class LineRegisterCommandTest implements Constant {
 		Context context = new Context();
 		context.put(INITIAL_CONTEXT, initialContext);
 		
-		StringWriter buffer = new StringWriter(); 
+		BinaryCopyBuffer buffer = new BinaryCopyBuffer("vehicle_journey_at_stops", "id", "objectid",
+				"object_version", "creation_time", "creator_id", "vehicle_journey_id", "stop_point_id", "arrival_time",
+				"departure_time", "arrival_day_offset", "departure_day_offset");
 		VehicleJourney neptuneObject = new VehicleJourney();
 	    neptuneObject.setId(4321L);
 	    StopPoint sp = new StopPoint();
@@ -48,10 +52,37 @@ public class LineRegisterCommandTest implements Constant {
         
 		lineRegister = new LineRegisterCommand();
 		
-		lineRegister.write(buffer, neptuneObject, sp, vjas);
-		
-		
-		Assert.assertEquals(buffer.toString(), "ObjectID|1|2000-02-01T00:00:00|creatorId|4321|1001|23:59:00|00:05:00|0|1\n", "Invalid data entry for buffer");
+		lineRegister.write(buffer, 5000L, neptuneObject, sp, vjas);
+		Assert.assertEquals(buffer.getRowCount(), 1, "Invalid row count for buffer");
+
+		DataInputStream in = new DataInputStream(buffer.toInputStream());
+		in.skipBytes(19); // header
+		Assert.assertEquals(in.readShort(), 11, "Invalid field count");
+		Assert.assertEquals(in.readInt(), 8);
+		Assert.assertEquals(in.readLong(), 5000L, "Invalid id");
+		Assert.assertEquals(in.readInt(), 8);
+		byte[] objectId = new byte[8];
+		in.readFully(objectId);
+		Assert.assertEquals(new String(objectId, StandardCharsets.UTF_8), "ObjectID", "Invalid objectid");
+		Assert.assertEquals(in.readInt(), 8);
+		Assert.assertEquals(in.readLong(), 1L, "Invalid object version");
+		Assert.assertEquals(in.readInt(), 8);
+		Assert.assertEquals(in.readLong(), 31L * 86400 * 1000000, "Invalid creation time");
+		Assert.assertEquals(in.readInt(), 9);
+		in.skipBytes(9);
+		Assert.assertEquals(in.readInt(), 8);
+		Assert.assertEquals(in.readLong(), 4321L, "Invalid vehicle journey id");
+		Assert.assertEquals(in.readInt(), 8);
+		Assert.assertEquals(in.readLong(), 1001L, "Invalid stop point id");
+		Assert.assertEquals(in.readInt(), 8);
+		Assert.assertEquals(in.readLong(), (23 * 3600 + 59 * 60) * 1000000L, "Invalid arrival time");
+		Assert.assertEquals(in.readInt(), 8);
+		Assert.assertEquals(in.readLong(), 5 * 60 * 1000000L, "Invalid departure time");
+		Assert.assertEquals(in.readInt(), 4);
+		Assert.assertEquals(in.readInt(), 0, "Invalid arrival day offset");
+		Assert.assertEquals(in.readInt(), 4);
+		Assert.assertEquals(in.readInt(), 1, "Invalid departure day offset");
+		Assert.assertEquals(in.readShort(), -1, "Invalid trailer");
 	
 		
 	}
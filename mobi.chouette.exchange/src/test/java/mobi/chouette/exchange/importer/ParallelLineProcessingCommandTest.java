@@ -0,0 +1,253 @@
+package mobi.chouette.exchange.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mobi.chouette.common.Context;
+import mobi.chouette.exchange.importer.ParallelLineProcessingCommand.LineStages;
+import mobi.chouette.exchange.report.DeferredReports;
+import mobi.chouette.model.StopArea;
+import mobi.chouette.model.util.Referential;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelLineProcessingCommandTest {
+
+	@Test
+	public void registerStagesAreExecutedInLineOrder() throws Exception {
+		ParallelLineProcessingCommand command = new ParallelLineProcessingCommand();
+		command.setThreads(4);
+		List<Integer> registered = Collections.synchronizedList(new ArrayList<>());
+		AtomicInteger validated = new AtomicInteger();
+		for (int i = 0; i < 20; i++) {
+			final int line = i;
+			command.add(new LineStages(c -> {
+				c.put("prepared", line);
+				return true;
+			}, c -> {
+				Assert.assertEquals(line, c.get("prepared"));
+				registered.add(line);
+				return true;
+			}, c -> {
+				validated.incrementAndGet();
+				return true;
+			}));
+		}
+
+		Assert.assertTrue(command.execute(new Context()));
+		for (int i = 0; i < 20; i++) {
+			Assert.assertEquals(Integer.valueOf(i), registered.get(i));
+		}
+		Assert.assertEquals(20, validated.get());
+	}
+
+	@Test
+	public void eachLineIsRegisteredInItsOwnReferential() throws Exception {
+		ParallelLineProcessingCommand command = new ParallelLineProcessingCommand();
+		command.setThreads(2);
+		List<Referential> referentials = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			command.add(new LineStages(null, c -> {
+				referentials.add((Referential) c.get(ParallelLineProcessingCommand.REFERENTIAL));
+				return true;
+			}, null));
+		}
+		Context context = new Context();
+		Referential referential = new Referential();
+		context.put(ParallelLineProcessingCommand.REFERENTIAL, referential);
+
+		Assert.assertTrue(command.execute(context));
+		Assert.assertSame(referential, context.get(ParallelLineProcessingCommand.REFERENTIAL));
+		Assert.assertNotSame(referentials.get(0), referentials.get(1));
+		Assert.assertSame(referential.getSharedStopAreas(), referentials.get(0).getSharedStopAreas());
+		Assert.assertNotSame(referential.getLines(), referentials.get(0).getLines());
+	}
+
+	@Test
+	public void lineInErrorStopsProcessingUnlessIgnored() throws Exception {
+		AtomicInteger registered = new AtomicInteger();
+		ParallelLineProcessingCommand command = new ParallelLineProcessingCommand();
+		command.setThreads(2);
+		command.add(new LineStages(null, c -> registered.incrementAndGet() > 0, null));
+		command.add(new LineStages(null, c -> false, null));
+		command.add(new LineStages(null, c -> registered.incrementAndGet() > 0, null));
+
+		Assert.assertFalse(command.execute(new Context()));
+		Assert.assertEquals(1, registered.get());
+
+		registered.set(0);
+		command.setIgnored(true);
+		Assert.assertFalse(command.execute(new Context()));
+		Assert.assertEquals(2, registered.get());
+	}
+
+	@Test
+	public void requiredLineInErrorStopsProcessing() throws Exception {
+		AtomicInteger registered = new AtomicInteger();
+		ParallelLineProcessingCommand command = new ParallelLineProcessingCommand();
+		command.setThreads(2);
+		command.setIgnored(true);
+		LineStages required = new LineStages(null, c -> false, null);
+		required.setRequired(true);
+		command.add(required);
+		command.add(new LineStages(null, c -> registered.incrementAndGet() > 0, null));
+
+		Assert.assertFalse(command.execute(new Context()));
+		Assert.assertEquals(0, registered.get());
+	}
+
+	@Test
+	public void linesAreNotPreparedBeforeRequiredLine() throws Exception {
+		AtomicInteger prepared = new AtomicInteger();
+		ParallelLineProcessingCommand command = new ParallelLineProcessingCommand();
+		command.setThreads(4);
+		LineStages required = new LineStages(null, c -> prepared.get() == 0, null);
+		required.setRequired(true);
+		command.add(required);
+		for (int i = 0; i < 3; i++) {
+			command.add(new LineStages(c -> prepared.incrementAndGet() > 0, c -> true, null));
+		}
+
+		Assert.assertTrue(command.execute(new Context()));
+		Assert.assertEquals(3, prepared.get());
+	}
+
+	@Test
+	public void reportsOfPrepareStagesAreReplayedOnJobThread() throws Exception {
+		Thread jobThread = Thread.currentThread();
+		List<Integer> reported = new ArrayList<>();
+		ParallelLineProcessingCommand command = new ParallelLineProcessingCommand();
+		command.setThreads(4);
+		for (int i = 0; i < 10; i++) {
+			final int line = i;
+			command.add(new LineStages(c -> {
+				DeferredReports.report(c, r -> {
+					Assert.assertSame(jobThread, Thread.currentThread());
+					reported.add(line);
+				});
+				return true;
+			}, c -> {
+				Assert.assertEquals(line + 1, reported.size());
+				return true;
+			}, null));
+		}
+		Context context = new Context();
+
+		Assert.assertTrue(command.execute(context));
+		Assert.assertEquals(10, reported.size());
+		Assert.assertNull(context.get(ParallelLineProcessingCommand.DEFERRED_REPORTS));
+	}
+
+	@Test
+	public void reportsAreReplayedInSerialOrder() throws Exception {
+		Thread jobThread = Thread.currentThread();
+		List<String> reported = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
+		ParallelLineProcessingCommand command = new ParallelLineProcessingCommand();
+		command.setThreads(4);
+		command.setIgnored(true);
+		for (int i = 0; i < 10; i++) {
+			final int line = i;
+			command.add(new LineStages(null, c -> {
+				DeferredReports.report(c, r -> reported.add("register " + line));
+				return true;
+			}, c -> {
+				Thread.sleep(10 * (10 - line));
+				DeferredReports.report(c, r -> {
+					Assert.assertSame(jobThread, Thread.currentThread());
+					reported.add("validate " + line);
+				});
+				return true;
+			}));
+			expected.add("register " + line);
+			expected.add("validate " + line);
+		}
+		Context context = new Context();
+
+		Assert.assertTrue(command.execute(context));
+		Assert.assertEquals(expected, reported);
+		Assert.assertNull(context.get(ParallelLineProcessingCommand.DEFERRED_REPORTS));
+	}
+
+	@Test
+	public void failedValidationStopsProcessingUnlessIgnored() throws Exception {
+		AtomicInteger registered = new AtomicInteger();
+		ParallelLineProcessingCommand command = new ParallelLineProcessingCommand();
+		command.setThreads(4);
+		command.add(new LineStages(null, c -> registered.incrementAndGet() > 0, c -> {
+			Thread.sleep(100);
+			return false;
+		}));
+		for (int i = 0; i < 7; i++) {
+			command.add(new LineStages(null, c -> registered.incrementAndGet() > 0, c -> true));
+		}
+
+		// lines are registered while the first one is validated, until 4 lines wait for validation
+		Assert.assertFalse(command.execute(new Context()));
+		Assert.assertEquals(4, registered.get());
+
+		registered.set(0);
+		command.setIgnored(true);
+		Assert.assertFalse(command.execute(new Context()));
+		Assert.assertEquals(8, registered.get());
+	}
+
+	@Test
+	public void failedValidationOfRequiredLineStopsProcessing() throws Exception {
+		AtomicInteger registered = new AtomicInteger();
+		ParallelLineProcessingCommand command = new ParallelLineProcessingCommand();
+		command.setThreads(4);
+		command.setIgnored(true);
+		LineStages required = new LineStages(null, c -> registered.incrementAndGet() > 0, c -> {
+			Thread.sleep(100);
+			return false;
+		});
+		required.setRequired(true);
+		command.add(required);
+		for (int i = 0; i < 3; i++) {
+			command.add(new LineStages(null, c -> registered.incrementAndGet() > 0, c -> true));
+		}
+
+		Assert.assertFalse(command.execute(new Context()));
+		Assert.assertEquals(1, registered.get());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void failureOfPrepareStageIsRethrownAfterReports() throws Exception {
+		List<String> reported = new ArrayList<>();
+		ParallelLineProcessingCommand command = new ParallelLineProcessingCommand();
+		command.add(new LineStages(c -> {
+			DeferredReports.report(c, r -> reported.add("error"));
+			throw new IllegalStateException();
+		}, c -> true, null));
+
+		try {
+			command.execute(new Context());
+		} finally {
+			Assert.assertEquals(Collections.singletonList("error"), reported);
+		}
+	}
+
+	@Test
+	public void validationReadsSnapshotOfReferential() throws Exception {
+		ParallelLineProcessingCommand command = new ParallelLineProcessingCommand();
+		command.setThreads(2);
+		List<Referential> validated = Collections.synchronizedList(new ArrayList<>());
+		command.add(new LineStages(null, c -> true, c -> validated.add((Referential) c.get(ParallelLineProcessingCommand.REFERENTIAL))));
+		command.add(new LineStages(null, c -> {
+			((Referential) c.get(ParallelLineProcessingCommand.REFERENTIAL)).getSharedStopAreas().put("stop", new StopArea());
+			return true;
+		}, null));
+		Context context = new Context();
+		Referential referential = new Referential();
+		context.put(ParallelLineProcessingCommand.REFERENTIAL, referential);
+
+		Assert.assertTrue(command.execute(context));
+		Assert.assertEquals(1, referential.getSharedStopAreas().size());
+		Assert.assertNotSame(referential.getSharedStopAreas(), validated.get(0).getSharedStopAreas());
+		Assert.assertTrue(validated.get(0).getSharedStopAreas().isEmpty());
+	}
+}
@@ -1,6 +1,24 @@
 package mobi.chouette.exchange.importer;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mobi.chouette.common.Context;
+import mobi.chouette.exchange.importer.geometry.RouteSectionGenerator;
+import mobi.chouette.exchange.importer.geometry.osrm.OsrmRouteSectionId;
+import mobi.chouette.model.JourneyPattern;
+import mobi.chouette.model.Line;
+import mobi.chouette.model.Route;
+import mobi.chouette.model.RouteSection;
+import mobi.chouette.model.ScheduledStopPoint;
+import mobi.chouette.model.SimpleObjectReference;
+import mobi.chouette.model.StopArea;
+import mobi.chouette.model.StopPoint;
 import mobi.chouette.model.type.LongLatTypeEnum;
+import mobi.chouette.model.type.TransportModeNameEnum;
 
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.GeometryFactory;
@@ -40,4 +58,58 @@ public class RouteSectionRepositoryTest {
 	public void isLineStringGoodMatchForQuays_whenLineStringEndIsTooFarFromTo_returnFalse() {
 		Assert.assertFalse(routeSectionRepository.isLineStringGoodMatchForQuays(validLineString, from, new Coordinate(10.22, 63.2)));
 	}
+
+	@Test
+	public void prefetchLineStrings_requestsEachSectionOnce() {
+		Map<OsrmRouteSectionId, AtomicInteger> requests = new ConcurrentHashMap<>();
+		RouteSectionGenerator generator = id -> {
+			requests.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet();
+			// no route between the last two stops
+			return id.getTo().x > 10 ? null : geometryFactory.createLineString(new Coordinate[]{id.getFrom(), id.getTo()});
+		};
+		RouteSectionRepository repository = new RouteSectionRepository(generator);
+
+		StopPoint a = createStopPoint("A", from);
+		StopPoint b = createStopPoint("B", to);
+		StopPoint c = createStopPoint("C", new Coordinate(10.22, 63.2));
+		JourneyPattern jp1 = createJourneyPattern("1", a, b, c);
+		JourneyPattern jp2 = createJourneyPattern("2", createStopPoint("A", from), createStopPoint("B", to));
+
+		repository.prefetchLineStrings(new Context(), Arrays.asList(jp1, jp2));
+		Assert.assertEquals(2, requests.size());
+
+		RouteSection ab = repository.getRouteSection(jp1, a, b, TransportModeNameEnum.Bus);
+		RouteSection bc = repository.getRouteSection(jp1, b, c, TransportModeNameEnum.Bus);
+		Assert.assertNotNull(ab.getInputGeometry());
+		Assert.assertNull(bc.getInputGeometry());
+		for (AtomicInteger count : requests.values()) {
+			Assert.assertEquals(1, count.get());
+		}
+	}
+
+	private StopPoint createStopPoint(String id, Coordinate coordinate) {
+		StopArea stopArea = new StopArea();
+		stopArea.setObjectId("TST:Quay:" + id);
+		stopArea.setLongitude(BigDecimal.valueOf(coordinate.x));
+		stopArea.setLatitude(BigDecimal.valueOf(coordinate.y));
+		ScheduledStopPoint scheduledStopPoint = new ScheduledStopPoint();
+		scheduledStopPoint.setObjectId("TST:ScheduledStopPoint:" + id);
+		scheduledStopPoint.setContainedInStopAreaRef(new SimpleObjectReference<>(stopArea));
+		StopPoint stopPoint = new StopPoint();
+		stopPoint.setObjectId("TST:StopPoint:" + id);
+		stopPoint.setScheduledStopPoint(scheduledStopPoint);
+		return stopPoint;
+	}
+
+	private JourneyPattern createJourneyPattern(String id, StopPoint... stopPoints) {
+		Line line = new Line();
+		line.setTransportModeName(TransportModeNameEnum.Bus);
+		Route route = new Route();
+		route.setLine(line);
+		JourneyPattern journeyPattern = new JourneyPattern();
+		journeyPattern.setObjectId("TST:JourneyPattern:" + id);
+		journeyPattern.setRoute(route);
+		journeyPattern.setStopPoints(Arrays.asList(stopPoints));
+		return journeyPattern;
+	}
 }
@@ -0,0 +1,57 @@
+package mobi.chouette.exchange.importer.geometry;
+
+import mobi.chouette.exchange.importer.geometry.osrm.OsrmRouteSectionId;
+import mobi.chouette.model.type.LongLatTypeEnum;
+import mobi.chouette.model.type.TransportModeNameEnum;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.PrecisionModel;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class RouteSectionGeometryCacheTest {
+
+	private GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), LongLatTypeEnum.WGS84.getValue());
+
+	private final Coordinate from = new Coordinate(9.747759, 63.168975);
+	private final Coordinate to = new Coordinate(9.705659, 63.125455);
+
+	@Test
+	public void testRoundedCoordinatesShareLineString() {
+		RouteSectionGeometryCache cache = new RouteSectionGeometryCache(10, 6);
+		LineString lineString = geometryFactory.createLineString(new Coordinate[] { from, to });
+		cache.put(new OsrmRouteSectionId(from, to, TransportModeNameEnum.Bus), lineString);
+
+		OsrmRouteSectionId close = new OsrmRouteSectionId(new Coordinate(9.7477591, 63.1689749), to, TransportModeNameEnum.Bus);
+		Assert.assertSame(cache.get(close), lineString);
+
+		Assert.assertFalse(cache.contains(new OsrmRouteSectionId(new Coordinate(9.74777, 63.168975), to, TransportModeNameEnum.Bus)));
+		Assert.assertFalse(cache.contains(new OsrmRouteSectionId(from, to, TransportModeNameEnum.Tram)));
+	}
+
+	@Test
+	public void testSectionWithoutRouteIsCached() {
+		RouteSectionGeometryCache cache = new RouteSectionGeometryCache(10, 6);
+		OsrmRouteSectionId id = new OsrmRouteSectionId(from, to, TransportModeNameEnum.Bus);
+		cache.put(id, null);
+		Assert.assertTrue(cache.contains(id));
+		Assert.assertNull(cache.get(id));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedDropped() {
+		RouteSectionGeometryCache cache = new RouteSectionGeometryCache(2, 6);
+		OsrmRouteSectionId first = new OsrmRouteSectionId(from, to, TransportModeNameEnum.Bus);
+		OsrmRouteSectionId second = new OsrmRouteSectionId(to, from, TransportModeNameEnum.Bus);
+		OsrmRouteSectionId third = new OsrmRouteSectionId(from, to, TransportModeNameEnum.Tram);
+		cache.put(first, null);
+		cache.put(second, null);
+		cache.get(first);
+		cache.put(third, null);
+		Assert.assertEquals(cache.size(), 2);
+		Assert.assertTrue(cache.contains(first));
+		Assert.assertFalse(cache.contains(second));
+	}
+}
@@ -21,5 +21,13 @@ public class OsrmRouteSectionGeneratorTest {
 		Assert.assertNotNull(lineString);
 	}
 
+	@Test
+	public void mapResponseWithoutRoute_null() throws Exception {
+		Assert.assertNull(osrmRouteSectionGenerator.mapToLineString("{\"code\":\"NoRoute\",\"routes\":[]}"));
+	}
 
+	@Test(expectedExceptions = OsrmRouteSectionException.class)
+	public void mapInvalidResponse_failure() throws Exception {
+		osrmRouteSectionGenerator.mapToLineString("{\"routes\":[{\"legs\":");
+	}
 }
@@ -0,0 +1,46 @@
+package mobi.chouette.exchange.importer.updater;
+
+import java.util.Arrays;
+
+import mobi.chouette.common.Context;
+import mobi.chouette.model.Company;
+import mobi.chouette.model.StopArea;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SharedEntityIdCacheTest {
+
+	private StopArea stopArea(String objectId, Long id) {
+		StopArea stopArea = new StopArea();
+		stopArea.setObjectId(objectId);
+		stopArea.setId(id);
+		return stopArea;
+	}
+
+	@Test
+	public void testIdsByTypeAndObjectId() {
+		SharedEntityIdCache cache = SharedEntityIdCache.getInstance(new Context());
+		cache.putAll(StopArea.class, Arrays.asList(stopArea("TST:StopPlace:1", 1L), stopArea("TST:StopPlace:2", null)));
+
+		Assert.assertEquals(cache.get(StopArea.class, "TST:StopPlace:1"), Long.valueOf(1L));
+		Assert.assertNull(cache.get(StopArea.class, "TST:StopPlace:2"), "entities without id should be ignored");
+		Assert.assertNull(cache.get(Company.class, "TST:StopPlace:1"));
+
+		cache.remove(StopArea.class, "TST:StopPlace:1");
+		Assert.assertNull(cache.get(StopArea.class, "TST:StopPlace:1"));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIdsAreDropped() {
+		SharedEntityIdCache cache = new SharedEntityIdCache(2);
+		cache.putAll(StopArea.class, Arrays.asList(stopArea("TST:StopPlace:1", 1L), stopArea("TST:StopPlace:2", 2L)));
+		cache.get(StopArea.class, "TST:StopPlace:1");
+		cache.putAll(StopArea.class, Arrays.asList(stopArea("TST:StopPlace:3", 3L)));
+
+		Assert.assertEquals(cache.size(StopArea.class), 2);
+		Assert.assertNull(cache.get(StopArea.class, "TST:StopPlace:2"));
+		Assert.assertEquals(cache.get(StopArea.class, "TST:StopPlace:1"), Long.valueOf(1L));
+		Assert.assertEquals(cache.get(StopArea.class, "TST:StopPlace:3"), Long.valueOf(3L));
+	}
+}
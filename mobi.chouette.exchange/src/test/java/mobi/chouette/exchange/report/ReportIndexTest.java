@@ -0,0 +1,39 @@
+package mobi.chouette.exchange.report;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ReportIndexTest {
+
+	@Test(groups = { "report" }, description = "index follows list changes")
+	public void testFindAfterListChanges() {
+		ReportIndex<String> index = new ReportIndex<>(s -> s.substring(0, 1));
+		List<String> list = new ArrayList<>();
+
+		list.add("a1");
+		index.added(list, "a1");
+		Assert.assertEquals(index.find(list, "a"), "a1");
+		list.add("a2");
+		index.added(list, "a2");
+		list.add("b1");
+		index.added(list, "b1");
+		Assert.assertEquals(index.find(list, "a"), "a1", "first item with the key should be found");
+		Assert.assertEquals(index.find(list, "b"), "b1");
+		Assert.assertNull(index.find(list, "c"));
+
+		// changed without the index
+		list.clear();
+		list.add("b2");
+		Assert.assertNull(index.find(list, "a"));
+		Assert.assertEquals(index.find(list, "b"), "b2");
+
+		// replaced
+		List<String> other = new ArrayList<>(Arrays.asList("c1", "a3"));
+		Assert.assertEquals(index.find(other, "a"), "a3");
+		Assert.assertNull(index.find(other, "b"));
+	}
+}
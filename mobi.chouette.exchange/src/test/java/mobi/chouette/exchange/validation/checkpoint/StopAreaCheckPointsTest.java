@@ -1,95 +1,31 @@
 package mobi.chouette.exchange.validation.checkpoint;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
+import mobi.chouette.exchange.validation.ValidationData;
 import mobi.chouette.exchange.validation.parameters.ValidationParameters;
+import mobi.chouette.exchange.validation.report.CheckPointErrorReport;
 import mobi.chouette.exchange.validation.report.ValidationReport;
 import mobi.chouette.exchange.validation.report.ValidationReporter;
 import mobi.chouette.model.StopArea;
+import mobi.chouette.model.type.ChouetteAreaEnum;
 import mobi.chouette.model.type.LongLatTypeEnum;
 import mobi.chouette.model.type.StopAreaTypeEnum;
 import mobi.chouette.model.type.TransportModeNameEnum;
 import mobi.chouette.model.type.TransportSubModeNameEnum;
 
 import org.testng.Assert;
-import org.testng.Reporter;
 import org.testng.annotations.Test;
 
 import mobi.chouette.common.Constant;
 import mobi.chouette.common.Context;
 
 public class StopAreaCheckPointsTest {
-	@Test(groups = { "StopAreaCheckPoint" }, description = "near", priority = 101)
-	public void verifyNear() throws Exception {
-       ValidationParameters parameters = new ValidationParameters();
-		parameters.setInterStopAreaDistanceMin(125);
-		
-	StopArea area1 = new StopArea();
-	StopArea area2 = new StopArea();
-	// 48.858514, 2.342421
-	area1.setLatitude(new BigDecimal(48.858514));
-	area1.setLongitude(new BigDecimal(2.342421));
-	area1.setLongLatType(LongLatTypeEnum.WGS84);
-	StopAreaCheckPoints checkPoint = new StopAreaCheckPoints();
-	checkPoint.updateSquare(area1, parameters);
-	
-	area2.setLongLatType(LongLatTypeEnum.WGS84);
-	area2.setLatitude(new BigDecimal(48.8598));
-	area2.setLongitude(new BigDecimal(2.342421));
-	Reporter.log("Lat distance S"+ StopAreaCheckPoints.quickDistance(area1, area2),true);
-	Reporter.log("Lat distance W"+ StopAreaCheckPoints.distance(area1, area2),true);
-	Assert.assertTrue(checkPoint.near(area2));
-	area2.setLatitude(new BigDecimal(48.8599));
-	Reporter.log("Lat distance S"+ StopAreaCheckPoints.quickDistance(area1, area2),true);
-	Reporter.log("Lat distance W"+ StopAreaCheckPoints.distance(area1, area2),true);
-	Assert.assertFalse(checkPoint.near(area2));
-	area2.setLatitude(new BigDecimal(48.8572));
-	Reporter.log("Lat distance S"+ StopAreaCheckPoints.quickDistance(area1, area2),true);
-	Reporter.log("Lat distance W"+ StopAreaCheckPoints.distance(area1, area2),true);
-	Assert.assertTrue(checkPoint.near(area2));
-	area2.setLatitude(new BigDecimal(48.8570));
-	Reporter.log("Lat distance S"+ StopAreaCheckPoints.quickDistance(area1, area2),true);
-	Reporter.log("Lat distance W"+ StopAreaCheckPoints.distance(area1, area2),true);
-	Assert.assertFalse(checkPoint.near(area2));
-	
-	area2.setLatitude(new BigDecimal(48.858514));
-	area2.setLongitude(new BigDecimal(2.3405));
-	Reporter.log("Lon distance S"+ StopAreaCheckPoints.quickDistance(area1, area2),true);
-	Reporter.log("Lon distance W"+ StopAreaCheckPoints.distance(area1, area2),true);
-	Assert.assertTrue(checkPoint.near(area2));
-	area2.setLongitude(new BigDecimal(2.3402));
-	Reporter.log("Lon distance S"+ StopAreaCheckPoints.quickDistance(area1, area2),true);
-	Reporter.log("Lon distance W"+ StopAreaCheckPoints.distance(area1, area2),true);
-	Assert.assertFalse(checkPoint.near(area2));
-	area2.setLongitude(new BigDecimal(2.3444));
-	Reporter.log("Lon distance S"+ StopAreaCheckPoints.quickDistance(area1, area2),true);
-	Reporter.log("Lon distance W"+ StopAreaCheckPoints.distance(area1, area2),true);
-	Assert.assertTrue(checkPoint.near(area2));
-	area2.setLongitude(new BigDecimal(2.3446));
-	Reporter.log("Lon distance S"+ StopAreaCheckPoints.quickDistance(area1, area2),true);
-	Reporter.log("Lon distance W"+ StopAreaCheckPoints.distance(area1, area2),true);
-	Assert.assertFalse(checkPoint.near(area2));
-
-	
-	area1.setLatitude(new BigDecimal(0));
-	area2.setLatitude(new BigDecimal(0));
-	Reporter.log("Equat distance S"+ StopAreaCheckPoints.quickDistance(area1, area2),true);
-	Reporter.log("Equat distance W"+ StopAreaCheckPoints.distance(area1, area2),true);
-
-	area1.setLatitude(new BigDecimal(70));
-	area2.setLatitude(new BigDecimal(70));
-	Reporter.log("Norge lat distance S"+ StopAreaCheckPoints.quickDistance(area1, area2),true);
-	Reporter.log("Norge lat distance W"+ StopAreaCheckPoints.distance(area1, area2),true);
-
-	area1.setLatitude(new BigDecimal(48.855));
-	area2.setLatitude(new BigDecimal(48.86));
-	area1.setLongitude(new BigDecimal(0));
-	area2.setLongitude(new BigDecimal(0.01));
-	Reporter.log("Big distance S"+ StopAreaCheckPoints.quickDistance(area1, area2),true);
-	Reporter.log("Big distance W"+ StopAreaCheckPoints.distance(area1, area2),true);
-	}
-
-
 	@Test
 	public void testCheck3StopArea6Fail() {
 		StopAreaCheckPoints checkPoints = new StopAreaCheckPoints();
@@ -128,6 +64,99 @@ public class StopAreaCheckPointsTest {
 		Assert.assertEquals(((ValidationReport)context.get(Constant.VALIDATION_REPORT)).getCheckPointErrors().size(), 4);
 	}
 	
+	@Test
+	public void testCheck3StopArea2And3UseSpatialIndex() {
+		ValidationParameters parameters = new ValidationParameters();
+		parameters.setInterStopAreaDistanceMin(20);
+		parameters.setParentStopAreaDistanceMax(500);
+		parameters.setStopAreaDuplicateDistanceMax(50);
+
+		StopArea parent1 = createQuay("TST:StopPlace:1", "Parent 1", 59.9110, 10.7500, null);
+		parent1.setAreaType(ChouetteAreaEnum.CommercialStopPoint);
+		StopArea parent2 = createQuay("TST:StopPlace:2", "Parent 2", 59.9110, 10.7500, null);
+		parent2.setAreaType(ChouetteAreaEnum.CommercialStopPoint);
+		// about 10 m apart, different parents : too close
+		StopArea quay1 = createQuay("TST:Quay:1", "Jernbanetorget", 59.9110, 10.7500, parent1);
+		StopArea quay2 = createQuay("TST:Quay:2", "Jernbanetorget", 59.9111, 10.7500, parent2);
+		// about 1 km away
+		StopArea quay3 = createQuay("TST:Quay:3", "Jernbanetorget", 59.9200, 10.7500, parent2);
+
+		ValidationData data = new ValidationData();
+		data.getStopAreas().addAll(Arrays.asList(parent1, parent2, quay1, quay2, quay3));
+		Context context = createValidationContext(AbstractValidation.STOP_AREA_2);
+		context.put(Constant.VALIDATION_DATA, data);
+		context.put(Constant.VALIDATION, parameters);
+		context.put(Constant.SOURCE, Constant.SOURCE_DATABASE);
+
+		new StopAreaCheckPoints().validate(context, null);
+
+		Map<String, Long> errors = ((ValidationReport) context.get(Constant.VALIDATION_REPORT)).getCheckPointErrors()
+				.stream().collect(Collectors.groupingBy(CheckPointErrorReport::getTestId, Collectors.counting()));
+		Assert.assertEquals(errors.get(AbstractValidation.STOP_AREA_2), Long.valueOf(1), "quays 1 and 2 reported once");
+		Assert.assertEquals(errors.get(AbstractValidation.STOP_AREA_3), Long.valueOf(1), "quays 1 and 2 are duplicates");
+		Assert.assertEquals(errors.get(AbstractValidation.STOP_AREA_5), Long.valueOf(1), "quay 3 far from its parent");
+	}
+
+	@Test
+	public void testCheck3StopArea2And3InParallel() {
+		ValidationParameters parameters = new ValidationParameters();
+		parameters.setInterStopAreaDistanceMin(20);
+		parameters.setParentStopAreaDistanceMax(500);
+		parameters.setStopAreaDuplicateDistanceMax(50);
+
+		// more stop areas than the parallel threshold, on a grid about 220 m apart, each with its own parent
+		List<StopArea> quays = new ArrayList<>();
+		for (int i = 0; i < 2400; i++) {
+			StopArea parent = new StopArea();
+			parent.setObjectId("TST:StopPlace:" + i);
+			parent.setAreaType(ChouetteAreaEnum.CommercialStopPoint);
+			quays.add(createQuay("TST:Quay:" + i, "Quay " + i, 59.0 + (i / 40) * 0.002, 10.0 + (i % 40) * 0.004,
+					parent));
+		}
+		// about 10 m from quays 0 and 700, evaluated in other partitions
+		moveNear(quays.get(2399), quays.get(0));
+		moveNear(quays.get(1500), quays.get(700));
+		quays.get(1500).setName(quays.get(700).getName());
+
+		ValidationData data = new ValidationData();
+		data.getStopAreas().addAll(quays);
+		Context context = createValidationContext(AbstractValidation.STOP_AREA_2);
+		context.put(Constant.VALIDATION_DATA, data);
+		context.put(Constant.VALIDATION, parameters);
+		context.put(Constant.SOURCE, Constant.SOURCE_DATABASE);
+
+		new StopAreaCheckPoints().validate(context, null);
+
+		List<CheckPointErrorReport> errors = ((ValidationReport) context.get(Constant.VALIDATION_REPORT))
+				.getCheckPointErrors();
+		Assert.assertEquals(sources(errors, AbstractValidation.STOP_AREA_2), Arrays.asList("TST:Quay:0", "TST:Quay:700"),
+				"each close pair reported once, in stop area order");
+		Assert.assertEquals(sources(errors, AbstractValidation.STOP_AREA_3), Arrays.asList("TST:Quay:700"),
+				"quays 700 and 1500 are duplicates");
+	}
+
+	private void moveNear(StopArea stopArea, StopArea other) {
+		stopArea.setLatitude(other.getLatitude().add(BigDecimal.valueOf(0.0001)));
+		stopArea.setLongitude(other.getLongitude());
+	}
+
+	private List<String> sources(List<CheckPointErrorReport> errors, String checkPoint) {
+		return errors.stream().filter(error -> error.getTestId().equals(checkPoint))
+				.map(error -> error.getSource().getObjectId()).collect(Collectors.toList());
+	}
+
+	private StopArea createQuay(String objectId, String name, double latitude, double longitude, StopArea parent) {
+		StopArea sa = new StopArea();
+		sa.setObjectId(objectId);
+		sa.setName(name);
+		sa.setAreaType(ChouetteAreaEnum.Quay);
+		sa.setLongLatType(LongLatTypeEnum.WGS84);
+		sa.setLatitude(BigDecimal.valueOf(latitude));
+		sa.setLongitude(BigDecimal.valueOf(longitude));
+		sa.setParent(parent);
+		return sa;
+	}
+
 	private StopArea createStopArea(StopAreaTypeEnum type, TransportModeNameEnum transportMode) {
 		StopArea sa = new StopArea();
 		sa.setStopAreaType(type);
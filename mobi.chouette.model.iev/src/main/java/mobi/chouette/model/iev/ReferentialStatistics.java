@@ -0,0 +1,56 @@
+package mobi.chouette.model.iev;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Line statistics of a referential, computed when an import or a transfer job on the referential completes
+ */
+@Entity
+@Table(name = "referential_statistics")
+@NoArgsConstructor
+@ToString(exclude = { "content" })
+public class ReferentialStatistics implements Serializable {
+	private static final long serialVersionUID = 3207485528411863215L;
+
+	/**
+	 * referential
+	 *
+	 * @return The actual value
+	 */
+	@Getter
+	@Setter
+	@Id
+	@Column(name = "referential", nullable = false)
+	private String referential;
+
+	/**
+	 * last computation
+	 *
+	 * @return The actual value
+	 */
+	@Getter
+	@Setter
+	@Column(name = "updated")
+	private LocalDateTime updated;
+
+	/**
+	 * lines and timetables of the referential, as JSON
+	 *
+	 * @return The actual value
+	 */
+	@Getter
+	@Setter
+	@Column(name = "content", columnDefinition = "TEXT")
+	private String content;
+}
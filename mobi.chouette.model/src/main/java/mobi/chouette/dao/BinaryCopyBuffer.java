@@ -0,0 +1,207 @@
+package mobi.chouette.dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+
+import lombok.Getter;
+
+/**
+ * rows of a table in PostgreSQL binary COPY format, to be loaded with {@link BulkCopyDAO#copy(BinaryCopyBuffer)}
+ * <br/>
+ * Each row must start with {@link #startRow()} and give a value for each column, in the column order.
+ * Values are encoded as the column types expect them : bigint, integer, boolean, text (varchar), date, time and
+ * timestamp (without time zone).
+ */
+public class BinaryCopyBuffer {
+
+	private static final byte[] SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+
+	private static final LocalDate EPOCH = LocalDate.of(2000, 1, 1);
+
+	private static final LocalDateTime EPOCH_TIME = EPOCH.atStartOfDay();
+
+	@Getter
+	private final String table;
+
+	@Getter
+	private final String[] columns;
+
+	@Getter
+	private int rowCount;
+
+	private int fieldCount;
+
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+
+	private final DataOutputStream out = new DataOutputStream(bytes);
+
+	public BinaryCopyBuffer(String table, String... columns) {
+		this.table = table;
+		this.columns = columns;
+		try {
+			out.write(SIGNATURE);
+			out.writeInt(0); // flags
+			out.writeInt(0); // header extension length
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public BinaryCopyBuffer startRow() {
+		checkRow();
+		try {
+			out.writeShort(columns.length);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		fieldCount = 0;
+		rowCount++;
+		return this;
+	}
+
+	public BinaryCopyBuffer addLong(Long value) {
+		try {
+			if (writeNull(value)) {
+				return this;
+			}
+			out.writeInt(8);
+			out.writeLong(value);
+			return this;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public BinaryCopyBuffer addInt(Integer value) {
+		try {
+			if (writeNull(value)) {
+				return this;
+			}
+			out.writeInt(4);
+			out.writeInt(value);
+			return this;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public BinaryCopyBuffer addBoolean(Boolean value) {
+		try {
+			if (writeNull(value)) {
+				return this;
+			}
+			out.writeInt(1);
+			out.writeByte(value ? 1 : 0);
+			return this;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public BinaryCopyBuffer addText(String value) {
+		try {
+			if (writeNull(value)) {
+				return this;
+			}
+			byte[] text = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(text.length);
+			out.write(text);
+			return this;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * date : days since 2000-01-01
+	 */
+	public BinaryCopyBuffer addDate(LocalDate value) {
+		try {
+			if (writeNull(value)) {
+				return this;
+			}
+			out.writeInt(4);
+			out.writeInt((int) ChronoUnit.DAYS.between(EPOCH, value));
+			return this;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * time : microseconds since midnight
+	 */
+	public BinaryCopyBuffer addTime(LocalTime value) {
+		try {
+			if (writeNull(value)) {
+				return this;
+			}
+			out.writeInt(8);
+			out.writeLong(value.toNanoOfDay() / 1000);
+			return this;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * timestamp : microseconds since 2000-01-01 00:00:00
+	 */
+	public BinaryCopyBuffer addTimestamp(LocalDateTime value) {
+		try {
+			if (writeNull(value)) {
+				return this;
+			}
+			out.writeInt(8);
+			out.writeLong(ChronoUnit.MICROS.between(EPOCH_TIME, value));
+			return this;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return buffer content, trailer included ; no row may be added afterwards
+	 */
+	public InputStream toInputStream() {
+		checkRow();
+		try {
+			out.writeShort(-1);
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new ByteArrayInputStream(bytes.toByteArray());
+	}
+
+	public int size() {
+		return bytes.size();
+	}
+
+	private boolean writeNull(Object value) throws IOException {
+		if (++fieldCount > columns.length) {
+			throw new IllegalStateException("too many values for " + table + " row " + rowCount);
+		}
+		if (value == null) {
+			out.writeInt(-1);
+			return true;
+		}
+		return false;
+	}
+
+	private void checkRow() {
+		if (rowCount > 0 && fieldCount != columns.length) {
+			throw new IllegalStateException(
+					table + " row " + rowCount + " has " + fieldCount + " values for " + columns.length + " columns");
+		}
+	}
+}
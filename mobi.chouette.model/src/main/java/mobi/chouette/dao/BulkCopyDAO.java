@@ -0,0 +1,42 @@
+package mobi.chouette.dao;
+
+import java.util.Collection;
+
+/**
+ * bulk insert of rows with PostgreSQL COPY, bypassing the persistence context
+ */
+public interface BulkCopyDAO {
+
+	/**
+	 * reserve ids of an entity sequence, so that rows and their children can be written with their ids without
+	 * further round trips ; blocks are reserved as by the hibernate generator of the entity, with its allocation
+	 * size, so that ids never collide with the ones it hands out
+	 *
+	 * @param entityClass
+	 *            entity whose identifier is generated by a sequence (e.g. VehicleJourneyAtStop)
+	 * @param count
+	 *            number of ids to reserve
+	 * @return reserved ids, not necessarily contiguous
+	 */
+	long[] allocateIds(Class<?> entityClass, int count);
+
+	/**
+	 * insert all rows of the buffer
+	 *
+	 * @return number of rows inserted
+	 */
+	long copy(BinaryCopyBuffer buffer);
+
+	/**
+	 * insert the new entities reachable from the roots by the persist cascade, as persist then flush would, with
+	 * ids allocated by their generators ; the entities get their ids but stay out of the persistence context
+	 *
+	 * @param roots
+	 *            new or persistent entities
+	 * @return false, writing nothing, when hibernate would write the graph otherwise (an entity of the persistence
+	 *         context cascades to one of the new entities, a new entity is referenced without cascade, ...) : the
+	 *         roots must then be persisted
+	 */
+	boolean copyNewEntities(Collection<?> roots);
+
+}
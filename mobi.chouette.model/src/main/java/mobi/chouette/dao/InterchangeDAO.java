@@ -4,4 +4,11 @@ import mobi.chouette.model.Interchange;
 
 public interface InterchangeDAO extends GenericDAO<Interchange> {
 
+	/**
+	 * delete interchanges whose feeder vehicle journey belongs to the same codespace as the interchange but does not
+	 * exist
+	 *
+	 * @return number of deleted interchanges
+	 */
+	int deleteWithMissingFeederVehicleJourney();
 }
@@ -5,4 +5,23 @@ import mobi.chouette.model.Line;
 
 public interface LineDAO extends GenericDAO<Line> {
 
+	/**
+	 * @return content fingerprint of the stored line, null if the line or its fingerprint is unknown
+	 */
+	String findContentFingerprint(String objectId);
+
+	/**
+	 * store the content fingerprint of a registered line, once all its data is written
+	 */
+	void updateContentFingerprint(String objectId, String fingerprint);
+
+	/**
+	 * Load a line with the routes, stop points, journey patterns, vehicle journeys, passing times and timetables used
+	 * by exports, with a fixed number of queries instead of one lazy load per collection.
+	 * <p>
+	 * The graph is loaded in the current persistence context, associations not listed above stay lazy.
+	 * @return the line, null if unknown
+	 */
+	Line findForExport(Long lineId);
+
 }
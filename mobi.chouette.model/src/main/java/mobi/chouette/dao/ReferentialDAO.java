@@ -11,6 +11,12 @@ public interface ReferentialDAO {
 
     List<String> getReferentials();
 
+    /**
+     * add columns missing from schemas created by older versions, existing columns are left untouched, and raise
+     * sequence increments lower than the allocation size of their generator
+     */
+    void upgradeSchemas();
+
     void createReferential(ReferentialInfo referentialInfo);
 
     void createMigratedReferential(ReferentialInfo referentialInfo);
@@ -1,6 +1,8 @@
 package mobi.chouette.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import mobi.chouette.model.ScheduledStopPoint;
@@ -9,6 +11,12 @@ public interface ScheduledStopPointDAO extends GenericDAO<ScheduledStopPoint> {
 
 	List<ScheduledStopPoint> getScheduledStopPointsContainedInStopArea(String stopAreaObjectId);
 
+	/**
+	 * Same as {@link #getScheduledStopPointsContainedInStopArea(String)} for several stop areas at once.
+	 * @return scheduled stop points by stop area objectId, stop areas without scheduled stop point are absent
+	 */
+	Map<String, List<ScheduledStopPoint>> getScheduledStopPointsContainedInStopAreas(Collection<String> stopAreaObjectIds);
+
 	/**
 	 * Replace all existing references to a set of stop area objectIds with references to another stop area.
 	 * <p>
@@ -17,6 +25,16 @@ public interface ScheduledStopPointDAO extends GenericDAO<ScheduledStopPoint> {
 	 */
 	int replaceContainedInStopAreaReferences(Set<String> oldStopAreaIds, String newStopAreaId);
 
+	/**
+	 * Replace all existing references to stop areas with references to the stop areas they were merged into, with a
+	 * single update for the whole replacement map.
+	 * <p>
+	 * An old stop area mapped to several new stop areas is replaced by the first one of the map.
+	 * @param replacementMap old stop area objectIds by new stop area objectId
+	 * @return no of updated scheduled stop points
+	 */
+	int replaceContainedInStopAreaReferences(Map<String, Set<String>> replacementMap);
+
 	/**
 	 * Return a list with objectid for all stop areas referred to from all scheduled stop points.
 	 *
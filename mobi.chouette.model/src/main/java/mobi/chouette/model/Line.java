@@ -153,6 +153,18 @@ public class Line extends NeptuneIdentifiedObject implements ObjectIdTypes {
 	@Column(name = "stable_id")
 	private String stableId;
 
+	/**
+	 * fingerprint of the line content when it was last imported, null if unknown
+	 * 
+	 * @param contentFingerprint
+	 *            New value
+	 * @return The actual value
+	 */
+	@Getter
+	@Setter
+	@Column(name = "content_fingerprint")
+	private String contentFingerprint;
+
 	/**
 	 * set published name <br/>
 	 * truncated to 255 characters if too long
@@ -1,12 +1,11 @@
 package mobi.chouette.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.SortedSet;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
 
 import javax.persistence.Cacheable;
 import javax.persistence.CollectionTable;
@@ -20,12 +19,14 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToMany;
 import javax.persistence.OrderColumn;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 import mobi.chouette.model.type.DayTypeEnum;
+import mobi.chouette.model.util.DaySet;
 
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.annotations.Fetch;
@@ -44,7 +45,7 @@ import java.time.LocalDate;
 @Table(name = "time_tables")
 @Cacheable
 @NoArgsConstructor
-@ToString(callSuper = true)
+@ToString(callSuper = true, exclude = { "activeDays" })
 public class Timetable extends NeptuneIdentifiedObject {
 	private static final long serialVersionUID = -1598554061982685113L;
 	public static final long ONE_DAY = 3600000 * 24;
@@ -246,6 +247,12 @@ public class Timetable extends NeptuneIdentifiedObject {
 	@ManyToMany(mappedBy = "timetables", fetch = FetchType.LAZY)
 	private List<Block> blocks = new ArrayList<>(0);
 
+	/**
+	 * active days computed from day types, periods and calendar days, rebuilt when one of them changes
+	 */
+	@Transient
+	private transient ActiveDays activeDays;
+
 	/**
 	 * add a day if not already present
 	 * 
@@ -425,14 +432,23 @@ public class Timetable extends NeptuneIdentifiedObject {
 	 *
 	 */
 	public SortedSet<LocalDate> getActiveDates(){
-		SortedSet<LocalDate> activeDates=new TreeSet<>();
-
-		activeDates.addAll(getPeriods().stream().map(this::toDates).flatMap(List::stream).collect(Collectors.toSet()));
-		activeDates.addAll(getCalendarDays().stream().filter(cd -> !Boolean.FALSE.equals(cd.getIncluded())).map(CalendarDay::getDate).collect(Collectors.toSet()));
-		activeDates.removeAll(getCalendarDays().stream().filter(cd -> Boolean.FALSE.equals(cd.getIncluded())).map(CalendarDay::getDate).collect(Collectors.toSet()));
+		return getActiveDays().toSortedSet();
+	}
 
+	/**
+	 * days of periods matching day types and included calendar days, without excluded calendar days
+	 *
+	 * @return same days as {@link #getActiveDates()}
+	 */
+	public DaySet getActiveDays() {
+		return computeActiveDays().active;
+	}
 
-		return activeDates;
+	/**
+	 * @return excluded calendar days
+	 */
+	public DaySet getExcludedDays() {
+		return computeActiveDays().excluded;
 	}
 
 	/**
@@ -470,28 +486,7 @@ public class Timetable extends NeptuneIdentifiedObject {
 	 * @return true if timetable is active on the given date.
 	 */
 	private boolean isActiveOn(final LocalDate aDay) {
-		if (getCalendarDays() != null) {
-			CalendarDay includedDay = new CalendarDay(aDay, true);
-			if (getCalendarDays().contains(includedDay))
-				return true;
-			CalendarDay excludedDay = new CalendarDay(aDay, false);
-			if (getCalendarDays().contains(excludedDay))
-				return false;
-		}
-		if (getIntDayTypes() != null && getIntDayTypes().intValue() != 0 && getPeriods() != null) {
-
-			int aDayOfWeek = aDay.getDayOfWeek().getValue() - 1; // zero on monday
-			int aDayOfWeekFlag = buildDayTypeMask(dayTypeByInt[aDayOfWeek]);
-			if ((getIntDayTypes() & aDayOfWeekFlag) == aDayOfWeekFlag) {
-				// check if day is in a period
-				for (Period period : getPeriods()) {
-					if (period.contains(aDay))
-						return true;
-				}
-			}
-
-		}
-		return false;
+		return computeActiveDays().activeOn.contains(aDay);
 	}
 
 	/**
@@ -523,13 +518,7 @@ public class Timetable extends NeptuneIdentifiedObject {
 		if(start == null || end == null) {
 			return false;
 		} else {
-			LocalDate day = start;
-			while (day.isBefore(end)) {
-				if (isActiveOn(day))
-					return true;
-				day = day.plusDays(1);
-			}
-			return isActiveOn(end);
+			return computeActiveDays().activeOn.intersects(start, end);
 		}
 	}
 
@@ -635,4 +624,130 @@ public class Timetable extends NeptuneIdentifiedObject {
 		return dates;
 	}
 
+	private ActiveDays computeActiveDays() {
+		ActiveDays result = activeDays;
+		if (result == null || !result.isComputedFrom(this)) {
+			result = new ActiveDays(this);
+			activeDays = result;
+		}
+		return result;
+	}
+
+	/**
+	 * active days of a timetable, with the timetable values they are computed from
+	 */
+	private static class ActiveDays {
+
+		private static final long NO_DATE = Long.MIN_VALUE;
+
+		private static final int ALL_DAYS_MASK = buildDayTypeMask(Arrays.asList(dayTypeByInt));
+
+		/**
+		 * day types, then periods and calendar days with their count
+		 */
+		private final long[] key;
+
+		/**
+		 * days of {@link Timetable#getActiveDates()}, excluded days win over included ones
+		 */
+		private final DaySet active;
+
+		/**
+		 * days of {@link Timetable#isActiveOn(LocalDate)}, included days win over excluded ones
+		 */
+		private final DaySet activeOn;
+
+		private final DaySet excluded;
+
+		ActiveDays(Timetable timetable) {
+			key = computeKey(timetable);
+
+			int intDayTypes = timetable.getIntDayTypes() == null ? 0 : timetable.getIntDayTypes();
+			DaySet.Builder periodDays = new DaySet.Builder();
+			if (intDayTypes != 0) {
+				for (Period period : periodsOf(timetable)) {
+					if (period.getStartDate() == null || period.getEndDate() == null) {
+						continue;
+					}
+					if ((intDayTypes & ALL_DAYS_MASK) == ALL_DAYS_MASK) {
+						periodDays.add(period.getStartDate(), period.getEndDate());
+						continue;
+					}
+					for (LocalDate date = period.getStartDate(); !date.isAfter(period.getEndDate()); date = date.plusDays(1)) {
+						int aDayOfWeekFlag = buildDayTypeMask(dayTypeByInt[date.getDayOfWeek().getValue() - 1]);
+						if ((intDayTypes & aDayOfWeekFlag) == aDayOfWeekFlag) {
+							periodDays.add(date);
+						}
+					}
+				}
+			}
+			DaySet.Builder includedDays = new DaySet.Builder();
+			DaySet.Builder excludedDays = new DaySet.Builder();
+			for (CalendarDay day : calendarDaysOf(timetable)) {
+				if (day.getDate() != null) {
+					(day.getIncluded() ? includedDays : excludedDays).add(day.getDate());
+				}
+			}
+
+			DaySet periods = periodDays.build();
+			DaySet included = includedDays.build();
+			excluded = excludedDays.build();
+			active = periods.union(included).difference(excluded);
+			activeOn = included.union(periods.difference(excluded));
+		}
+
+		boolean isComputedFrom(Timetable timetable) {
+			List<Period> periods = periodsOf(timetable);
+			List<CalendarDay> calendarDays = calendarDaysOf(timetable);
+			if (key.length != 3 + 2 * periods.size() + 2 * calendarDays.size()
+					|| key[0] != (timetable.getIntDayTypes() == null ? 0 : timetable.getIntDayTypes())
+					|| key[1] != periods.size()) {
+				return false;
+			}
+			int i = 2;
+			for (Period period : periods) {
+				if (key[i++] != toKey(period.getStartDate()) || key[i++] != toKey(period.getEndDate()))
+					return false;
+			}
+			if (key[i++] != calendarDays.size())
+				return false;
+			for (CalendarDay day : calendarDays) {
+				if (key[i++] != toKey(day.getDate()) || key[i++] != (day.getIncluded() ? 1 : 0))
+					return false;
+			}
+			return true;
+		}
+
+		private static long[] computeKey(Timetable timetable) {
+			List<Period> periods = periodsOf(timetable);
+			List<CalendarDay> calendarDays = calendarDaysOf(timetable);
+			long[] key = new long[3 + 2 * periods.size() + 2 * calendarDays.size()];
+			key[0] = timetable.getIntDayTypes() == null ? 0 : timetable.getIntDayTypes();
+			key[1] = periods.size();
+			int i = 2;
+			for (Period period : periods) {
+				key[i++] = toKey(period.getStartDate());
+				key[i++] = toKey(period.getEndDate());
+			}
+			key[i++] = calendarDays.size();
+			for (CalendarDay day : calendarDays) {
+				key[i++] = toKey(day.getDate());
+				key[i++] = day.getIncluded() ? 1 : 0;
+			}
+			return key;
+		}
+
+		private static List<Period> periodsOf(Timetable timetable) {
+			return timetable.getPeriods() == null ? Collections.<Period>emptyList() : timetable.getPeriods();
+		}
+
+		private static List<CalendarDay> calendarDaysOf(Timetable timetable) {
+			return timetable.getCalendarDays() == null ? Collections.<CalendarDay>emptyList() : timetable.getCalendarDays();
+		}
+
+		private static long toKey(LocalDate date) {
+			return date == null ? NO_DATE : date.toEpochDay();
+		}
+	}
+
 }
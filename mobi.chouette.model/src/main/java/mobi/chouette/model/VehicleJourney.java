@@ -10,6 +10,7 @@ import mobi.chouette.model.type.PublicationEnum;
 import mobi.chouette.model.type.ServiceAlterationEnum;
 import mobi.chouette.model.type.TransportModeNameEnum;
 import mobi.chouette.model.type.TransportSubModeNameEnum;
+import mobi.chouette.model.util.DaySet;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.Parameter;
@@ -34,9 +35,7 @@ import javax.persistence.OneToOne;
 import javax.persistence.Table;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 /**
@@ -472,19 +471,32 @@ public class VehicleJourney extends NeptuneIdentifiedObject {
 
 
 	public SortedSet<LocalDate> getActiveDates() {
+		return getActiveDays().toSortedSet();
+	}
+
+	/**
+	 * days of the timetables, or operating days of dated service journeys neither cancelled nor replaced
+	 *
+	 * @return same days as {@link #getActiveDates()}
+	 */
+	public DaySet getActiveDays() {
 
 		if (hasTimetables()) {
-			Set<LocalDate> includedDates = getTimetables().stream().map(Timetable::getActiveDates).flatMap(Set::stream).collect(Collectors.toSet());
+			DaySet.Builder includedDays = new DaySet.Builder();
+			DaySet.Builder excludedDays = new DaySet.Builder();
+			for (Timetable timetable : getTimetables()) {
+				includedDays.addAll(timetable.getActiveDays());
+				excludedDays.addAll(timetable.getExcludedDays());
+			}
 
 			// Assuming exclusions across Timetables take precedent, so need to make sure all excluded dates are actually excluded
-			Set<LocalDate> excludedDates = getTimetables().stream().map(Timetable::getExcludedDates).flatMap(List::stream).collect(Collectors.toSet());
-
-			includedDates.removeAll(excludedDates);
-			return new TreeSet<>(includedDates);
+			return includedDays.build().difference(excludedDays.build());
 		} else if (hasDatedServiceJourneys()) {
-			return getDatedServiceJourneys().stream().filter(DatedServiceJourney::isNeitherCancelledNorReplaced).map(DatedServiceJourney::getOperatingDay).collect(Collectors.toCollection(TreeSet::new));
+			DaySet.Builder operatingDays = new DaySet.Builder();
+			getDatedServiceJourneys().stream().filter(DatedServiceJourney::isNeitherCancelledNorReplaced).map(DatedServiceJourney::getOperatingDay).forEach(operatingDays::add);
+			return operatingDays.build();
 		} else {
-			return new TreeSet<>();
+			return DaySet.EMPTY;
 		}
 	}
 
@@ -0,0 +1,46 @@
+package mobi.chouette.model.statistics;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import mobi.chouette.model.util.DateAdapter;
+
+/**
+ * Number of public lines per validity category, for each referential and over all referentials.
+ */
+@NoArgsConstructor
+@XmlRootElement(name = "lineStatisticsSummary")
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlType(propOrder = { "startDate", "days", "validityCategories", "referentials" })
+@Getter
+public class LineStatisticsSummary {
+
+	@XmlJavaTypeAdapter(DateAdapter.class)
+	private java.sql.Date startDate;
+	private int days;
+	private Map<String, Integer> validityCategories = new LinkedHashMap<>();
+	private Map<String, Map<String, Integer>> referentials = new LinkedHashMap<>();
+
+	public LineStatisticsSummary(Date startDate, int days) {
+		this.startDate = startDate == null ? null : new java.sql.Date(startDate.getTime());
+		this.days = days;
+	}
+
+	public void add(String referential, LineStatistics lineStatistics) {
+		Map<String, Integer> counts = new LinkedHashMap<>();
+		for (ValidityCategory category : lineStatistics.getValidityCategories()) {
+			counts.put(category.getName(), category.getLineNumbers().size());
+			validityCategories.merge(category.getName(), category.getLineNumbers().size(), Integer::sum);
+		}
+		referentials.put(referential, counts);
+	}
+}
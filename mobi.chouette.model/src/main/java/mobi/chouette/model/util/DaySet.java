@@ -0,0 +1,241 @@
+package mobi.chouette.model.util;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Immutable set of days stored as a bit set over epoch days, bit 0 being the first day of the set.
+ * <br/>
+ * Membership is a single bit lookup, and union, intersection and difference are word operations on the bit sets.
+ */
+public final class DaySet {
+
+	public static final DaySet EMPTY = new DaySet(0, new BitSet(0));
+
+	/**
+	 * epoch day of bit 0
+	 */
+	private final long origin;
+
+	private final BitSet days;
+
+	private DaySet(long origin, BitSet days) {
+		this.origin = origin;
+		this.days = days;
+	}
+
+	public boolean contains(LocalDate date) {
+		return date != null && contains(date.toEpochDay());
+	}
+
+	public boolean isEmpty() {
+		return days.isEmpty();
+	}
+
+	public int size() {
+		return days.cardinality();
+	}
+
+	/**
+	 * @return first day of the set, null if empty
+	 */
+	public LocalDate getFirst() {
+		return isEmpty() ? null : LocalDate.ofEpochDay(origin + days.nextSetBit(0));
+	}
+
+	/**
+	 * @return last day of the set, null if empty
+	 */
+	public LocalDate getLast() {
+		return isEmpty() ? null : LocalDate.ofEpochDay(origin + days.length() - 1);
+	}
+
+	/**
+	 * check if the set contains a day between start and end, both inclusive; a null bound is unbounded
+	 */
+	public boolean intersects(LocalDate start, LocalDate end) {
+		if (isEmpty()) {
+			return false;
+		}
+		long from = start == null ? origin : Math.max(origin, start.toEpochDay());
+		long to = end == null ? origin + days.length() - 1 : Math.min(origin + days.length() - 1, end.toEpochDay());
+		if (from > to) {
+			return false;
+		}
+		int next = days.nextSetBit((int) (from - origin));
+		return next >= 0 && next <= to - origin;
+	}
+
+	public boolean intersects(DaySet other) {
+		if (isEmpty() || other.isEmpty()) {
+			return false;
+		}
+		long start = Math.min(origin, other.origin);
+		return align(start).intersects(other.align(start));
+	}
+
+	public DaySet union(DaySet other) {
+		if (other.isEmpty()) {
+			return this;
+		}
+		if (isEmpty()) {
+			return other;
+		}
+		long start = Math.min(origin, other.origin);
+		BitSet result = align(start);
+		result.or(other.align(start));
+		return create(start, result);
+	}
+
+	public DaySet intersection(DaySet other) {
+		if (isEmpty() || other.isEmpty()) {
+			return EMPTY;
+		}
+		long start = Math.min(origin, other.origin);
+		BitSet result = align(start);
+		result.and(other.align(start));
+		return create(start, result);
+	}
+
+	/**
+	 * @return days of this set not in the other one
+	 */
+	public DaySet difference(DaySet other) {
+		if (isEmpty() || other.isEmpty()) {
+			return this;
+		}
+		long start = Math.min(origin, other.origin);
+		BitSet result = align(start);
+		result.andNot(other.align(start));
+		return create(start, result);
+	}
+
+	/**
+	 * @return the days of this set moved by a number of days, earlier if negative
+	 */
+	public DaySet shift(long numberOfDays) {
+		return isEmpty() || numberOfDays == 0 ? this : new DaySet(origin + numberOfDays, days);
+	}
+
+	public SortedSet<LocalDate> toSortedSet() {
+		SortedSet<LocalDate> result = new TreeSet<>();
+		for (int i = days.nextSetBit(0); i >= 0; i = days.nextSetBit(i + 1)) {
+			result.add(LocalDate.ofEpochDay(origin + i));
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof DaySet))
+			return false;
+		DaySet other = (DaySet) obj;
+		if (isEmpty() || other.isEmpty())
+			return isEmpty() && other.isEmpty();
+		return origin == other.origin && days.equals(other.days);
+	}
+
+	@Override
+	public int hashCode() {
+		return isEmpty() ? 0 : 31 * Long.hashCode(origin) + days.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return isEmpty() ? "[]" : "[" + getFirst() + ".." + getLast() + ", " + size() + " days]";
+	}
+
+	private boolean contains(long epochDay) {
+		long index = epochDay - origin;
+		return index >= 0 && index < days.length() && days.get((int) index);
+	}
+
+	/**
+	 * @return copy of the bits with bit 0 for the start epoch day, start being before origin
+	 */
+	private BitSet align(long start) {
+		int shift = (int) (origin - start);
+		if (shift == 0) {
+			return (BitSet) days.clone();
+		}
+		BitSet result = new BitSet(shift + days.length());
+		for (int i = days.nextSetBit(0); i >= 0; i = days.nextSetBit(i + 1)) {
+			int end = days.nextClearBit(i);
+			result.set(i + shift, end + shift);
+			i = end;
+		}
+		return result;
+	}
+
+	/**
+	 * trim leading clear bits so that bit 0 is set
+	 */
+	private static DaySet create(long origin, BitSet days) {
+		int first = days.nextSetBit(0);
+		if (first < 0) {
+			return EMPTY;
+		}
+		if (first == 0) {
+			return new DaySet(origin, days);
+		}
+		return new DaySet(origin + first, days.get(first, days.length()));
+	}
+
+	/**
+	 * mutable set of days, days may be added and removed in any order
+	 */
+	public static class Builder {
+
+		private long origin;
+
+		private BitSet days = new BitSet();
+
+		public Builder add(LocalDate date) {
+			return add(date, date);
+		}
+
+		/**
+		 * add days from start to end, both inclusive
+		 */
+		public Builder add(LocalDate start, LocalDate end) {
+			if (!start.isAfter(end)) {
+				ensureOrigin(start.toEpochDay());
+				days.set((int) (start.toEpochDay() - origin), (int) (end.toEpochDay() - origin) + 1);
+			}
+			return this;
+		}
+
+		public Builder remove(LocalDate date) {
+			long index = date.toEpochDay() - origin;
+			if (!days.isEmpty() && index >= 0) {
+				days.clear((int) index);
+			}
+			return this;
+		}
+
+		public Builder addAll(DaySet other) {
+			if (!other.isEmpty()) {
+				ensureOrigin(other.origin);
+				days.or(other.align(origin));
+			}
+			return this;
+		}
+
+		public DaySet build() {
+			return create(origin, (BitSet) days.clone());
+		}
+
+		private void ensureOrigin(long epochDay) {
+			if (days.isEmpty()) {
+				origin = epochDay;
+			} else if (epochDay < origin) {
+				days = new DaySet(origin, days).align(epochDay);
+				origin = epochDay;
+			}
+		}
+	}
+}
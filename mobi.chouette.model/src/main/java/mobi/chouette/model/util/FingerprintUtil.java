@@ -0,0 +1,237 @@
+package mobi.chouette.model.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.Id;
+import javax.persistence.Transient;
+
+import mobi.chouette.model.BookingArrangement;
+import mobi.chouette.model.ContactStructure;
+import mobi.chouette.model.DatedServiceJourney;
+import mobi.chouette.model.DestinationDisplay;
+import mobi.chouette.model.FlexibleServiceProperties;
+import mobi.chouette.model.FootNoteAlternativeText;
+import mobi.chouette.model.Footnote;
+import mobi.chouette.model.Interchange;
+import mobi.chouette.model.JourneyFrequency;
+import mobi.chouette.model.JourneyPattern;
+import mobi.chouette.model.Line;
+import mobi.chouette.model.NeptuneIdentifiedObject;
+import mobi.chouette.model.NeptuneObject;
+import mobi.chouette.model.Route;
+import mobi.chouette.model.RoutePoint;
+import mobi.chouette.model.RouteSection;
+import mobi.chouette.model.ScheduledStopPoint;
+import mobi.chouette.model.StopPoint;
+import mobi.chouette.model.Timeband;
+import mobi.chouette.model.Timetable;
+import mobi.chouette.model.VehicleJourney;
+import mobi.chouette.model.VehicleJourneyAtStop;
+
+/**
+ * content fingerprint of a line and of the objects it owns
+ * <br/>
+ * The fingerprint is a SHA-256 over the persistent fields of the line, its routes, stop points, journey patterns,
+ * vehicle journeys, timetables ... Collections are hashed in object id order, so that it does not depend on the
+ * parsing order. Objects registered independently of the line (stop areas, networks, companies, groups of lines ...)
+ * contribute their own fields and single references, but not their collections, so that a change of their attributes
+ * changes the fingerprint of the lines using them. Database ids and creation times are ignored.
+ */
+public abstract class FingerprintUtil {
+
+	private static final Set<Class<?>> OWNED_TYPES = Set.of(Line.class, Route.class, StopPoint.class,
+			JourneyPattern.class, VehicleJourney.class, VehicleJourneyAtStop.class, Timetable.class,
+			JourneyFrequency.class, Timeband.class, Footnote.class, FootNoteAlternativeText.class, RouteSection.class,
+			RoutePoint.class, ScheduledStopPoint.class, DestinationDisplay.class, Interchange.class,
+			DatedServiceJourney.class, BookingArrangement.class, ContactStructure.class,
+			FlexibleServiceProperties.class);
+
+	private static final Set<String> IGNORED_FIELDS = Set.of("creationTime", "contentFingerprint");
+
+	private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<>();
+
+	private static final Comparator<Object> OBJECT_ID_ORDER = Comparator.comparing(
+			o -> ((NeptuneIdentifiedObject) o).getObjectId(), Comparator.nullsLast(Comparator.naturalOrder()));
+
+	public static String fingerprint(Line line) {
+		Hasher hasher = new Hasher();
+		hasher.add(line);
+		return hasher.toHex();
+	}
+
+	private static Field[] getFields(Class<?> type) {
+		return FIELDS.computeIfAbsent(type, t -> {
+			List<Field> result = new ArrayList<>();
+			for (Class<?> c = t; c != null && c != Object.class; c = c.getSuperclass()) {
+				for (Field field : c.getDeclaredFields()) {
+					int modifiers = field.getModifiers();
+					if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+							|| field.isAnnotationPresent(Transient.class) || field.isAnnotationPresent(Id.class)
+							|| IGNORED_FIELDS.contains(field.getName()) || field.isSynthetic()) {
+						continue;
+					}
+					field.setAccessible(true);
+					result.add(field);
+				}
+			}
+			result.sort(Comparator.comparing(Field::getName));
+			return result.toArray(new Field[result.size()]);
+		});
+	}
+
+	private static class Hasher {
+
+		private final MessageDigest digest;
+
+		// objects already hashed, only their object id is hashed again
+		private final Map<Object, Boolean> visited = new IdentityHashMap<>();
+
+		private Hasher() {
+			try {
+				digest = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		private String toHex() {
+			StringBuilder result = new StringBuilder();
+			for (byte b : digest.digest()) {
+				result.append(String.format("%02x", b));
+			}
+			return result.toString();
+		}
+
+		private void token(String value) {
+			digest.update(value.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+
+		private void add(Object value) {
+			if (value == null) {
+				token("~");
+			} else if (value instanceof NeptuneObject) {
+				addObject((NeptuneObject) value);
+			} else if (value instanceof Collection) {
+				addCollection((Collection<?>) value);
+			} else if (value instanceof Map) {
+				token("{");
+				List<Map.Entry<?, ?>> entries = new ArrayList<>(((Map<?, ?>) value).entrySet());
+				entries.sort(Comparator.comparing(e -> String.valueOf(e.getKey())));
+				for (Map.Entry<?, ?> entry : entries) {
+					add(entry.getKey());
+					add(entry.getValue());
+				}
+				token("}");
+			} else if (value.getClass().isArray()) {
+				token(value instanceof Object[] ? Arrays.deepToString((Object[]) value) : String.valueOf(value));
+			} else if (isValue(value.getClass())) {
+				token(value.toString());
+			} else if (visited.put(value, Boolean.TRUE) != null) {
+				token("@" + value.getClass().getSimpleName());
+			} else {
+				// embeddable
+				token("<" + value.getClass().getSimpleName());
+				addFields(value);
+				token(">");
+			}
+		}
+
+		private void addObject(NeptuneObject object) {
+			String objectId = object instanceof NeptuneIdentifiedObject ? ((NeptuneIdentifiedObject) object)
+					.getObjectId() : object.getClass().getSimpleName();
+			if (visited.put(object, Boolean.TRUE) != null) {
+				token("@" + objectId);
+				return;
+			}
+			token("<" + object.getClass().getSimpleName());
+			if (OWNED_TYPES.contains(object.getClass())) {
+				addFields(object);
+			} else {
+				addSharedFields(object);
+			}
+			token(">");
+		}
+
+		/**
+		 * fields of an object shared by several lines ; its collections (lines of a network, contained stop areas
+		 * ...) are left out and owned objects only contribute their object id
+		 */
+		private void addSharedFields(NeptuneObject object) {
+			for (Field field : getFields(object.getClass())) {
+				Object value;
+				try {
+					value = field.get(object);
+				} catch (IllegalAccessException e) {
+					throw new IllegalStateException(e);
+				}
+				if (value instanceof Collection || value instanceof Map) {
+					continue;
+				}
+				token(field.getName());
+				if (value instanceof NeptuneIdentifiedObject && OWNED_TYPES.contains(value.getClass())) {
+					token("@" + ((NeptuneIdentifiedObject) value).getObjectId());
+				} else {
+					add(value);
+				}
+			}
+		}
+
+		private void addFields(Object object) {
+			for (Field field : getFields(object.getClass())) {
+				token(field.getName());
+				try {
+					add(field.get(object));
+				} catch (IllegalAccessException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+
+		private void addCollection(Collection<?> values) {
+			List<Object> list = new ArrayList<>(values);
+			if (!list.isEmpty() && list.stream().allMatch(v -> v instanceof NeptuneIdentifiedObject)) {
+				list.sort(OBJECT_ID_ORDER);
+			} else if (values instanceof Set) {
+				list.sort(Comparator.comparing(Hasher::sortKey));
+			}
+			token("[" + list.size());
+			for (Object value : list) {
+				add(value);
+			}
+			token("]");
+		}
+
+		/**
+		 * order of the elements of an unordered collection
+		 */
+		private static String sortKey(Object value) {
+			if (value == null || isValue(value.getClass())) {
+				return String.valueOf(value);
+			}
+			Hasher hasher = new Hasher();
+			hasher.add(value);
+			return hasher.toHex();
+		}
+
+		private static boolean isValue(Class<?> type) {
+			String name = type.getName();
+			return type.isPrimitive() || type.isEnum() || name.startsWith("java.") || name.startsWith("javax.")
+					|| name.startsWith("org.locationtech.") || name.startsWith("com.vividsolutions.")
+					|| name.startsWith("org.geolatte.") || (type.getSuperclass() != null && type.getSuperclass().isEnum());
+		}
+	}
+}
@@ -303,6 +303,95 @@ public class Referential implements java.io.Serializable {
 		blocks.clear();
 	}
 
+	/**
+	 * create a referential sharing all shared maps with this one, but with its own line level maps
+	 * <br/>
+	 * used to keep the object graph of an imported line untouched while the next line is parsed
+	 *
+	 * @return referential for a single line
+	 */
+	public Referential createLineReferential() {
+		Referential result = new Referential();
+		result.setSharedAccessLinks(sharedAccessLinks);
+		result.setSharedDestinationDisplays(sharedDestinationDisplays);
+		result.setSharedAccessPoints(sharedAccessPoints);
+		result.setSharedPTNetworks(sharedPTNetworks);
+		result.setSharedCompanies(sharedCompanies);
+		result.setSharedConnectionLinks(sharedConnectionLinks);
+		result.setSharedStopAreas(sharedStopAreas);
+		result.setStopAreaMapping(stopAreaMapping);
+		result.setSharedGroupOfLines(sharedGroupOfLines);
+		result.setSharedLines(sharedLines);
+		result.setSharedTimetables(sharedTimetables);
+		result.setSharedTimebands(sharedTimebands);
+		result.setSharedInterchanges(sharedInterchanges);
+		result.setSharedScheduledStopPoints(sharedScheduledStopPoints);
+		result.setSharedFootnotes(sharedFootnotes);
+		result.setSharedBrandings(sharedBrandings);
+		result.setSharedRoutePoints(sharedRoutePoints);
+		result.setSharedRouteSections(sharedRouteSections);
+		result.setSharedBlocks(sharedBlocks);
+		return result;
+	}
+
+	/**
+	 * create a referential holding the objects of this one in copies of its maps
+	 * <br/>
+	 * used to read a line referential on another thread while the next lines populate the shared maps
+	 *
+	 * @return snapshot of the referential
+	 */
+	public Referential createSnapshot() {
+		Referential result = new Referential();
+		result.setSharedAccessLinks(new HashMap<>(sharedAccessLinks));
+		result.setSharedDestinationDisplays(new HashMap<>(sharedDestinationDisplays));
+		result.setSharedAccessPoints(new HashMap<>(sharedAccessPoints));
+		result.setSharedPTNetworks(new HashMap<>(sharedPTNetworks));
+		result.setSharedCompanies(new HashMap<>(sharedCompanies));
+		result.setSharedConnectionLinks(new HashMap<>(sharedConnectionLinks));
+		result.setSharedStopAreas(new HashMap<>(sharedStopAreas));
+		result.setSharedGroupOfLines(new HashMap<>(sharedGroupOfLines));
+		result.setSharedLines(new HashMap<>(sharedLines));
+		result.setSharedTimetables(new HashMap<>(sharedTimetables));
+		result.setSharedTimebands(new HashMap<>(sharedTimebands));
+		result.setSharedInterchanges(new HashMap<>(sharedInterchanges));
+		result.setSharedScheduledStopPoints(new HashMap<>(sharedScheduledStopPoints));
+		result.setSharedFootnotes(new HashMap<>(sharedFootnotes));
+		result.setSharedBrandings(new HashMap<>(sharedBrandings));
+		result.setSharedRoutePoints(new HashMap<>(sharedRoutePoints));
+		result.setSharedRouteSections(new HashMap<>(sharedRouteSections));
+		result.setSharedBlocks(new HashMap<>(sharedBlocks));
+		result.setStopAreaMapping(new HashMap<>(stopAreaMapping));
+		result.setRoutes(new HashMap<>(routes));
+		result.setLines(new HashMap<>(lines));
+		result.setJourneyPatterns(new HashMap<>(journeyPatterns));
+		result.setStopPoints(new HashMap<>(stopPoints));
+		result.setRoutePoints(new HashMap<>(routePoints));
+		result.setScheduledStopPoints(new HashMap<>(scheduledStopPoints));
+		result.setVehicleJourneys(new HashMap<>(vehicleJourneys));
+		result.setDeadRuns(new HashMap<>(deadRuns));
+		result.setAccessLinks(new HashMap<>(accessLinks));
+		result.setAccessPoints(new HashMap<>(accessPoints));
+		result.setPtNetworks(new HashMap<>(ptNetworks));
+		result.setCompanies(new HashMap<>(companies));
+		result.setConnectionLinks(new HashMap<>(connectionLinks));
+		result.setStopAreas(new HashMap<>(stopAreas));
+		result.setGroupOfLines(new HashMap<>(groupOfLines));
+		result.setTimetables(new HashMap<>(timetables));
+		result.setTimebands(new HashMap<>(timebands));
+		result.setRouteSections(new HashMap<>(routeSections));
+		result.setDestinationDisplays(new HashMap<>(destinationDisplays));
+		result.setInterchanges(new HashMap<>(interchanges));
+		result.setFootnotes(new HashMap<>(footnotes));
+		result.setFootnoteAlternativeTexts(new HashMap<>(footnoteAlternativeTexts));
+		result.setDatedServiceJourneys(new HashMap<>(datedServiceJourneys));
+		result.setBlocks(new HashMap<>(blocks));
+		result.setBrandings(new HashMap<>(brandings));
+		result.setVehicleJourneyAtStops(new HashMap<>(vehicleJourneyAtStops));
+		result.setDeadRunAtStops(new HashMap<>(deadRunAtStops));
+		return result;
+	}
+
 	public void dispose() {
 		// clear(false);
 		sharedAccessLinks.clear();
@@ -0,0 +1,57 @@
+package mobi.chouette.dao;
+
+import java.io.DataInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BinaryCopyBufferTest {
+
+	@Test
+	public void testRowsAreEncodedInBinaryCopyFormat() throws Exception {
+		BinaryCopyBuffer buffer = new BinaryCopyBuffer("test", "id", "name", "time", "date", "timestamp", "offset");
+		buffer.startRow().addLong(42L).addText("Kerniol-Cliscouët").addTime(LocalTime.of(0, 0, 1))
+				.addDate(LocalDate.of(2000, 1, 2)).addTimestamp(LocalDateTime.of(1999, 12, 31, 23, 59, 59))
+				.addInt(null);
+		Assert.assertEquals(buffer.getRowCount(), 1);
+
+		try (InputStream stream = buffer.toInputStream(); DataInputStream in = new DataInputStream(stream)) {
+			byte[] signature = new byte[11];
+			in.readFully(signature);
+			Assert.assertEquals(new String(signature, 0, 6, StandardCharsets.US_ASCII), "PGCOPY");
+			Assert.assertEquals(in.readInt(), 0);
+			Assert.assertEquals(in.readInt(), 0);
+
+			Assert.assertEquals(in.readShort(), 6);
+			Assert.assertEquals(in.readInt(), 8);
+			Assert.assertEquals(in.readLong(), 42L);
+			byte[] name = "Kerniol-Cliscouët".getBytes(StandardCharsets.UTF_8);
+			Assert.assertEquals(in.readInt(), name.length);
+			byte[] text = new byte[name.length];
+			in.readFully(text);
+			Assert.assertEquals(text, name);
+			Assert.assertEquals(in.readInt(), 8);
+			Assert.assertEquals(in.readLong(), 1000000L);
+			Assert.assertEquals(in.readInt(), 4);
+			Assert.assertEquals(in.readInt(), 1);
+			Assert.assertEquals(in.readInt(), 8);
+			Assert.assertEquals(in.readLong(), -1000000L);
+			Assert.assertEquals(in.readInt(), -1);
+
+			Assert.assertEquals(in.readShort(), -1);
+			Assert.assertEquals(in.read(), -1);
+		}
+	}
+
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void testIncompleteRowIsRejected() {
+		BinaryCopyBuffer buffer = new BinaryCopyBuffer("test", "id", "name");
+		buffer.startRow().addLong(1L);
+		buffer.startRow();
+	}
+}
@@ -215,6 +215,27 @@ public class VehicleJourneyTest {
 
 
 
+	@Test
+	public void getActiveDates_whenTimetableChanged_thenActiveDatesFollow() {
+		Timetable timetable = new TimetableBuilder().withDayTypes(DayTypeEnum.Monday, DayTypeEnum.Tuesday).withPeriod(mar1Sunday, mar7Saturday).build();
+		VehicleJourney vehicleJourney = new VehicleJourney();
+		vehicleJourney.addTimetable(timetable);
+
+		Assert.assertEquals(vehicleJourney.getActiveDates(), new TreeSet<>(Arrays.asList(mar2Monday, mar3Tuesday)));
+		Assert.assertTrue(timetable.isActiveOnPeriod(mar3Tuesday, mar5Thursday));
+
+		timetable.getCalendarDays().add(new CalendarDay(mar3Tuesday, false));
+		timetable.getCalendarDays().add(new CalendarDay(mar6Friday, true));
+		Assert.assertEquals(vehicleJourney.getActiveDates(), new TreeSet<>(Arrays.asList(mar2Monday, mar6Friday)));
+		Assert.assertFalse(timetable.isActiveOnPeriod(mar3Tuesday, mar5Thursday));
+
+		timetable.addDayType(DayTypeEnum.Thursday);
+		Assert.assertTrue(timetable.isActiveOnPeriod(mar3Tuesday, mar5Thursday));
+
+		timetable.getPeriods().get(0).setEndDate(mar4Wednesday);
+		Assert.assertFalse(timetable.isActiveOnPeriod(mar3Tuesday, mar5Thursday));
+	}
+
 	private class TimetableBuilder {
 
 		Timetable timetable = new Timetable();
@@ -0,0 +1,64 @@
+package mobi.chouette.model.util;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class DaySetTest {
+
+	private final LocalDate mar1 = LocalDate.of(2020, 3, 1);
+	private final LocalDate mar2 = LocalDate.of(2020, 3, 2);
+	private final LocalDate mar3 = LocalDate.of(2020, 3, 3);
+	private final LocalDate mar5 = LocalDate.of(2020, 3, 5);
+	private final LocalDate mar7 = LocalDate.of(2020, 3, 7);
+
+	@Test
+	public void testBuilderInAnyOrder() {
+		DaySet days = new DaySet.Builder().add(mar5).add(mar1, mar2).add(mar7).remove(mar2).build();
+
+		Assert.assertEquals(days.toSortedSet(), new TreeSet<>(Arrays.asList(mar1, mar5, mar7)));
+		Assert.assertEquals(days.size(), 3);
+		Assert.assertEquals(days.getFirst(), mar1);
+		Assert.assertEquals(days.getLast(), mar7);
+		Assert.assertTrue(days.contains(mar5));
+		Assert.assertFalse(days.contains(mar2));
+		Assert.assertFalse(days.contains(mar1.minusDays(1)));
+	}
+
+	@Test
+	public void testIntersectsPeriod() {
+		DaySet days = new DaySet.Builder().add(mar2).add(mar7).build();
+
+		Assert.assertTrue(days.intersects(mar1, mar2));
+		Assert.assertFalse(days.intersects(mar3, mar5));
+		Assert.assertTrue(days.intersects(null, mar2));
+		Assert.assertTrue(days.intersects(mar3, null));
+		Assert.assertFalse(days.intersects(mar7.plusDays(1), null));
+		Assert.assertFalse(DaySet.EMPTY.intersects(null, null));
+	}
+
+	@Test
+	public void testSetOperations() {
+		DaySet first = new DaySet.Builder().add(mar1, mar3).build();
+		DaySet second = new DaySet.Builder().add(mar3, mar7).build();
+
+		Assert.assertEquals(first.union(second), new DaySet.Builder().add(mar1, mar7).build());
+		Assert.assertEquals(first.intersection(second).toSortedSet(), new TreeSet<>(Arrays.asList(mar3)));
+		Assert.assertEquals(first.difference(second), new DaySet.Builder().add(mar1, mar2).build());
+		Assert.assertEquals(second.difference(first).getFirst(), mar3.plusDays(1));
+		Assert.assertTrue(first.intersects(second));
+		Assert.assertFalse(first.intersects(second.difference(first)));
+		Assert.assertTrue(first.difference(first).isEmpty());
+	}
+
+	@Test
+	public void testShift() {
+		DaySet days = new DaySet.Builder().add(mar1).add(mar5).build();
+
+		Assert.assertEquals(days.shift(2).toSortedSet(), new TreeSet<>(Arrays.asList(mar3, mar7)));
+		Assert.assertEquals(days.shift(2).shift(-2), days);
+	}
+}
@@ -0,0 +1,85 @@
+package mobi.chouette.model.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import mobi.chouette.model.JourneyPattern;
+import mobi.chouette.model.Line;
+import mobi.chouette.model.Network;
+import mobi.chouette.model.Period;
+import mobi.chouette.model.Route;
+import mobi.chouette.model.Timetable;
+import mobi.chouette.model.VehicleJourney;
+import mobi.chouette.model.VehicleJourneyAtStop;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class FingerprintUtilTest {
+
+	private Line createLine(boolean reversed, LocalTime departure) {
+		Line line = new Line();
+		line.setObjectId("test:Line:1");
+		line.setName("line 1");
+		Network network = new Network();
+		network.setObjectId("test:Network:1");
+		network.setName("network");
+		line.setNetwork(network);
+
+		Route route = new Route();
+		route.setObjectId("test:Route:1");
+		route.setLine(line);
+		JourneyPattern journeyPattern = new JourneyPattern();
+		journeyPattern.setObjectId("test:JourneyPattern:1");
+		journeyPattern.setRoute(route);
+
+		Timetable timetable = new Timetable();
+		timetable.setObjectId("test:Timetable:1");
+		timetable.addPeriod(new Period(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 12, 31)));
+
+		for (int i = 0; i < 2; i++) {
+			int n = reversed ? 1 - i : i;
+			VehicleJourney vehicleJourney = new VehicleJourney();
+			vehicleJourney.setObjectId("test:ServiceJourney:" + n);
+			vehicleJourney.setJourneyPattern(journeyPattern);
+			vehicleJourney.getTimetables().add(timetable);
+			VehicleJourneyAtStop vehicleJourneyAtStop = new VehicleJourneyAtStop();
+			vehicleJourneyAtStop.setObjectId("test:VehicleJourneyAtStop:" + n);
+			vehicleJourneyAtStop.setDepartureTime(n == 0 ? departure : LocalTime.of(12, 0));
+			vehicleJourneyAtStop.setVehicleJourney(vehicleJourney);
+		}
+		return line;
+	}
+
+	@Test(groups = { "model" }, description = "fingerprint does not depend on parsing order and creation time")
+	public void testSameContentSameFingerprint() throws Exception {
+		Line line = createLine(false, LocalTime.of(8, 0));
+		Line other = createLine(true, LocalTime.of(8, 0));
+		other.setCreationTime(LocalDateTime.now().minusDays(1));
+		other.setId(42L);
+
+		Assert.assertEquals(FingerprintUtil.fingerprint(other), FingerprintUtil.fingerprint(line),
+				"vehicle journey order, creation time and database ids should be ignored");
+	}
+
+	@Test(groups = { "model" }, description = "fingerprint changes with line content")
+	public void testChangedContentChangedFingerprint() throws Exception {
+		Line line = createLine(false, LocalTime.of(8, 0));
+		Line other = createLine(false, LocalTime.of(8, 1));
+
+		Assert.assertNotEquals(FingerprintUtil.fingerprint(other), FingerprintUtil.fingerprint(line),
+				"passing time change should change the fingerprint");
+
+		other = createLine(false, LocalTime.of(8, 0));
+		other.getRoutes().get(0).getJourneyPatterns().get(0).getVehicleJourneys().get(0).getTimetables().get(0)
+				.addPeriod(new Period(LocalDate.of(2021, 1, 1), LocalDate.of(2021, 1, 31)));
+		Assert.assertNotEquals(FingerprintUtil.fingerprint(other), FingerprintUtil.fingerprint(line),
+				"timetable change should change the fingerprint");
+
+		other = createLine(false, LocalTime.of(8, 0));
+		other.getNetwork().setName("renamed network");
+		Assert.assertNotEquals(FingerprintUtil.fingerprint(other), FingerprintUtil.fingerprint(line),
+				"network change should change the fingerprint");
+	}
+}
@@ -21,6 +21,7 @@ import mobi.chouette.exchange.validation.parameters.ValidationParameters;
 import mobi.chouette.exchange.validation.report.ValidationReport;
 import mobi.chouette.service.JobService;
 import mobi.chouette.service.JobServiceManager;
+import mobi.chouette.service.TransitDataStatisticsService;
 
 @Log4j
 @Stateless(name = MainCommand.COMMAND)
@@ -31,6 +32,9 @@ public class MainCommand implements Command, Constant {
 	@EJB
 	JobServiceManager jobManager;
 
+	@EJB
+	TransitDataStatisticsService statisticsService;
+
 	@Override
 	@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
 	public boolean execute(Context context) throws Exception {
@@ -55,22 +59,12 @@ public class MainCommand implements Command, Constant {
 			Command command = CommandFactory.create(ctx, name);
 			command.execute(context);
 
-			ActionReport report = (ActionReport) context.get(REPORT);
-			if (report.getResult().equals(ReportConstant.STATUS_ERROR)
-					&& report.getFailure().getCode().equals(ActionReporter.ERROR_CODE.INTERNAL_ERROR))
-				jobManager.abort(jobService);
-			else
-				jobManager.terminate(jobService);
+			complete(context, jobService);
 
 		} catch (javax.ejb.EJBTransactionRolledbackException ex) {
 			log.warn("exception bypassed " + ex);
 			// just ignore this exception
-			ActionReport report = (ActionReport) context.get(REPORT);
-			if (report.getResult().equals(ReportConstant.STATUS_ERROR)
-					&& report.getFailure().getCode().equals(ActionReporter.ERROR_CODE.INTERNAL_ERROR))
-				jobManager.abort(jobService);
-			else
-				jobManager.terminate(jobService);
+			complete(context, jobService);
 
 		} catch (Exception ex) {
 			if (!COMMAND_CANCELLED.equals(ex.getMessage())) {
@@ -82,6 +76,18 @@ public class MainCommand implements Command, Constant {
 		return result;
 	}
 
+	private void complete(Context context, JobService jobService) {
+		// while the job still holds its referentials, lines committed before an abort count as well
+		statisticsService.updateStatistics(jobService);
+
+		ActionReport report = (ActionReport) context.get(REPORT);
+		if (report.getResult().equals(ReportConstant.STATUS_ERROR)
+				&& report.getFailure().getCode().equals(ActionReporter.ERROR_CODE.INTERNAL_ERROR))
+			jobManager.abort(jobService);
+		else
+			jobManager.terminate(jobService);
+	}
+
 	public static class DefaultCommandFactory extends CommandFactory {
 
 		@Override
@@ -39,6 +39,7 @@ import mobi.chouette.common.TimeUtil;
 import mobi.chouette.common.file.FileServiceException;
 import mobi.chouette.common.file.FileStore;
 import mobi.chouette.common.file.FileStoreFactory;
+import mobi.chouette.dao.ReferentialDAO;
 import mobi.chouette.dao.iev.JobDAO;
 import mobi.chouette.dao.iev.StatDAO;
 import mobi.chouette.exchange.InputValidator;
@@ -72,6 +73,9 @@ public class JobServiceManager {
 	@EJB
 	StatDAO statDAO;
 
+	@EJB
+	ReferentialDAO referentialDAO;
+
 	@EJB(beanName = ContenerChecker.NAME)
 	ContenerChecker checker;
 
@@ -87,6 +91,7 @@ public class JobServiceManager {
 		String context = checker.getContext();
 		System.setProperty(context + PropertyNames.MAX_STARTED_JOBS, "5");
 		System.setProperty(context + PropertyNames.MAX_COPY_BY_JOB, "5");
+		System.setProperty(context + PropertyNames.MAX_COPY_MB_BY_JOB, "256");
 		try {
 			// set default properties
 			System.setProperty(checker.getContext() + PropertyNames.ROOT_DIRECTORY, System.getProperty("user.home"));
@@ -112,6 +117,13 @@ public class JobServiceManager {
 
 		// migrate jobs
 		jobDAO.migrate();
+
+		// migrate referential schemas
+		try {
+			referentialDAO.upgradeSchemas();
+		} catch (Exception e) {
+			log.error("cannot upgrade referential schemas", e);
+		}
 	}
 
 	private void loadPropertiesFromFile(String fileName, Properties properties) {
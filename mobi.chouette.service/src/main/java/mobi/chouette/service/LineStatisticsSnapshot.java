@@ -0,0 +1,156 @@
+package mobi.chouette.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import mobi.chouette.model.statistics.Period;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * Lines and timetables of a referential, as needed to compute line statistics for any start date.
+ * Stored as JSON in the referential_statistics table.
+ */
+@Getter
+class LineStatisticsSnapshot {
+
+	private final List<SnapshotLine> lines = new ArrayList<>();
+
+	String toJSON() throws JSONException {
+		JSONArray jsonLines = new JSONArray();
+		for (SnapshotLine line : lines) {
+			JSONArray jsonTimetables = new JSONArray();
+			for (SnapshotTimetable timetable : line.getTimetables()) {
+				JSONObject jsonTimetable = new JSONObject();
+				jsonTimetable.put("id", timetable.getId());
+				jsonTimetable.put("objectId", timetable.getObjectId());
+				jsonTimetable.put("validity", toJSON(timetable.getValidity()));
+				JSONArray jsonPeriods = new JSONArray();
+				for (Period period : timetable.getPeriods()) {
+					jsonPeriods.put(toJSON(period));
+				}
+				jsonTimetable.put("periods", jsonPeriods);
+				JSONArray jsonDays = new JSONArray();
+				for (LocalDate day : timetable.getIncludedDays()) {
+					jsonDays.put(day.toString());
+				}
+				jsonTimetable.put("includedDays", jsonDays);
+				jsonTimetable.put("limits", toJSON(timetable.getLimits()));
+				jsonTimetables.put(jsonTimetable);
+			}
+			JSONObject jsonLine = new JSONObject();
+			jsonLine.put("id", line.getId());
+			jsonLine.put("objectId", line.getObjectId());
+			jsonLine.put("name", line.getName());
+			jsonLine.put("number", line.getNumber());
+			jsonLine.put("timetables", jsonTimetables);
+			jsonLines.put(jsonLine);
+		}
+		JSONObject json = new JSONObject();
+		json.put("lines", jsonLines);
+		return json.toString();
+	}
+
+	static LineStatisticsSnapshot fromJSON(String text) throws JSONException {
+		LineStatisticsSnapshot snapshot = new LineStatisticsSnapshot();
+		JSONArray jsonLines = new JSONObject(text).getJSONArray("lines");
+		for (int i = 0; i < jsonLines.length(); i++) {
+			JSONObject jsonLine = jsonLines.getJSONObject(i);
+			SnapshotLine line = new SnapshotLine(jsonLine.getLong("id"), jsonLine.optString("objectId", null),
+					jsonLine.optString("name", null), jsonLine.getString("number"));
+			JSONArray jsonTimetables = jsonLine.getJSONArray("timetables");
+			for (int j = 0; j < jsonTimetables.length(); j++) {
+				JSONObject jsonTimetable = jsonTimetables.getJSONObject(j);
+				SnapshotTimetable timetable = new SnapshotTimetable(jsonTimetable.getLong("id"),
+						jsonTimetable.optString("objectId", null));
+				timetable.setValidity(toPeriod(jsonTimetable.optJSONObject("validity")));
+				JSONArray jsonPeriods = jsonTimetable.getJSONArray("periods");
+				for (int k = 0; k < jsonPeriods.length(); k++) {
+					timetable.getPeriods().add(toPeriod(jsonPeriods.getJSONObject(k)));
+				}
+				JSONArray jsonDays = jsonTimetable.getJSONArray("includedDays");
+				for (int k = 0; k < jsonDays.length(); k++) {
+					timetable.getIncludedDays().add(LocalDate.parse(jsonDays.getString(k)));
+				}
+				timetable.setLimits(toPeriod(jsonTimetable.optJSONObject("limits")));
+				line.getTimetables().add(timetable);
+			}
+			snapshot.getLines().add(line);
+		}
+		return snapshot;
+	}
+
+	private static JSONObject toJSON(Period period) throws JSONException {
+		if (period == null) {
+			return null;
+		}
+		JSONObject json = new JSONObject();
+		json.put("from", period.getFrom() == null ? null : period.getFrom().toLocalDate().toString());
+		json.put("to", period.getTo() == null ? null : period.getTo().toLocalDate().toString());
+		return json;
+	}
+
+	private static Period toPeriod(JSONObject json) {
+		if (json == null) {
+			return null;
+		}
+		String from = json.optString("from", null);
+		String to = json.optString("to", null);
+		return new Period(from == null ? null : LocalDate.parse(from), to == null ? null : LocalDate.parse(to));
+	}
+
+	/**
+	 * line with its number, a generated one when the line has none
+	 */
+	@Getter
+	static class SnapshotLine {
+
+		private final Long id;
+
+		private final String objectId;
+
+		private final String name;
+
+		private final String number;
+
+		private final List<SnapshotTimetable> timetables = new ArrayList<>();
+
+		SnapshotLine(Long id, String objectId, String name, String number) {
+			this.id = id;
+			this.objectId = objectId;
+			this.name = name;
+			this.number = number;
+		}
+	}
+
+	/**
+	 * timetable with either its validity, when both start and end of period are known, or its periods, included
+	 * days and computed limits of periods
+	 */
+	@Getter
+	@Setter
+	static class SnapshotTimetable {
+
+		private final Long id;
+
+		private final String objectId;
+
+		private Period validity;
+
+		private final List<Period> periods = new ArrayList<>();
+
+		private final List<LocalDate> includedDays = new ArrayList<>();
+
+		private Period limits;
+
+		SnapshotTimetable(Long id, String objectId) {
+			this.id = id;
+			this.objectId = objectId;
+		}
+	}
+}
@@ -17,10 +17,13 @@ import javax.ejb.ConcurrencyManagement;
 import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.EJB;
 import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 
 import lombok.extern.log4j.Log4j;
 import mobi.chouette.common.Constant;
 import mobi.chouette.common.Context;
+import mobi.chouette.common.PropertyUtil;
 import mobi.chouette.dao.ReferentialDAO;
 import mobi.chouette.exchange.report.ActionReport;
 import mobi.chouette.exchange.stopplace.PublicationDeliveryStopPlaceParser;
@@ -37,6 +40,17 @@ public class StopAreaService {
 
 	public static final String BEAN_NAME = "StopAreaService";
 
+	public static final String BATCH_SIZE_PROPERTY = "iev.stop.place.update.batch.size";
+
+	private static final int DEFAULT_BATCH_SIZE = 1000;
+
+	/**
+	 * each referential updated at the same time holds a database connection : keep well below the datasource pool size
+	 */
+	public static final String REFERENCE_UPDATE_THREADS_PROPERTY = "iev.stop.area.reference.update.threads";
+
+	private static final int DEFAULT_REFERENCE_UPDATE_THREADS = 4;
+
 	@EJB(beanName = StopAreaUpdateService.BEAN_NAME)
 	private StopAreaUpdateService stopAreaUpdateService;
 
@@ -53,27 +67,45 @@ public class StopAreaService {
 			t.setPriority(Thread.MIN_PRIORITY);
 			return t;
 		};
-		int processors = Runtime.getRuntime().availableProcessors();
-		executor = Executors.newFixedThreadPool(processors, threadFactory);
-		;
+		executor = Executors.newFixedThreadPool(PropertyUtil.getIntProperty(REFERENCE_UPDATE_THREADS_PROPERTY, DEFAULT_REFERENCE_UPDATE_THREADS), threadFactory);
 
 	}
 
+	/**
+	 * Stop places are converted and applied by batches of iev.stop.place.update.batch.size stop places (default 1000),
+	 * each batch in its own transaction. Stop area references are updated once all batches are applied, or once a
+	 * batch failed for the merges of the batches already committed.
+	 */
+	@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
 	public void createOrUpdateStopPlacesFromNetexStopPlaces(InputStream inputStream) {
-		PublicationDeliveryStopPlaceParser parser = new PublicationDeliveryStopPlaceParser(inputStream);
-
+		PublicationDeliveryStopPlaceParser parser = new PublicationDeliveryStopPlaceParser();
+		// changes of the committed batches
 		StopAreaUpdateContext updateContext = parser.getUpdateContext();
-		int changedStopCnt = updateContext.getChangedStopCount();
-
-		if (changedStopCnt > 0) {
-			log.info("Updating " + changedStopCnt + " stop areas");
-			Context context = createContext();
-			ContextHolder.clear();
-			stopAreaUpdateService.createOrUpdateStopAreas(context, updateContext);
-			log.info("Updated " + changedStopCnt + " stop areas");
-			updateStopAreaReferencesPerReferential(updateContext.getMergedQuays());
-		} else {
-			log.debug("Received update without any stop areas. Doing nothing");
+		AtomicInteger changedStopCnt = new AtomicInteger();
+
+		try {
+			parser.parseStopPlaces(inputStream, PropertyUtil.getIntProperty(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE), batch -> {
+				int batchStopCnt = batch.getChangedStopCount();
+				if (batchStopCnt > 0) {
+					log.info("Updating " + batchStopCnt + " stop areas");
+					ContextHolder.clear();
+					stopAreaUpdateService.createOrUpdateStopAreaBatch(createContext(), batch);
+					updateContext.getRemovedContainedStopAreaIds().addAll(batch.getRemovedContainedStopAreaIds());
+					updateContext.addMergedQuays(batch.getMergedQuays());
+					changedStopCnt.addAndGet(batchStopCnt);
+				}
+			});
+		} finally {
+			if (changedStopCnt.get() > 0) {
+				if (!updateContext.getRemovedContainedStopAreaIds().isEmpty()) {
+					ContextHolder.clear();
+					stopAreaUpdateService.deleteDetachedContainedStopAreas(createContext(), updateContext);
+				}
+				log.info("Updated " + changedStopCnt.get() + " stop areas");
+				updateStopAreaReferencesPerReferential(updateContext.getMergedQuays());
+			} else {
+				log.debug("Received update without any stop areas. Doing nothing");
+			}
 		}
 	}
 
@@ -1,6 +1,5 @@
 package mobi.chouette.service;
 
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -12,7 +11,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.stream.Collectors;
 
 import javax.ejb.ConcurrencyManagement;
 import javax.ejb.EJB;
@@ -25,23 +23,31 @@ import mobi.chouette.common.TimeUtil;
 import mobi.chouette.dao.LineDAO;
 import mobi.chouette.dao.TimetableDAO;
 import mobi.chouette.dao.exception.ChouetteStatisticsTimeoutException;
+import mobi.chouette.dao.iev.ReferentialStatisticsDAO;
 import mobi.chouette.model.CalendarDay;
+import mobi.chouette.model.iev.ReferentialStatistics;
 import mobi.chouette.model.statistics.Line;
 import mobi.chouette.model.statistics.LineAndTimetable;
 import mobi.chouette.model.statistics.LineStatistics;
+import mobi.chouette.model.statistics.LineStatisticsSummary;
 import mobi.chouette.model.statistics.Period;
 import mobi.chouette.model.statistics.PublicLine;
 import mobi.chouette.model.statistics.Timetable;
 import mobi.chouette.model.statistics.ValidityCategory;
 import mobi.chouette.persistence.hibernate.ContextHolder;
+import mobi.chouette.service.LineStatisticsSnapshot.SnapshotLine;
+import mobi.chouette.service.LineStatisticsSnapshot.SnapshotTimetable;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.DateUtils;
+import org.codehaus.jettison.json.JSONException;
 import java.time.LocalDate;
 import org.rutebanken.helper.calendar.CalendarPattern;
 import org.rutebanken.helper.calendar.CalendarPatternAnalyzer;
 
 import static javax.ejb.ConcurrencyManagementType.BEAN;
+import static mobi.chouette.common.Constant.EXPORTER;
+import static mobi.chouette.common.Constant.IMPORTER;
 import static mobi.chouette.common.TimeUtil.toLocalDate;
 
 @ConcurrencyManagement(BEAN)
@@ -57,11 +63,15 @@ public class TransitDataStatisticsService {
 	@EJB
 	TimetableDAO timetableDAO;
 
+	@EJB
+	ReferentialStatisticsDAO referentialStatisticsDAO;
+
 	/**
 	 * Returns a list of Lines grouped by Line "number". Create merged timetable
 	 * periods. Not supporting frequency based yet.
-	 * The transaction attribute is set to NEVER so that temporary modifications in Line objects
-	 * (creation of a line number if missing, ... ) are not persisted to the database
+	 * <br/>
+	 * Lines and timetables are read from the statistics stored when the last import or transfer job on the
+	 * referential completed. They are computed and stored first when the referential has no stored statistics yet.
 	 *
 	 * @param referential
 	 * @param startDate
@@ -78,28 +88,146 @@ public class TransitDataStatisticsService {
 	public LineStatistics getLineStatisticsByLineNumber(String referential, Date startDate, int days,
 			Map<Integer, String> minDaysValidityCategories) throws ServiceException {
 
-		ContextHolder.setContext(referential);
+		// Defaulting to today if not given
+		if (startDate == null) {
+			startDate = TimeUtil.toDate(LocalDate.now().atStartOfDay());
+		}
 
-		log.debug("Gettings statistics for "
-				+ referential
-				+ " using startDate="
-				+ startDate
-				+ " and minDaysValidityCategories="
-				+ minDaysValidityCategories);
+		LineStatisticsSnapshot snapshot = findSnapshots(Collections.singleton(referential)).get(referential);
+		if (snapshot == null) {
+			snapshot = updateSnapshot(referential);
+		}
+		return getLineStatistics(snapshot, startDate, days, minDaysValidityCategories);
+	}
+
+	/**
+	 * Returns the number of public lines per validity category for each referential and over all referentials.
+	 * Busy referentials are left out.
+	 */
+	@TransactionAttribute(TransactionAttributeType.NEVER)
+	public LineStatisticsSummary getLineStatisticsSummary(Collection<String> referentials, Date startDate, int days,
+			Map<Integer, String> minDaysValidityCategories) throws ServiceException {
 
-		// Defaulting to today if not given
 		if (startDate == null) {
 			startDate = TimeUtil.toDate(LocalDate.now().atStartOfDay());
 		}
 
-		Map<String, PublicLine> publicLines = new HashMap<String, PublicLine>();
+		LineStatisticsSummary summary = new LineStatisticsSummary(startDate, days);
+		Map<String, LineStatisticsSnapshot> snapshots = findSnapshots(referentials);
+		for (String referential : referentials) {
+			try {
+				LineStatisticsSnapshot snapshot = snapshots.get(referential);
+				if (snapshot == null) {
+					snapshot = updateSnapshot(referential);
+				}
+				summary.add(referential, getLineStatistics(snapshot, startDate, days, minDaysValidityCategories));
+			} catch (RequestServiceException e) {
+				if (e.getRequestExceptionCode() == RequestExceptionCode.REFERENTIAL_BUSY) {
+					log.warn("Statistic query timeout for referential " + referential + ", ignoring it in summary");
+				} else {
+					throw e;
+				}
+			}
+		}
+		return summary;
+	}
+
+	/**
+	 * Computes and stores the statistics of the referentials updated by a completed job : the referential of an
+	 * import job, the referentials locked by a transfer job. Other jobs are ignored.
+	 * <br/>
+	 * The transaction attribute is set to NEVER so that temporary modifications in Timetable objects
+	 * (computation of the limits of periods) are not persisted to the database
+	 */
+	@TransactionAttribute(TransactionAttributeType.NEVER)
+	public void updateStatistics(JobService jobService) {
+		Set<String> referentials;
+		if (IMPORTER.equals(jobService.getAction())) {
+			referentials = Collections.singleton(jobService.getReferential());
+		} else if (EXPORTER.equals(jobService.getAction()) && "transfer".equals(jobService.getType())) {
+			try {
+				referentials = jobService.getRequiredReferentialsLocks();
+			} catch (RuntimeException e) {
+				log.warn("Unable to find referentials updated by transfer job " + jobService.getId(), e);
+				return;
+			}
+		} else {
+			return;
+		}
+		for (String referential : referentials) {
+			try {
+				updateSnapshot(referential);
+			} catch (Exception e) {
+				log.warn("Unable to update line statistics of referential " + referential + " after job " + jobService.getId(), e);
+			}
+		}
+	}
+
+	/**
+	 * Computes and stores the statistics of a referential, after it has been updated outside of a job.
+	 */
+	@TransactionAttribute(TransactionAttributeType.NEVER)
+	public void updateStatistics(String referential) throws ServiceException {
+		updateSnapshot(referential);
+	}
+
+	/**
+	 * Removes the stored statistics of a deleted referential.
+	 */
+	public void removeStatistics(String referential) {
+		referentialStatisticsDAO.deleteByReferential(referential);
+	}
+
+	private LineStatistics getLineStatistics(LineStatisticsSnapshot snapshot, Date startDate, int days,
+			Map<Integer, String> minDaysValidityCategories) {
+		LineStatistics lineStats = new LineStatistics(startDate, days, computePublicLines(snapshot, startDate));
+		// Put lineNumbers into buckets depending on validity in the future
+		categorizeValidity(lineStats, startDate, minDaysValidityCategories);
+
+		return lineStats;
+	}
+
+	/**
+	 * stored statistics of the given referentials, referentials without stored statistics are left out
+	 */
+	private Map<String, LineStatisticsSnapshot> findSnapshots(Collection<String> referentials) {
+		Map<String, LineStatisticsSnapshot> snapshots = new HashMap<>();
+		for (ReferentialStatistics statistics : referentialStatisticsDAO.findByReferentials(referentials)) {
+			try {
+				snapshots.put(statistics.getReferential(), LineStatisticsSnapshot.fromJSON(statistics.getContent()));
+			} catch (JSONException e) {
+				log.warn("Ignored unreadable line statistics of referential " + statistics.getReferential() + " : " + e.getMessage());
+			}
+		}
+		return snapshots;
+	}
 
-		// Convert Chouette internal model to the statistics model used
+	private LineStatisticsSnapshot updateSnapshot(String referential) throws ServiceException {
+		String context = ContextHolder.getContext();
+		ContextHolder.setContext(referential);
 		try {
-			convertChouetteModelToStatisticsModel(startDate, publicLines);
+			long now = System.currentTimeMillis();
+			LineStatisticsSnapshot snapshot = new LineStatisticsSnapshot();
+			convertChouetteModelToSnapshot(snapshot);
+			referentialStatisticsDAO.save(referential, snapshot.toJSON());
+			log.info("Stored statistics of " + snapshot.getLines().size() + " lines for referential " + referential + " in "
+					+ (System.currentTimeMillis() - now) + "ms");
+			return snapshot;
 		} catch (ChouetteStatisticsTimeoutException e) {
 			throw new RequestServiceException(RequestExceptionCode.REFERENTIAL_BUSY, "Query timeout while calculating statistics for referential " + referential, e );
+		} catch (JSONException e) {
+			throw new ServiceException(ServiceExceptionCode.INTERNAL_ERROR, "Unable to store statistics for referential " + referential, e);
+		} finally {
+			ContextHolder.setContext(context);
 		}
+	}
+
+	private List<PublicLine> computePublicLines(LineStatisticsSnapshot snapshot, Date startDate) {
+
+		Map<String, PublicLine> publicLines = new HashMap<String, PublicLine>();
+
+		// Convert stored lines and timetables to the statistics model used
+		convertSnapshotToStatisticsModel(snapshot, startDate, publicLines);
 
 		// If Line->Timetable->Period is empty, remove Line but keep publicLine
 		filterLinesWithEmptyTimetablePeriods(publicLines);
@@ -110,18 +238,14 @@ public class TransitDataStatisticsService {
 		List<PublicLine> pL = new ArrayList<>(publicLines.values());
 		Collections.sort(pL);
 
-		LineStatistics lineStats = new LineStatistics(startDate,days,pL);
-		// Put lineNumbers into buckets depending on validity in the future
-		categorizeValidity(lineStats, startDate, minDaysValidityCategories);
-
 		// Merge identical names to display in PublicLines
-		mergeNames(lineStats);
+		mergeNames(pL);
 
-		return lineStats;
+		return pL;
 	}
 
-	private void mergeNames(LineStatistics lineStats) {
-		for (PublicLine pl : lineStats.getPublicLines()) {
+	private void mergeNames(List<PublicLine> publicLines) {
+		for (PublicLine pl : publicLines) {
 			Set<String> names = new TreeSet<String>();
 			for (Line l : pl.getLines()) {
 				if (l.getName() != null) {
@@ -214,7 +338,7 @@ public class TransitDataStatisticsService {
 		}
 	}
 
-	protected void convertChouetteModelToStatisticsModel(Date startDate, Map<String, PublicLine> publicLines) throws ChouetteStatisticsTimeoutException {
+	protected void convertChouetteModelToSnapshot(LineStatisticsSnapshot snapshot) throws ChouetteStatisticsTimeoutException {
 		// Load list of lineIds with corresponding Timetables
 		long now = System.currentTimeMillis();
 		Collection<LineAndTimetable> allTimetableForAllLines = timetableDAO.getAllTimetableForAllLines();
@@ -250,7 +374,42 @@ public class TransitDataStatisticsService {
 					lineNameToFakeLineNumber.put(lineNameKey, number);
 				}
 			}
-			l.setNumber(number);
+
+			SnapshotLine line = new SnapshotLine(l.getId(), l.getObjectId(), l.getName(), number);
+			snapshot.getLines().add(line);
+
+			for (mobi.chouette.model.Timetable t : lat.getTimetables()) {
+				SnapshotTimetable timetable = new SnapshotTimetable(t.getId(), t.getObjectId());
+				line.getTimetables().add(timetable);
+
+				if (t.getStartOfPeriod() != null && t.getEndOfPeriod() != null) {
+					timetable.setValidity(new Period(t.getStartOfPeriod(), t.getEndOfPeriod()));
+				} else {
+					if (t.getPeriods() != null) {
+						for (mobi.chouette.model.Period p : t.getPeriods()) {
+							timetable.getPeriods().add(new Period(p.getStartDate(), p.getEndDate()));
+						}
+					}
+
+					if (t.getCalendarDays() != null) {
+						for (CalendarDay day : t.getCalendarDays()) {
+							if (day.getIncluded()) {
+								timetable.getIncludedDays().add(day.getDate());
+							}
+						}
+					}
+
+					// Timetable from/to, used as period when no other period applies
+					t.computeLimitOfPeriods();
+					timetable.setLimits(new Period(t.getStartOfPeriod(), t.getEndOfPeriod()));
+				}
+			}
+		}
+	}
+
+	protected void convertSnapshotToStatisticsModel(LineStatisticsSnapshot snapshot, Date startDate, Map<String, PublicLine> publicLines) {
+
+		for (SnapshotLine l : snapshot.getLines()) {
 
 			PublicLine publicLine = publicLines.get(l.getNumber());
 			if (publicLine == null) {
@@ -261,54 +420,45 @@ public class TransitDataStatisticsService {
 			Line line = new Line(l.getId(), l.getObjectId(), l.getName());
 			publicLine.getLines().add(line);
 
-			Set<CalendarDay> calendarDaysForLine = new HashSet<>();
+			Set<LocalDate> calendarDaysForLine = new HashSet<>();
 
 			Timetable timetableForCalendarDays = null;
-			
+
 			boolean foundStartEndDateOfTimetable = false;
-			
-			
-			for (mobi.chouette.model.Timetable t : lat.getTimetables()) {
+
+			for (SnapshotTimetable t : l.getTimetables()) {
 				Timetable timetable = new Timetable(t.getId(), t.getObjectId());
 
 				line.getTimetables().add(timetable);
 
-				if (t.getStartOfPeriod() != null && t.getEndOfPeriod() != null) {
-					timetable.getPeriods().add(new Period(t.getStartOfPeriod(), t.getEndOfPeriod()));
+				if (t.getValidity() != null) {
+					timetable.getPeriods().add(t.getValidity());
 					foundStartEndDateOfTimetable = true;
 				} else {
 
-					if (t.getPeriods() != null && t.getPeriods().size() > 0) {
-						// Use periods
-						for (mobi.chouette.model.Period p : t.getPeriods()) {
-							Period period = new Period(p.getStartDate(), p.getEndDate());
-							if (!period.isEmpty() && !period.getTo().before(startDate)) {
-								// log.info("Adding normal period " + p);
-								timetable.getPeriods().add(period);
-							}
+					// Use periods
+					for (Period period : t.getPeriods()) {
+						if (!period.isEmpty() && !period.getTo().before(startDate)) {
+							timetable.getPeriods().add(period);
 						}
 					}
 
-					if (t.getCalendarDays() != null) {
-						for (CalendarDay day : t.getCalendarDays()) {
-							if (day.getIncluded() && !startDate.after(TimeUtil.toDate(day.getDate()))) {
-								timetable.getPeriods().add(new Period(day.getDate(), day.getDate()));
-								calendarDaysForLine.add(day);
-								timetableForCalendarDays = timetable;
-							}
+					for (LocalDate day : t.getIncludedDays()) {
+						if (!startDate.after(TimeUtil.toDate(day))) {
+							timetable.getPeriods().add(new Period(day, day));
+							calendarDaysForLine.add(day);
+							timetableForCalendarDays = timetable;
 						}
 					}
 
 					if (timetable.getPeriods().isEmpty()) {
 						// Use timetable from/to as period
-						t.computeLimitOfPeriods();
-						Period period = new Period(t.getStartOfPeriod(), t.getEndOfPeriod());
 
 						// TODO could be separate days here as well that should
 						// be
 						// included
-						if (!period.isEmpty() && !period.getTo().before(startDate)) {
-							// log.info("Adding timetable period " + period);
+						Period period = t.getLimits();
+						if (period != null && !period.isEmpty() && !period.getTo().before(startDate)) {
 							timetable.getPeriods().add(period);
 						} else {
 							if(log.isTraceEnabled()) {
@@ -334,10 +484,7 @@ public class TransitDataStatisticsService {
 		}
 	}
 
-	private Period calculatePeriodFromCalendarDaysPattern(Collection<CalendarDay> calendarDays) {
-
-		Set<java.time.LocalDate> includedDays = calendarDays.stream().filter(CalendarDay::getIncluded)
-				.map(c -> java.time.LocalDate.of(c.getDate().getYear(),c.getDate().getMonthValue(),c.getDate().getDayOfMonth())).collect(Collectors.toSet());
+	private Period calculatePeriodFromCalendarDaysPattern(Set<LocalDate> includedDays) {
 
 		CalendarPattern pattern = new CalendarPatternAnalyzer().computeCalendarPattern(includedDays);
 
@@ -347,6 +494,7 @@ public class TransitDataStatisticsService {
 		return null;
 	}
 
+
 	protected void filterLinesWithEmptyTimetablePeriods(Map<String, PublicLine> publicLines) {
 
 		List<PublicLine> filteredPublicLines = new ArrayList<>();
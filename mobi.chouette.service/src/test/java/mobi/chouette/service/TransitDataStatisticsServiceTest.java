@@ -3,9 +3,14 @@ package mobi.chouette.service;
 import java.util.*;
 
 import mobi.chouette.common.TimeUtil;
+import mobi.chouette.dao.iev.ReferentialStatisticsDAO;
+import mobi.chouette.model.iev.ReferentialStatistics;
 import mobi.chouette.model.statistics.LineStatistics;
+import mobi.chouette.model.statistics.LineStatisticsSummary;
 import mobi.chouette.model.statistics.PublicLine;
 import mobi.chouette.model.statistics.ValidityCategory;
+import mobi.chouette.service.LineStatisticsSnapshot.SnapshotLine;
+import mobi.chouette.service.LineStatisticsSnapshot.SnapshotTimetable;
 import java.time.LocalDate;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -104,6 +109,103 @@ public class TransitDataStatisticsServiceTest {
 
 
 
+	@Test
+	public void getLineStatisticsReadsStoredStatistics() throws Exception {
+		CountingStatisticsService service = new CountingStatisticsService();
+		LocalDate today = LocalDate.now();
+		Map<Integer, String> minDaysValidityCategories = new HashMap<>();
+		minDaysValidityCategories.put(5, "OK");
+
+		LineStatistics first = service.getLineStatisticsByLineNumber("ref1", TimeUtil.toDate(today), 10, minDaysValidityCategories);
+		Assert.assertEquals(service.conversions, 1, "computed and stored when missing");
+		Assert.assertEquals(first.getPublicLines().get(0).getLineNames(), Arrays.asList("Line 1"));
+		Assert.assertEquals(first.getPublicLines().get(0).getEffectivePeriods(), Arrays.asList(new Period(today.minusDays(1), today.plusDays(7))));
+		Assert.assertTrue(getCategory(first, 5).getLineNumbers().contains("1"));
+
+		LineStatistics later = service.getLineStatisticsByLineNumber("ref1", TimeUtil.toDate(today.plusDays(10)), 10, new HashMap<>());
+		Assert.assertEquals(service.conversions, 1, "read from the stored statistics");
+		Assert.assertEquals(later.getPublicLines().get(0).getEffectivePeriods(), Arrays.asList(new Period(today.minusDays(10), today.plusDays(20))),
+				"limits of periods used when no period is left");
+		Assert.assertTrue(getCategory(later, 0).getLineNumbers().contains("1"));
+
+		service.getLineStatisticsByLineNumber("ref2", TimeUtil.toDate(today), 10, minDaysValidityCategories);
+		Assert.assertEquals(service.conversions, 2);
+
+		service.updateStatistics("ref1");
+		Assert.assertEquals(service.conversions, 3);
+		service.getLineStatisticsByLineNumber("ref1", TimeUtil.toDate(today), 10, minDaysValidityCategories);
+		service.getLineStatisticsByLineNumber("ref2", TimeUtil.toDate(today), 10, minDaysValidityCategories);
+		Assert.assertEquals(service.conversions, 3);
+
+		service.removeStatistics("ref1");
+		service.getLineStatisticsByLineNumber("ref1", TimeUtil.toDate(today), 10, minDaysValidityCategories);
+		Assert.assertEquals(service.conversions, 4);
+	}
+
+	@Test
+	public void getLineStatisticsSummaryCountsLinesPerCategory() throws Exception {
+		CountingStatisticsService service = new CountingStatisticsService();
+		Map<Integer, String> minDaysValidityCategories = new HashMap<>();
+		minDaysValidityCategories.put(5, "OK");
+
+		LineStatisticsSummary summary = service.getLineStatisticsSummary(Arrays.asList("ref1", "ref2"), null, 10, minDaysValidityCategories);
+
+		Assert.assertEquals(summary.getReferentials().get("ref1").get("OK"), Integer.valueOf(1));
+		Assert.assertEquals(summary.getReferentials().get("ref2").get("INVALID"), Integer.valueOf(0));
+		Assert.assertEquals(summary.getValidityCategories().get("OK"), Integer.valueOf(2));
+	}
+
+	private static class CountingStatisticsService extends TransitDataStatisticsService {
+
+		private int conversions;
+
+		CountingStatisticsService() {
+			referentialStatisticsDAO = new InMemoryReferentialStatisticsDAO();
+		}
+
+		@Override
+		protected void convertChouetteModelToSnapshot(LineStatisticsSnapshot snapshot) {
+			conversions++;
+			LocalDate today = LocalDate.now();
+			SnapshotTimetable timetable = new SnapshotTimetable(1L, "TST:Timetable:1");
+			timetable.getPeriods().add(new Period(today.minusDays(10), today.minusDays(5)));
+			timetable.getPeriods().add(new Period(today.minusDays(1), today.plusDays(7)));
+			timetable.setLimits(new Period(today.minusDays(10), today.plusDays(20)));
+			SnapshotLine line = new SnapshotLine(1L, "TST:Line:1", "Line 1", "1");
+			line.getTimetables().add(timetable);
+			snapshot.getLines().add(line);
+		}
+	}
+
+	private static class InMemoryReferentialStatisticsDAO extends ReferentialStatisticsDAO {
+
+		private final Map<String, ReferentialStatistics> statistics = new HashMap<>();
+
+		@Override
+		public List<ReferentialStatistics> findByReferentials(Collection<String> referentials) {
+			List<ReferentialStatistics> result = new ArrayList<>();
+			for (String referential : referentials) {
+				if (statistics.containsKey(referential)) {
+					result.add(statistics.get(referential));
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public void save(String referential, String content) {
+			ReferentialStatistics referentialStatistics = new ReferentialStatistics();
+			referentialStatistics.setReferential(referential);
+			referentialStatistics.setContent(content);
+			statistics.put(referential, referentialStatistics);
+		}
+
+		@Override
+		public void deleteByReferential(String referential) {
+			statistics.remove(referential);
+		}
+	}
+
 	private Period createPeriod(LocalDate startDate, int days) {
 		LocalDate endDate = startDate.plusDays(days);
 		Period p1 = new Period(startDate, endDate);
@@ -72,6 +72,9 @@ public class RestService implements Constant {
 	@Inject
 	ReferentialService referentialService;
 
+	@Inject
+	TransitDataStatisticsService statisticsService;
+
 	@Context
 	UriInfo uriInfo;
 
@@ -221,6 +224,7 @@ public class RestService implements Constant {
 			ContextHolder.setContext(referential);
 			Command command = CommandFactory.create(new InitialContext(), CleanRepositoryCommand.class.getName());
 			command.execute(null);
+			statisticsService.updateStatistics(referential);
 			return Response.ok().build();
 		} catch (Exception e) {
 			log.error(e.getMessage(), e);
@@ -589,6 +593,7 @@ public class RestService implements Constant {
 		try {
 			referentialService.deleteReferential(referentialInfo);
 			jobServiceManager.drop(referentialInfo.getSchemaName());
+			statisticsService.removeStatistics(referentialInfo.getSchemaName());
 			return Response.ok().header(api_version_key, api_version).build();
 		} catch (ServiceException e) {
 			log.error("Service failed with code = " + e.getCode() , e);
@@ -1,5 +1,6 @@
 package mobi.chouette.ws;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -22,6 +23,7 @@ import lombok.extern.log4j.Log4j;
 import mobi.chouette.common.Color;
 import mobi.chouette.common.Constant;
 import mobi.chouette.model.statistics.LineStatistics;
+import mobi.chouette.model.statistics.LineStatisticsSummary;
 import mobi.chouette.service.ReferentialService;
 import mobi.chouette.service.RequestExceptionCode;
 import mobi.chouette.service.RequestServiceException;
@@ -113,6 +115,45 @@ public class RestStatisticsService implements Constant {
 	}
 
 
+	@GET
+	@Path("/line/summary")
+	@Produces({MediaType.APPLICATION_JSON})
+	public Response lineStatsSummary(@QueryParam("startDate") Date startDate, @QueryParam("days") int days,
+							  @QueryParam("minDaysValidityCategory") String minDaysValidityCategories[], @QueryParam("referentials") String referentials) {
+		try {
+			log.info(Color.CYAN + "Calculating line statistics summary for referentials " + referentials + Color.NORMAL);
+
+			Map<Integer, String> minDaysValidityCategoryMap = parseCategoryMap(minDaysValidityCategories);
+
+			// all referentials if none given
+			List<String> availableReferentials = referentialService.getReferentialCodes();
+			List<String> summaryReferentials = new ArrayList<>();
+			if (referentials == null || referentials.trim().isEmpty()) {
+				summaryReferentials.addAll(availableReferentials);
+			} else {
+				for (String referential : referentials.split(",")) {
+					if (availableReferentials.contains(referential)) {
+						summaryReferentials.add(referential);
+					} else {
+						log.warn(Color.CYAN + "Ignoring request for lineStats for unknown referential: " + referential);
+					}
+				}
+			}
+
+			LineStatisticsSummary summary = statisticsService.getLineStatisticsSummary(summaryReferentials, startDate, days,
+					minDaysValidityCategoryMap);
+			ResponseBuilder builder = Response.ok(summary);
+			builder.header(api_version_key, api_version);
+			log.info(Color.CYAN + "Calculated line statistics summary for referentials " + summaryReferentials + Color.NORMAL);
+			return builder.build();
+
+		} catch (Exception ex) {
+			log.error(ex.getMessage(), ex);
+			throw new WebApplicationException("INTERNAL_ERROR: " + ex.getMessage(), Status.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+
 	private Map<Integer, String> parseCategoryMap(@QueryParam("minDaysValidityCategory") String[] minDaysValidityCategories) {
 		Map<Integer, String> minDaysValidityCategoryMap = new HashMap<>();
 		if (minDaysValidityCategories != null) {
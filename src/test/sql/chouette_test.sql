@@ -1644,7 +1644,8 @@ CREATE TABLE public.lines (
                               stable_id character varying,
                               transport_submode_name character varying,
                               flexible_line_type character varying,
-                              booking_arrangement_id bigint
+                              booking_arrangement_id bigint,
+                              content_fingerprint character varying
 );
 
 
@@ -3892,7 +3893,8 @@ CREATE TABLE chouette_gui.lines (
                                     stable_id character varying,
                                     transport_submode_name character varying,
                                     flexible_line_type character varying,
-                                    booking_arrangement_id bigint
+                                    booking_arrangement_id bigint,
+                                    content_fingerprint character varying
 );
 
 